@@ -0,0 +1,110 @@
+/* Usage: java BenchmarkAllPatterns appClass
+ *
+ * Measures the wall clock time saved by MainDriverAllPatterns: the four
+ * detectors are run one after the other, each in its own Soot run (what
+ * MainDriverP1, MainDriverP2, InAPI.MainDriverP2 and
+ * NotNullDirective.MainDriver do), and all together in a single run. Both
+ * modes are run once to warm up the JVM, then ROUNDS times, the first mode
+ * of a round being the other one each round so neither gets the warm up of
+ * the other; the best time of each mode is printed. Soot is reset between
+ * the runs; the results are written nowhere.
+ */
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import soot.*;
+
+public class BenchmarkAllPatterns {
+
+	static final int ROUNDS = 5;
+
+	public static void main(String[] args) {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java BenchmarkAllPatterns [options] classname");
+			System.exit(0);
+		}
+
+		String[] classes = MainDriverAllPatterns.classArguments(args);
+
+		// le premier tour chauffe la JVM pour les deux modes, il n'est pas compte
+		separateRuns(classes);
+		singleRun(classes);
+
+		long separateRunsTime = Long.MAX_VALUE;
+		long singleRunTime = Long.MAX_VALUE;
+
+		for (int round = 0; round < ROUNDS; round++) {
+
+			long separateTime;
+			long singleTime;
+
+			// un tour sur deux commence par le run unique
+			if (round % 2 == 0) {
+				separateTime = separateRuns(classes);
+				singleTime = singleRun(classes);
+			} else {
+				singleTime = singleRun(classes);
+				separateTime = separateRuns(classes);
+			}
+
+			System.out.println("benchmark  round " + (round + 1) + " ----> one soot run per pattern " + separateTime + " ms, all patterns in one run "
+					+ singleTime + " ms");
+
+			separateRunsTime = Math.min(separateRunsTime, separateTime);
+			singleRunTime = Math.min(singleRunTime, singleTime);
+		}
+
+		System.out.println("benchmark  one soot run per pattern ----> " + separateRunsTime + " ms (best of " + ROUNDS + ")");
+		System.out.println("benchmark  all patterns in one run  ----> " + singleRunTime + " ms (best of " + ROUNDS + ")");
+		System.out.println("benchmark  saving                   ----> " + (separateRunsTime - singleRunTime) + " ms ("
+				+ (100 * (separateRunsTime - singleRunTime) / Math.max(separateRunsTime, 1)) + " %)");
+	}
+
+	/* the time of the four detectors, each in its own soot run */
+	static long separateRuns(String[] classes) {
+
+		long time = 0;
+
+		for (int i = 0; i < MainDriverAllPatterns.PhaseNames.length; i++) {
+
+			G.reset();
+			long startTime = System.currentTimeMillis();
+
+			MainDriverAllPatterns.runSoot(classes,
+					new String[] { MainDriverAllPatterns.PhaseNames[i] },
+					new BodyTransformer[] { newDetectors()[i] });
+
+			time += System.currentTimeMillis() - startTime;
+		}
+
+		return time;
+	}
+
+	/* the time of the four detectors in a single soot run */
+	static long singleRun(String[] classes) {
+
+		G.reset();
+		long startTime = System.currentTimeMillis();
+
+		MainDriverAllPatterns.runSoot(classes, MainDriverAllPatterns.PhaseNames, newDetectors());
+
+		return System.currentTimeMillis() - startTime;
+	}
+
+	static BodyTransformer[] newDetectors() {
+
+		return new BodyTransformer[] {
+				new InvokeStaticInstrumenterP1(discardingWriter(), discardingWriter(), discardingWriter()),
+				new InvokeStaticInstrumenterP2(discardingWriter(), discardingWriter(), discardingWriter()),
+				new InAPI.InvokeStaticInstrumenterP2(discardingWriter(), discardingWriter(), discardingWriter()),
+				new NotNullDirective.NotNullParameterStaticInstrumenter(null, null, null) };
+	}
+
+	private static PrintWriter discardingWriter() {
+
+		return new PrintWriter(new StringWriter());
+	}
+
+}
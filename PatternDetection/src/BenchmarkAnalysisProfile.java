@@ -0,0 +1,65 @@
+/* Usage: java BenchmarkAnalysisProfile [options] appClass
+ *
+ * Measures what the -analysis-only option (see Common.AnalysisProfile) saves:
+ * all the detectors are run in a single Soot run with the given options, then
+ * with the same options and -analysis-only, twice each so that the second
+ * pair runs on a warm JVM. The wall clock time and the peak heap used by each
+ * run are printed; the results are written nowhere.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import soot.*;
+
+import Common.AnalysisProfile;
+
+public class BenchmarkAnalysisProfile {
+
+	public static void main(String[] args) {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java BenchmarkAnalysisProfile [options] classname");
+			System.exit(0);
+		}
+
+		String[] classes = MainDriverAllPatterns.classArguments(AnalysisProfile.apply(args, false));
+
+		List<String> analysisOnlyClasses = new ArrayList<String>(Arrays.asList(classes));
+		analysisOnlyClasses.add(0, AnalysisProfile.ANALYSIS_ONLY);
+
+		for (int i = 0; i < 2; i++) {
+			run("full pipeline", classes);
+			run("analysis only", analysisOnlyClasses.toArray(new String[analysisOnlyClasses.size()]));
+		}
+	}
+
+	private static void run(String profile, String[] args) {
+
+		G.reset();
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+
+		long startTime = System.currentTimeMillis();
+
+		MainDriverAllPatterns.runSoot(args, MainDriverAllPatterns.PhaseNames, BenchmarkAllPatterns.newDetectors());
+
+		long time = System.currentTimeMillis() - startTime;
+
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+
+		System.out.println("benchmark  " + profile + " ----> " + time + " ms, peak heap " + (peakHeap / (1024 * 1024)) + " MB");
+	}
+
+}
@@ -0,0 +1,206 @@
+/* Usage: java BenchmarkBinaryResults [options] appClass
+ *
+ * Compares the csv files of the detectors with their binary format (see
+ * Common.BinaryResultWriter): P1, P2 and API are detected on the classes of
+ * the project in one soot run that writes both. For each pattern it prints
+ * the size of patternDistributionOverMethod.csv and detectedPattern.csv
+ * against results.bin, and the time it takes to load every row of each, the
+ * csv rows being split by Common.ResultRecord (best of ROUNDS, on a warm
+ * JVM). results.bin is then converted back to csv by
+ * Common.BinaryResultReader; exits with 1 when the converted files differ
+ * from the ones the detectors wrote.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import soot.*;
+
+import Common.AnalysisProfile;
+import Common.BinaryResultReader;
+import Common.ResultRecord;
+
+public class BenchmarkBinaryResults {
+
+	static final String[] Patterns = { "P1", "P2", "API" };
+	static final String[] PhaseNames = { "jtp.p1", "jtp.p2", "jtp.api" };
+	static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java BenchmarkBinaryResults [options] classname");
+			System.exit(0);
+		}
+
+		List<String> classes = MainDriverAllPatterns.projectClasses();
+		File outputDir = new File(System.getProperty("java.io.tmpdir"), "benchmarkBinaryResults");
+
+		MainDriverSharded.Detector[] detectors = new MainDriverSharded.Detector[Patterns.length];
+		BodyTransformer[] transformers = new BodyTransformer[Patterns.length];
+
+		for (int i = 0; i < Patterns.length; i++) {
+			File patternDir = new File(outputDir, Patterns[i]);
+			patternDir.mkdirs();
+			detectors[i] = new MainDriverSharded.Detector(Patterns[i], new String[] {
+					new File(patternDir, "test1.txt").getPath(),
+					new File(patternDir, "patternDistributionOverMethod.csv").getPath(),
+					new File(patternDir, "detectedPattern.csv").getPath() });
+			detectors[i].results.setClassOrder(classes);
+			detectors[i].results.setKeepWrittenReports(false);
+			detectors[i].writeBinaryResults(new File(patternDir, "results.bin").getPath());
+			transformers[i] = detectors[i].transformer;
+		}
+
+		List<String> sootArgs = new ArrayList<String>(Arrays.asList(MainDriverAllPatterns.classArguments(args)));
+		if (!AnalysisProfile.isRequested(args)) {
+			sootArgs.add(0, AnalysisProfile.ANALYSIS_ONLY);
+		}
+
+		G.reset();
+		MainDriverAllPatterns.runSoot(sootArgs.toArray(new String[sootArgs.size()]), PhaseNames, transformers);
+
+		for (int i = 0; i < Patterns.length; i++) {
+			detectors[i].writeResults();
+			detectors[i].close();
+			detectors[i].statistique(new File(new File(outputDir, Patterns[i]), "patternDistributionOverClass.csv").getPath());
+		}
+
+		int nbOfDifferences = 0;
+
+		for (String pattern : Patterns) {
+
+			File patternDir = new File(outputDir, pattern);
+			File patternDistributionOverMethod = new File(patternDir, "patternDistributionOverMethod.csv");
+			File detectedPattern = new File(patternDir, "detectedPattern.csv");
+			File binary = new File(patternDir, "results.bin");
+
+			long csvSize = patternDistributionOverMethod.length() + detectedPattern.length();
+			long csvTime = Long.MAX_VALUE;
+			long binaryTime = Long.MAX_VALUE;
+			long nbOfCsvFields = 0;
+			long nbOfBinaryFields = 0;
+
+			for (int round = 0; round < ROUNDS; round++) {
+
+				long startTime = System.nanoTime();
+				nbOfCsvFields = loadCsv(patternDistributionOverMethod) + loadCsv(detectedPattern);
+				csvTime = Math.min(csvTime, System.nanoTime() - startTime);
+
+				startTime = System.nanoTime();
+				nbOfBinaryFields = loadBinary(binary);
+				binaryTime = Math.min(binaryTime, System.nanoTime() - startTime);
+			}
+
+			File convertedDir = new File(patternDir, "fromBinary");
+			BinaryResultReader.toCsv(binary.getPath(), convertedDir);
+
+			int nbOfDifferentFiles = 0;
+			for (String file : new String[] { "patternDistributionOverMethod.csv", "detectedPattern.csv", "patternDistributionOverClass.csv" }) {
+				if (!sameBytes(new File(patternDir, file), new File(convertedDir, file))) {
+					nbOfDifferentFiles++;
+					System.out.println("difference " + pattern + " " + file + " converted from results.bin");
+				}
+			}
+			if (nbOfCsvFields != nbOfBinaryFields) {
+				nbOfDifferentFiles++;
+				System.out.println("difference " + pattern + " csv " + nbOfCsvFields + " fields, binary " + nbOfBinaryFields + " fields");
+			}
+
+			System.out.println("benchmark  " + pattern + " ----> csv " + (csvSize / 1024) + " KB loaded in " + (csvTime / 1000000) + " ms, binary "
+					+ (binary.length() / 1024) + " KB loaded in " + (binaryTime / 1000000) + " ms ("
+					+ (100 * binary.length() / Math.max(csvSize, 1)) + " % of the size, " + nbOfCsvFields + " fields), "
+					+ nbOfDifferentFiles + " files differ");
+
+			nbOfDifferences += nbOfDifferentFiles;
+		}
+
+		if (nbOfDifferences != 0) {
+			System.exit(1);
+		}
+	}
+
+	/* splits every row of the csv (header excluded), returns the number of fields */
+	private static long loadCsv(File file) throws IOException {
+
+		long nbOfFields = 0;
+		BufferedReader in = new BufferedReader(new FileReader(file), 1 << 16);
+
+		try {
+			String line = in.readLine(); // l'entete
+			while ((line = in.readLine()) != null) {
+				nbOfFields += ResultRecord.split(line).length;
+			}
+		} finally {
+			in.close();
+		}
+
+		return nbOfFields;
+	}
+
+	/* decodes every row of the binary file, returns the number of fields */
+	private static long loadBinary(File file) throws IOException {
+
+		long nbOfFields = 0;
+		BinaryResultReader reader = new BinaryResultReader(file.getPath());
+
+		try {
+			while (reader.next()) {
+				for (int row = 0; row < reader.getNbOfPatternDistributionOverMethodRows(); row++) {
+					nbOfFields += reader.getPatternDistributionOverMethodRow(row).length;
+				}
+				for (int row = 0; row < reader.getNbOfDetectedPatternRows(); row++) {
+					nbOfFields += reader.getDetectedPatternRow(row).length;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		return nbOfFields;
+	}
+
+	private static boolean sameBytes(File file1, File file2) throws IOException {
+
+		if (file1.length() != file2.length()) {
+			return false;
+		}
+
+		InputStream in1 = new FileInputStream(file1);
+		InputStream in2 = new FileInputStream(file2);
+
+		try {
+			byte[] buffer1 = new byte[1 << 16];
+			byte[] buffer2 = new byte[1 << 16];
+			int n;
+
+			while ((n = in1.read(buffer1)) > 0) {
+
+				int read = 0;
+				while (read < n) {
+					int m = in2.read(buffer2, read, n - read);
+					if (m < 0) {
+						return false;
+					}
+					read += m;
+				}
+				if (!Arrays.equals(Arrays.copyOf(buffer1, n), Arrays.copyOf(buffer2, n))) {
+					return false;
+				}
+			}
+		} finally {
+			in1.close();
+			in2.close();
+		}
+
+		return true;
+	}
+
+}
@@ -0,0 +1,232 @@
+/* Usage: java BenchmarkBytecodeDetector [options] appClass
+ *
+ * Differential test of Common.BytecodePatternDetector: P1 and P2 are detected
+ * on the classes of the project by the soot detectors (one soot run,
+ * -analysis-only) and by the bytecode detector (the .class files of BinPath).
+ * The rows of detectedPattern.csv are compared on their class, method,
+ * signature and type (the statements differ: jimple on one side, bytecode on
+ * the other), the rows of patternDistributionOverMethod.csv (P1 only) and
+ * the classes on their number of detected pattern. Prints what only one side found and the throughput of
+ * each side in classes per second; exits with 1 when they disagree.
+ */
+
+/* import necessary soot packages */
+
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import soot.*;
+
+import Common.AnalysisProfile;
+import Common.BytecodePatternDetector;
+import Common.ResultRecord;
+
+public class BenchmarkBytecodeDetector {
+
+	static final String[] Patterns = { "P1", "P2" };
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java BenchmarkBytecodeDetector [options] classname");
+			System.exit(0);
+		}
+
+		List<String> classes = MainDriverAllPatterns.projectClasses();
+		File outputDir = new File(System.getProperty("java.io.tmpdir"), "benchmarkBytecodeDetector");
+		int nbOfDifferences = 0;
+
+		/* soot */
+
+		MainDriverSharded.Detector[] detectors = new MainDriverSharded.Detector[Patterns.length];
+		BodyTransformer[] transformers = new BodyTransformer[Patterns.length];
+
+		for (int i = 0; i < Patterns.length; i++) {
+			detectors[i] = new MainDriverSharded.Detector(Patterns[i], outputFiles(outputDir, "soot", Patterns[i]));
+			detectors[i].results.setClassOrder(classes);
+			transformers[i] = detectors[i].transformer;
+		}
+
+		List<String> sootArgs = new ArrayList<String>(Arrays.asList(MainDriverAllPatterns.classArguments(args)));
+		if (!AnalysisProfile.isRequested(args)) {
+			sootArgs.add(0, AnalysisProfile.ANALYSIS_ONLY);
+		}
+
+		G.reset();
+		long startTime = System.currentTimeMillis();
+
+		MainDriverAllPatterns.runSoot(sootArgs.toArray(new String[sootArgs.size()]), new String[] { "jtp.p1", "jtp.p2" }, transformers);
+
+		for (MainDriverSharded.Detector detector : detectors) {
+			detector.writeResults();
+			detector.close();
+		}
+
+		long sootTime = System.currentTimeMillis() - startTime;
+
+		/* bytecode */
+
+		List<Map<String, Integer>> bytecodeClasses = new ArrayList<Map<String, Integer>>();
+
+		startTime = System.currentTimeMillis();
+
+		for (int i = 0; i < Patterns.length; i++) {
+
+			String[] files = outputFiles(outputDir, "bytecode", Patterns[i]);
+			PrintWriter patternDistributionOverMethod = new PrintWriter(files[1]);
+			PrintWriter detectedPattern = new PrintWriter(files[2]);
+
+			BytecodePatternDetector detector = new BytecodePatternDetector(Patterns[i], MainDriverAllPatterns.BinPath, patternDistributionOverMethod, detectedPattern);
+
+			for (String className : classes) {
+				detector.analyse(new File(MainDriverAllPatterns.BinPath, className.replace('.', File.separatorChar) + ".class"));
+			}
+
+			patternDistributionOverMethod.close();
+			detectedPattern.close();
+			bytecodeClasses.add(detector.getPatternDistributionOverClasses());
+		}
+
+		long bytecodeTime = System.currentTimeMillis() - startTime;
+
+		/* comparaison */
+
+		for (int i = 0; i < Patterns.length; i++) {
+
+			String pattern = Patterns[i];
+			String[] sootFiles = outputFiles(outputDir, "soot", pattern);
+			String[] bytecodeFiles = outputFiles(outputDir, "bytecode", pattern);
+
+			Map<String, Integer> sootRows = countRows(sootFiles[2], 6);
+			Map<String, Integer> bytecodeRows = countRows(bytecodeFiles[2], 6);
+			Map<String, Integer> sootMethods = readCounts(sootFiles[1]);
+			Map<String, Integer> bytecodeMethods = readCounts(bytecodeFiles[1]);
+
+			int nbOfRowDifferences = printDifferences(pattern + " row", sootRows, bytecodeRows);
+			int nbOfMethodDifferences = printDifferences(pattern + " method", sootMethods, bytecodeMethods);
+			int nbOfClassDifferences = printDifferences(pattern + " class", detectors[i].results.getPatternDistributionOverClasses(), bytecodeClasses.get(i));
+			detectors[i].results.release();
+
+			System.out.println("benchmark  " + pattern + " ----> soot " + total(sootRows) + " rows, bytecode " + total(bytecodeRows) + " rows, "
+					+ nbOfRowDifferences + " rows, " + nbOfMethodDifferences + " methods and " + nbOfClassDifferences + " classes differ");
+
+			nbOfDifferences += nbOfRowDifferences + nbOfMethodDifferences + nbOfClassDifferences;
+		}
+
+		System.out.println("benchmark  soot     ----> " + classes.size() + " classes in " + sootTime + " ms, "
+				+ (1000L * classes.size() / Math.max(sootTime, 1)) + " classes per second");
+		System.out.println("benchmark  bytecode ----> " + classes.size() + " classes in " + bytecodeTime + " ms, "
+				+ (1000L * classes.size() / Math.max(bytecodeTime, 1)) + " classes per second");
+
+		if (nbOfDifferences != 0) {
+			System.exit(1);
+		}
+	}
+
+	/* test1.txt, patternDistributionOverMethod.csv and detectedPattern.csv of an engine and a pattern */
+	static String[] outputFiles(File outputDir, String engine, String pattern) {
+
+		File patternDir = new File(new File(outputDir, engine), pattern);
+		patternDir.mkdirs();
+
+		return new String[] {
+				new File(patternDir, "test1.txt").getPath(),
+				new File(patternDir, "patternDistributionOverMethod.csv").getPath(),
+				new File(patternDir, "detectedPattern.csv").getPath() };
+	}
+
+	/* how many times each row, cut to its first nbOfFields fields, appears in the file (header excluded) */
+	static Map<String, Integer> countRows(String file, int nbOfFields) throws IOException {
+
+		Map<String, Integer> rows = new TreeMap<String, Integer>();
+
+		for (String line : readLines(file)) {
+
+			String[] fields = ResultRecord.split(line);
+			StringBuilder key = new StringBuilder();
+
+			for (int i = 0; i < Math.min(nbOfFields, fields.length); i++) {
+				key.append(ResultRecord.escape(fields[i])).append(ResultRecord.SEPARATOR);
+			}
+
+			Integer nb = rows.get(key.toString());
+			rows.put(key.toString(), (nb == null ? 0 : nb) + 1);
+		}
+
+		return rows;
+	}
+
+	/* the number of detected pattern of each class;;signature of patternDistributionOverMethod.csv */
+	static Map<String, Integer> readCounts(String file) throws IOException {
+
+		Map<String, Integer> counts = new TreeMap<String, Integer>();
+
+		for (String line : readLines(file)) {
+			int separator = line.lastIndexOf(";;");
+			counts.put(line.substring(0, separator), Integer.valueOf(line.substring(separator + 2)));
+		}
+
+		return counts;
+	}
+
+	private static List<String> readLines(String file) throws IOException {
+
+		List<String> lines = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+
+		try {
+			String line = in.readLine(); // l'entete
+			while ((line = in.readLine()) != null) {
+				if (line.length() != 0) {
+					lines.add(line);
+				}
+			}
+		} finally {
+			in.close();
+		}
+
+		return lines;
+	}
+
+	/* prints the keys whose value differs between soot and bytecode, returns their number */
+	static int printDifferences(String what, Map<String, Integer> soot, Map<String, Integer> bytecode) {
+
+		TreeMap<String, Integer> keys = new TreeMap<String, Integer>(soot);
+		keys.putAll(bytecode);
+
+		int nbOfDifferences = 0;
+
+		for (String key : keys.keySet()) {
+
+			Integer sootValue = soot.get(key);
+			Integer bytecodeValue = bytecode.get(key);
+
+			if (sootValue == null || !sootValue.equals(bytecodeValue)) {
+				nbOfDifferences++;
+				System.out.println("difference " + what + " " + key + " soot=" + (sootValue == null ? 0 : sootValue)
+						+ " bytecode=" + (bytecodeValue == null ? 0 : bytecodeValue));
+			}
+		}
+
+		return nbOfDifferences;
+	}
+
+	private static int total(Map<String, Integer> rows) {
+
+		int total = 0;
+		for (int nb : rows.values()) {
+			total += nb;
+		}
+		return total;
+	}
+
+}
@@ -0,0 +1,162 @@
+/* Usage: java BenchmarkCfgPrecision [options] appClass
+ *
+ * Regression test of the CFG_PRECISION of the detectors (see
+ * Common.SharedBodyGraph): the Scene of the project is loaded once, then
+ * P1, P2 and API are run on every body with the ExceptionalUnitGraph, the
+ * reference, and with each cheaper graph. The patternDistributionOverMethod.csv
+ * and detectedPattern.csv files of every run are compared with the reference
+ * ones, line for line (the bodies are the same, so are the names of their
+ * locals). Prints, for every pattern and precision, whether the results are
+ * the same and how long the detection took (the fastest of three); exits with 1 when a detector
+ * gets different results at the precision it declares.
+ */
+
+/* import necessary soot packages */
+
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import soot.*;
+
+import Common.SharedBodyGraph;
+
+public class BenchmarkCfgPrecision {
+
+	static final String[] Patterns = { "P1", "P2", "API" };
+	static final String[] PrecisionNames = { "brief", "pedantic", "exceptional" };
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java BenchmarkCfgPrecision [options] classname");
+			System.exit(0);
+		}
+
+		List<String> classes = MainDriverDaemon.loadScene(MainDriverAllPatterns.classArguments(args));
+		File outputDir = new File(System.getProperty("java.io.tmpdir"), "benchmarkCfgPrecision");
+		int nbOfDifferences = 0;
+
+		for (String pattern : Patterns) {
+
+			// le premier passage construit aussi les body
+			detect(newDetector(pattern, SharedBodyGraph.EXCEPTIONAL, outputDir), SharedBodyGraph.EXCEPTIONAL, classes);
+			MainDriverSharded.Detector reference = newDetector(pattern, SharedBodyGraph.EXCEPTIONAL, outputDir);
+			long referenceTime = fastestDetection(reference, pattern, SharedBodyGraph.EXCEPTIONAL, outputDir, classes);
+			String[] referenceFiles = outputFiles(outputDir, pattern, SharedBodyGraph.EXCEPTIONAL);
+
+			int declaredPrecision = MainDriverAllPatterns.cfgPrecision(new BodyTransformer[] { reference.transformer });
+
+			for (int precision = SharedBodyGraph.BRIEF; precision < SharedBodyGraph.EXCEPTIONAL; precision++) {
+
+				long time = fastestDetection(newDetector(pattern, precision, outputDir), pattern, precision, outputDir, classes);
+				String[] files = outputFiles(outputDir, pattern, precision);
+
+				boolean same = sameLines(referenceFiles[1], files[1]) && sameLines(referenceFiles[2], files[2]);
+
+				System.out.println("benchmark  " + pattern + " " + PrecisionNames[precision] + " ----> " + (same ? "same results" : "DIFFERENT results")
+						+ (precision == declaredPrecision ? " (declared)" : "") + ", " + time + " ms, exceptional " + referenceTime + " ms");
+
+				if (!same && precision >= declaredPrecision) {
+					nbOfDifferences++;
+				}
+			}
+
+			System.out.println("benchmark  " + pattern + " ----> declares " + PrecisionNames[declaredPrecision]);
+		}
+
+		SharedBodyGraph.setPrecision(SharedBodyGraph.EXCEPTIONAL);
+
+		if (nbOfDifferences != 0) {
+			System.exit(1);
+		}
+	}
+
+	static MainDriverSharded.Detector newDetector(String pattern, int precision, File outputDir) throws IOException {
+
+		return new MainDriverSharded.Detector(pattern, outputFiles(outputDir, pattern, precision));
+	}
+
+	/* detect three times, the first with detector; returns the fastest time */
+	static long fastestDetection(MainDriverSharded.Detector detector, String pattern, int precision, File outputDir, List<String> classes)
+			throws IOException {
+
+		long time = detect(detector, precision, classes);
+
+		for (int i = 0; i < 2; i++) {
+			time = Math.min(time, detect(newDetector(pattern, precision, outputDir), precision, classes));
+		}
+
+		return time;
+	}
+
+	/* runs detector on every body with the graphs of precision, returns the time it took */
+	static long detect(MainDriverSharded.Detector detector, int precision, List<String> classes) throws IOException {
+
+		detector.results.setClassOrder(classes);
+
+		// les traces que les detecteurs ecrivent sur System.out ne sont pas gardees
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+		}));
+
+		SharedBodyGraph.setPrecision(precision);
+		long startTime = System.currentTimeMillis();
+
+		try {
+			MainDriverDaemon.runDetectors(new MainDriverSharded.Detector[] { detector }, classes);
+		} finally {
+			System.setOut(out);
+		}
+
+		long time = System.currentTimeMillis() - startTime;
+
+		detector.writeResults();
+		detector.close();
+
+		return time;
+	}
+
+	/* test1.txt, patternDistributionOverMethod.csv and detectedPattern.csv of a pattern and a precision */
+	static String[] outputFiles(File outputDir, String pattern, int precision) {
+
+		File patternDir = new File(new File(outputDir, pattern), PrecisionNames[precision]);
+		patternDir.mkdirs();
+
+		return new String[] {
+				new File(patternDir, "test1.txt").getPath(),
+				new File(patternDir, "patternDistributionOverMethod.csv").getPath(),
+				new File(patternDir, "detectedPattern.csv").getPath() };
+	}
+
+	private static boolean sameLines(String file1, String file2) throws IOException {
+
+		return readLines(file1).equals(readLines(file2));
+	}
+
+	private static List<String> readLines(String file) throws IOException {
+
+		List<String> lines = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				lines.add(line);
+			}
+		} finally {
+			in.close();
+		}
+
+		return lines;
+	}
+
+}
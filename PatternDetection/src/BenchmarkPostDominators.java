@@ -0,0 +1,318 @@
+/* Usage: java BenchmarkPostDominators [options] appClass
+ *
+ * Measures the construction of the dominator and post-dominator trees of
+ * Common.DominatorTree against the size of the methods: the bodies of the
+ * project are grouped by number of units (1-15, 16-63, 64-255, ...) and, for
+ * every group, the time to build both trees of all its bodies (the fastest of
+ * ten, after a warm up) is printed with the time per unit and per edge, which
+ * stays about the same from the small groups to the large ones when the
+ * construction is linear.
+ *
+ * Then P1 and P2 are run with their walk (InvokeStaticInstrumenterP1 and P2)
+ * and with the trees (Common.PostDominatorDetector, PD1 and PD2), and the
+ * rows of their detectedPattern.csv are compared: rows found by both, by the
+ * walk only, by the trees only. The project is given like for
+ * MainDriverAllPatterns, with -DsourcePath=... -DbinPath=...; the files are
+ * written in the temporary directory.
+ *
+ * Last, both P2 are run on classes built here whose number of pattern is
+ * known (see checkCases); exits with 1 when the walk or the trees count
+ * another one.
+ */
+
+/* import necessary soot packages */
+
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import soot.*;
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+
+import Common.ClassReport;
+import Common.CompactUnitGraph;
+import Common.DominatorTree;
+import Common.SharedBodyGraph;
+
+public class BenchmarkPostDominators {
+
+	static final String[][] Patterns = { { "P1", "PD1" }, { "P2", "PD2" } };
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java BenchmarkPostDominators [options] classname");
+			System.exit(0);
+		}
+
+		List<String> classes = MainDriverDaemon.loadScene(MainDriverAllPatterns.classArguments(args));
+
+		measureTrees(classes);
+
+		File outputDir = new File(System.getProperty("java.io.tmpdir"), "benchmarkPostDominators");
+		SharedBodyGraph.setPrecision(SharedBodyGraph.EXCEPTIONAL);
+
+		for (String[] pattern : Patterns) {
+
+			long walkTime = detect(pattern[0], outputDir, classes);
+			long treeTime = detect(pattern[1], outputDir, classes);
+
+			List<String> walkRows = detectedPatternRows(outputDir, pattern[0]);
+			List<String> treeRows = detectedPatternRows(outputDir, pattern[1]);
+
+			int nbOfWalkRows = walkRows.size();
+			int nbOfTreeRows = treeRows.size();
+			int nbOfCommonRows = 0;
+			for (String row : walkRows) {
+				if (treeRows.remove(row)) {
+					nbOfCommonRows++;
+				}
+			}
+
+			System.out.println("benchmark  " + pattern[0] + " walk " + nbOfWalkRows + " rows " + walkTime + " ms, " + pattern[1] + " trees "
+					+ nbOfTreeRows + " rows " + treeTime + " ms ----> " + nbOfCommonRows + " in both, " + (nbOfWalkRows - nbOfCommonRows)
+					+ " walk only, " + (nbOfTreeRows - nbOfCommonRows) + " trees only");
+		}
+
+		checkCases(new File(outputDir, "cases"));
+	}
+
+	/*
+	 * runs P2 and PD2 on the cases, a class built here per case with the
+	 * number of P2 pattern it holds, and compares the number of pattern of
+	 * each class; exits with 1 when one differs
+	 */
+	static void checkCases(File outputDir) throws IOException {
+
+		Map<String, Integer> nbOfPatternOfCase = new LinkedHashMap<String, Integer>();
+		// les deux branches du if menent au meme throw : le if ne garde rien
+		nbOfPatternOfCase.put(addSharedThrow().getName(), 0);
+
+		List<String> classes = new ArrayList<String>(nbOfPatternOfCase.keySet());
+		boolean same = true;
+
+		for (String kind : Patterns[1]) {
+
+			MainDriverSharded.Detector detector = new MainDriverSharded.Detector(kind, outputFiles(outputDir, kind));
+			detector.results.setClassOrder(classes);
+
+			MainDriverDaemon.runDetectors(new MainDriverSharded.Detector[] { detector }, classes);
+
+			Map<String, Integer> nbOfPatternOfClass = new HashMap<String, Integer>();
+			for (ClassReport report : detector.writeResults()) {
+				nbOfPatternOfClass.put(report.getClassName(), report.getNbOfDetectedPattern());
+			}
+			detector.close();
+
+			for (Map.Entry<String, Integer> entry : nbOfPatternOfCase.entrySet()) {
+				Integer nbOfPattern = nbOfPatternOfClass.get(entry.getKey());
+				int found = nbOfPattern == null ? 0 : nbOfPattern;
+				if (found != entry.getValue()) {
+					System.out.println("benchmark  DIFFERENCE " + kind + " " + entry.getKey() + ": " + found + " pattern, expected " + entry.getValue());
+					same = false;
+				}
+			}
+		}
+
+		if (!same) {
+			System.exit(1);
+		}
+		System.out.println("benchmark  " + nbOfPatternOfCase.size() + " cases ----> " + Patterns[1][0] + " and " + Patterns[1][1] + " as expected");
+	}
+
+	/*
+	 * class BenchmarkPostDominatorsSharedThrow {
+	 *     void f(boolean c) { RuntimeException r = new RuntimeException(); if (c) System.gc(); throw r; }
+	 * }
+	 */
+	private static SootClass addSharedThrow() {
+
+		SootClass sharedThrow = new SootClass("BenchmarkPostDominatorsSharedThrow", Modifier.PUBLIC);
+		sharedThrow.setSuperclass(Scene.v().getSootClass("java.lang.Object"));
+		Scene.v().addClass(sharedThrow);
+		sharedThrow.setApplicationClass();
+
+		SootMethod method = new SootMethod("f", Arrays.asList(new Type[] { BooleanType.v() }), VoidType.v(), Modifier.PUBLIC);
+		sharedThrow.addMethod(method);
+
+		JimpleBody body = Jimple.v().newBody(method);
+		method.setActiveBody(body);
+
+		Local thisLocal = Jimple.v().newLocal("this", sharedThrow.getType());
+		Local c = Jimple.v().newLocal("c", BooleanType.v());
+		Local r = Jimple.v().newLocal("r", RefType.v("java.lang.RuntimeException"));
+		body.getLocals().add(thisLocal);
+		body.getLocals().add(c);
+		body.getLocals().add(r);
+
+		SootClass runtimeException = Scene.v().getSootClass("java.lang.RuntimeException");
+		SootClass system = Scene.v().getSootClass("java.lang.System");
+		Unit throwStmt = Jimple.v().newThrowStmt(r);
+
+		PatchingChain<Unit> units = body.getUnits();
+		units.add(Jimple.v().newIdentityStmt(thisLocal, Jimple.v().newThisRef(sharedThrow.getType())));
+		units.add(Jimple.v().newIdentityStmt(c, Jimple.v().newParameterRef(BooleanType.v(), 0)));
+		units.add(Jimple.v().newAssignStmt(r, Jimple.v().newNewExpr(runtimeException.getType())));
+		units.add(Jimple.v().newInvokeStmt(Jimple.v().newSpecialInvokeExpr(r,
+				Scene.v().makeMethodRef(runtimeException, "<init>", new ArrayList<Type>(), VoidType.v(), false))));
+		units.add(Jimple.v().newIfStmt(Jimple.v().newEqExpr(c, IntConstant.v(0)), throwStmt));
+		units.add(Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(
+				Scene.v().makeMethodRef(system, "gc", new ArrayList<Type>(), VoidType.v(), true))));
+		units.add(throwStmt);
+
+		return sharedThrow;
+	}
+
+	/* the time to build the trees of the bodies of classes, by group of method size */
+	static void measureTrees(List<String> classes) {
+
+		Map<Integer, List<CompactUnitGraph>> graphsBySize = new HashMap<Integer, List<CompactUnitGraph>>();
+		int largestGroup = 0;
+
+		for (String className : classes) {
+			for (SootMethod method : new ArrayList<SootMethod>(Scene.v().getSootClass(className).getMethods())) {
+
+				if (!method.isConcrete()) {
+					continue;
+				}
+
+				CompactUnitGraph cfg = new CompactUnitGraph(new ExceptionalUnitGraph(method.retrieveActiveBody()));
+
+				// groupes 1-15, 16-63, 64-255...
+				int group = 0;
+				for (int size = cfg.size() >> 4; size > 0; size >>= 2) {
+					group++;
+				}
+				largestGroup = Math.max(largestGroup, group);
+
+				List<CompactUnitGraph> graphs = graphsBySize.get(group);
+				if (graphs == null) {
+					graphs = new ArrayList<CompactUnitGraph>();
+					graphsBySize.put(group, graphs);
+				}
+				graphs.add(cfg);
+			}
+		}
+
+		// les premiers passages chauffent la JVM sur toutes les tailles
+		for (int pass = 0; pass < 5; pass++) {
+			for (List<CompactUnitGraph> graphs : graphsBySize.values()) {
+				buildTrees(graphs);
+			}
+		}
+
+		for (int group = 0; group <= largestGroup; group++) {
+
+			List<CompactUnitGraph> graphs = graphsBySize.get(group);
+			if (graphs == null) {
+				continue;
+			}
+
+			long nbOfUnits = 0;
+			long nbOfEdges = 0;
+			int largestMethod = 0;
+			for (CompactUnitGraph cfg : graphs) {
+				nbOfUnits += cfg.size();
+				for (int i = 0; i < cfg.size(); i++) {
+					nbOfEdges += cfg.getNbOfSuccs(i);
+				}
+				largestMethod = Math.max(largestMethod, cfg.size());
+			}
+
+			long time = buildTrees(graphs);
+			for (int pass = 0; pass < 10; pass++) {
+				time = Math.min(time, buildTrees(graphs));
+			}
+
+			System.out.println("benchmark  " + (group == 0 ? 1 : 16 << (2 * (group - 1))) + "-" + ((16 << (2 * group)) - 1) + " units ----> "
+					+ graphs.size() + " methods, largest " + largestMethod + " units, " + nbOfUnits + " units " + nbOfEdges + " edges, "
+					+ (time / 1000) + " us, " + (time / Math.max(nbOfUnits, 1)) + " ns per unit, " + (time / Math.max(nbOfEdges, 1)) + " ns per edge");
+		}
+	}
+
+	/* the time (ns) to build the dominator and post-dominator trees of every graph */
+	private static long buildTrees(List<CompactUnitGraph> graphs) {
+
+		long startTime = System.nanoTime();
+
+		for (CompactUnitGraph cfg : graphs) {
+			DominatorTree.dominators(cfg);
+			DominatorTree.postDominators(cfg);
+		}
+
+		return System.nanoTime() - startTime;
+	}
+
+	/* runs the detector of kind on every body, returns the time it took */
+	static long detect(String kind, File outputDir, List<String> classes) throws IOException {
+
+		MainDriverSharded.Detector detector = new MainDriverSharded.Detector(kind, outputFiles(outputDir, kind));
+		detector.results.setClassOrder(classes);
+
+		// les traces que les detecteurs ecrivent sur System.out ne sont pas gardees
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+		}));
+
+		long startTime = System.currentTimeMillis();
+
+		try {
+			MainDriverDaemon.runDetectors(new MainDriverSharded.Detector[] { detector }, classes);
+		} finally {
+			System.setOut(out);
+		}
+
+		long time = System.currentTimeMillis() - startTime;
+
+		detector.writeResults();
+		detector.close();
+
+		return time;
+	}
+
+	/* test1.txt, patternDistributionOverMethod.csv and detectedPattern.csv of kind */
+	static String[] outputFiles(File outputDir, String kind) {
+
+		File patternDir = new File(outputDir, kind);
+		patternDir.mkdirs();
+
+		return new String[] {
+				new File(patternDir, "test1.txt").getPath(),
+				new File(patternDir, "patternDistributionOverMethod.csv").getPath(),
+				new File(patternDir, "detectedPattern.csv").getPath() };
+	}
+
+	/* the rows of detectedPattern.csv of kind, without its header */
+	private static List<String> detectedPatternRows(File outputDir, String kind) throws IOException {
+
+		List<String> rows = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new FileReader(outputFiles(outputDir, kind)[2]));
+
+		try {
+			String line = in.readLine();
+			while ((line = in.readLine()) != null) {
+				rows.add(line);
+			}
+		} finally {
+			in.close();
+		}
+
+		return rows;
+	}
+
+}
@@ -0,0 +1,229 @@
+/* Usage: java BenchmarkResultStore [options] appClass
+ *
+ * Checks Common.ResultStore against the csv files of the detectors: P1, P2
+ * and API are detected on the classes of the project in one soot run that
+ * writes their csv files and a results.store (see Common.ResultStoreWriter).
+ * The store is then queried by kind, by class of the project and by package
+ * of the project, on detectedPattern and patternDistributionOverMethod, and
+ * each answer is compared with the rows a grep of the csv files gives: those
+ * of the kind whose first field is the class, or a class of the package or
+ * of its subpackages. Prints the number of queries and the time the store
+ * and the grep took for them (best of ROUNDS); exits with 1 on the first
+ * query whose rows differ.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import soot.*;
+
+import Common.AnalysisProfile;
+import Common.ResultRecord;
+import Common.ResultStore;
+import Common.ResultStoreWriter;
+
+public class BenchmarkResultStore {
+
+	static final String[] Patterns = { "P1", "P2", "API" };
+	static final String[] PhaseNames = { "jtp.p1", "jtp.p2", "jtp.api" };
+	static final String[] Tables = { "patternDistributionOverMethod.csv", "detectedPattern.csv" };
+	static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java BenchmarkResultStore [options] classname");
+			System.exit(0);
+		}
+
+		List<String> classes = MainDriverAllPatterns.projectClasses();
+		File outputDir = new File(System.getProperty("java.io.tmpdir"), "benchmarkResultStore");
+		outputDir.mkdirs();
+		File storeFile = new File(outputDir, "results.store");
+
+		MainDriverSharded.Detector[] detectors = new MainDriverSharded.Detector[Patterns.length];
+		BodyTransformer[] transformers = new BodyTransformer[Patterns.length];
+		ResultStoreWriter resultStore = new ResultStoreWriter(storeFile.getPath());
+
+		for (int i = 0; i < Patterns.length; i++) {
+			File patternDir = new File(outputDir, Patterns[i]);
+			patternDir.mkdirs();
+			detectors[i] = new MainDriverSharded.Detector(Patterns[i], new String[] {
+					new File(patternDir, "test1.txt").getPath(),
+					new File(patternDir, Tables[ResultStoreWriter.PATTERN_DISTRIBUTION_OVER_METHOD]).getPath(),
+					new File(patternDir, Tables[ResultStoreWriter.DETECTED_PATTERN]).getPath() });
+			detectors[i].results.setClassOrder(classes);
+			detectors[i].results.setKeepWrittenReports(false);
+			detectors[i].writeResultStore(resultStore);
+			transformers[i] = detectors[i].transformer;
+		}
+
+		List<String> sootArgs = new ArrayList<String>(Arrays.asList(MainDriverAllPatterns.classArguments(args)));
+		if (!AnalysisProfile.isRequested(args)) {
+			sootArgs.add(0, AnalysisProfile.ANALYSIS_ONLY);
+		}
+
+		G.reset();
+		MainDriverAllPatterns.runSoot(sootArgs.toArray(new String[sootArgs.size()]), PhaseNames, transformers);
+
+		for (int i = 0; i < Patterns.length; i++) {
+			detectors[i].writeResults();
+			detectors[i].close();
+			detectors[i].statistique(new File(new File(outputDir, Patterns[i]), "patternDistributionOverClass.csv").getPath());
+		}
+		resultStore.close();
+
+		// les rows des csv, par pattern et par table, comme le grep les lit
+		List<List<String[]>> csvRows = new ArrayList<List<String[]>>();
+		for (String pattern : Patterns) {
+			for (String table : Tables) {
+				csvRows.add(loadCsv(new File(new File(outputDir, pattern), table)));
+			}
+		}
+
+		Set<String> packages = new LinkedHashSet<String>();
+		for (String className : classes) {
+			for (int dot = className.indexOf('.'); dot >= 0; dot = className.indexOf('.', dot + 1)) {
+				packages.add(className.substring(0, dot));
+			}
+		}
+
+		ResultStore store = ResultStore.open(storeFile.getPath());
+
+		try {
+			long storeTime = Long.MAX_VALUE;
+			long grepTime = Long.MAX_VALUE;
+			int nbOfQueries = 0;
+			long nbOfRows = 0;
+
+			for (int round = 0; round < ROUNDS; round++) {
+
+				long[] time = new long[2];
+				nbOfQueries = 0;
+				nbOfRows = 0;
+
+				for (int p = 0; p < Patterns.length; p++) {
+					for (int table = 0; table < Tables.length; table++) {
+
+						List<String[]> rows = csvRows.get(p * Tables.length + table);
+
+						nbOfRows += compare(store, rows, Patterns[p], table, null, null, time);
+						nbOfQueries++;
+
+						for (String className : classes) {
+							nbOfRows += compare(store, rows, Patterns[p], table, className, null, time);
+							nbOfQueries++;
+						}
+						for (String packagePrefix : packages) {
+							nbOfRows += compare(store, rows, Patterns[p], table, null, packagePrefix, time);
+							nbOfQueries++;
+						}
+					}
+				}
+
+				storeTime = Math.min(storeTime, time[0]);
+				grepTime = Math.min(grepTime, time[1]);
+			}
+
+			System.out.println("benchmark  " + nbOfQueries + " queries, " + nbOfRows + " rows ----> same results");
+			System.out.println("benchmark  result store " + (storeTime / 1000000) + " ms (" + (storeFile.length() / 1024) + " KB, "
+					+ store.getNbOfClasses() + " classes), grep of the csv " + (grepTime / 1000000) + " ms");
+		} finally {
+			store.close();
+		}
+	}
+
+	/*
+	 * queries the store for the rows of the pattern in the table, of the
+	 * class or of the package when given, and compares them with the csv rows
+	 * a grep selects; adds the time of both to time, returns the number of rows
+	 */
+	private static int compare(ResultStore store, List<String[]> csvRows, String pattern, int table, String className, String packagePrefix,
+			long[] time) throws IOException {
+
+		long startTime = System.nanoTime();
+
+		ResultStore.Query query = store.query().kind(pattern);
+		if (table == ResultStoreWriter.PATTERN_DISTRIBUTION_OVER_METHOD) {
+			query.patternDistributionOverMethod();
+		}
+		if (className != null) {
+			query.inClass(className);
+		}
+		if (packagePrefix != null) {
+			query.inPackage(packagePrefix);
+		}
+		List<ResultStore.Row> storeRows = query.rows();
+
+		time[0] += System.nanoTime() - startTime;
+		startTime = System.nanoTime();
+
+		List<String[]> grepRows = grep(csvRows, className, packagePrefix);
+
+		time[1] += System.nanoTime() - startTime;
+
+		List<String> fromStore = new ArrayList<String>();
+		for (ResultStore.Row row : storeRows) {
+			fromStore.add(row.toString());
+		}
+		List<String> fromCsv = new ArrayList<String>();
+		for (String[] row : grepRows) {
+			fromCsv.add(ResultRecord.join((Object[]) row));
+		}
+
+		if (!fromStore.equals(fromCsv)) {
+			System.out.println("benchmark  DIFFERENCE " + pattern + " " + Tables[table] + (className != null ? " class " + className : "")
+					+ (packagePrefix != null ? " package " + packagePrefix : "") + ": store " + fromStore.size() + " rows, csv "
+					+ fromCsv.size() + " rows");
+			System.exit(1);
+		}
+
+		return fromStore.size();
+	}
+
+	/* the rows whose first field is the class, or a class of the package and of its subpackages */
+	private static List<String[]> grep(List<String[]> csvRows, String className, String packagePrefix) {
+
+		List<String[]> rows = new ArrayList<String[]>();
+
+		for (String[] row : csvRows) {
+			if (className != null && !row[0].equals(className)) {
+				continue;
+			}
+			if (packagePrefix != null && !row[0].startsWith(packagePrefix + ".")) {
+				continue;
+			}
+			rows.add(row);
+		}
+
+		return rows;
+	}
+
+	/* the split rows of the csv, header and empty lines excluded */
+	private static List<String[]> loadCsv(File file) throws IOException {
+
+		List<String[]> rows = new ArrayList<String[]>();
+		BufferedReader in = new BufferedReader(new FileReader(file), 1 << 16);
+
+		try {
+			String line = in.readLine(); // l'entete
+			while ((line = in.readLine()) != null) {
+				if (line.length() != 0) {
+					rows.add(ResultRecord.split(line));
+				}
+			}
+		} finally {
+			in.close();
+		}
+
+		return rows;
+	}
+
+}
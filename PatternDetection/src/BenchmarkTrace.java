@@ -0,0 +1,79 @@
+/* Usage: java BenchmarkTrace appClass
+ *
+ * Measures what the traces of the detectors cost (see Common.Trace): all the
+ * detectors are run in a single Soot run with every category at OFF, then at
+ * INFO, then at DEBUG (what the detectors wrote before Common.Trace), twice
+ * each so that the second round runs on a warm JVM. The traces written on
+ * System.out go to a file of java.io.tmpdir, as they would go to a console
+ * redirected to a file on a large project; the results are written nowhere.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import soot.*;
+
+import Common.Trace;
+
+public class BenchmarkTrace {
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java BenchmarkTrace [options] classname");
+			System.exit(0);
+		}
+
+		String[] classes = MainDriverAllPatterns.classArguments(args);
+		File traceFile = new File(System.getProperty("java.io.tmpdir"), "benchmarkTrace.txt");
+
+		long[] times = new long[Trace.DEBUG + 1];
+
+		for (int round = 0; round < 2; round++) {
+			for (int level = Trace.OFF; level <= Trace.DEBUG; level++) {
+
+				Trace.setLevel(level);
+				long nbOfLines = Trace.getNbOfTracedLines();
+
+				times[level] = run(classes, traceFile);
+
+				nbOfLines = Trace.getNbOfTracedLines() - nbOfLines;
+				System.out.println("benchmark  trace " + Trace.levelName(level) + " ----> " + times[level] + " ms, "
+						+ nbOfLines + " lines on System.out, " + (traceFile.length() / 1024) + " KB");
+			}
+		}
+
+		System.out.println("benchmark  cost of INFO  ----> " + (times[Trace.INFO] - times[Trace.OFF]) + " ms ("
+				+ (100 * (times[Trace.INFO] - times[Trace.OFF]) / Math.max(times[Trace.OFF], 1)) + " %)");
+		System.out.println("benchmark  cost of DEBUG ----> " + (times[Trace.DEBUG] - times[Trace.OFF]) + " ms ("
+				+ (100 * (times[Trace.DEBUG] - times[Trace.OFF]) / Math.max(times[Trace.OFF], 1)) + " %)");
+
+		traceFile.delete();
+	}
+
+	/* one soot run with every detector, the traces of System.out going to traceFile; returns the time it took */
+	private static long run(String[] classes, File traceFile) throws IOException {
+
+		G.reset();
+
+		PrintStream out = System.out;
+		PrintStream traces = new PrintStream(new BufferedOutputStream(new FileOutputStream(traceFile)));
+		System.setOut(traces);
+
+		long startTime = System.currentTimeMillis();
+
+		try {
+			// runSoot attend que la derniere trace soit ecrite (Trace.flush)
+			MainDriverAllPatterns.runSoot(classes, MainDriverAllPatterns.PhaseNames, BenchmarkAllPatterns.newDetectors());
+		} finally {
+			System.setOut(out);
+			traces.close();
+		}
+
+		return System.currentTimeMillis() - startTime;
+	}
+
+}
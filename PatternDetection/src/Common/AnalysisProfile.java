@@ -0,0 +1,69 @@
+package Common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * AnalysisProfile is the "-analysis-only" option of the drivers. The
+ * detectors only read the jimple bodies, so there is no need for soot to
+ * rewrite the whole program in sootOutput: with this option no output is
+ * produced (-f n), the packs that only prepare the output (bb, tag) and the
+ * optimisations (jop, jap) are turned off, and no body is built for a class
+ * that is not an application class.
+ *
+ * The detectors report the jimple they see and it must stay the same as in a
+ * normal run. Soot numbers the stack locals ($r7, $r12...) of a body
+ * differently when nothing is written out, so both profiles get
+ * "-p jb.lns sort-locals:true": the csv files of a run with or without
+ * -analysis-only are then the same.
+ *
+ * -prefilter (see BytecodePrefilter) turns this profile on as well: the stub
+ * bodies it puts in place of the filtered methods must never be written.
+ */
+public class AnalysisProfile {
+
+	public static final String ANALYSIS_ONLY = "-analysis-only";
+
+	/* given to soot whatever the profile */
+	static final String[] COMMON_OPTIONS = {
+			"-p", "jb.lns", "sort-locals:true" };
+
+	static final String[] ANALYSIS_ONLY_OPTIONS = {
+			"-f", "n",
+			"-no-bodies-for-excluded",
+			"-p", "jop", "enabled:false",
+			"-p", "jap", "enabled:false",
+			"-p", "bb", "enabled:false",
+			"-p", "tag", "enabled:false" };
+
+	public static boolean isRequested(String[] args) {
+
+		List<String> options = Arrays.asList(args);
+
+		return options.contains(ANALYSIS_ONLY) || options.contains(BytecodePrefilter.PREFILTER);
+	}
+
+	/*
+	 * removes the -analysis-only option, that soot does not know, from args and
+	 * puts the common soot options in front of them, and the ones of the
+	 * profile when analysisOnly
+	 */
+	public static String[] apply(String[] args, boolean analysisOnly) {
+
+		List<String> sootArgs = new ArrayList<String>(args.length + COMMON_OPTIONS.length + ANALYSIS_ONLY_OPTIONS.length);
+
+		sootArgs.addAll(Arrays.asList(COMMON_OPTIONS));
+		if (analysisOnly) {
+			sootArgs.addAll(Arrays.asList(ANALYSIS_ONLY_OPTIONS));
+		}
+		for (String arg : args) {
+			if (!arg.equals(ANALYSIS_ONLY)) {
+				sootArgs.add(arg);
+			}
+		}
+
+		return sootArgs.toArray(new String[sootArgs.size()]);
+	}
+
+}
@@ -0,0 +1,248 @@
+package Common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+/*
+ * BinaryResultReader reads a file of BinaryResultWriter one class at a time:
+ * next() decodes the record of the next class, whose rows are then read with
+ * getPatternDistributionOverMethodRow / getDetectedPatternRow, or field by
+ * field without building the rows. Only the dictionary and the current class
+ * are held. toCsv() turns a file back into the csv files the detectors write.
+ *
+ * Usage: java Common.BinaryResultReader results.bin outputDir
+ */
+public class BinaryResultReader {
+
+	private final DataInputStream in;
+	private final ArrayList<String> dictionary = new ArrayList<String>(4096);
+
+	private final String patternDistributionOverMethodHeader;
+	private final String detectedPatternHeader;
+
+	private String className;
+	private int nbOfDetectedPattern;
+	private int[][] patternDistributionOverMethodIds;
+	private int[][] detectedPatternIds;
+	private boolean finished = false;
+
+	public BinaryResultReader(String file) throws IOException {
+
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+
+		if (in.readInt() != BinaryResultWriter.MAGIC) {
+			in.close();
+			throw new IOException(file + " is not a file of BinaryResultWriter");
+		}
+
+		int version = readVarint(in);
+		if (version != BinaryResultWriter.VERSION) {
+			in.close();
+			throw new IOException(file + ": version " + version + ", expected " + BinaryResultWriter.VERSION);
+		}
+
+		patternDistributionOverMethodHeader = readString(in);
+		detectedPatternHeader = readString(in);
+	}
+
+	public String getPatternDistributionOverMethodHeader() {
+		return patternDistributionOverMethodHeader;
+	}
+
+	public String getDetectedPatternHeader() {
+		return detectedPatternHeader;
+	}
+
+	/* reads the next class, false at the end of the file */
+	public boolean next() throws IOException {
+
+		while (!finished) {
+
+			int record = in.readByte();
+
+			switch (record) {
+			case BinaryResultWriter.STRING:
+				dictionary.add(readString(in));
+				break;
+			case BinaryResultWriter.RESET:
+				dictionary.clear();
+				break;
+			case BinaryResultWriter.CLASS:
+				className = dictionary.get(readVarint(in));
+				nbOfDetectedPattern = readVarint(in);
+				patternDistributionOverMethodIds = readTable();
+				detectedPatternIds = readTable();
+				return true;
+			case BinaryResultWriter.END:
+				finished = true;
+				break;
+			default:
+				throw new IOException("unknown record " + record);
+			}
+		}
+
+		return false;
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	public int getNbOfDetectedPattern() {
+		return nbOfDetectedPattern;
+	}
+
+	public int getNbOfPatternDistributionOverMethodRows() {
+		return patternDistributionOverMethodIds.length;
+	}
+
+	public String[] getPatternDistributionOverMethodRow(int row) {
+		return fieldsOf(patternDistributionOverMethodIds[row]);
+	}
+
+	public int getNbOfDetectedPatternRows() {
+		return detectedPatternIds.length;
+	}
+
+	public String[] getDetectedPatternRow(int row) {
+		return fieldsOf(detectedPatternIds[row]);
+	}
+
+	/* a field of a detectedPattern row, null if the row is shorter */
+	public String getDetectedPatternField(int row, int field) {
+
+		int[] ids = detectedPatternIds[row];
+		return field < ids.length ? dictionary.get(ids[field]) : null;
+	}
+
+	public void close() throws IOException {
+
+		in.close();
+	}
+
+	private String[] fieldsOf(int[] ids) {
+
+		String[] fields = new String[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			fields[i] = dictionary.get(ids[i]);
+		}
+		return fields;
+	}
+
+	private int[][] readTable() throws IOException {
+
+		int nbOfRows = readVarint(in);
+		int nbOfColumns = readVarint(in);
+		int[][] rows = new int[nbOfRows][];
+
+		if (nbOfColumns > 0) {
+
+			for (int row = 0; row < nbOfRows; row++) {
+				rows[row] = new int[nbOfColumns];
+			}
+			for (int column = 0; column < nbOfColumns; column++) {
+				for (int row = 0; row < nbOfRows; row++) {
+					rows[row][column] = readVarint(in);
+				}
+			}
+
+		} else {
+
+			for (int row = 0; row < nbOfRows; row++) {
+				rows[row] = new int[readVarint(in)];
+				for (int field = 0; field < rows[row].length; field++) {
+					rows[row][field] = readVarint(in);
+				}
+			}
+		}
+
+		return rows;
+	}
+
+	static int readVarint(DataInput in) throws IOException {
+
+		int value = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			b = in.readByte();
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return value;
+	}
+
+	static String readString(DataInput in) throws IOException {
+
+		byte[] bytes = new byte[readVarint(in)];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	/*
+	 * writes patternDistributionOverMethod.csv, detectedPattern.csv and
+	 * patternDistributionOverClass.csv in outputDir as the detector wrote
+	 * them (the trace is not in the binary file); returns the number of
+	 * classes
+	 */
+	public static int toCsv(String binaryFile, File outputDir) throws IOException {
+
+		outputDir.mkdirs();
+
+		BinaryResultReader reader = new BinaryResultReader(binaryFile);
+		PrintWriter patternDistributionOverMethod = new PrintWriter(new BufferedWriter(new FileWriter(new File(outputDir, "patternDistributionOverMethod.csv"))));
+		PrintWriter detectedPattern = new PrintWriter(new BufferedWriter(new FileWriter(new File(outputDir, "detectedPattern.csv"))));
+		PrintWriter patternDistributionOverClass = new PrintWriter(new BufferedWriter(new FileWriter(new File(outputDir, "patternDistributionOverClass.csv"))));
+
+		int nbOfClasses = 0;
+
+		try {
+			patternDistributionOverMethod.println(reader.getPatternDistributionOverMethodHeader());
+			detectedPattern.println(reader.getDetectedPatternHeader());
+			patternDistributionOverClass.println(ResultRecord.join("class name", "number of detected pattern"));
+
+			while (reader.next()) {
+
+				for (int row = 0; row < reader.getNbOfPatternDistributionOverMethodRows(); row++) {
+					patternDistributionOverMethod.println(ResultRecord.join((Object[]) reader.getPatternDistributionOverMethodRow(row)));
+				}
+				for (int row = 0; row < reader.getNbOfDetectedPatternRows(); row++) {
+					detectedPattern.println(ResultRecord.join((Object[]) reader.getDetectedPatternRow(row)));
+				}
+				patternDistributionOverClass.println(ResultRecord.join(reader.getClassName(), reader.getNbOfDetectedPattern()));
+
+				nbOfClasses++;
+			}
+		} finally {
+			reader.close();
+			patternDistributionOverMethod.close();
+			detectedPattern.close();
+			patternDistributionOverClass.close();
+		}
+
+		return nbOfClasses;
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length != 2) {
+			System.err.println("Usage: java Common.BinaryResultReader results.bin outputDir");
+			System.exit(0);
+		}
+
+		int nbOfClasses = toCsv(args[0], new File(args[1]));
+
+		System.out.println("binary results ----> " + nbOfClasses + " classes written in " + args[1]);
+	}
+
+}
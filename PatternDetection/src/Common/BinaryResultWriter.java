@@ -0,0 +1,225 @@
+package Common;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+ * BinaryResultWriter writes the results of a detector in a compact binary
+ * file, read back by BinaryResultReader. On a corpus detectedPattern.csv
+ * repeats the class name, the method name and the signature on every row;
+ * here every field is the varint id of an entry of a dictionary, and the rows
+ * of a class are written column after column so that the ids of a column,
+ * mostly the same ones, sit next to each other.
+ *
+ *   file    = MAGIC version:varint header header record* END
+ *   header  = string, the first line of patternDistributionOverMethod.csv
+ *             then of detectedPattern.csv
+ *   record  = STRING string        a new entry, its id is the number of
+ *                                  entries before it
+ *           | RESET                the dictionary is emptied
+ *           | CLASS class:varint nbOfDetectedPattern:varint table table
+ *   table   = nbOfRows:varint nbOfColumns:varint (id:varint * nbOfRows) * nbOfColumns
+ *           | nbOfRows:varint 0 (nbOfFields:varint id:varint * nbOfFields) * nbOfRows
+ *   string  = length:varint utf-8 bytes
+ *
+ * The first table of a class holds its patternDistributionOverMethod rows,
+ * the second its detectedPattern rows, a row whose fields are the unescaped
+ * fields of the csv (see ResultRecord); the second form of a table is only
+ * used when the rows of a class do not all have the same number of fields.
+ * The trace is not kept. The dictionary is reset when it would go past
+ * MAX_DICTIONARY_SIZE entries, so neither side holds more than that.
+ */
+public class BinaryResultWriter {
+
+	public static final String BINARY_RESULTS = "-binary-results";
+
+	static final int MAGIC = 0x50445242; // PDRB
+	static final int VERSION = 1;
+
+	static final int END = 0;
+	static final int STRING = 1;
+	static final int RESET = 2;
+	static final int CLASS = 3;
+
+	static final int MAX_DICTIONARY_SIZE = 1 << 18;
+
+	private final DataOutputStream out;
+	private final HashMap<String, Integer> dictionary = new HashMap<String, Integer>(4096);
+
+	private String patternDistributionOverMethodHeader = "";
+	private String detectedPatternHeader = "";
+	private boolean started = false;
+
+	private long nbOfRows = 0;
+
+	public static boolean isRequested(String[] args) {
+
+		return Arrays.asList(args).contains(BINARY_RESULTS);
+	}
+
+	/* args without the -binary-results option, that soot does not know */
+	public static String[] remove(String[] args) {
+
+		List<String> otherArgs = new ArrayList<String>(Arrays.asList(args));
+		otherArgs.remove(BINARY_RESULTS);
+
+		return otherArgs.toArray(new String[otherArgs.size()]);
+	}
+
+	public BinaryResultWriter(String file) throws IOException {
+
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+	}
+
+	/* the headers the csv files would have, before the first class */
+	synchronized void setHeaders(String patternDistributionOverMethodHeader, String detectedPatternHeader) {
+
+		this.patternDistributionOverMethodHeader = patternDistributionOverMethodHeader;
+		this.detectedPatternHeader = detectedPatternHeader;
+	}
+
+	public synchronized void write(ClassReport report) throws IOException {
+
+		start();
+
+		List<String[]> patternDistributionOverMethodRows = ResultRecord.splitRows(report.getPatternDistributionOverMethodRows());
+		List<String[]> detectedPatternRows = ResultRecord.splitRows(report.getDetectedPatternRows());
+
+		// les ids de la classe doivent rester valides jusqu'a la fin du record
+		if (dictionary.size() + 1 + nbOfFields(patternDistributionOverMethodRows) + nbOfFields(detectedPatternRows) > MAX_DICTIONARY_SIZE) {
+			out.writeByte(RESET);
+			dictionary.clear();
+		}
+
+		int classId = idOf(report.getClassName());
+		int[][] patternDistributionOverMethodIds = idsOf(patternDistributionOverMethodRows);
+		int[][] detectedPatternIds = idsOf(detectedPatternRows);
+
+		out.writeByte(CLASS);
+		writeVarint(out, classId);
+		writeVarint(out, report.getNbOfDetectedPattern());
+		writeTable(patternDistributionOverMethodIds);
+		writeTable(detectedPatternIds);
+
+		nbOfRows += patternDistributionOverMethodIds.length + detectedPatternIds.length;
+	}
+
+	public synchronized long getNbOfRows() {
+		return nbOfRows;
+	}
+
+	public synchronized void close() throws IOException {
+
+		start();
+		out.writeByte(END);
+		out.close();
+	}
+
+	private void start() throws IOException {
+
+		if (!started) {
+			out.writeInt(MAGIC);
+			writeVarint(out, VERSION);
+			writeString(out, patternDistributionOverMethodHeader);
+			writeString(out, detectedPatternHeader);
+			started = true;
+		}
+	}
+
+	private static int nbOfFields(List<String[]> rows) {
+
+		int nbOfFields = 0;
+		for (String[] row : rows) {
+			nbOfFields += row.length;
+		}
+		return nbOfFields;
+	}
+
+	private int[][] idsOf(List<String[]> rows) throws IOException {
+
+		int[][] ids = new int[rows.size()][];
+
+		for (int i = 0; i < ids.length; i++) {
+
+			String[] row = rows.get(i);
+			ids[i] = new int[row.length];
+
+			for (int j = 0; j < row.length; j++) {
+				ids[i][j] = idOf(row[j]);
+			}
+		}
+
+		return ids;
+	}
+
+	/* the id of s, written in the dictionary the first time */
+	private int idOf(String s) throws IOException {
+
+		Integer id = dictionary.get(s);
+
+		if (id == null) {
+			id = dictionary.size();
+			dictionary.put(s, id);
+			out.writeByte(STRING);
+			writeString(out, s);
+		}
+
+		return id;
+	}
+
+	private void writeTable(int[][] rows) throws IOException {
+
+		writeVarint(out, rows.length);
+
+		int nbOfColumns = rows.length == 0 ? 0 : rows[0].length;
+		for (int[] row : rows) {
+			if (row.length != nbOfColumns) {
+				nbOfColumns = 0;
+			}
+		}
+
+		writeVarint(out, nbOfColumns);
+
+		if (nbOfColumns > 0) {
+
+			for (int column = 0; column < nbOfColumns; column++) {
+				for (int[] row : rows) {
+					writeVarint(out, row[column]);
+				}
+			}
+
+		} else {
+
+			for (int[] row : rows) {
+				writeVarint(out, row.length);
+				for (int id : row) {
+					writeVarint(out, id);
+				}
+			}
+		}
+	}
+
+	/* 7 bits per byte, the high bit set on every byte but the last */
+	static void writeVarint(DataOutputStream out, int value) throws IOException {
+
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	static void writeString(DataOutputStream out, String s) throws IOException {
+
+		byte[] bytes = s.getBytes("UTF-8");
+		writeVarint(out, bytes.length);
+		out.write(bytes);
+	}
+
+}
@@ -0,0 +1,284 @@
+package Common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import soot.Unit;
+import soot.toolkits.graph.DirectedGraph;
+
+/*
+ * BitVectorFlowAnalysis solves the forward gen/kill problems of the
+ * detectors (the null tested locals, the definitions using a parameter) on
+ * long[] bit vectors, instead of the FlowSets and the per-unit maps of soot's
+ * ForwardFlowAnalysis. The subclass numbers its facts 0..universeSize-1 and
+ * gives the gen and kill facts of each unit, then calls doAnalysis.
+ *
+ * The units are numbered in reverse postorder and every flow of the method
+ * lives in one long[] of words longs per unit, so the transfer function,
+ * out = (in & ~kill) | gen, and the union at the joins are computed in place
+ * without allocating. The worklist takes the units in reverse postorder like
+ * ForwardFlowAnalysis does; both compute the least fixpoint, so the flows are
+ * the same.
+ */
+public class BitVectorFlowAnalysis {
+
+	protected final DirectedGraph<Unit> graph;
+	protected final int universeSize;
+	private final int words;
+
+	// les unites dans l'ordre postfixe inverse, et le rang de chacune
+	private final Unit[] units;
+	private final Map<Unit, Integer> indexOfUnit;
+	private final int[][] preds;
+	private final int[][] succs;
+
+	// words longs par unite
+	private final long[] gen;
+	private final long[] kill;
+	private final long[] before;
+	private final long[] after;
+
+	public BitVectorFlowAnalysis(DirectedGraph<Unit> graph, int universeSize) {
+
+		this.graph = graph;
+		this.universeSize = universeSize;
+		words = (universeSize + 63) >>> 6;
+
+		units = reversePostorder(graph);
+		indexOfUnit = new HashMap<Unit, Integer>(units.length * 2 + 1, 0.7f);
+		for (int i = 0; i < units.length; i++) {
+			indexOfUnit.put(units[i], i);
+		}
+
+		// les predecesseurs sont deduits des successeurs
+		succs = new int[units.length][];
+		int[] nbOfPreds = new int[units.length];
+		for (int i = 0; i < units.length; i++) {
+			succs[i] = indexesOf(graph.getSuccsOf(units[i]));
+			for (int succ : succs[i]) {
+				nbOfPreds[succ]++;
+			}
+		}
+		preds = new int[units.length][];
+		for (int i = 0; i < units.length; i++) {
+			preds[i] = new int[nbOfPreds[i]];
+			nbOfPreds[i] = 0;
+		}
+		for (int i = 0; i < units.length; i++) {
+			for (int succ : succs[i]) {
+				preds[succ][nbOfPreds[succ]++] = i;
+			}
+		}
+
+		gen = new long[units.length * words];
+		kill = new long[units.length * words];
+		before = new long[units.length * words];
+		after = new long[units.length * words];
+	}
+
+	/* the units of the graph, a depth first search from the heads giving their reverse postorder */
+	private static Unit[] reversePostorder(DirectedGraph<Unit> graph) {
+
+		List<Unit> postorder = new ArrayList<Unit>(graph.size());
+		Set<Unit> visited = new HashSet<Unit>(graph.size() * 2 + 1, 0.7f);
+
+		List<Unit> stack = new ArrayList<Unit>();
+		List<Iterator<Unit>> succsOfStack = new ArrayList<Iterator<Unit>>();
+
+		// les unites qu'aucune tete n'atteint sont parcourues a la suite
+		Iterator<Unit> heads = graph.getHeads().iterator();
+		Iterator<Unit> others = graph.iterator();
+
+		while (heads.hasNext() || others.hasNext()) {
+
+			Unit root = heads.hasNext() ? heads.next() : others.next();
+
+			if (!visited.add(root)) {
+				continue;
+			}
+			stack.add(root);
+			succsOfStack.add(graph.getSuccsOf(root).iterator());
+
+			while (!stack.isEmpty()) {
+
+				Iterator<Unit> succs = succsOfStack.get(succsOfStack.size() - 1);
+
+				if (succs.hasNext()) {
+					Unit succ = succs.next();
+					if (visited.add(succ)) {
+						stack.add(succ);
+						succsOfStack.add(graph.getSuccsOf(succ).iterator());
+					}
+				} else {
+					postorder.add(stack.remove(stack.size() - 1));
+					succsOfStack.remove(succsOfStack.size() - 1);
+				}
+			}
+		}
+
+		Unit[] units = new Unit[postorder.size()];
+		for (int i = 0; i < units.length; i++) {
+			units[i] = postorder.get(units.length - 1 - i);
+		}
+		return units;
+	}
+
+	private int[] indexesOf(List<Unit> unitList) {
+
+		int[] indexes = new int[unitList.size()];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = indexOfUnit.get(unitList.get(i));
+		}
+		return indexes;
+	}
+
+	public boolean hasUnit(Unit unit) {
+
+		return indexOfUnit.containsKey(unit);
+	}
+
+	protected int indexOf(Unit unit) {
+
+		Integer index = indexOfUnit.get(unit);
+
+		if (index == null) {
+			throw new IllegalArgumentException(unit + " is not a unit of the graph");
+		}
+		return index;
+	}
+
+	/* fact holds after unit, whatever held before it */
+	protected void gen(Unit unit, int fact) {
+
+		gen[indexOf(unit) * words + (fact >>> 6)] |= 1L << fact;
+	}
+
+	/* fact does not hold after unit, unless unit generates it */
+	protected void kill(Unit unit, int fact) {
+
+		kill[indexOf(unit) * words + (fact >>> 6)] |= 1L << fact;
+	}
+
+	/* the facts fromFact..toFact (included) do not hold after unit, unless unit generates them */
+	protected void kill(Unit unit, int fromFact, int toFact) {
+
+		int base = indexOf(unit) * words;
+
+		for (int w = fromFact >>> 6; w <= toFact >>> 6 && fromFact <= toFact; w++) {
+			long mask = -1L;
+			if (w == fromFact >>> 6) {
+				mask &= -1L << fromFact;
+			}
+			if (w == toFact >>> 6) {
+				mask &= -1L >>> (63 - (toFact & 63));
+			}
+			kill[base + w] |= mask;
+		}
+	}
+
+	/* computes the flow before and after every unit, the flow before the heads being empty */
+	protected void doAnalysis() {
+
+		int nbOfUnits = units.length;
+		long[] pending = new long[(nbOfUnits + 63) >>> 6];
+
+		for (int i = 0; i < nbOfUnits; i++) {
+			pending[i >>> 6] |= 1L << i;
+		}
+
+		int i = nextSetBit(pending, 0, nbOfUnits);
+
+		while (i >= 0) {
+
+			pending[i >>> 6] &= ~(1L << i);
+
+			int base = i * words;
+			boolean changed = false;
+
+			for (int w = 0; w < words; w++) {
+
+				// merge : l'union des flots apres les predecesseurs
+				long in = 0;
+				for (int pred : preds[i]) {
+					in |= after[pred * words + w];
+				}
+				before[base + w] = in;
+
+				long out = (in & ~kill[base + w]) | gen[base + w];
+				if (out != after[base + w]) {
+					after[base + w] = out;
+					changed = true;
+				}
+			}
+
+			if (changed) {
+				for (int succ : succs[i]) {
+					pending[succ >>> 6] |= 1L << succ;
+				}
+			}
+
+			// on continue dans l'ordre postfixe inverse, puis on reprend au debut
+			int next = nextSetBit(pending, i + 1, nbOfUnits);
+			i = next >= 0 ? next : nextSetBit(pending, 0, nbOfUnits);
+		}
+	}
+
+	/* the first fact from fromFact on holding before unit, -1 if there is none */
+	public int nextFactBefore(Unit unit, int fromFact) {
+
+		return nextFact(before, indexOf(unit), fromFact);
+	}
+
+	/* the first fact from fromFact on holding after unit, -1 if there is none */
+	public int nextFactAfter(Unit unit, int fromFact) {
+
+		return nextFact(after, indexOf(unit), fromFact);
+	}
+
+	private int nextFact(long[] flow, int unitIndex, int fromFact) {
+
+		if (fromFact >= universeSize) {
+			return -1;
+		}
+
+		int base = unitIndex * words;
+		int w = fromFact >>> 6;
+		long word = flow[base + w] & (-1L << fromFact);
+
+		while (true) {
+			if (word != 0) {
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			}
+			if (++w == words) {
+				return -1;
+			}
+			word = flow[base + w];
+		}
+	}
+
+	private static int nextSetBit(long[] bits, int from, int size) {
+
+		if (from >= size) {
+			return -1;
+		}
+
+		int w = from >>> 6;
+		long word = bits[w] & (-1L << from);
+
+		while (true) {
+			if (word != 0) {
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			}
+			if (++w == bits.length) {
+				return -1;
+			}
+			word = bits[w];
+		}
+	}
+
+}
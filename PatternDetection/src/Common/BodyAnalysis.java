@@ -0,0 +1,45 @@
+package Common;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import soot.Body;
+import soot.toolkits.scalar.SimpleLocalDefs;
+
+/*
+ * A BodyAnalysis is a result the detectors ask for a body (its reaching
+ * definitions, the locals tested against null...), kept by SharedBodyGraph
+ * with the graphs of the body: the first detector asking for it on a body
+ * computes it, the following ones get it back. It is computed at most once
+ * per body, forgotten with the graphs when a transformer changes the body,
+ * and released when the detectors are done with the body (see
+ * SharedBodyGraph.release).
+ *
+ * An analysis is declared once, as a constant, next to the class it
+ * computes (NullTestedLocals.OF_BODY...); compute gets the graphs of the body
+ * from SharedBodyGraph, at the precision of the run.
+ */
+public abstract class BodyAnalysis<T> {
+
+	private static final AtomicInteger nbOfAnalyses = new AtomicInteger();
+
+	/* soot's reaching definitions of every local, on the graph of the run */
+	public static final BodyAnalysis<SimpleLocalDefs> REACHING_DEFS = new BodyAnalysis<SimpleLocalDefs>() {
+
+		protected SimpleLocalDefs compute(Body body) {
+
+			return new SimpleLocalDefs(SharedBodyGraph.unitGraph(body));
+		}
+	};
+
+	// la place du resultat dans les analyses gardees par SharedBodyGraph
+	final int index = nbOfAnalyses.getAndIncrement();
+
+	/* the result for body, computed on the first request */
+	public T of(Body body) {
+
+		return SharedBodyGraph.analysis(body, this);
+	}
+
+	protected abstract T compute(Body body);
+
+}
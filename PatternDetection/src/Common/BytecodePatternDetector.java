@@ -0,0 +1,915 @@
+package Common;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.util.Printer;
+
+/*
+ * BytecodePatternDetector finds the P1 pattern of InvokeStaticInstrumenterP1
+ * (a null test on a parameter followed by an exit point or by a throw within
+ * four units) and the P2 pattern of InvokeStaticInstrumenterP2 (an if leading
+ * to a throw within four units on one branch only) directly in the .class
+ * files, without Soot: no Scene, no jimple body, no ExceptionalUnitGraph.
+ *
+ * The two detectors count their four steps in jimple units on an
+ * ExceptionalUnitGraph, so the bytecode of each method is first cut into the
+ * units jimple would make of it (see Units): loads, constants and dups are
+ * operands, an expression is one unit (stored directly in its local when it
+ * is stored), every other instruction is one unit, and each handler starts
+ * with its @caughtexception unit. The exceptional edges are those of
+ * ExceptionalUnitGraph with the UnitThrowAnalysis: a unit of a trap gets an
+ * edge to the handler, so do its predecessors, as soon as the trap catches
+ * one of the exceptions the unit may throw (every unit may throw the VM
+ * errors). The class hierarchy needed to match exception types is read from
+ * the .class files of the classpath and of the JDK.
+ *
+ * The rows are the rows of the soot detectors with the same class, method,
+ * signature and type, but their statements are bytecode instructions
+ * ("ifnonnull (line 42)") as there is no jimple to print.
+ *
+ * The .class files are read with the tree and util packages of ASM 5 (the
+ * ASMCLASSES variable of .classpath, see readme).
+ */
+public class BytecodePatternDetector {
+
+	/* what a unit stands for */
+	static final byte OTHER = 0;
+	static final byte IF = 1;
+	static final byte GOTO = 2;
+	static final byte SWITCH = 3;
+	static final byte RETURN = 4;
+	static final byte THROW = 5;
+	static final byte CAUGHT_EXCEPTION = 6;
+
+	/* the null test of an IF unit */
+	static final byte NO_NULL_TEST = 0;
+	static final byte EQUAL_NULL = 1;
+	static final byte NOT_EQUAL_NULL = 2;
+
+	private static final String THROWABLE = "java/lang/Throwable";
+	private static final String ANY_SUBTYPE = "+";
+	private static final String[] VM_ERRORS = { "java/lang/InternalError", "java/lang/OutOfMemoryError",
+			"java/lang/StackOverflowError", "java/lang/UnknownError", "java/lang/ThreadDeath" };
+	private static final String NULL_POINTER_EXCEPTION = "java/lang/NullPointerException";
+	private static final String ILLEGAL_MONITOR_STATE_EXCEPTION = "java/lang/IllegalMonitorStateException";
+	private static final String ARRAY_INDEX_OUT_OF_BOUNDS_EXCEPTION = "java/lang/ArrayIndexOutOfBoundsException";
+
+	private final boolean p1;
+	private final ClassHierarchy hierarchy;
+
+	private final PrintWriter patternDistributionOverMethod;
+	private final PrintWriter detectedPattern;
+	private final LinkedHashMap<String, Integer> patternDistributionOverClasses = new LinkedHashMap<String, Integer>(350);
+
+	/*
+	 * kind is P1 or P2; classPath (directories separated by
+	 * File.pathSeparator) is where the exception classes of the project are
+	 * looked for, the JDK classes being read from the running JVM
+	 */
+	public BytecodePatternDetector(String kind, String classPath, PrintWriter pw2, PrintWriter pw3) {
+
+		if (!kind.equals("P1") && !kind.equals("P2")) {
+			throw new IllegalArgumentException("unknown pattern " + kind + ", expected P1 or P2");
+		}
+
+		p1 = kind.equals("P1");
+		hierarchy = new ClassHierarchy(classPath);
+		patternDistributionOverMethod = pw2;
+		detectedPattern = pw3;
+
+		pw2.println(ResultRecord.join("class name", "Method name", "number of detected pattern"));
+
+		if (p1) {
+			pw3.println(ResultRecord.join("class name", "Method name", "", "Method signature", "", "type of exitStmt", "exit stmt", "Analysed unit"));
+		} else {
+			pw3.println(ResultRecord.join("class name", "Method name", "", "Method signature", "", "", "exit stmt", "Analysed unit"));
+		}
+	}
+
+	public int analyse(File classFile) throws IOException {
+
+		InputStream in = new BufferedInputStream(new FileInputStream(classFile));
+		try {
+			return analyse(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/* writes the rows of the concrete methods of the class, returns the number of detected pattern */
+	public int analyse(InputStream classFile) throws IOException {
+
+		ClassNode classNode = new ClassNode();
+		new ClassReader(classFile).accept(classNode, ClassReader.SKIP_FRAMES);
+
+		String className = classNode.name.replace('/', '.');
+		int nbOfDetectedpatternInClass = 0;
+		boolean hasConcreteMethod = false;
+
+		for (Object m : classNode.methods) {
+
+			MethodNode method = (MethodNode) m;
+
+			if ((method.access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) {
+				continue;
+			}
+			hasConcreteMethod = true;
+
+			String signature = signature(className, method);
+			Units units = new Units(method, hierarchy);
+
+			int nbOfDetectedpatternInCurrentMethod = p1 ? detectP1(units, className, method, signature) : detectP2(units, className, method, signature);
+
+			// comme les detecteurs soot, seul P1 ecrit une ligne par methode
+			if (p1) {
+				patternDistributionOverMethod.println(ResultRecord.join(className, signature, nbOfDetectedpatternInCurrentMethod));
+			}
+			nbOfDetectedpatternInClass += nbOfDetectedpatternInCurrentMethod;
+		}
+
+		if (hasConcreteMethod) {
+			Integer nb = patternDistributionOverClasses.get(className);
+			patternDistributionOverClasses.put(className, (nb == null ? 0 : nb) + nbOfDetectedpatternInClass);
+		}
+
+		return nbOfDetectedpatternInClass;
+	}
+
+	/* InvokeStaticInstrumenterP1.internalTransform on the units of the method */
+	private int detectP1(Units units, String className, MethodNode method, String signature) {
+
+		int nbOfDetectedpattern = 0;
+
+		for (int u = 0; u < units.size; u++) {
+
+			if (units.kind[u] != IF || units.nullTest[u] == NO_NULL_TEST || !units.onParameter[u]) {
+				continue;
+			}
+
+			int theConsideredSucessor = units.nullTest[u] == EQUAL_NULL ? units.target[u] : units.otherSuccessor(u);
+
+			if (theConsideredSucessor < 0) {
+				continue;
+			}
+
+			if (units.isTail(theConsideredSucessor)) {
+				nbOfDetectedpattern++;
+				detectedPattern.println(ResultRecord.join(className, method.name, "", signature, "", "exitpoin", units.describe(theConsideredSucessor), units.describe(u)));
+				continue;
+			}
+
+			for (int pathLength = 0; pathLength < 4; pathLength++) {
+
+				if (units.kind[theConsideredSucessor] == THROW) {
+					nbOfDetectedpattern++;
+					detectedPattern.println(ResultRecord.join(className, method.name, "", signature, "", "ThrowStmt", units.describe(theConsideredSucessor), units.describe(u)));
+					break;
+				}
+				if (units.isTail(theConsideredSucessor) || units.kind[theConsideredSucessor] == IF
+						|| units.succs[theConsideredSucessor].length != 1) {
+					break;
+				}
+				theConsideredSucessor = units.succs[theConsideredSucessor][0];
+			}
+		}
+
+		return nbOfDetectedpattern;
+	}
+
+	/* InvokeStaticInstrumenterP2.Pattern2Detecor on the units of the method */
+	private int detectP2(Units units, String className, MethodNode method, String signature) {
+
+		boolean ifStmtExistInBody = false;
+		boolean throwStmtExistInBody = false;
+
+		for (int u = 0; u < units.size; u++) {
+			ifStmtExistInBody |= units.kind[u] == IF;
+			throwStmtExistInBody |= units.kind[u] == THROW;
+		}
+
+		if (!ifStmtExistInBody || !throwStmtExistInBody) {
+			return 0;
+		}
+
+		int nbOfDetectedpattern = 0;
+
+		for (int u = 0; u < units.size; u++) {
+
+			if (units.kind[u] != IF) {
+				continue;
+			}
+
+			boolean findTrowStmtaftertargeSucessor = findPathToThrow(units, units.target[u], u, className, method, signature);
+			boolean findTrowStmtaftertheOtherSucessor = findPathToThrow(units, units.otherSuccessor(u), u, className, method, signature);
+
+			if (findTrowStmtaftertargeSucessor != findTrowStmtaftertheOtherSucessor) {
+				nbOfDetectedpattern++;
+			}
+		}
+
+		return nbOfDetectedpattern;
+	}
+
+	private boolean findPathToThrow(Units units, int theConsideredSucessor, int ifUnit, String className, MethodNode method, String signature) {
+
+		if (theConsideredSucessor < 0) {
+			return false;
+		}
+
+		for (int pathLength = 0; pathLength < 4; pathLength++) {
+
+			if (units.kind[theConsideredSucessor] == THROW) {
+				detectedPattern.println(ResultRecord.join(className, method.name, "", signature, "", "", units.describe(theConsideredSucessor), units.describe(ifUnit)));
+				return true;
+			}
+			if (units.isTail(theConsideredSucessor) || units.kind[theConsideredSucessor] == IF
+					|| units.succs[theConsideredSucessor].length != 1 || units.isHandler[theConsideredSucessor]) {
+				return false;
+			}
+			theConsideredSucessor = units.succs[theConsideredSucessor][0];
+		}
+
+		return false;
+	}
+
+	/* number of detected pattern per class, in the order the classes were analysed */
+	public Map<String, Integer> getPatternDistributionOverClasses() {
+
+		return Collections.unmodifiableMap(patternDistributionOverClasses);
+	}
+
+	public void statistique(String patternDistributionOverClassFile) throws FileNotFoundException {
+
+		PrintWriter patternDistributionOverClass = new PrintWriter(patternDistributionOverClassFile);
+
+		patternDistributionOverClass.println(ResultRecord.join("class name", "number of detected pattern"));
+
+		int i = 0;
+		for (Map.Entry<String, Integer> entry : patternDistributionOverClasses.entrySet()) {
+			patternDistributionOverClass.println(ResultRecord.join(entry.getKey(), entry.getValue()));
+			i += entry.getValue();
+		}
+
+		System.out.println(" ___________________Fin Statistique_______________avec nb totl de patron :_" + i);
+
+		patternDistributionOverClass.close();
+	}
+
+	/* the soot signature of the method, <class: type name(types)> */
+	static String signature(String className, MethodNode method) {
+
+		StringBuilder signature = new StringBuilder();
+		signature.append('<').append(className).append(": ").append(Type.getReturnType(method.desc).getClassName())
+				.append(' ').append(method.name).append('(');
+
+		Type[] parameterTypes = Type.getArgumentTypes(method.desc);
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (i > 0) {
+				signature.append(',');
+			}
+			signature.append(parameterTypes[i].getClassName());
+		}
+
+		return signature.append(")>").toString();
+	}
+
+	/*
+	 * The units jimple makes of the bytecode of a method and their
+	 * ExceptionalUnitGraph: kind, successors (the unexceptional ones first,
+	 * like ExceptionalUnitGraph.getSuccsOf) and, for the IF units, the target
+	 * and the null test.
+	 */
+	static class Units {
+
+		final MethodNode method;
+		final AbstractInsnNode[] insns;
+
+		int size = 0;
+		byte[] kind;
+		int[] insn;
+		int[] target;
+		byte[] nullTest;
+		boolean[] onParameter;
+		boolean[] isHandler;
+		int[][] succs;
+
+		// l'unite de chaque instruction, ou la premiere unite qui la suit
+		private final int[] unitFrom;
+		// les types d'exception que chaque unite peut lever, null pour les seules VM errors
+		private final List<String[]> throwables = new ArrayList<String[]>();
+
+		Units(MethodNode method, ClassHierarchy hierarchy) {
+
+			this.method = method;
+			insns = method.instructions.toArray();
+
+			int capacity = insns.length + method.tryCatchBlocks.size() + 1;
+			kind = new byte[capacity];
+			insn = new int[capacity];
+			target = new int[capacity];
+			nullTest = new byte[capacity];
+			onParameter = new boolean[capacity];
+			isHandler = new boolean[capacity];
+
+			Set<LabelNode> joinLabels = new HashSet<LabelNode>();
+			Set<LabelNode> handlerLabels = new HashSet<LabelNode>();
+
+			for (Object t : method.tryCatchBlocks) {
+				TryCatchBlockNode tryCatchBlock = (TryCatchBlockNode) t;
+				joinLabels.add(tryCatchBlock.handler);
+				handlerLabels.add(tryCatchBlock.handler);
+			}
+			for (AbstractInsnNode node : insns) {
+				if (node instanceof JumpInsnNode) {
+					joinLabels.add(((JumpInsnNode) node).label);
+				} else if (node instanceof TableSwitchInsnNode) {
+					joinLabels.add(((TableSwitchInsnNode) node).dflt);
+					joinLabels.addAll(((TableSwitchInsnNode) node).labels);
+				} else if (node instanceof LookupSwitchInsnNode) {
+					joinLabels.add(((LookupSwitchInsnNode) node).dflt);
+					joinLabels.addAll(((LookupSwitchInsnNode) node).labels);
+				}
+			}
+
+			for (int i = 0; i < insns.length; i++) {
+
+				AbstractInsnNode node = insns[i];
+
+				if (node instanceof LabelNode) {
+					if (handlerLabels.contains(node)) {
+						isHandler[add(CAUGHT_EXCEPTION, i, null)] = true;
+					}
+					continue;
+				}
+
+				int opcode = node.getOpcode();
+
+				if (opcode < 0 || opcode == Opcodes.NOP) {
+					continue;
+				}
+
+				if (opcode >= Opcodes.ISTORE && opcode <= Opcodes.ASTORE) {
+					// une expression stockee dans une locale ne fait qu'une unite
+					int producer = previousInsn(i, joinLabels);
+					if (producer < 0 || !producesExpression(insns[producer])) {
+						add(OTHER, i, null);
+					}
+				} else if (producesExpression(node) || opcode == Opcodes.INVOKEVIRTUAL || opcode == Opcodes.INVOKESPECIAL
+						|| opcode == Opcodes.INVOKESTATIC || opcode == Opcodes.INVOKEINTERFACE || opcode == Opcodes.INVOKEDYNAMIC) {
+					add(OTHER, i, implicitThrowables(node));
+				} else if ((opcode >= Opcodes.IFEQ && opcode <= Opcodes.IF_ACMPNE) || opcode == Opcodes.IFNULL || opcode == Opcodes.IFNONNULL) {
+					int u = add(IF, i, null);
+					if (opcode == Opcodes.IFNULL || opcode == Opcodes.IFNONNULL) {
+						nullTest[u] = opcode == Opcodes.IFNULL ? EQUAL_NULL : NOT_EQUAL_NULL;
+						int producer = previousInsn(i, joinLabels);
+						onParameter[u] = producer >= 0 && insns[producer].getOpcode() == Opcodes.ALOAD
+								&& isParameterAt(((VarInsnNode) insns[producer]).var, producer);
+					}
+				} else if (opcode == Opcodes.GOTO || opcode == Opcodes.JSR) {
+					add(GOTO, i, null);
+				} else if (opcode == Opcodes.TABLESWITCH || opcode == Opcodes.LOOKUPSWITCH) {
+					add(SWITCH, i, null);
+				} else if ((opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN) || opcode == Opcodes.RET) {
+					add(RETURN, i, new String[] { ILLEGAL_MONITOR_STATE_EXCEPTION });
+				} else if (opcode == Opcodes.ATHROW) {
+					add(THROW, i, new String[] { NULL_POINTER_EXCEPTION, ILLEGAL_MONITOR_STATE_EXCEPTION, ANY_SUBTYPE + thrownType(i, joinLabels) });
+				} else if (opcode == Opcodes.IINC) {
+					add(OTHER, i, null);
+				} else if ((opcode >= Opcodes.IASTORE && opcode <= Opcodes.SASTORE) || opcode == Opcodes.PUTFIELD
+						|| opcode == Opcodes.PUTSTATIC || opcode == Opcodes.MONITORENTER || opcode == Opcodes.MONITOREXIT) {
+					add(OTHER, i, implicitThrowables(node));
+				}
+				// les constantes, les load, les pop, dup et swap ne sont que des operandes
+
+				if (carriesOperand(i, joinLabels)) {
+					// la valeur laissee sur la pile pour la suite passe par une locale de pile
+					add(OTHER, i, null);
+				}
+			}
+
+			unitFrom = new int[insns.length];
+			for (int i = insns.length - 1, u = size; i >= 0; i--) {
+				while (u > 0 && insn[u - 1] >= i) {
+					u--;
+				}
+				unitFrom[i] = u < size ? u : -1;
+			}
+
+			for (int u = 0; u < size; u++) {
+				AbstractInsnNode node = insns[insn[u]];
+				target[u] = node instanceof JumpInsnNode ? unitOf(((JumpInsnNode) node).label) : -1;
+			}
+
+			buildSuccs(hierarchy);
+		}
+
+		private int add(byte unitKind, int insnIndex, String[] implicitThrowables) {
+
+			kind[size] = unitKind;
+			insn[size] = insnIndex;
+			target[size] = -1;
+			throwables.add(implicitThrowables);
+			return size++;
+		}
+
+		int unitOf(LabelNode label) {
+
+			return unitFrom[method.instructions.indexOf(label)];
+		}
+
+		/*
+		 * true when insns[i] leaves an operand on the stack for another block:
+		 * a load or a constant just before a goto, or falling into a label
+		 * reached from elsewhere
+		 */
+		private boolean carriesOperand(int i, Set<LabelNode> joinLabels) {
+
+			int opcode = insns[i].getOpcode();
+
+			if (!((opcode >= Opcodes.ACONST_NULL && opcode <= Opcodes.ALOAD))) {
+				return false;
+			}
+
+			for (int j = i + 1; j < insns.length; j++) {
+				AbstractInsnNode node = insns[j];
+				if (node instanceof LabelNode) {
+					if (joinLabels.contains(node)) {
+						return true;
+					}
+				} else if (node.getOpcode() >= 0) {
+					return node.getOpcode() == Opcodes.GOTO;
+				}
+			}
+			return false;
+		}
+
+		/* the instructions that may run after insns[j], handlers included */
+		private void addInsnSuccs(int j, List<Integer> succs) {
+
+			AbstractInsnNode node = insns[j];
+			int opcode = node.getOpcode();
+
+			if (node instanceof JumpInsnNode) {
+				succs.add(method.instructions.indexOf(((JumpInsnNode) node).label));
+			} else if (node instanceof TableSwitchInsnNode) {
+				succs.add(method.instructions.indexOf(((TableSwitchInsnNode) node).dflt));
+				for (Object label : ((TableSwitchInsnNode) node).labels) {
+					succs.add(method.instructions.indexOf((LabelNode) label));
+				}
+			} else if (node instanceof LookupSwitchInsnNode) {
+				succs.add(method.instructions.indexOf(((LookupSwitchInsnNode) node).dflt));
+				for (Object label : ((LookupSwitchInsnNode) node).labels) {
+					succs.add(method.instructions.indexOf((LabelNode) label));
+				}
+			}
+
+			for (Object t : method.tryCatchBlocks) {
+				TryCatchBlockNode tryCatchBlock = (TryCatchBlockNode) t;
+				if (method.instructions.indexOf(tryCatchBlock.start) <= j && j < method.instructions.indexOf(tryCatchBlock.end)) {
+					succs.add(method.instructions.indexOf(tryCatchBlock.handler));
+				}
+			}
+
+			if (opcode != Opcodes.GOTO && opcode != Opcodes.ATHROW && opcode != Opcodes.TABLESWITCH && opcode != Opcodes.LOOKUPSWITCH
+					&& (opcode < Opcodes.IRETURN || opcode > Opcodes.RETURN) && j + 1 < insns.length) {
+				succs.add(j + 1);
+			}
+		}
+
+		/* the instruction that pushed the operand of insns[i], -1 when it comes from several paths */
+		private int previousInsn(int i, Set<LabelNode> joinLabels) {
+
+			for (int j = i - 1; j >= 0; j--) {
+				AbstractInsnNode node = insns[j];
+				if (node instanceof LabelNode) {
+					if (joinLabels.contains(node)) {
+						return -1;
+					}
+				} else if (node.getOpcode() >= 0) {
+					return j;
+				}
+			}
+			return -1;
+		}
+
+		private static boolean producesExpression(AbstractInsnNode node) {
+
+			int opcode = node.getOpcode();
+
+			if (node instanceof MethodInsnNode) {
+				return Type.getReturnType(((MethodInsnNode) node).desc) != Type.VOID_TYPE;
+			}
+			if (opcode == Opcodes.INVOKEDYNAMIC) {
+				return true;
+			}
+			return (opcode >= Opcodes.IALOAD && opcode <= Opcodes.SALOAD)
+					|| (opcode >= Opcodes.IADD && opcode <= Opcodes.LXOR)
+					|| (opcode >= Opcodes.I2L && opcode <= Opcodes.DCMPG)
+					|| opcode == Opcodes.GETSTATIC || opcode == Opcodes.GETFIELD
+					|| (opcode >= Opcodes.NEW && opcode <= Opcodes.ARRAYLENGTH)
+					|| opcode == Opcodes.CHECKCAST || opcode == Opcodes.INSTANCEOF || opcode == Opcodes.MULTIANEWARRAY;
+		}
+
+		/* what UnitThrowAnalysis says an instruction may throw besides the VM errors, ALL for an invoke */
+		private static String[] implicitThrowables(AbstractInsnNode node) {
+
+			int opcode = node.getOpcode();
+
+			switch (opcode) {
+			case Opcodes.INVOKEVIRTUAL:
+			case Opcodes.INVOKESPECIAL:
+			case Opcodes.INVOKESTATIC:
+			case Opcodes.INVOKEINTERFACE:
+			case Opcodes.INVOKEDYNAMIC:
+				return new String[] { ANY_SUBTYPE + THROWABLE };
+			case Opcodes.GETFIELD:
+			case Opcodes.PUTFIELD:
+			case Opcodes.ARRAYLENGTH:
+			case Opcodes.MONITORENTER:
+				return new String[] { NULL_POINTER_EXCEPTION };
+			case Opcodes.MONITOREXIT:
+				return new String[] { NULL_POINTER_EXCEPTION, ILLEGAL_MONITOR_STATE_EXCEPTION };
+			case Opcodes.AASTORE:
+				return new String[] { NULL_POINTER_EXCEPTION, ARRAY_INDEX_OUT_OF_BOUNDS_EXCEPTION, "java/lang/ArrayStoreException" };
+			case Opcodes.IDIV:
+			case Opcodes.IREM:
+			case Opcodes.LDIV:
+			case Opcodes.LREM:
+				return new String[] { "java/lang/ArithmeticException" };
+			case Opcodes.CHECKCAST:
+				return new String[] { "java/lang/ClassCastException" };
+			case Opcodes.NEWARRAY:
+			case Opcodes.ANEWARRAY:
+			case Opcodes.MULTIANEWARRAY:
+				return new String[] { "java/lang/NegativeArraySizeException" };
+			default:
+				if ((opcode >= Opcodes.IALOAD && opcode <= Opcodes.SALOAD) || (opcode >= Opcodes.IASTORE && opcode <= Opcodes.SASTORE)) {
+					return new String[] { NULL_POINTER_EXCEPTION, ARRAY_INDEX_OUT_OF_BOUNDS_EXCEPTION };
+				}
+				return null;
+			}
+		}
+
+		/* the static type of the exception thrown by the athrow insns[i], Throwable when it is not known */
+		private String thrownType(int i, Set<LabelNode> joinLabels) {
+
+			int producer = previousInsn(i, joinLabels);
+
+			if (producer < 0) {
+				return THROWABLE;
+			}
+
+			AbstractInsnNode node = insns[producer];
+
+			if (node instanceof MethodInsnNode) {
+				MethodInsnNode invoke = (MethodInsnNode) node;
+				if (invoke.name.equals("<init>")) {
+					// new X; dup; ... invokespecial X.<init>; athrow
+					return invoke.owner;
+				}
+				Type returnType = Type.getReturnType(invoke.desc);
+				return returnType.getSort() == Type.OBJECT ? returnType.getInternalName() : THROWABLE;
+			}
+			if (node instanceof TypeInsnNode && node.getOpcode() == Opcodes.CHECKCAST) {
+				return ((TypeInsnNode) node).desc;
+			}
+			if (node instanceof FieldInsnNode) {
+				Type fieldType = Type.getType(((FieldInsnNode) node).desc);
+				return fieldType.getSort() == Type.OBJECT ? fieldType.getInternalName() : THROWABLE;
+			}
+			return THROWABLE;
+		}
+
+		/*
+		 * true when the value of the parameter in slot var may reach insns[i],
+		 * that is when jimple names the local used there after the parameter
+		 */
+		private boolean isParameterAt(int var, int i) {
+
+			int slot = (method.access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+			boolean parameterSlot = false;
+
+			for (Type parameterType : Type.getArgumentTypes(method.desc)) {
+				if (slot == var && parameterType.getSort() >= Type.ARRAY) {
+					parameterSlot = true;
+				}
+				slot += parameterType.getSize();
+			}
+
+			if (!parameterSlot) {
+				return false;
+			}
+
+			// parcours depuis l'entree de la methode, arrete par les store dans le slot
+			boolean[] visited = new boolean[insns.length];
+			List<Integer> workList = new ArrayList<Integer>();
+			workList.add(0);
+
+			while (!workList.isEmpty()) {
+
+				int j = workList.remove(workList.size() - 1);
+
+				if (visited[j]) {
+					continue;
+				}
+				visited[j] = true;
+
+				if (j == i) {
+					return true;
+				}
+
+				AbstractInsnNode node = insns[j];
+				int opcode = node.getOpcode();
+
+				if (node instanceof VarInsnNode && opcode >= Opcodes.ISTORE && opcode <= Opcodes.ASTORE && ((VarInsnNode) node).var == var) {
+					continue;
+				}
+				addInsnSuccs(j, workList);
+			}
+
+			return false;
+		}
+
+		private void buildSuccs(ClassHierarchy hierarchy) {
+
+			List<List<Integer>> unexceptionalSuccs = new ArrayList<List<Integer>>(size);
+			List<List<Integer>> preds = new ArrayList<List<Integer>>(size);
+
+			for (int u = 0; u < size; u++) {
+				unexceptionalSuccs.add(new ArrayList<Integer>(2));
+				preds.add(new ArrayList<Integer>(2));
+			}
+
+			for (int u = 0; u < size; u++) {
+
+				List<Integer> unitSuccs = unexceptionalSuccs.get(u);
+				AbstractInsnNode node = insns[insn[u]];
+
+				if (kind[u] != GOTO && kind[u] != SWITCH && kind[u] != RETURN && kind[u] != THROW && u + 1 < size) {
+					unitSuccs.add(u + 1);
+				}
+				if (kind[u] == IF || kind[u] == GOTO) {
+					addOnce(unitSuccs, target[u]);
+				} else if (node instanceof TableSwitchInsnNode) {
+					for (Object label : ((TableSwitchInsnNode) node).labels) {
+						addOnce(unitSuccs, unitOf((LabelNode) label));
+					}
+					addOnce(unitSuccs, unitOf(((TableSwitchInsnNode) node).dflt));
+				} else if (node instanceof LookupSwitchInsnNode) {
+					for (Object label : ((LookupSwitchInsnNode) node).labels) {
+						addOnce(unitSuccs, unitOf((LabelNode) label));
+					}
+					addOnce(unitSuccs, unitOf(((LookupSwitchInsnNode) node).dflt));
+				}
+
+				for (int succ : unitSuccs) {
+					preds.get(succ).add(u);
+				}
+			}
+
+			List<List<Integer>> exceptionalSuccs = new ArrayList<List<Integer>>(size);
+			for (int u = 0; u < size; u++) {
+				exceptionalSuccs.add(new ArrayList<Integer>(1));
+			}
+
+			List<TryCatchBlockNode> traps = new ArrayList<TryCatchBlockNode>();
+			for (Object t : method.tryCatchBlocks) {
+				traps.add((TryCatchBlockNode) t);
+			}
+
+			if (!traps.isEmpty()) {
+
+				for (int u = 0; u < size; u++) {
+
+					// ExceptionalUnitGraph.getExceptionDests : les traps dans l'ordre, jusqu'a ce que tout soit attrape
+					List<String> uncaught = new ArrayList<String>();
+					Collections.addAll(uncaught, VM_ERRORS);
+					if (throwables.get(u) != null) {
+						Collections.addAll(uncaught, throwables.get(u));
+					}
+
+					for (TryCatchBlockNode trap : traps) {
+
+						if (uncaught.isEmpty()) {
+							break;
+						}
+
+						int start = method.instructions.indexOf(trap.start);
+						int end = method.instructions.indexOf(trap.end);
+
+						if (insn[u] < start || insn[u] >= end) {
+							continue;
+						}
+
+						String trapType = trap.type == null ? THROWABLE : trap.type;
+
+						if (!hierarchy.catchableAs(uncaught, trapType)) {
+							continue;
+						}
+						hierarchy.removeCaught(uncaught, trapType);
+
+						int handler = unitOf(trap.handler);
+
+						// une unite qui ne fait que lancer son exception n'en donne pas a ses predecesseurs
+						boolean predsMayThrow = kind[u] != THROW
+								|| hierarchy.catchableAs(implicitThrowablesOfThrow(), trapType);
+
+						if (predsMayThrow) {
+							for (int pred : preds.get(u)) {
+								addOnce(exceptionalSuccs.get(pred), handler);
+							}
+						}
+						addOnce(exceptionalSuccs.get(u), handler);
+					}
+				}
+			}
+
+			succs = new int[size][];
+
+			for (int u = 0; u < size; u++) {
+				List<Integer> unitSuccs = new ArrayList<Integer>(unexceptionalSuccs.get(u));
+				for (int succ : exceptionalSuccs.get(u)) {
+					addOnce(unitSuccs, succ);
+				}
+				succs[u] = new int[unitSuccs.size()];
+				for (int i = 0; i < succs[u].length; i++) {
+					succs[u][i] = unitSuccs.get(i);
+				}
+			}
+		}
+
+		private static List<String> implicitThrowablesOfThrow() {
+
+			List<String> implicitThrowables = new ArrayList<String>();
+			Collections.addAll(implicitThrowables, VM_ERRORS);
+			implicitThrowables.add(NULL_POINTER_EXCEPTION);
+			implicitThrowables.add(ILLEGAL_MONITOR_STATE_EXCEPTION);
+			return implicitThrowables;
+		}
+
+		private static void addOnce(List<Integer> list, int unit) {
+
+			if (unit >= 0 && !list.contains(unit)) {
+				list.add(unit);
+			}
+		}
+
+		boolean isTail(int u) {
+
+			return succs[u].length == 0;
+		}
+
+		/* the last successor of an IF unit that is not its target, -1 if there is none */
+		int otherSuccessor(int u) {
+
+			int other = -1;
+			for (int succ : succs[u]) {
+				if (succ != target[u]) {
+					other = succ;
+				}
+			}
+			return other;
+		}
+
+		/* the instruction of a unit as it is written in the rows */
+		String describe(int u) {
+
+			String instruction = kind[u] == CAUGHT_EXCEPTION ? "@caughtexception" : Printer.OPCODES[insns[insn[u]].getOpcode()];
+
+			for (int i = insn[u]; i >= 0; i--) {
+				if (insns[i] instanceof LineNumberNode) {
+					return instruction + " (line " + ((LineNumberNode) insns[i]).line + ")";
+				}
+			}
+			return instruction + " (#" + insn[u] + ")";
+		}
+	}
+
+	/*
+	 * The superclasses of the exception types, read from the .class files of
+	 * the classpath or of the JDK, and the ThrowableSet.catchableAs of soot on
+	 * lists of types ("+" before a type for the type and all its subtypes).
+	 */
+	static class ClassHierarchy {
+
+		private final List<File> classPath = new ArrayList<File>();
+		private final Map<String, String> superClassOf = new HashMap<String, String>();
+
+		ClassHierarchy(String classPath) {
+
+			if (classPath != null) {
+				for (String entry : classPath.split(File.pathSeparator)) {
+					if (entry.length() > 0) {
+						this.classPath.add(new File(entry));
+					}
+				}
+			}
+		}
+
+		boolean catchableAs(List<String> throwables, String trapType) {
+
+			for (String throwable : throwables) {
+				if (throwable.startsWith(ANY_SUBTYPE)) {
+					String type = throwable.substring(1);
+					if (isSubclass(type, trapType) || isSubclass(trapType, type)) {
+						return true;
+					}
+				} else if (isSubclass(throwable, trapType)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/* removes from throwables what a trap of type trapType catches entirely */
+		void removeCaught(List<String> throwables, String trapType) {
+
+			for (int i = throwables.size() - 1; i >= 0; i--) {
+				String throwable = throwables.get(i);
+				String type = throwable.startsWith(ANY_SUBTYPE) ? throwable.substring(1) : throwable;
+				if (isSubclass(type, trapType)) {
+					throwables.remove(i);
+				}
+			}
+		}
+
+		boolean isSubclass(String type, String superType) {
+
+			for (String c = type; c != null; c = superClassOf(c)) {
+				if (c.equals(superType)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private String superClassOf(String type) {
+
+			if (superClassOf.containsKey(type)) {
+				return superClassOf.get(type);
+			}
+
+			String superClass = null;
+
+			try {
+				InputStream in = open(type + ".class");
+				if (in != null) {
+					try {
+						superClass = new ClassReader(in).getSuperName();
+					} finally {
+						in.close();
+					}
+				}
+			} catch (IOException e) {
+				// classe illisible : sa hierarchie s'arrete la, comme une classe phantom
+			}
+
+			superClassOf.put(type, superClass);
+			return superClass;
+		}
+
+		private InputStream open(String classFile) throws IOException {
+
+			for (File entry : classPath) {
+				if (entry.isDirectory()) {
+					File file = new File(entry, classFile.replace('/', File.separatorChar));
+					if (file.isFile()) {
+						return new BufferedInputStream(new FileInputStream(file));
+					}
+				}
+			}
+			return ClassLoader.getSystemResourceAsStream(classFile);
+		}
+	}
+
+}
@@ -0,0 +1,282 @@
+package Common;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import soot.AbstractJasminClass;
+import soot.Body;
+import soot.BooleanType;
+import soot.ByteType;
+import soot.CharType;
+import soot.DoubleType;
+import soot.FloatType;
+import soot.IntType;
+import soot.Local;
+import soot.LongType;
+import soot.PackManager;
+import soot.RefLikeType;
+import soot.Scene;
+import soot.ShortType;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.Value;
+import soot.VoidType;
+import soot.jimple.DoubleConstant;
+import soot.jimple.FloatConstant;
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.LongConstant;
+import soot.jimple.NullConstant;
+import soot.options.Options;
+
+/*
+ * BytecodePrefilter looks at the bytecode of the methods of the application
+ * classes before soot builds their bodies. A method that can not contain the
+ * pattern of any of the detectors of the run gets a stub body (its identity
+ * statements and a return), so it is never jimplified nor gets its
+ * ExceptionalUnitGraph built; the detectors still see it and write its row
+ * with 0 detected pattern.
+ *
+ * What a detector needs in the bytecode of a method:
+ *   P1  an IFNULL / IFNONNULL, or an IF_ACMPEQ / IF_ACMPNE with an ACONST_NULL
+ *       (the only bytecode jimple turns into "if x == null")
+ *   P2  a conditional jump and an ATHROW (any IfStmt followed by a throw)
+ * The API and NotNull detectors look at every method using a parameter, so a
+ * run with one of them filters nothing.
+ *
+ * The stub bodies must only ever be seen by the detectors: -prefilter turns on
+ * the -analysis-only profile (see AnalysisProfile) and runSoot refuses any
+ * options that would write the stubs in sootOutput. The trace (test1.txt) of a
+ * stubbed method only lists its identity statements.
+ *
+ * The bytecode is read with ASM 5 (the ASMCLASSES variable of .classpath,
+ * see readme).
+ */
+public class BytecodePrefilter {
+
+	public static final String PREFILTER = "-prefilter";
+
+	public static final int CONDITIONAL_JUMP = 1;
+	public static final int NULL_COMPARISON = 2;
+	public static final int THROW = 4;
+
+	/* what the detectors need, one of these per detector */
+	public static final int P1 = NULL_COMPARISON;
+	public static final int P2 = CONDITIONAL_JUMP | THROW;
+	public static final int EVERY_METHOD = -1;
+
+	public static boolean isRequested(String[] args) {
+
+		return Arrays.asList(args).contains(PREFILTER);
+	}
+
+	/*
+	 * runs soot like soot.Main.main(args) does, the methods that none of the
+	 * requirements can match being stubbed between the loading of the classes
+	 * and the packs; returns the number of stubbed methods
+	 */
+	public static int runSoot(String[] args, String binPath, int[] requirements) {
+
+		List<String> sootArgs = new ArrayList<String>(Arrays.asList(args));
+		sootArgs.remove(PREFILTER);
+
+		if (!Options.v().parse(sootArgs.toArray(new String[sootArgs.size()]))) {
+			throw new IllegalArgumentException("invalid soot options " + sootArgs);
+		}
+		soot.Main.v().autoSetOptions();
+
+		// les corps remplaces ne doivent jamais etre ecrits
+		if (Options.v().output_format() != Options.output_format_none) {
+			throw new IllegalArgumentException(PREFILTER + " needs " + AnalysisProfile.ANALYSIS_ONLY + " (-f n), got " + sootArgs);
+		}
+
+		Scene.v().loadNecessaryClasses();
+
+		int nbOfStubbedMethods = 0;
+
+		for (SootClass sootClass : new ArrayList<SootClass>(Scene.v().getApplicationClasses())) {
+			nbOfStubbedMethods += stubMethodsThatCanNotMatch(sootClass, binPath, requirements);
+		}
+
+		PackManager.v().runPacks();
+		if (!Options.v().oaat()) {
+			PackManager.v().writeOutput();
+		}
+
+		return nbOfStubbedMethods;
+	}
+
+	static int stubMethodsThatCanNotMatch(SootClass sootClass, String binPath, int[] requirements) {
+
+		for (int requirement : requirements) {
+			if (requirement == EVERY_METHOD) {
+				return 0;
+			}
+		}
+
+		File classFile = new File(binPath, sootClass.getName().replace('.', File.separatorChar) + ".class");
+		Map<String, Integer> contentOfMethod;
+
+		try {
+			contentOfMethod = scan(classFile);
+		} catch (IOException e) {
+			// pas de .class lisible (classe d'un jar...) : toutes les methodes sont analysees
+			return 0;
+		}
+
+		int nbOfStubbedMethods = 0;
+
+		for (SootMethod method : sootClass.getMethods()) {
+
+			if (!method.isConcrete() || method.hasActiveBody()) {
+				continue;
+			}
+
+			Integer content = contentOfMethod.get(method.getName() + AbstractJasminClass.jasminDescriptorOf(method.makeRef()));
+
+			if (content != null && !canMatch(content, requirements)) {
+				method.setActiveBody(stubBody(method));
+				nbOfStubbedMethods++;
+			}
+		}
+
+		return nbOfStubbedMethods;
+	}
+
+	static boolean canMatch(int content, int[] requirements) {
+
+		for (int requirement : requirements) {
+			if ((content & requirement) == requirement) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* the CONDITIONAL_JUMP, NULL_COMPARISON and THROW found in each method, by name and descriptor */
+	public static Map<String, Integer> scan(File classFile) throws IOException {
+
+		InputStream in = new BufferedInputStream(new FileInputStream(classFile));
+		try {
+			return scan(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	public static Map<String, Integer> scan(InputStream classFile) throws IOException {
+
+		final Map<String, Integer> contentOfMethod = new HashMap<String, Integer>();
+
+		new ClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM5) {
+
+			public MethodVisitor visitMethod(int access, final String name, final String desc, String signature, String[] exceptions) {
+
+				return new MethodVisitor(Opcodes.ASM5) {
+
+					int content = 0;
+					boolean pushesNull = false;
+					boolean comparesReferences = false;
+
+					public void visitInsn(int opcode) {
+						if (opcode == Opcodes.ATHROW) {
+							content |= THROW;
+						} else if (opcode == Opcodes.ACONST_NULL) {
+							pushesNull = true;
+						}
+					}
+
+					public void visitJumpInsn(int opcode, org.objectweb.asm.Label label) {
+						if (opcode == Opcodes.IFNULL || opcode == Opcodes.IFNONNULL) {
+							content |= CONDITIONAL_JUMP | NULL_COMPARISON;
+						} else if (opcode == Opcodes.IF_ACMPEQ || opcode == Opcodes.IF_ACMPNE) {
+							content |= CONDITIONAL_JUMP;
+							comparesReferences = true;
+						} else if (opcode != Opcodes.GOTO && opcode != Opcodes.JSR) {
+							content |= CONDITIONAL_JUMP;
+						}
+					}
+
+					public void visitEnd() {
+						if (pushesNull && comparesReferences) {
+							content |= NULL_COMPARISON;
+						}
+						contentOfMethod.put(name + desc, content);
+					}
+				};
+			}
+		}, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+		return contentOfMethod;
+	}
+
+	/* the identity statements of the method followed by a return */
+	static Body stubBody(SootMethod method) {
+
+		JimpleBody body = Jimple.v().newBody(method);
+		List<Unit> units = new ArrayList<Unit>();
+
+		if (!method.isStatic()) {
+			Local thisLocal = Jimple.v().newLocal("r0", method.getDeclaringClass().getType());
+			body.getLocals().add(thisLocal);
+			units.add(Jimple.v().newIdentityStmt(thisLocal, Jimple.v().newThisRef(method.getDeclaringClass().getType())));
+		}
+
+		for (int i = 0; i < method.getParameterCount(); i++) {
+			Type type = method.getParameterType(i);
+			Local parameter = Jimple.v().newLocal("p" + i, type);
+			body.getLocals().add(parameter);
+			units.add(Jimple.v().newIdentityStmt(parameter, Jimple.v().newParameterRef(type, i)));
+		}
+
+		Type returnType = method.getReturnType();
+
+		if (returnType instanceof VoidType) {
+			units.add(Jimple.v().newReturnVoidStmt());
+		} else {
+			units.add(Jimple.v().newReturnStmt(defaultValue(returnType)));
+		}
+
+		body.getUnits().addAll(units);
+
+		return body;
+	}
+
+	private static Value defaultValue(Type type) {
+
+		if (type instanceof RefLikeType) {
+			return NullConstant.v();
+		}
+		if (type instanceof LongType) {
+			return LongConstant.v(0);
+		}
+		if (type instanceof FloatType) {
+			return FloatConstant.v(0);
+		}
+		if (type instanceof DoubleType) {
+			return DoubleConstant.v(0);
+		}
+		if (type instanceof IntType || type instanceof BooleanType || type instanceof ByteType
+				|| type instanceof CharType || type instanceof ShortType) {
+			return IntConstant.v(0);
+		}
+		throw new IllegalArgumentException("no default value for " + type);
+	}
+
+}
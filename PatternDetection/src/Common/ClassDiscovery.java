@@ -0,0 +1,352 @@
+package Common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+ * ClassDiscovery lists the classes of the analysed project, like the getClass
+ * of the MainDriver classes did: the .java and .class files of a directory
+ * come first, then the classes of its sub-directories, a class of the
+ * sub-directory "a/b" being named "a.b.Name". The input can also be a jar or
+ * a zip, whose .class entries are read without unpacking it, or several of
+ * them separated by File.pathSeparator.
+ *
+ * The sub-directories are listed in parallel and the listing of every
+ * directory is cached, with its last modification time, in a file of the
+ * temporary directory. On the next run only the directories whose time has
+ * changed (a file was added, removed or renamed in it) are listed again, the
+ * other ones only cost a stat. An instance kept between discovers, like the
+ * one of MainDriverWatch, keeps its pool and compares with the listings of
+ * its previous discover; close it when done.
+ */
+public class ClassDiscovery {
+
+	private static final String CACHE_MAGIC = "PatternDetection class list 1";
+
+	/* the listing of one directory, or of one jar */
+	private static class Listing {
+
+		final long lastModified;
+		final long length;
+		final List<String> classNames;
+		final List<String> subDirectories;
+
+		Listing(long lastModified, long length, List<String> classNames, List<String> subDirectories) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.classNames = classNames;
+			this.subDirectories = subDirectories;
+		}
+	}
+
+	private final File cacheFile;
+	private Map<String, Listing> cachedListings;
+	private final Map<String, Listing> listings;
+	private int nbOfListedDirectories;
+	// cree au premier repertoire liste, garde jusqu'a close()
+	private ExecutorService pool;
+
+	public ClassDiscovery(File cacheFile) {
+
+		this.cacheFile = cacheFile;
+		this.cachedListings = load(cacheFile);
+		this.listings = new ConcurrentHashMap<String, Listing>();
+	}
+
+	/* the list of classes of repertoire, with the cache of the temporary directory */
+	public static ArrayList<String> getClass(String repertoire) throws IOException {
+
+		ClassDiscovery discovery = new ClassDiscovery(cacheFile(repertoire));
+
+		try {
+			ArrayList<String> classes = discovery.discover(repertoire);
+			discovery.save();
+
+			return classes;
+		} finally {
+			discovery.close();
+		}
+	}
+
+	/* the cache file of the temporary directory used for repertoire */
+	public static File cacheFile(String repertoire) {
+
+		return new File(System.getProperty("java.io.tmpdir"),
+				"PatternDetection-classes-" + Integer.toHexString(new File(repertoire).getAbsolutePath().hashCode()) + ".bin");
+	}
+
+	public ArrayList<String> discover(String inputs) throws IOException {
+
+		ArrayList<String> classes = new ArrayList<String>();
+
+		if (!listings.isEmpty()) {
+			// un discover precedent : ses listings servent de cache, ceux des repertoires disparus sont oublies
+			cachedListings = new HashMap<String, Listing>(listings);
+			listings.clear();
+		}
+
+		for (String input : inputs.split(File.pathSeparator)) {
+
+			File file = new File(input);
+
+			if (file.isDirectory()) {
+				listDirectories(file);
+				addClasses(file, "", classes);
+			} else if (isArchive(input)) {
+				classes.addAll(listArchive(file).classNames);
+			} else if (!file.exists()) {
+				throw new IOException(input + " does not exist");
+			}
+		}
+
+		return classes;
+	}
+
+	/* the number of directories that had to be listed again during the last discover */
+	public int getNbOfListedDirectories() {
+
+		return nbOfListedDirectories;
+	}
+
+	/* stops the threads listing the directories */
+	public void close() {
+
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	public void save() throws IOException {
+
+		File tmp = new File(cacheFile.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+
+		try {
+			out.writeUTF(CACHE_MAGIC);
+			out.writeInt(listings.size());
+
+			for (Map.Entry<String, Listing> entry : listings.entrySet()) {
+
+				Listing listing = entry.getValue();
+
+				out.writeUTF(entry.getKey());
+				out.writeLong(listing.lastModified);
+				out.writeLong(listing.length);
+				writeNames(out, listing.classNames);
+				writeNames(out, listing.subDirectories);
+			}
+		} finally {
+			out.close();
+		}
+
+		cacheFile.delete();
+		if (!tmp.renameTo(cacheFile)) {
+			throw new IOException("can not write " + cacheFile);
+		}
+	}
+
+	/*
+	 * lists root and all its sub-directories, every directory being a task of
+	 * the pool; a directory whose time did not change reuses its cached listing
+	 */
+	private void listDirectories(File root) throws IOException {
+
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		}
+
+		final ExecutorService pool = this.pool;
+		final LinkedBlockingQueue<Future<?>> pending = new LinkedBlockingQueue<Future<?>>();
+		final int[] listed = new int[1];
+
+		class ListDirectory implements Runnable {
+
+			private final File directory;
+
+			ListDirectory(File directory) {
+				this.directory = directory;
+			}
+
+			public void run() {
+
+				String path = directory.getPath();
+				long lastModified = directory.lastModified();
+				Listing listing = cachedListings.get(path);
+
+				if (listing == null || listing.lastModified != lastModified || lastModified == 0) {
+					listing = list(directory, lastModified);
+					synchronized (listed) {
+						listed[0]++;
+					}
+				}
+
+				listings.put(path, listing);
+
+				for (String subDirectory : listing.subDirectories) {
+					pending.add(pool.submit(new ListDirectory(new File(directory, subDirectory))));
+				}
+			}
+		}
+
+		try {
+			pending.add(pool.submit(new ListDirectory(root)));
+
+			Future<?> task;
+			while ((task = pending.poll()) != null) {
+				task.get();
+			}
+		} catch (Exception e) {
+			throw new IOException("can not list " + root + ": " + e);
+		}
+
+		nbOfListedDirectories += listed[0];
+	}
+
+	private static Listing list(File directory, long lastModified) {
+
+		List<String> classNames = new ArrayList<String>();
+		List<String> subDirectories = new ArrayList<String>();
+		File[] files = directory.listFiles();
+
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				if (name.endsWith(".java") || name.endsWith(".class")) {
+					classNames.add(name.substring(0, name.lastIndexOf('.')));
+				}
+			}
+			for (File file : files) {
+				if (file.isDirectory()) {
+					subDirectories.add(file.getName());
+				}
+			}
+		}
+
+		return new Listing(lastModified, 0, classNames, subDirectories);
+	}
+
+	/* the classes of directory and of its sub-directories, in the order of getClass */
+	private void addClasses(File directory, String packagePrefix, List<String> classes) {
+
+		Listing listing = listings.get(directory.getPath());
+
+		for (String className : listing.classNames) {
+			classes.add(packagePrefix + className);
+		}
+		for (String subDirectory : listing.subDirectories) {
+			addClasses(new File(directory, subDirectory), packagePrefix + subDirectory + ".", classes);
+		}
+	}
+
+	private static boolean isArchive(String input) {
+
+		String name = input.toLowerCase();
+		return name.endsWith(".jar") || name.endsWith(".zip");
+	}
+
+	private Listing listArchive(File archive) throws IOException {
+
+		String path = archive.getPath();
+		long lastModified = archive.lastModified();
+		long length = archive.length();
+		Listing listing = cachedListings.get(path);
+
+		if (listing == null || listing.lastModified != lastModified || listing.length != length) {
+
+			List<String> classNames = new ArrayList<String>();
+			ZipFile zip = new ZipFile(archive);
+
+			try {
+				Enumeration<? extends ZipEntry> entries = zip.entries();
+				while (entries.hasMoreElements()) {
+					String name = entries.nextElement().getName();
+					if (name.endsWith(".class")) {
+						classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+					}
+				}
+			} finally {
+				zip.close();
+			}
+
+			listing = new Listing(lastModified, length, classNames, new ArrayList<String>());
+			nbOfListedDirectories++;
+		}
+
+		listings.put(path, listing);
+
+		return listing;
+	}
+
+	private static Map<String, Listing> load(File cacheFile) {
+
+		Map<String, Listing> cache = new HashMap<String, Listing>();
+
+		if (!cacheFile.exists()) {
+			return cache;
+		}
+
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+			try {
+				if (!in.readUTF().equals(CACHE_MAGIC)) {
+					return cache;
+				}
+
+				int nbOfListings = in.readInt();
+				for (int i = 0; i < nbOfListings; i++) {
+					String path = in.readUTF();
+					long lastModified = in.readLong();
+					long length = in.readLong();
+					List<String> classNames = readNames(in);
+					List<String> subDirectories = readNames(in);
+					cache.put(path, new Listing(lastModified, length, classNames, subDirectories));
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// un cache illisible est ignore, tout est liste de nouveau
+			cache.clear();
+		}
+
+		return cache;
+	}
+
+	private static void writeNames(DataOutputStream out, List<String> names) throws IOException {
+
+		out.writeInt(names.size());
+		for (String name : names) {
+			out.writeUTF(name);
+		}
+	}
+
+	private static List<String> readNames(DataInputStream in) throws IOException {
+
+		int nbOfNames = in.readInt();
+		List<String> names = new ArrayList<String>(nbOfNames);
+		for (int i = 0; i < nbOfNames; i++) {
+			names.add(in.readUTF());
+		}
+		return names;
+	}
+
+}
@@ -0,0 +1,112 @@
+package Common;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/*
+ * ClassReport gathers the results of all the analysed methods of one class,
+ * in method order: it is the unit written by DetectionResultCollector and the
+ * unit kept by IncrementalManifest between two runs or sent back by a shard
+ * worker (see MainDriverSharded). A replayed report was not computed in this
+ * run; when it comes from the manifest it has no trace.
+ */
+public class ClassReport {
+
+	private final String className;
+	private final StringBuilder trace = new StringBuilder();
+	private final StringBuilder detectedPatternRows = new StringBuilder();
+	private final StringBuilder patternDistributionOverMethodRows = new StringBuilder();
+	private int nbOfDetectedPattern = 0;
+	private final boolean replayed;
+
+	public ClassReport(String className) {
+
+		this.className = className;
+		this.replayed = false;
+	}
+
+	public ClassReport(String className, String trace, String detectedPatternRows,
+			String patternDistributionOverMethodRows, int nbOfDetectedPattern) {
+
+		this.className = className;
+		this.trace.append(trace);
+		this.detectedPatternRows.append(detectedPatternRows);
+		this.patternDistributionOverMethodRows.append(patternDistributionOverMethodRows);
+		this.nbOfDetectedPattern = nbOfDetectedPattern;
+		this.replayed = true;
+	}
+
+	void add(MethodReport report) {
+
+		trace.append(report.getTrace());
+		detectedPatternRows.append(report.getDetectedPatternRows());
+		patternDistributionOverMethodRows.append(report.getPatternDistributionOverMethodRows());
+		nbOfDetectedPattern += report.getNbOfDetectedPattern();
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	public String getTrace() {
+		return trace.toString();
+	}
+
+	public String getDetectedPatternRows() {
+		return detectedPatternRows.toString();
+	}
+
+	public String getPatternDistributionOverMethodRows() {
+		return patternDistributionOverMethodRows.toString();
+	}
+
+	public int getNbOfDetectedPattern() {
+		return nbOfDetectedPattern;
+	}
+
+	public boolean isReplayed() {
+		return replayed;
+	}
+
+	/*
+	 * writes the report without its class name, withTrace must be the same
+	 * when reading it back
+	 */
+	public void writeTo(DataOutputStream out, boolean withTrace) throws IOException {
+
+		out.writeInt(nbOfDetectedPattern);
+		writeLongString(out, getDetectedPatternRows());
+		writeLongString(out, getPatternDistributionOverMethodRows());
+
+		if (withTrace) {
+			writeLongString(out, getTrace());
+		}
+	}
+
+	public static ClassReport readFrom(DataInputStream in, String className, boolean withTrace) throws IOException {
+
+		int nbOfDetectedPattern = in.readInt();
+		String detectedPatternRows = readLongString(in);
+		String patternDistributionOverMethodRows = readLongString(in);
+		String trace = withTrace ? readLongString(in) : "";
+
+		return new ClassReport(className, trace, detectedPatternRows, patternDistributionOverMethodRows, nbOfDetectedPattern);
+	}
+
+	// writeUTF is limited to 64K, the rows of a class can be longer
+	private static void writeLongString(DataOutputStream out, String s) throws IOException {
+
+		byte[] bytes = s.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readLongString(DataInputStream in) throws IOException {
+
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+}
@@ -0,0 +1,174 @@
+package Common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import soot.Body;
+import soot.Trap;
+import soot.Unit;
+import soot.toolkits.graph.UnitGraph;
+
+/*
+ * CompactUnitGraph is an immutable copy of a UnitGraph made for the walks of
+ * the detectors: the units are numbered 0..size()-1 in the order of the body,
+ * the successors and the predecessors of every unit are stored in two int
+ * arrays (compressed sparse rows: the successors of unit i are
+ * succs[succOffsets[i]..succOffsets[i + 1]-1], in the order of getSuccsOf),
+ * and the tails and the handler units of the traps are bit sets.
+ *
+ * A walk then reads a few ints instead of looking up the lists of the
+ * HashMaps of the UnitGraph, and getTails().contains becomes a bit test. The
+ * only lookup left is indexOf, for the units coming from the statements
+ * themselves (the target of an IfStmt); -1 stands for a unit that is not in
+ * the graph (or null), it has no successor and is neither a tail nor a
+ * handler, like getSuccsOf and getTails answer for it.
+ */
+public class CompactUnitGraph {
+
+	private final Body body;
+	private final Unit[] units;
+	private final Map<Unit, Integer> indexOfUnit;
+
+	private final int[] succOffsets;
+	private final int[] succs;
+	private final int[] predOffsets;
+	private final int[] preds;
+
+	private final long[] tails;
+	private final long[] trapHandlers;
+
+	public CompactUnitGraph(UnitGraph graph) {
+
+		body = graph.getBody();
+		units = new Unit[graph.size()];
+		indexOfUnit = new HashMap<Unit, Integer>(units.length * 2 + 1, 0.7f);
+
+		int n = 0;
+		for (Iterator<Unit> it = graph.iterator(); it.hasNext();) {
+			Unit unit = it.next();
+			units[n] = unit;
+			indexOfUnit.put(unit, n++);
+		}
+
+		succOffsets = new int[units.length + 1];
+		predOffsets = new int[units.length + 1];
+		int[] edges = new int[units.length * 2];
+		int nbOfEdges = 0;
+		for (int i = 0; i < units.length; i++) {
+			List<Unit> succList = graph.getSuccsOf(units[i]);
+			if (nbOfEdges + succList.size() > edges.length) {
+				edges = Arrays.copyOf(edges, Math.max(edges.length * 2, nbOfEdges + succList.size()));
+			}
+			for (int k = 0; k < succList.size(); k++) {
+				int j = indexOfUnit.get(succList.get(k));
+				edges[nbOfEdges++] = j;
+				predOffsets[j + 1]++;
+			}
+			succOffsets[i + 1] = nbOfEdges;
+		}
+		succs = Arrays.copyOf(edges, nbOfEdges);
+
+		// les predecesseurs sont deduits des successeurs
+		for (int i = 0; i < units.length; i++) {
+			predOffsets[i + 1] += predOffsets[i];
+		}
+		preds = new int[nbOfEdges];
+		int[] nextPred = new int[units.length];
+		for (int i = 0; i < units.length; i++) {
+			for (int edge = succOffsets[i]; edge < succOffsets[i + 1]; edge++) {
+				int j = succs[edge];
+				preds[predOffsets[j] + nextPred[j]++] = i;
+			}
+		}
+
+		tails = new long[(units.length + 63) >>> 6];
+		for (Unit tail : graph.getTails()) {
+			set(tails, indexOf(tail));
+		}
+
+		trapHandlers = new long[tails.length];
+		for (Trap trap : body.getTraps()) {
+			set(trapHandlers, indexOf(trap.getHandlerUnit()));
+		}
+	}
+
+	private static void set(long[] bits, int index) {
+
+		if (index >= 0) {
+			bits[index >>> 6] |= 1L << index;
+		}
+	}
+
+	private static boolean get(long[] bits, int index) {
+
+		return index >= 0 && (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	public Body getBody() {
+
+		return body;
+	}
+
+	public int size() {
+
+		return units.length;
+	}
+
+	public Unit getUnit(int index) {
+
+		return units[index];
+	}
+
+	/* the number of unit, -1 if it is not a unit of the graph */
+	public int indexOf(Unit unit) {
+
+		Integer index = indexOfUnit.get(unit);
+		return index == null ? -1 : index;
+	}
+
+	public int getNbOfSuccs(int index) {
+
+		return index < 0 ? 0 : succOffsets[index + 1] - succOffsets[index];
+	}
+
+	/* the k-th successor of the unit index, in the order of UnitGraph.getSuccsOf */
+	public int getSucc(int index, int k) {
+
+		return succs[succOffsets[index] + k];
+	}
+
+	public int getNbOfPreds(int index) {
+
+		return index < 0 ? 0 : predOffsets[index + 1] - predOffsets[index];
+	}
+
+	public int getPred(int index, int k) {
+
+		return preds[predOffsets[index] + k];
+	}
+
+	public boolean isTail(int index) {
+
+		return get(tails, index);
+	}
+
+	public boolean isTrapHandler(int index) {
+
+		return get(trapHandlers, index);
+	}
+
+	/* the successors of the unit index, as units; for the traces */
+	public List<Unit> getSuccsOf(int index) {
+
+		List<Unit> succList = new ArrayList<Unit>(getNbOfSuccs(index));
+		for (int k = 0; k < getNbOfSuccs(index); k++) {
+			succList.add(units[getSucc(index, k)]);
+		}
+		return succList;
+	}
+
+}
@@ -0,0 +1,354 @@
+package Common;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import soot.Body;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+
+/*
+ * DetectionResultCollector is the only place where a detector's results meet
+ * the shared output files. Each call of internalTransform asks for a
+ * MethodReport, fills it and commits it; Soot may run the jtp pack on
+ * several classes in parallel, so committed reports are kept until flush()
+ * which writes them in the order of the application classes of the Scene and
+ * of their methods. This is the order a single threaded run visits the
+ * bodies, so the files are identical whatever the number of threads.
+ *
+ * Results of classes that were not analysed in this run can be replayed
+ * (see IncrementalManifest); setClassOrder() then gives the order in which
+ * analysed and replayed classes are interleaved.
+ *
+ * A class does not wait for flush(): as soon as every concrete method of the
+ * next class of that order is committed (or the class is replayed) it is
+ * written through the ResultSink, with the classes after it that are complete
+ * too. Only the classes between the next one to write and the ones soot's
+ * threads are on are held, and the files are the same as if everything had
+ * been written by flush().
+ */
+public class DetectionResultCollector {
+
+	private final ResultSink sink;
+
+	private final ConcurrentHashMap<SootMethod, MethodReport> committedReports;
+	private final HashMap<String, ClassReport> replayedReports;
+	private List<String> classOrder;
+
+	// les classes deja ecrites par commit(), la prochaine a ecrire est streamOrder.get(nextClass)
+	private List<String> streamOrder;
+	private int nextClass;
+	private final List<ClassReport> streamedReports;
+	private boolean keepWrittenReports = true;
+
+	public DetectionResultCollector(PrintWriter out,
+			PrintWriter patternDistributionOverMethod,
+			PrintWriter detectedPattern) {
+
+		sink = new ResultSink(out, patternDistributionOverMethod, detectedPattern);
+
+		committedReports = new ConcurrentHashMap<SootMethod, MethodReport>(1024);
+		replayedReports = new HashMap<String, ClassReport>();
+		streamedReports = new ArrayList<ClassReport>();
+	}
+
+	public MethodReport newReport(Body body) {
+
+		return new MethodReport(body.getMethod());
+	}
+
+	public void commit(MethodReport report) {
+
+		committedReports.put(report.getMethod(), report);
+		writeCompletedClasses();
+	}
+
+	/*
+	 * the results of a class kept from a previous run, written by flush() in
+	 * place of an analysis of the class
+	 */
+	public synchronized void replay(ClassReport report) {
+
+		replayedReports.put(report.getClassName(), report);
+	}
+
+	/*
+	 * the order of the classes in the output files, usually the class list
+	 * given to soot; classes missing from the list are written after it
+	 */
+	public synchronized void setClassOrder(List<String> classOrder) {
+
+		this.classOrder = new ArrayList<String>(classOrder);
+	}
+
+	/*
+	 * the first line of patternDistributionOverMethod.csv and of
+	 * detectedPattern.csv, written at once and kept for the binary results
+	 */
+	public void writeHeaders(String patternDistributionOverMethodHeader, String detectedPatternHeader) {
+
+		sink.writeHeaders(patternDistributionOverMethodHeader, detectedPatternHeader);
+	}
+
+	/*
+	 * the classes are also written in the binary format (see
+	 * BinaryResultWriter); the caller closes binaryResults after flush()
+	 */
+	public void setBinaryResults(BinaryResultWriter binaryResults) {
+
+		sink.setBinaryResults(binaryResults);
+	}
+
+	/*
+	 * the rows are also added to a store that can be queried (see
+	 * ResultStore), kind being the detector; the caller closes resultStore
+	 * after flush()
+	 */
+	public void setResultStore(ResultStoreWriter resultStore, String kind) {
+
+		sink.setResultStore(resultStore, kind);
+	}
+
+	/*
+	 * false when the caller does not use the reports returned by flush():
+	 * the written classes are then dropped as soon as they are written
+	 */
+	public synchronized void setKeepWrittenReports(boolean keepWrittenReports) {
+
+		this.keepWrittenReports = keepWrittenReports;
+	}
+
+	/*
+	 * writes the next classes of the order while they are complete: replayed,
+	 * or analysed with a committed report for each of their concrete methods.
+	 * A class that is neither (not an application class, or without concrete
+	 * method) gets no report in this run and is passed; a class still being
+	 * transformed stops the writing until the next commit.
+	 */
+	private synchronized void writeCompletedClasses() {
+
+		if (streamOrder == null) {
+
+			if (classOrder != null) {
+				streamOrder = classOrder;
+			} else {
+				streamOrder = new ArrayList<String>();
+				for (SootClass sootClass : Scene.v().getApplicationClasses()) {
+					streamOrder.add(sootClass.getName());
+				}
+			}
+			nextClass = 0;
+		}
+
+		while (nextClass < streamOrder.size()) {
+
+			String className = streamOrder.get(nextClass);
+			ClassReport report = replayedReports.remove(className);
+
+			if (report == null) {
+
+				SootClass sootClass = Scene.v().getSootClassUnsafe(className);
+
+				if (sootClass != null && sootClass.isApplicationClass()) {
+
+					for (SootMethod method : sootClass.getMethods()) {
+						if (method.isConcrete() && !committedReports.containsKey(method)) {
+							return;
+						}
+					}
+
+					for (SootMethod method : sootClass.getMethods()) {
+
+						MethodReport methodReport = committedReports.remove(method);
+
+						if (methodReport != null) {
+							report = classReportOf(report, methodReport.getDeclaringClassName());
+							report.add(methodReport);
+						}
+					}
+				}
+			}
+
+			if (report != null) {
+				write(report);
+				if (keepWrittenReports) {
+					streamedReports.add(report);
+				}
+			}
+			nextClass++;
+		}
+	}
+
+	private static ClassReport classReportOf(ClassReport report, String className) {
+
+		return report != null ? report : new ClassReport(className);
+	}
+
+	/*
+	 * writes every committed report in scene order (or in the order given by
+	 * setClassOrder), then whatever was left (methods of classes that are no
+	 * more application classes) sorted by signature so that the output stays
+	 * deterministic. The classes already written by commit() are the first
+	 * ones of that order, flush() goes on after them. Returns the class
+	 * reports written, analysed and replayed, during the run and by flush()
+	 * (none if setKeepWrittenReports(false)).
+	 */
+	public synchronized List<ClassReport> flush() {
+
+		LinkedHashMap<String, ClassReport> classReports = new LinkedHashMap<String, ClassReport>();
+		List<ClassReport> writtenReports = new ArrayList<ClassReport>(streamedReports);
+		HashSet<String> streamedClasses = new HashSet<String>();
+
+		if (streamOrder != null) {
+			streamedClasses.addAll(streamOrder.subList(0, nextClass));
+		}
+
+		if (!committedReports.isEmpty()) {
+
+			for (SootClass sootClass : Scene.v().getApplicationClasses()) {
+
+				if (streamedClasses.contains(sootClass.getName())) {
+					continue;
+				}
+
+				for (SootMethod method : sootClass.getMethods()) {
+
+					MethodReport report = committedReports.remove(method);
+
+					if (report != null) {
+						classReportOf(classReports, report.getDeclaringClassName()).add(report);
+					}
+				}
+			}
+		}
+
+		List<MethodReport> remainingReports = new ArrayList<MethodReport>(committedReports.values());
+		committedReports.clear();
+
+		Collections.sort(remainingReports, new Comparator<MethodReport>() {
+			public int compare(MethodReport r1, MethodReport r2) {
+				return r1.getMethod().getSignature().compareTo(r2.getMethod().getSignature());
+			}
+		});
+
+		for (MethodReport report : remainingReports) {
+			classReportOf(classReports, report.getDeclaringClassName()).add(report);
+		}
+
+		if (classOrder != null) {
+
+			for (String className : classOrder.subList(classOrder == streamOrder ? nextClass : 0, classOrder.size())) {
+
+				ClassReport report = classReports.remove(className);
+
+				if (report == null) {
+					report = replayedReports.remove(className);
+				}
+				if (report != null) {
+					write(report);
+					keep(writtenReports, report);
+				}
+			}
+		}
+
+		for (ClassReport report : classReports.values()) {
+			write(report);
+			keep(writtenReports, report);
+		}
+
+		List<String> replayedClassNames = new ArrayList<String>(replayedReports.keySet());
+		Collections.sort(replayedClassNames);
+
+		for (String className : replayedClassNames) {
+			ClassReport report = replayedReports.get(className);
+			write(report);
+			keep(writtenReports, report);
+		}
+		replayedReports.clear();
+
+		// une autre passe du pack (daemon) recommence au debut de l'ordre
+		streamOrder = null;
+		streamedReports.clear();
+
+		sink.flush();
+
+		return writtenReports;
+	}
+
+	private void keep(List<ClassReport> writtenReports, ClassReport report) {
+
+		if (keepWrittenReports) {
+			writtenReports.add(report);
+		}
+	}
+
+	private static ClassReport classReportOf(Map<String, ClassReport> classReports, String className) {
+
+		ClassReport classReport = classReports.get(className);
+
+		if (classReport == null) {
+			classReport = new ClassReport(className);
+			classReports.put(className, classReport);
+		}
+
+		return classReport;
+	}
+
+	private void write(ClassReport report) {
+
+		sink.write(report);
+	}
+
+	public ResultSink getSink() {
+
+		return sink;
+	}
+
+	/* number of detected pattern of all the classes written so far */
+	public int getNbOfDetectedPattern() {
+
+		return sink.getNbOfDetectedPattern();
+	}
+
+	/*
+	 * writes patternDistributionOverClass.csv, one row per class in the order
+	 * the classes were written, classes (when not null) gets a line per class,
+	 * then releases the sink's spool. Returns the total number of detected
+	 * pattern.
+	 */
+	public int writePatternDistributionOverClass(String patternDistributionOverClassFile, PrintStream classes) throws IOException {
+
+		try {
+			return sink.writePatternDistributionOverClass(patternDistributionOverClassFile, classes);
+		} finally {
+			sink.release();
+		}
+	}
+
+	/* closes and deletes the sink's spool, when patternDistributionOverClass.csv is not written */
+	public void release() {
+
+		sink.release();
+	}
+
+	/*
+	 * number of detected pattern per class, in the order the classes were
+	 * written by flush(); read back from the sink's spool, for the benchmarks
+	 */
+	public Map<String, Integer> getPatternDistributionOverClasses() throws IOException {
+
+		return sink.readPatternDistributionOverClasses();
+	}
+
+}
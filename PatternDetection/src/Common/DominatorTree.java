@@ -0,0 +1,292 @@
+package Common;
+
+import java.util.Arrays;
+
+/*
+ * DominatorTree is the dominator tree, or the post-dominator tree, of the
+ * units of a CompactUnitGraph, computed once with the algorithm of Lengauer
+ * and Tarjan (semi-dominators and a forest of the depth first search with
+ * path compression, O(e log n), close to linear on the graphs of methods).
+ *
+ * The tree has a virtual root, numbered size(): for the dominators it has an
+ * edge to the first unit and to every unit without predecessor, for the
+ * post-dominators (the same search on the reversed edges) it is the exit
+ * every tail leads to, so a method with several return and throw statements
+ * still has one tree. getIdom answers -1 for a unit whose immediate
+ * (post-)dominator is the virtual root and for a unit the search does not
+ * reach (a unit after an infinite loop has no post-dominator).
+ *
+ * After the construction the tree is numbered in pre and post order, so
+ * dominates is two comparisons.
+ */
+public class DominatorTree {
+
+	private final CompactUnitGraph cfg;
+	private final boolean postDominators;
+	private final int root;
+
+	private final int[] idom;
+	private final int[] preOrder;
+	private final int[] postOrder;
+
+	private DominatorTree(CompactUnitGraph cfg, boolean postDominators) {
+
+		this.cfg = cfg;
+		this.postDominators = postDominators;
+		this.root = cfg.size();
+
+		int n = cfg.size() + 1;
+
+		// parcours en profondeur depuis la racine virtuelle
+		int[] dfnum = new int[n];
+		int[] vertex = new int[n];
+		int[] parent = new int[n];
+		Arrays.fill(dfnum, -1);
+		int nbOfVertices = search(dfnum, vertex, parent);
+
+		int[] semi = new int[n];
+		int[] label = new int[n];
+		int[] ancestor = new int[n];
+		int[] bucketHead = new int[n];
+		int[] bucketNext = new int[n];
+		int[] path = new int[n];
+		int[] dominator = new int[n];
+		for (int v = 0; v < n; v++) {
+			semi[v] = dfnum[v];
+			label[v] = v;
+			ancestor[v] = -1;
+			bucketHead[v] = -1;
+			dominator[v] = -1;
+		}
+
+		for (int i = nbOfVertices - 1; i > 0; i--) {
+			int w = vertex[i];
+
+			// le semi-dominateur de w, par ses predecesseurs atteints
+			for (int k = 0; k < nbOfPreds(w); k++) {
+				int v = pred(w, k);
+				if (dfnum[v] >= 0) {
+					int u = eval(v, ancestor, label, semi, path);
+					if (semi[u] < semi[w]) {
+						semi[w] = semi[u];
+					}
+				}
+			}
+			int s = vertex[semi[w]];
+			bucketNext[w] = bucketHead[s];
+			bucketHead[s] = w;
+
+			int p = parent[w];
+			ancestor[w] = p;
+
+			for (int v = bucketHead[p]; v >= 0; v = bucketNext[v]) {
+				int u = eval(v, ancestor, label, semi, path);
+				dominator[v] = semi[u] < semi[v] ? u : p;
+			}
+			bucketHead[p] = -1;
+		}
+
+		for (int i = 1; i < nbOfVertices; i++) {
+			int w = vertex[i];
+			if (dominator[w] != vertex[semi[w]]) {
+				dominator[w] = dominator[dominator[w]];
+			}
+		}
+
+		idom = new int[cfg.size()];
+		for (int v = 0; v < cfg.size(); v++) {
+			idom[v] = dominator[v] == root ? -1 : dominator[v];
+		}
+
+		preOrder = new int[n];
+		postOrder = new int[n];
+		number(dominator, vertex, nbOfVertices);
+	}
+
+	public static DominatorTree dominators(CompactUnitGraph cfg) {
+
+		return new DominatorTree(cfg, false);
+	}
+
+	public static DominatorTree postDominators(CompactUnitGraph cfg) {
+
+		return new DominatorTree(cfg, true);
+	}
+
+	public CompactUnitGraph getCfg() {
+
+		return cfg;
+	}
+
+	public boolean isPostDominatorTree() {
+
+		return postDominators;
+	}
+
+	/* false for a unit the search from the virtual root does not reach (or -1) */
+	public boolean isReachable(int index) {
+
+		return index >= 0 && preOrder[index] >= 0;
+	}
+
+	/* the immediate (post-)dominator of the unit index, -1 for the virtual root or an unreachable unit */
+	public int getIdom(int index) {
+
+		return idom[index];
+	}
+
+	/* whether every path from the root to b (from b to the exit for the post-dominators) goes through a; a unit dominates itself */
+	public boolean dominates(int a, int b) {
+
+		return isReachable(a) && isReachable(b) && preOrder[a] <= preOrder[b] && postOrder[b] <= postOrder[a];
+	}
+
+	/* the successors in the searched graph: the edges of cfg, reversed for the post-dominators, and those of the virtual root */
+	private int nbOfSuccs(int v) {
+
+		if (v == root) {
+			return cfg.size();
+		}
+		return postDominators ? cfg.getNbOfPreds(v) : cfg.getNbOfSuccs(v);
+	}
+
+	private int succ(int v, int k) {
+
+		if (v == root) {
+			// la racine n'a d'arc que vers les entrees (ou les sorties), les autres unites sont sautees par search
+			return k;
+		}
+		return postDominators ? cfg.getPred(v, k) : cfg.getSucc(v, k);
+	}
+
+	private boolean isRootSucc(int v) {
+
+		if (postDominators) {
+			return cfg.isTail(v);
+		}
+		return v == 0 || cfg.getNbOfPreds(v) == 0;
+	}
+
+	/* the predecessors in the searched graph */
+	private int nbOfPreds(int v) {
+
+		int nbOfPreds = postDominators ? cfg.getNbOfSuccs(v) : cfg.getNbOfPreds(v);
+		return isRootSucc(v) ? nbOfPreds + 1 : nbOfPreds;
+	}
+
+	private int pred(int v, int k) {
+
+		int nbOfCfgPreds = postDominators ? cfg.getNbOfSuccs(v) : cfg.getNbOfPreds(v);
+		if (k == nbOfCfgPreds) {
+			return root;
+		}
+		return postDominators ? cfg.getSucc(v, k) : cfg.getPred(v, k);
+	}
+
+	/* numbers the vertices reached from the root in depth first order, without recursion; returns their number */
+	private int search(int[] dfnum, int[] vertex, int[] parent) {
+
+		int[] stack = new int[root + 1];
+		int[] nextSucc = new int[root + 1];
+		int top = 0;
+		int nbOfVertices = 0;
+
+		stack[0] = root;
+		dfnum[root] = nbOfVertices;
+		vertex[nbOfVertices++] = root;
+		parent[root] = -1;
+
+		while (top >= 0) {
+			int v = stack[top];
+
+			if (nextSucc[v] == nbOfSuccs(v)) {
+				top--;
+				continue;
+			}
+
+			int w = succ(v, nextSucc[v]++);
+			if (v == root && !isRootSucc(w)) {
+				continue;
+			}
+			if (dfnum[w] < 0) {
+				dfnum[w] = nbOfVertices;
+				vertex[nbOfVertices++] = w;
+				parent[w] = v;
+				stack[++top] = w;
+			}
+		}
+
+		return nbOfVertices;
+	}
+
+	/* the vertex of least semi-dominator on the path of the forest from v to its root, compressing the path */
+	private static int eval(int v, int[] ancestor, int[] label, int[] semi, int[] path) {
+
+		if (ancestor[v] < 0) {
+			return v;
+		}
+
+		int length = 0;
+		for (int x = v; ancestor[ancestor[x]] >= 0; x = ancestor[x]) {
+			path[length++] = x;
+		}
+		// du haut du chemin vers v, comme la compression recursive
+		while (length > 0) {
+			int x = path[--length];
+			int a = ancestor[x];
+			if (semi[label[a]] < semi[label[x]]) {
+				label[x] = label[a];
+			}
+			ancestor[x] = ancestor[a];
+		}
+
+		return label[v];
+	}
+
+	/* pre and post order numbers of the tree of dominator, -1 for the unreachable units */
+	private void number(int[] dominator, int[] vertex, int nbOfVertices) {
+
+		int n = root + 1;
+
+		// les fils de chaque sommet, en lignes compressees
+		int[] childOffsets = new int[n + 1];
+		for (int i = 1; i < nbOfVertices; i++) {
+			childOffsets[dominator[vertex[i]] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			childOffsets[v + 1] += childOffsets[v];
+		}
+		int[] children = new int[nbOfVertices];
+		int[] nextChild = new int[n];
+		for (int i = 1; i < nbOfVertices; i++) {
+			int v = dominator[vertex[i]];
+			children[childOffsets[v] + nextChild[v]++] = vertex[i];
+		}
+
+		Arrays.fill(preOrder, -1);
+		Arrays.fill(postOrder, -1);
+		Arrays.fill(nextChild, 0);
+
+		int[] stack = new int[nbOfVertices];
+		int top = 0;
+		int pre = 0;
+		int post = 0;
+		stack[0] = root;
+		preOrder[root] = pre++;
+
+		while (top >= 0) {
+			int v = stack[top];
+
+			if (nextChild[v] == childOffsets[v + 1] - childOffsets[v]) {
+				postOrder[v] = post++;
+				top--;
+				continue;
+			}
+
+			int w = children[childOffsets[v] + nextChild[v]++];
+			preOrder[w] = pre++;
+			stack[++top] = w;
+		}
+	}
+
+}
@@ -0,0 +1,167 @@
+package Common;
+
+import soot.Local;
+import soot.Value;
+import soot.jimple.ConditionExpr;
+import soot.jimple.EqExpr;
+import soot.jimple.IfStmt;
+import soot.jimple.NeExpr;
+import soot.jimple.NullConstant;
+
+/*
+ * IfStmtCondition is what the detectors ask of the condition of an if stmt,
+ * packed in a long: whether it compares with null and with == or !=, which
+ * operand is tested (the one that is not the null constant, op1 otherwise),
+ * whether the operands are locals or parameters of the method, and the
+ * branches of the if stmt in the CompactUnitGraph of the body. It is computed
+ * once per if stmt by UnitClassification (see getCondition), without
+ * allocating, and read with the static methods of this class instead of
+ * comparing the strings of getOp2() and getSymbol() in every detector.
+ *
+ * bits 0-15 : the flags below
+ * bits 16-39 : the index of the target branch + 1, 0 when there is none
+ * bits 40-63 : the index of the fall through branch + 1, 0 when there is none
+ *
+ * Whether the tested operand is a local defined from a parameter needs the
+ * reaching definitions of the body: it is added on the first request (see
+ * UnitClassification.isParameterDerived).
+ */
+public final class IfStmtCondition {
+
+	public static final int NULL_COMPARISON = 1;
+	public static final int EQUALS = 2;
+	public static final int NOT_EQUALS = 4;
+	// null == x : le null est op1, l'operande testee est op2
+	public static final int NULL_IS_OP1 = 8;
+	public static final int OP1_LOCAL = 16;
+	public static final int OP2_LOCAL = 32;
+	public static final int OP1_PARAMETER = 64;
+	public static final int OP2_PARAMETER = 128;
+	public static final int PARAMETER_DERIVED = 256;
+	public static final int PARAMETER_DERIVED_KNOWN = 512;
+
+	private static final int FLAGS = 0xffff;
+	private static final int BRANCH = 0xffffff;
+	private static final int TARGET_SHIFT = 16;
+	private static final int FALL_THROUGH_SHIFT = 40;
+
+	private IfStmtCondition() {
+	}
+
+	/* the condition of ifStmt without its branches; parameters may be empty */
+	public static long describe(IfStmt ifStmt, Local[] parameters) {
+
+		ConditionExpr condition = (ConditionExpr) ifStmt.getCondition();
+		Value op1 = condition.getOp1();
+		Value op2 = condition.getOp2();
+		int flags = 0;
+
+		if (condition instanceof EqExpr) {
+			flags |= EQUALS;
+		} else if (condition instanceof NeExpr) {
+			flags |= NOT_EQUALS;
+		}
+
+		if (op2 instanceof NullConstant) {
+			flags |= NULL_COMPARISON;
+		} else if (op1 instanceof NullConstant) {
+			flags |= NULL_COMPARISON | NULL_IS_OP1;
+		}
+
+		if (op1 instanceof Local) {
+			flags |= OP1_LOCAL;
+			if (isParameter(op1, parameters)) {
+				flags |= OP1_PARAMETER;
+			}
+		}
+		if (op2 instanceof Local) {
+			flags |= OP2_LOCAL;
+			if (isParameter(op2, parameters)) {
+				flags |= OP2_PARAMETER;
+			}
+		}
+
+		return flags;
+	}
+
+	/* the condition of ifStmt whose branches are targetBranch and fallThroughBranch in the graph, -1 for none */
+	public static long describe(IfStmt ifStmt, Local[] parameters, int targetBranch, int fallThroughBranch) {
+
+		return describe(ifStmt, parameters)
+				| ((long) (targetBranch + 1) & BRANCH) << TARGET_SHIFT
+				| ((long) (fallThroughBranch + 1) & BRANCH) << FALL_THROUGH_SHIFT;
+	}
+
+	private static boolean isParameter(Value value, Local[] parameters) {
+
+		for (int i = 0; i < parameters.length; i++) {
+			if (parameters[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* whether condition has all the flags */
+	public static boolean is(long condition, int flags) {
+
+		return ((int) condition & flags) == flags;
+	}
+
+	public static int getFlags(long condition) {
+
+		return (int) condition & FLAGS;
+	}
+
+	public static boolean isNullComparison(long condition) {
+
+		return is(condition, NULL_COMPARISON);
+	}
+
+	/* x == null */
+	public static boolean isEqualNull(long condition) {
+
+		return is(condition, NULL_COMPARISON | EQUALS);
+	}
+
+	/* x != null */
+	public static boolean isNotEqualNull(long condition) {
+
+		return is(condition, NULL_COMPARISON | NOT_EQUALS);
+	}
+
+	/* one of the operands is a parameter of the method */
+	public static boolean testsParameter(long condition) {
+
+		return ((int) condition & (OP1_PARAMETER | OP2_PARAMETER)) != 0;
+	}
+
+	/* 1 or 2, the operand compared with null (op1 when it is not a null comparison) */
+	public static int getTestedOperand(long condition) {
+
+		return is(condition, NULL_IS_OP1) ? 2 : 1;
+	}
+
+	public static Value getTestedOperand(long condition, IfStmt ifStmt) {
+
+		ConditionExpr expr = (ConditionExpr) ifStmt.getCondition();
+
+		return getTestedOperand(condition) == 1 ? expr.getOp1() : expr.getOp2();
+	}
+
+	public static boolean isTestedOperandLocal(long condition) {
+
+		return is(condition, getTestedOperand(condition) == 1 ? OP1_LOCAL : OP2_LOCAL);
+	}
+
+	public static int getTargetBranch(long condition) {
+
+		return (int) (condition >>> TARGET_SHIFT & BRANCH) - 1;
+	}
+
+	public static int getFallThroughBranch(long condition) {
+
+		return (int) (condition >>> FALL_THROUGH_SHIFT & BRANCH) - 1;
+	}
+
+}
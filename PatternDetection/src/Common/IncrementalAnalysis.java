@@ -0,0 +1,86 @@
+package Common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+ * IncrementalAnalysis is what a MainDriver does with an IncrementalManifest:
+ * before the soot run it keeps only the classes whose class file changed
+ * (the others are replayed into the detector's DetectionResultCollector),
+ * after the run it records the results of the analysed classes.
+ */
+public class IncrementalAnalysis {
+
+	private final IncrementalManifest manifest;
+	private final String binPath;
+	private final DetectionResultCollector results;
+
+	private final HashMap<String, String> hashOfAnalysedClasses = new HashMap<String, String>();
+
+	public IncrementalAnalysis(String manifestFile, String detectorVersion,
+			String binPath, DetectionResultCollector results) {
+
+		this.manifest = new IncrementalManifest(manifestFile, detectorVersion);
+		this.binPath = binPath;
+		this.results = results;
+	}
+
+	/*
+	 * returns the classes that must be given to soot, the results of the
+	 * other ones are replayed
+	 */
+	public List<String> selectClassesToAnalyse(List<String> classes) {
+
+		List<String> classesToAnalyse = new ArrayList<String>();
+
+		results.setClassOrder(classes);
+
+		for (String className : classes) {
+
+			String hash = IncrementalManifest.hashOfClassFile(binPath, className);
+
+			if (manifest.isUpToDate(className, hash)) {
+
+				ClassReport cachedReport = manifest.getCachedReport(className);
+
+				if (cachedReport != null) {
+					results.replay(cachedReport);
+				}
+
+			} else {
+
+				hashOfAnalysedClasses.put(className, hash);
+				classesToAnalyse.add(className);
+			}
+		}
+
+		System.out.println("incremental analysis ----> " + classesToAnalyse.size() + " classes to analyse, "
+				+ (classes.size() - classesToAnalyse.size()) + " unchanged");
+
+		return classesToAnalyse;
+	}
+
+	/*
+	 * takes the reports written by DetectionResultCollector.flush() and saves
+	 * the manifest
+	 */
+	public void recordResults(List<ClassReport> writtenReports) throws IOException {
+
+		HashMap<String, ClassReport> analysedReports = new HashMap<String, ClassReport>();
+
+		for (ClassReport report : writtenReports) {
+			if (!report.isReplayed()) {
+				analysedReports.put(report.getClassName(), report);
+			}
+		}
+
+		for (String className : hashOfAnalysedClasses.keySet()) {
+			manifest.update(className, hashOfAnalysedClasses.get(className), analysedReports.get(className));
+		}
+
+		manifest.save();
+	}
+
+}
@@ -0,0 +1,200 @@
+package Common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+ * IncrementalManifest remembers, for each analysed class, the SHA-1 of its
+ * class file and the rows it produced (detectedPattern and
+ * patternDistributionOverMethod, plus its number of detected pattern). When a
+ * class file has the same hash as in the previous run and the detector has the
+ * same version, the class does not need to be given to soot again: its
+ * ClassReport is replayed in the DetectionResultCollector.
+ *
+ * The detectors are intraprocedural so the rows of a class only depend on its
+ * own class file; changing the detector must change its version so that the
+ * whole manifest is dropped. Deleting the manifest file forces a full run.
+ */
+public class IncrementalManifest {
+
+	private static final String MAGIC = "PatternDetection manifest 1";
+
+	private final String manifestFile;
+	private final String detectorVersion;
+	private final HashMap<String, Entry> entries = new HashMap<String, Entry>();
+
+	private static class Entry {
+
+		final String hash;
+		// null when the class had no body to analyse
+		final ClassReport report;
+
+		Entry(String hash, ClassReport report) {
+			this.hash = hash;
+			this.report = report;
+		}
+	}
+
+	/*
+	 * loads the manifest if it exists and was written by the same version of
+	 * the detector, otherwise starts empty
+	 */
+	public IncrementalManifest(String manifestFile, String detectorVersion) {
+
+		this.manifestFile = manifestFile;
+		this.detectorVersion = detectorVersion;
+
+		if (new File(manifestFile).exists()) {
+			try {
+				load();
+			} catch (IOException e) {
+				System.err.println("manifest " + manifestFile + " ignored: " + e.getMessage());
+				entries.clear();
+			}
+		}
+	}
+
+	private void load() throws IOException {
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(manifestFile)));
+
+		try {
+			if (!MAGIC.equals(in.readUTF()) || !detectorVersion.equals(in.readUTF())) {
+				return;
+			}
+
+			int nbOfEntries = in.readInt();
+
+			for (int i = 0; i < nbOfEntries; i++) {
+
+				String className = in.readUTF();
+				String hash = in.readUTF();
+				ClassReport report = null;
+
+				if (in.readBoolean()) {
+					report = ClassReport.readFrom(in, className, false);
+				}
+
+				entries.put(className, new Entry(hash, report));
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	public void save() throws IOException {
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(manifestFile)));
+
+		try {
+			out.writeUTF(MAGIC);
+			out.writeUTF(detectorVersion);
+			out.writeInt(entries.size());
+
+			List<String> classNames = new ArrayList<String>(entries.keySet());
+			Collections.sort(classNames);
+
+			for (String className : classNames) {
+
+				Entry entry = entries.get(className);
+
+				out.writeUTF(className);
+				out.writeUTF(entry.hash);
+				out.writeBoolean(entry.report != null);
+
+				if (entry.report != null) {
+					entry.report.writeTo(out, false);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	public boolean isUpToDate(String className, String hash) {
+
+		Entry entry = entries.get(className);
+
+		return hash != null && entry != null && entry.hash.equals(hash);
+	}
+
+	/*
+	 * the rows kept for an up to date class, null if the class had no body
+	 */
+	public ClassReport getCachedReport(String className) {
+
+		Entry entry = entries.get(className);
+
+		return entry == null ? null : entry.report;
+	}
+
+	/*
+	 * records the results of a class analysed in this run; report is null
+	 * when soot gave no body of the class to the detector
+	 */
+	public void update(String className, String hash, ClassReport report) {
+
+		if (hash == null) {
+			entries.remove(className);
+		} else {
+			entries.put(className, new Entry(hash, report));
+		}
+	}
+
+	/*
+	 * SHA-1 of the class file of className under binPath, null if there is
+	 * no such file (the class is then always analysed)
+	 */
+	public static String hashOfClassFile(String binPath, String className) {
+
+		File classFile = new File(binPath, className.replace('.', File.separatorChar) + ".class");
+
+		if (!classFile.isFile()) {
+			return null;
+		}
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			InputStream in = new FileInputStream(classFile);
+
+			try {
+				byte[] buffer = new byte[8192];
+				int read;
+
+				while ((read = in.read(buffer)) > 0) {
+					digest.update(buffer, 0, read);
+				}
+			} finally {
+				in.close();
+			}
+
+			StringBuilder hash = new StringBuilder(40);
+
+			for (byte b : digest.digest()) {
+				hash.append(Character.forDigit((b >> 4) & 0xf, 16));
+				hash.append(Character.forDigit(b & 0xf, 16));
+			}
+
+			return hash.toString();
+
+		} catch (IOException e) {
+			return null;
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
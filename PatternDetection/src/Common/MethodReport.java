@@ -0,0 +1,79 @@
+package Common;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import soot.SootMethod;
+
+/*
+ * MethodReport buffers everything a detector produces for one method body:
+ * the trace lines, the detectedPattern rows and the
+ * patternDistributionOverMethod row. internalTransform only ever writes into
+ * its own report, so bodies can be transformed on several threads at once;
+ * the reports are written to the real files by DetectionResultCollector.
+ */
+public class MethodReport {
+
+	private final SootMethod method;
+	private final String declaringClassName;
+
+	private final StringWriter traceBuffer = new StringWriter();
+	private final StringWriter detectedPatternBuffer = new StringWriter();
+	private final StringWriter patternDistributionOverMethodBuffer = new StringWriter();
+
+	private final PrintWriter out = new PrintWriter(traceBuffer);
+	private final PrintWriter detectedPattern = new PrintWriter(detectedPatternBuffer);
+	private final PrintWriter patternDistributionOverMethod = new PrintWriter(patternDistributionOverMethodBuffer);
+
+	private int nbOfDetectedPattern = 0;
+
+	public MethodReport(SootMethod method) {
+
+		this.method = method;
+		this.declaringClassName = method.getDeclaringClass().getName();
+	}
+
+	public SootMethod getMethod() {
+		return method;
+	}
+
+	public String getDeclaringClassName() {
+		return declaringClassName;
+	}
+
+	public PrintWriter getOut() {
+		return out;
+	}
+
+	public PrintWriter getDetectedPattern() {
+		return detectedPattern;
+	}
+
+	public PrintWriter getPatternDistributionOverMethod() {
+		return patternDistributionOverMethod;
+	}
+
+	public int getNbOfDetectedPattern() {
+		return nbOfDetectedPattern;
+	}
+
+	public void setNbOfDetectedPattern(int nbOfDetectedPattern) {
+		this.nbOfDetectedPattern = nbOfDetectedPattern;
+	}
+
+	String getTrace() {
+		out.flush();
+		return traceBuffer.toString();
+	}
+
+	String getDetectedPatternRows() {
+		detectedPattern.flush();
+		return detectedPatternBuffer.toString();
+	}
+
+	String getPatternDistributionOverMethodRows() {
+		patternDistributionOverMethod.flush();
+		return patternDistributionOverMethodBuffer.toString();
+	}
+
+}
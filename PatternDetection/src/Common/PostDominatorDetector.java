@@ -0,0 +1,306 @@
+package Common;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+import soot.Body;
+import soot.BodyTransformer;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.ThrowStmt;
+
+/*
+ * PostDominatorDetector finds the P1 pattern of InvokeStaticInstrumenterP1
+ * (a null test on a parameter guarding an exit point or a throw) and the P2
+ * pattern of InvokeStaticInstrumenterP2 (an if guarding a throw on one branch
+ * only) with the dominator and post-dominator trees of the body (see
+ * DominatorTree) instead of a walk of four units along single successors.
+ *
+ * A branch of an if stmt guards an exit (a tail, or a throw stmt for P2) when
+ * the exit is on every path from the branch and not on every path from the
+ * if: the exit post-dominates the successor of the branch, and is met going
+ * up the post-dominator tree from the successor before the immediate
+ * post-dominator of the if. Whatever happens in between (other ifs, loops,
+ * calls inside a try) does not matter, and neither does the length of the
+ * path. For P1 a branch that jumps straight to an exit guards it too, even
+ * when that exit is the immediate post-dominator of the if (if (p == null)
+ * goto the shared return); not for P2, where the other branch reaches the
+ * same throw and the if guards nothing.
+ *
+ * An exit reached when a chain of conditions holds (if (a == null && b ==
+ * null) return;) post-dominates a branch of the last if of the chain only, the
+ * other ifs jump over it: so an if whose branch leads to another if it
+ * immediately dominates also guards the exit that second if guards on the
+ * branch of the pattern (its null branch for P1, its only branch with a throw
+ * for P2). The chains of a == null || b == null need nothing more, each if
+ * has a branch to the exit.
+ *
+ * The rows are written in the files of the soot detectors, with the same
+ * columns; P1 types a throw stmt "exitpoin" when it is the successor itself
+ * and a tail, like InvokeStaticInstrumenterP1.
+ */
+public class PostDominatorDetector extends BodyTransformer {
+
+	// le graphe le moins cher qui donne les memes resultats que l'ExceptionalUnitGraph (voir SharedBodyGraph)
+	public static final int CFG_PRECISION = SharedBodyGraph.EXCEPTIONAL;
+
+	private final boolean p1;
+	private final DetectionResultCollector results;
+
+	/* kind is P1 or P2 */
+	public PostDominatorDetector(String kind, PrintWriter pw1, PrintWriter pw2, PrintWriter pw3) {
+
+		if (!kind.equals("P1") && !kind.equals("P2")) {
+			throw new IllegalArgumentException("unknown pattern " + kind + ", expected P1 or P2");
+		}
+
+		p1 = kind.equals("P1");
+		results = new DetectionResultCollector(pw1, pw2, pw3);
+
+		results.writeHeaders(ResultRecord.join("class name", "Method name", "number of detected pattern"),
+				ResultRecord.join("class name", "Method name", "", "Method signature", "", p1 ? "type of exitStmt" : "", "exit stmt", "Analysed unit"));
+	}
+
+	public boolean isP1() {
+
+		return p1;
+	}
+
+	protected void internalTransform(Body body, String phase, Map options) {
+
+		final SootMethod method = body.getMethod();
+		final MethodReport report = results.newReport(body);
+		PrintWriter out = report.getOut();
+
+		if (Trace.on(p1 ? Trace.P1 : Trace.P2, Trace.INFO)) {
+			out.println("instrumenting method : " + method.getSignature());
+		}
+
+		UnitClassification units = SharedBodyGraph.unitClassification(body);
+		UnitWalk walk = new UnitWalk();
+
+		if (isEligible(units)) {
+			// une seule construction des deux arbres pour toutes les if stmt du body
+			final Guards guards = new Guards(units, SharedBodyGraph.dominatorTree(body), SharedBodyGraph.postDominatorTree(body));
+
+			walk.add(new UnitRule(UnitClassification.IF_STMT) {
+
+				protected void visit(int unitIndex, UnitClassification units) {
+					nbOfDetectedPattern += p1 ? detectP1(guards, unitIndex, report) : detectP2(guards, unitIndex, report);
+				}
+			});
+		}
+
+		// la passe peut etre faite avec celles des autres detecteurs du pack, le rapport est termine apres elle
+		walk.walk(body, units, new UnitWalk.Done() {
+
+			public void walked(int nbOfDetectedpatternInCurrentMethod) {
+
+				// comme les detecteurs soot, seul P1 ecrit une ligne par methode
+				if (p1) {
+					report.getPatternDistributionOverMethod().println(ResultRecord.join(method.getDeclaringClass(), method.getSignature(), nbOfDetectedpatternInCurrentMethod));
+				}
+
+				report.setNbOfDetectedPattern(nbOfDetectedpatternInCurrentMethod);
+				results.commit(report);
+			}
+		});
+	}
+
+	/* an if stmt, and a throw stmt for P2 */
+	private boolean isEligible(UnitClassification units) {
+
+		return units.hasIfStmt() && (p1 || units.hasThrowStmt());
+	}
+
+	/* a null test on a parameter whose null branch guards an exit: one row */
+	private int detectP1(Guards guards, int ifIndex, MethodReport report) {
+
+		if (!guards.testsParameter(ifIndex)) {
+			return 0;
+		}
+
+		int nullBranch = guards.nullBranch(ifIndex);
+		int exit = guards.guardedExit(ifIndex, nullBranch);
+
+		if (exit < 0) {
+			return 0;
+		}
+
+		CompactUnitGraph cfg = guards.cfg;
+		// un throw qui est le successeur lui-meme et un tail est un exit point pour InvokeStaticInstrumenterP1
+		String type = cfg.getUnit(exit) instanceof ThrowStmt && !(exit == nullBranch && cfg.isTail(exit)) ? "ThrowStmt" : "exitpoin";
+		if (Trace.on(Trace.P1, Trace.INFO)) {
+			report.getOut().println(">>>>>--------" + cfg.getUnit(exit) + " post-domine la branche null de " + cfg.getUnit(ifIndex));
+		}
+		writeRow(report, type, cfg.getUnit(exit), cfg.getUnit(ifIndex));
+
+		return 1;
+	}
+
+	/* an if stmt with a throw guarded by one branch only: a row per branch that guards a throw, like InvokeStaticInstrumenterP2 */
+	private int detectP2(Guards guards, int ifIndex, MethodReport report) {
+
+		CompactUnitGraph cfg = guards.cfg;
+		int throwOfTarget = guards.guardedExit(ifIndex, guards.targetBranch(ifIndex));
+		int throwOfOther = guards.guardedExit(ifIndex, guards.otherBranch(ifIndex));
+
+		if (throwOfTarget >= 0) {
+			writeRow(report, "", cfg.getUnit(throwOfTarget), cfg.getUnit(ifIndex));
+		}
+		if (throwOfOther >= 0) {
+			writeRow(report, "", cfg.getUnit(throwOfOther), cfg.getUnit(ifIndex));
+		}
+
+		if ((throwOfTarget >= 0) != (throwOfOther >= 0)) {
+			if (Trace.on(Trace.P2, Trace.INFO)) {
+				report.getOut().println(">>>>>--------une seule branche de " + cfg.getUnit(ifIndex) + " mene au throw");
+			}
+			return 1;
+		}
+
+		return 0;
+	}
+
+	private void writeRow(MethodReport report, String type, Unit exitStmt, Unit ifStmt) {
+
+		SootMethod method = report.getMethod();
+
+		report.getDetectedPattern().println(ResultRecord.join(method.getDeclaringClass(), method.getName(), "", method.getSignature(), "", type, exitStmt, ifStmt));
+	}
+
+	/*
+	 * the guard relation of the if stmts of one body; the units are those of
+	 * cfg, -1 stands for no unit
+	 */
+	private class Guards {
+
+		final CompactUnitGraph cfg;
+		final UnitClassification units;
+		final DominatorTree dominators;
+		final DominatorTree postDominators;
+
+		Guards(UnitClassification units, DominatorTree dominators, DominatorTree postDominators) {
+
+			this.cfg = units.getCfg();
+			this.units = units;
+			this.dominators = dominators;
+			this.postDominators = postDominators;
+		}
+
+		int targetBranch(int ifIndex) {
+
+			return IfStmtCondition.getTargetBranch(units.getCondition(ifIndex));
+		}
+
+		/*
+		 * the fall through successor, the next unit of the body (the other
+		 * successors of the graph are the handlers of the traps), -1 when both
+		 * branches go to the target
+		 */
+		int otherBranch(int ifIndex) {
+
+			int otherBranch = IfStmtCondition.getFallThroughBranch(units.getCondition(ifIndex));
+
+			return otherBranch == targetBranch(ifIndex) ? -1 : otherBranch;
+		}
+
+		/* the successor taken when the local tested against null is null, -1 if the if stmt is not a null test */
+		int nullBranch(int ifIndex) {
+
+			long condition = units.getCondition(ifIndex);
+
+			if (IfStmtCondition.isEqualNull(condition)) {
+				return targetBranch(ifIndex);
+			}
+			if (IfStmtCondition.isNotEqualNull(condition)) {
+				return otherBranch(ifIndex);
+			}
+			return -1;
+		}
+
+		boolean testsParameter(int ifIndex) {
+
+			return IfStmtCondition.testsParameter(units.getCondition(ifIndex));
+		}
+
+		private boolean isExit(int index) {
+
+			return units.is(index, p1 ? UnitClassification.THROW_STMT | UnitClassification.EXIT : UnitClassification.THROW_STMT);
+		}
+
+		/*
+		 * the first exit going up the post-dominator tree from branch to the
+		 * immediate post-dominator of the if stmt ifIndex (excluded), branch
+		 * itself when it is an exit (for P1 even when it is that
+		 * post-dominator), or the exit guarded by the if stmt of the branch
+		 * when ifIndex is the only way to it; -1 if the branch guards no exit
+		 */
+		int guardedExit(int ifIndex, int branch) {
+
+			if (!postDominators.isReachable(branch)) {
+				return -1;
+			}
+
+			int ifPostDominator = postDominators.getIdom(ifIndex);
+
+			// P1 : le branchement null va droit a la sortie commune des deux chemins
+			if (p1 && branch == ifPostDominator && isExit(branch)) {
+				return branch;
+			}
+
+			for (int index = branch; index >= 0 && index != ifPostDominator; index = postDominators.getIdom(index)) {
+				if (isExit(index)) {
+					return index;
+				}
+			}
+
+			if (units.is(branch, UnitClassification.IF_STMT) && dominators.getIdom(branch) == ifIndex && branch != ifIndex) {
+				return chainedExit(branch);
+			}
+
+			return -1;
+		}
+
+		/* the exit guarded by the if stmt ifIndex of a chain of conditions */
+		private int chainedExit(int ifIndex) {
+
+			if (p1) {
+				int nullBranch = nullBranch(ifIndex);
+				return nullBranch < 0 ? -1 : guardedExit(ifIndex, nullBranch);
+			}
+
+			int throwOfTarget = guardedExit(ifIndex, targetBranch(ifIndex));
+			int throwOfOther = guardedExit(ifIndex, otherBranch(ifIndex));
+
+			if (throwOfTarget >= 0 && throwOfOther < 0) {
+				return throwOfTarget;
+			}
+			if (throwOfOther >= 0 && throwOfTarget < 0) {
+				return throwOfOther;
+			}
+			return -1;
+		}
+	}
+
+	//ecrit les resultats de tout les body dans les fichiers, dans l'ordre des classes de la Scene
+	public List<ClassReport> writeResults() {
+
+		return results.flush();
+	}
+
+	public DetectionResultCollector getResults() {
+
+		return results;
+	}
+
+	public void statistique(String patternDistributionOverClassFile) throws IOException {
+
+		int i = results.writePatternDistributionOverClass(patternDistributionOverClassFile, null);
+
+		System.out.println(" ___________________Fin Statistique_______________avec nb totl de patron :_" + i);
+	}
+
+}
@@ -0,0 +1,123 @@
+package Common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * ResultRecord writes and reads the rows of the csv files of the detectors,
+ * fields separated by ";;". The fields are escaped so that a unit printing a
+ * string constant with a ';' or a line break stays on its row and in its
+ * field: '\' ';' line feed and carriage return are written \\ \; \n and \r.
+ * A row whose fields have none of these characters is written as the
+ * detectors always wrote it.
+ */
+public class ResultRecord {
+
+	public static final String SEPARATOR = ";;";
+
+	/* the row of fields, each one printed by String.valueOf and escaped */
+	public static String join(Object... fields) {
+
+		StringBuilder row = new StringBuilder(64);
+
+		for (int i = 0; i < fields.length; i++) {
+
+			if (i > 0) {
+				row.append(SEPARATOR);
+			}
+			escape(String.valueOf(fields[i]), row);
+		}
+
+		return row.toString();
+	}
+
+	public static String escape(String field) {
+
+		StringBuilder escaped = new StringBuilder(field.length() + 8);
+		escape(field, escaped);
+		return escaped.toString();
+	}
+
+	private static void escape(String field, StringBuilder row) {
+
+		for (int i = 0; i < field.length(); i++) {
+
+			char c = field.charAt(i);
+
+			switch (c) {
+			case '\\':
+				row.append("\\\\");
+				break;
+			case ';':
+				row.append("\\;");
+				break;
+			case '\n':
+				row.append("\\n");
+				break;
+			case '\r':
+				row.append("\\r");
+				break;
+			default:
+				row.append(c);
+			}
+		}
+	}
+
+	/*
+	 * the unescaped fields of a row, empty fields included like
+	 * row.split(";;", -1); a lone ';' that is not escaped is kept in its field
+	 */
+	public static String[] split(String row) {
+
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+
+		for (int i = 0; i < row.length(); i++) {
+
+			char c = row.charAt(i);
+
+			if (c == '\\' && i + 1 < row.length()) {
+
+				char escaped = row.charAt(++i);
+				field.append(escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+
+			} else if (c == ';' && i + 1 < row.length() && row.charAt(i + 1) == ';') {
+
+				fields.add(field.toString());
+				field.setLength(0);
+				i++;
+
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	/*
+	 * the split rows of a block of rows, one per line whatever the line
+	 * separator (a field never holds a line break)
+	 */
+	static List<String[]> splitRows(String rows) {
+
+		List<String[]> splitRows = new ArrayList<String[]>();
+		int start = 0;
+
+		while (start < rows.length()) {
+
+			int end = rows.indexOf('\n', start);
+			if (end < 0) {
+				end = rows.length();
+			}
+
+			int endOfRow = end > start && rows.charAt(end - 1) == '\r' ? end - 1 : end;
+			splitRows.add(split(rows.substring(start, endOfRow)));
+			start = end + 1;
+		}
+
+		return splitRows;
+	}
+
+}
@@ -0,0 +1,249 @@
+package Common;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * ResultSink is where DetectionResultCollector writes the ClassReports, one
+ * class at a time. The trace, the patternDistributionOverMethod rows and the
+ * detectedPattern rows go to the detector's writers, flushed after every
+ * class; the row of the class in patternDistributionOverClass.csv goes to a
+ * spool file. Of a written class only its share of the totals is kept, so
+ * what a run holds in memory no longer grows with the number of classes;
+ * writePatternDistributionOverClass() copies the spool to the csv at the end,
+ * release() closes and deletes it.
+ * With a BinaryResultWriter the classes are also written in the binary
+ * format, with a ResultStoreWriter their rows are also added to the store.
+ */
+public class ResultSink {
+
+	private static final String HEADER = ResultRecord.join("class name", "number of detected pattern");
+
+	private final PrintWriter out;
+	private final PrintWriter patternDistributionOverMethod;
+	private final PrintWriter detectedPattern;
+
+	private File spoolFile;
+	private PrintWriter spool;
+
+	private String patternDistributionOverMethodHeader = "";
+	private String detectedPatternHeader = "";
+	private BinaryResultWriter binaryResults;
+	private ResultStoreWriter resultStore;
+	private String kind;
+
+	private int nbOfClasses = 0;
+	private int nbOfDetectedPattern = 0;
+
+	/* any of the writers can be null, its part of the reports is dropped */
+	public ResultSink(PrintWriter out, PrintWriter patternDistributionOverMethod, PrintWriter detectedPattern) {
+
+		this.out = out;
+		this.patternDistributionOverMethod = patternDistributionOverMethod;
+		this.detectedPattern = detectedPattern;
+	}
+
+	/* the first line of patternDistributionOverMethod.csv and of detectedPattern.csv */
+	synchronized void writeHeaders(String patternDistributionOverMethodHeader, String detectedPatternHeader) {
+
+		this.patternDistributionOverMethodHeader = patternDistributionOverMethodHeader;
+		this.detectedPatternHeader = detectedPatternHeader;
+
+		if (patternDistributionOverMethod != null) {
+			patternDistributionOverMethod.println(patternDistributionOverMethodHeader);
+		}
+		if (detectedPattern != null) {
+			detectedPattern.println(detectedPatternHeader);
+		}
+		if (binaryResults != null) {
+			binaryResults.setHeaders(patternDistributionOverMethodHeader, detectedPatternHeader);
+		}
+	}
+
+	/* the classes written from now on also go to binaryResults, closed by the caller */
+	synchronized void setBinaryResults(BinaryResultWriter binaryResults) {
+
+		this.binaryResults = binaryResults;
+		binaryResults.setHeaders(patternDistributionOverMethodHeader, detectedPatternHeader);
+	}
+
+	/* the rows written from now on are also added to resultStore as rows of kind, closed by the caller */
+	synchronized void setResultStore(ResultStoreWriter resultStore, String kind) {
+
+		this.resultStore = resultStore;
+		this.kind = kind;
+	}
+
+	synchronized void write(ClassReport report) {
+
+		if (out != null) {
+			out.print(report.getTrace());
+		}
+		if (patternDistributionOverMethod != null) {
+			patternDistributionOverMethod.print(report.getPatternDistributionOverMethodRows());
+		}
+		if (detectedPattern != null) {
+			detectedPattern.print(report.getDetectedPatternRows());
+		}
+		flush();
+
+		if (binaryResults != null) {
+			try {
+				binaryResults.write(report);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		if (resultStore != null) {
+			try {
+				resultStore.add(kind, report);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		spool().println(ResultRecord.join(report.getClassName(), report.getNbOfDetectedPattern()));
+
+		nbOfClasses++;
+		nbOfDetectedPattern += report.getNbOfDetectedPattern();
+	}
+
+	synchronized void flush() {
+
+		if (out != null) {
+			out.flush();
+		}
+		if (patternDistributionOverMethod != null) {
+			patternDistributionOverMethod.flush();
+		}
+		if (detectedPattern != null) {
+			detectedPattern.flush();
+		}
+	}
+
+	public synchronized int getNbOfClasses() {
+		return nbOfClasses;
+	}
+
+	public synchronized int getNbOfDetectedPattern() {
+		return nbOfDetectedPattern;
+	}
+
+	/*
+	 * writes patternDistributionOverClass.csv from the spool, classes (when
+	 * not null) gets the line of every class the detectors always printed.
+	 * Returns the total number of detected pattern.
+	 */
+	public synchronized int writePatternDistributionOverClass(String patternDistributionOverClassFile, PrintStream classes) throws IOException {
+
+		PrintWriter patternDistributionOverClass = new PrintWriter(new BufferedWriter(new FileWriter(patternDistributionOverClassFile)));
+
+		try {
+			patternDistributionOverClass.println(HEADER);
+
+			if (spoolFile != null) {
+
+				spool.flush();
+				BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(spoolFile), "UTF-8"));
+
+				try {
+					int j = 0;
+					String row;
+
+					while ((row = in.readLine()) != null) {
+
+						patternDistributionOverClass.println(row);
+
+						if (classes != null) {
+							String[] fields = ResultRecord.split(row);
+							classes.println(j + "la clase ---> " + fields[0] + " nbpatern ----> " + fields[1]);
+						}
+						j++;
+					}
+				} finally {
+					in.close();
+				}
+			}
+		} finally {
+			patternDistributionOverClass.close();
+		}
+
+		return nbOfDetectedPattern;
+	}
+
+	/*
+	 * number of detected pattern per class, in the order the classes were
+	 * written, read back from the spool: only for the benchmarks that compare
+	 * two runs, a run itself never holds this map
+	 */
+	public synchronized Map<String, Integer> readPatternDistributionOverClasses() throws IOException {
+
+		LinkedHashMap<String, Integer> patternDistributionOverClasses = new LinkedHashMap<String, Integer>(nbOfClasses * 2 + 1);
+
+		if (spoolFile != null) {
+
+			spool.flush();
+			BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(spoolFile), "UTF-8"));
+
+			try {
+				String row;
+
+				while ((row = in.readLine()) != null) {
+
+					String[] fields = ResultRecord.split(row);
+					Integer nb = patternDistributionOverClasses.get(fields[0]);
+					patternDistributionOverClasses.put(fields[0], (nb == null ? 0 : nb) + Integer.parseInt(fields[1]));
+				}
+			} finally {
+				in.close();
+			}
+		}
+
+		return Collections.unmodifiableMap(patternDistributionOverClasses);
+	}
+
+	/*
+	 * closes and deletes the spool: a daemon or a watcher makes a sink per
+	 * pass and must not keep a file open per pass until the JVM exits
+	 */
+	public synchronized void release() {
+
+		if (spool != null) {
+			spool.close();
+			spool = null;
+		}
+		if (spoolFile != null) {
+			spoolFile.delete();
+			spoolFile = null;
+		}
+	}
+
+	/* the spool is only created by the first class written */
+	private PrintWriter spool() {
+
+		if (spool == null) {
+			try {
+				spoolFile = File.createTempFile("patternDistributionOverClass", ".csv");
+				spoolFile.deleteOnExit();
+				spool = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(spoolFile), "UTF-8")));
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		return spool;
+	}
+
+}
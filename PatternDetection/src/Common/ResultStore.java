@@ -0,0 +1,433 @@
+package Common;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * ResultStore opens a file of ResultStoreWriter and answers queries on its
+ * rows without reading the whole file: the index (the kinds, the sorted
+ * class names and the offsets of their rows) is loaded by open(), a query
+ * then only reads the rows it returns.
+ *
+ *   ResultStore store = ResultStore.open("results.store");
+ *   List<ResultStore.Row> guards = store.query().kind("P2").inPackage("org.jhotdraw.draw").rows();
+ *
+ * A package is a range of the sorted class names, its subpackages included.
+ * The offsets of the classes and those of the kind in the table queried are
+ * sorted, so they are merged and only the rows returned are read, in the
+ * order of the file.
+ *
+ * Usage: java Common.ResultStore results.store [-kind P2] [-package p] [-class c] [-methods]
+ */
+public class ResultStore {
+
+	private static final int WINDOW_SIZE = 1 << 16;
+
+	private final RandomAccessFile file;
+
+	private final String[] kinds;
+	private final long[][][] offsetsOfKind;
+	private final String[] classNames;
+	private final long[][] offsetsOfClass;
+
+	// la fenetre du fichier lue en dernier, les lignes d'une requete se suivent
+	private byte[] window = new byte[WINDOW_SIZE];
+	private long windowStart = 0;
+	private int windowLength = 0;
+	// la position de lecture dans le fichier, a travers la fenetre
+	private long position;
+
+	private ResultStore(RandomAccessFile file, String[] kinds, long[][][] offsetsOfKind, String[] classNames, long[][] offsetsOfClass) {
+
+		this.file = file;
+		this.kinds = kinds;
+		this.offsetsOfKind = offsetsOfKind;
+		this.classNames = classNames;
+		this.offsetsOfClass = offsetsOfClass;
+	}
+
+	public static ResultStore open(String fileName) throws IOException {
+
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+
+		try {
+			file.seek(0);
+			if (file.length() < 16 || file.readInt() != ResultStoreWriter.MAGIC) {
+				throw new IOException(fileName + " is not a file of ResultStoreWriter");
+			}
+			int version = BinaryResultReader.readVarint(file);
+			if (version != ResultStoreWriter.VERSION) {
+				throw new IOException(fileName + ": version " + version + ", expected " + ResultStoreWriter.VERSION);
+			}
+
+			file.seek(file.length() - 12);
+			long indexOffset = file.readLong();
+			if (file.readInt() != ResultStoreWriter.MAGIC) {
+				throw new IOException(fileName + " has no index, its ResultStoreWriter was not closed");
+			}
+
+			// l'index est lu d'un coup, RandomAccessFile lit octet par octet
+			byte[] indexBytes = new byte[(int) (file.length() - 12 - indexOffset)];
+			file.seek(indexOffset);
+			file.readFully(indexBytes);
+			DataInputStream index = new DataInputStream(new ByteArrayInputStream(indexBytes));
+
+			String[] kinds = new String[BinaryResultReader.readVarint(index)];
+			long[][][] offsetsOfKind = new long[kinds.length][][];
+			for (int i = 0; i < kinds.length; i++) {
+				kinds[i] = BinaryResultReader.readString(index);
+				offsetsOfKind[i] = new long[][] { readOffsets(index), readOffsets(index) };
+			}
+
+			String[] classNames = new String[BinaryResultReader.readVarint(index)];
+			long[][] offsetsOfClass = new long[classNames.length][];
+			for (int i = 0; i < classNames.length; i++) {
+				classNames[i] = BinaryResultReader.readString(index);
+				offsetsOfClass[i] = readOffsets(index);
+			}
+
+			return new ResultStore(file, kinds, offsetsOfKind, classNames, offsetsOfClass);
+
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	public Query query() {
+		return new Query();
+	}
+
+	/* the kinds of the store, in the order of their first row */
+	public List<String> getKinds() {
+		return Arrays.asList(kinds);
+	}
+
+	public int getNbOfClasses() {
+		return classNames.length;
+	}
+
+	public void close() throws IOException {
+
+		file.close();
+	}
+
+	/* a row of patternDistributionOverMethod.csv or of detectedPattern.csv */
+	public static class Row {
+
+		private final String kind;
+		private final int table;
+		private final String[] fields;
+
+		Row(String kind, int table, String[] fields) {
+
+			this.kind = kind;
+			this.table = table;
+			this.fields = fields;
+		}
+
+		public String getKind() {
+			return kind;
+		}
+
+		/* ResultStoreWriter.DETECTED_PATTERN or PATTERN_DISTRIBUTION_OVER_METHOD */
+		public int getTable() {
+			return table;
+		}
+
+		public String getClassName() {
+			return fields[0];
+		}
+
+		public String[] getFields() {
+			return fields.clone();
+		}
+
+		/* a field of the row, null if the row is shorter */
+		public String getField(int field) {
+			return field < fields.length ? fields[field] : null;
+		}
+
+		/* the row as the detector wrote it in its csv */
+		@Override
+		public String toString() {
+			return ResultRecord.join((Object[]) fields);
+		}
+	}
+
+	/*
+	 * the conditions of a query, all of them must hold; by default every
+	 * detectedPattern row of the store
+	 */
+	public class Query {
+
+		private String kind;
+		private String packagePrefix;
+		private String className;
+		private int table = ResultStoreWriter.DETECTED_PATTERN;
+
+		public Query kind(String kind) {
+			this.kind = kind;
+			return this;
+		}
+
+		/* the classes of the package and of its subpackages */
+		public Query inPackage(String packagePrefix) {
+			this.packagePrefix = packagePrefix;
+			return this;
+		}
+
+		public Query inClass(String className) {
+			this.className = className;
+			return this;
+		}
+
+		/* the patternDistributionOverMethod rows instead of the detectedPattern rows */
+		public Query patternDistributionOverMethod() {
+			this.table = ResultStoreWriter.PATTERN_DISTRIBUTION_OVER_METHOD;
+			return this;
+		}
+
+		public List<Row> rows() throws IOException {
+
+			return read(offsets(), table);
+		}
+
+		/* the offsets of the rows of the classes and of the kind in the table, sorted */
+		private long[] offsets() {
+
+			long[] offsets = null;
+
+			if (className != null) {
+				int i = Arrays.binarySearch(classNames, className);
+				offsets = i >= 0 ? offsetsOfClass[i] : new long[0];
+			}
+
+			if (packagePrefix != null) {
+				offsets = intersect(offsets, offsetsOfPackage(packagePrefix));
+			}
+
+			long[][] offsetsOfTable = new long[kinds.length][];
+			for (int i = 0; i < kinds.length; i++) {
+				offsetsOfTable[i] = kind == null || kind.equals(kinds[i]) ? offsetsOfKind[i][table] : new long[0];
+			}
+
+			return intersect(offsets, union(offsetsOfTable, 0, offsetsOfTable.length));
+		}
+	}
+
+	/* the classes between prefix. and prefix/ ('/' follows '.') are the package */
+	private long[] offsetsOfPackage(String packagePrefix) {
+
+		if (packagePrefix.length() == 0) {
+			return union(offsetsOfClass, 0, offsetsOfClass.length);
+		}
+
+		int from = insertionPoint(packagePrefix + ".");
+		int to = insertionPoint(packagePrefix + "/");
+
+		return union(offsetsOfClass, from, to);
+	}
+
+	private int insertionPoint(String key) {
+
+		int i = Arrays.binarySearch(classNames, key);
+		return i >= 0 ? i : -i - 1;
+	}
+
+	private static long[] union(long[][] offsets, int from, int to) {
+
+		int size = 0;
+		for (int i = from; i < to; i++) {
+			size += offsets[i].length;
+		}
+
+		long[] union = new long[size];
+		size = 0;
+		for (int i = from; i < to; i++) {
+			System.arraycopy(offsets[i], 0, union, size, offsets[i].length);
+			size += offsets[i].length;
+		}
+		Arrays.sort(union);
+
+		return union;
+	}
+
+	/* offsets1 null means no condition yet */
+	private static long[] intersect(long[] offsets1, long[] offsets2) {
+
+		if (offsets1 == null) {
+			return offsets2;
+		}
+
+		long[] intersection = new long[Math.min(offsets1.length, offsets2.length)];
+		int size = 0;
+
+		for (int i = 0, j = 0; i < offsets1.length && j < offsets2.length;) {
+			if (offsets1[i] < offsets2[j]) {
+				i++;
+			} else if (offsets1[i] > offsets2[j]) {
+				j++;
+			} else {
+				intersection[size++] = offsets1[i];
+				i++;
+				j++;
+			}
+		}
+
+		return Arrays.copyOf(intersection, size);
+	}
+
+	private synchronized List<Row> read(long[] offsets, int table) throws IOException {
+
+		List<Row> rows = new ArrayList<Row>();
+
+		for (long offset : offsets) {
+
+			position = offset;
+
+			int kindId = readVarint();
+			readByte(); // la table, deja choisie par l'index
+
+			String[] fields = new String[readVarint()];
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = readString();
+			}
+
+			rows.add(new Row(kinds[kindId], table, fields));
+		}
+
+		return rows;
+	}
+
+	private int readByte() throws IOException {
+
+		fill(1);
+		return window[(int) (position++ - windowStart)];
+	}
+
+	private int readVarint() throws IOException {
+
+		int value = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			b = readByte();
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return value;
+	}
+
+	private String readString() throws IOException {
+
+		int length = readVarint();
+		fill(length);
+
+		String s = new String(window, (int) (position - windowStart), length, "UTF-8");
+		position += length;
+
+		return s;
+	}
+
+	/* the n bytes at position are in the window */
+	private void fill(int n) throws IOException {
+
+		if (position >= windowStart && position + n <= windowStart + windowLength) {
+			return;
+		}
+
+		if (n > window.length) {
+			window = new byte[n];
+		}
+
+		windowStart = position;
+		windowLength = (int) Math.min(window.length, file.length() - position);
+		if (windowLength < n) {
+			throw new IOException("row at " + position + " goes past the end of the file");
+		}
+
+		file.seek(windowStart);
+		file.readFully(window, 0, windowLength);
+	}
+
+	private static long[] readOffsets(DataInputStream index) throws IOException {
+
+		long[] offsets = new long[BinaryResultReader.readVarint(index)];
+		long previous = 0;
+
+		for (int i = 0; i < offsets.length; i++) {
+			offsets[i] = previous + readVarlong(index);
+			previous = offsets[i];
+		}
+
+		return offsets;
+	}
+
+	private static long readVarlong(DataInputStream index) throws IOException {
+
+		long value = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			b = index.readByte();
+			value |= (long) (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return value;
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java Common.ResultStore results.store [-kind P2] [-package p] [-class c] [-methods]");
+			System.exit(0);
+		}
+
+		long startTime = System.nanoTime();
+		ResultStore store = open(args[0]);
+		long openTime = System.nanoTime() - startTime;
+
+		try {
+			Query query = store.query();
+
+			for (int i = 1; i < args.length; i++) {
+				if (args[i].equals("-methods")) {
+					query.patternDistributionOverMethod();
+				} else if (i + 1 < args.length && args[i].equals("-kind")) {
+					query.kind(args[++i]);
+				} else if (i + 1 < args.length && args[i].equals("-package")) {
+					query.inPackage(args[++i]);
+				} else if (i + 1 < args.length && args[i].equals("-class")) {
+					query.inClass(args[++i]);
+				} else {
+					System.err.println("Usage: java Common.ResultStore results.store [-kind P2] [-package p] [-class c] [-methods]");
+					System.exit(0);
+				}
+			}
+
+			startTime = System.nanoTime();
+			List<Row> rows = query.rows();
+			long queryTime = System.nanoTime() - startTime;
+
+			for (Row row : rows) {
+				System.out.println(row.getKind() + ResultRecord.SEPARATOR + row);
+			}
+
+			System.out.println("result store ----> " + rows.size() + " rows in " + (queryTime / 1000) + " us (index of "
+					+ store.getNbOfClasses() + " classes loaded in " + (openTime / 1000000) + " ms)");
+		} finally {
+			store.close();
+		}
+	}
+
+}
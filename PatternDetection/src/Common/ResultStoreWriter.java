@@ -0,0 +1,250 @@
+package Common;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+ * ResultStoreWriter persists the detectedPattern and
+ * patternDistributionOverMethod rows of one or several detectors in a single
+ * file, queried by ResultStore through its indexes on the class and on the
+ * pattern kind (the package prefix is a range of the sorted class names).
+ *
+ *   file    = MAGIC version:varint row* index indexOffset:long MAGIC
+ *   row     = kind:varint table:byte nbOfFields:varint string*
+ *   index   = nbOfKinds:varint (string offsets offsets)*
+ *             nbOfClasses:varint (string offsets)*, classes sorted by name
+ *   offsets = nbOfOffsets:varint (offset - previous offset):varlong*
+ *   string  = length:varint utf-8 bytes
+ *
+ * A row holds the unescaped fields of the csv row (see ResultRecord), its
+ * kind is the detector that wrote it (P1, P2, API...) and table tells from
+ * which csv it comes; the offsets of a kind are those of its
+ * patternDistributionOverMethod rows then of its detectedPattern rows. The
+ * rows are appended as the classes are written (see
+ * ResultSink), only their offsets are kept until close() writes the index;
+ * abort() deletes the store of a run that failed before.
+ */
+public class ResultStoreWriter {
+
+	public static final String RESULT_STORE = "-result-store";
+
+	static final int MAGIC = 0x50445253; // PDRS
+	static final int VERSION = 1;
+
+	public static final int PATTERN_DISTRIBUTION_OVER_METHOD = 0;
+	public static final int DETECTED_PATTERN = 1;
+
+	private final File file;
+	private final Counter counter;
+	private final DataOutputStream out;
+
+	private final ArrayList<String> kinds = new ArrayList<String>();
+	private final ArrayList<OffsetList[]> offsetsOfKind = new ArrayList<OffsetList[]>();
+	private final HashMap<String, OffsetList> offsetsOfClass = new HashMap<String, OffsetList>(1024);
+
+	private long nbOfRows = 0;
+
+	public static boolean isRequested(String[] args) {
+
+		return Arrays.asList(args).contains(RESULT_STORE);
+	}
+
+	/* args without the -result-store option, that soot does not know */
+	public static String[] remove(String[] args) {
+
+		List<String> otherArgs = new ArrayList<String>(Arrays.asList(args));
+		otherArgs.remove(RESULT_STORE);
+
+		return otherArgs.toArray(new String[otherArgs.size()]);
+	}
+
+	public ResultStoreWriter(String file) throws IOException {
+
+		this.file = new File(file);
+		counter = new Counter(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		out = new DataOutputStream(counter);
+		out.writeInt(MAGIC);
+		BinaryResultWriter.writeVarint(out, VERSION);
+	}
+
+	/* the rows of a class written by the detector kind */
+	public synchronized void add(String kind, ClassReport report) throws IOException {
+
+		for (String[] row : ResultRecord.splitRows(report.getPatternDistributionOverMethodRows())) {
+			add(kind, PATTERN_DISTRIBUTION_OVER_METHOD, report.getClassName(), row);
+		}
+		for (String[] row : ResultRecord.splitRows(report.getDetectedPatternRows())) {
+			add(kind, DETECTED_PATTERN, report.getClassName(), row);
+		}
+	}
+
+	/*
+	 * the rows of csv files written by a previous run of the detector kind,
+	 * the class of a row being its first field
+	 */
+	public synchronized void addCsv(String kind, String patternDistributionOverMethodFile, String detectedPatternFile) throws IOException {
+
+		addCsv(kind, PATTERN_DISTRIBUTION_OVER_METHOD, patternDistributionOverMethodFile);
+		addCsv(kind, DETECTED_PATTERN, detectedPatternFile);
+	}
+
+	private void addCsv(String kind, int table, String file) throws IOException {
+
+		BufferedReader in = new BufferedReader(new FileReader(file), 1 << 16);
+
+		try {
+			String line = in.readLine(); // l'entete
+			while ((line = in.readLine()) != null) {
+				if (line.length() != 0) {
+					String[] row = ResultRecord.split(line);
+					add(kind, table, row[0], row);
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private void add(String kind, int table, String className, String[] row) throws IOException {
+
+		int kindId = kinds.indexOf(kind);
+
+		if (kindId < 0) {
+			kindId = kinds.size();
+			kinds.add(kind);
+			offsetsOfKind.add(new OffsetList[] { new OffsetList(), new OffsetList() });
+		}
+
+		OffsetList offsets = offsetsOfClass.get(className);
+
+		if (offsets == null) {
+			offsets = new OffsetList();
+			offsetsOfClass.put(className, offsets);
+		}
+
+		long offset = counter.position;
+
+		offsetsOfKind.get(kindId)[table].add(offset);
+		offsets.add(offset);
+
+		BinaryResultWriter.writeVarint(out, kindId);
+		out.writeByte(table);
+		BinaryResultWriter.writeVarint(out, row.length);
+		for (String field : row) {
+			BinaryResultWriter.writeString(out, field);
+		}
+
+		nbOfRows++;
+	}
+
+	public synchronized long getNbOfRows() {
+		return nbOfRows;
+	}
+
+	/* writes the index, the store can then be opened by ResultStore */
+	public synchronized void close() throws IOException {
+
+		long indexOffset = counter.position;
+
+		BinaryResultWriter.writeVarint(out, kinds.size());
+		for (int i = 0; i < kinds.size(); i++) {
+			BinaryResultWriter.writeString(out, kinds.get(i));
+			offsetsOfKind.get(i)[PATTERN_DISTRIBUTION_OVER_METHOD].writeTo(out);
+			offsetsOfKind.get(i)[DETECTED_PATTERN].writeTo(out);
+		}
+
+		List<String> classNames = new ArrayList<String>(offsetsOfClass.keySet());
+		Collections.sort(classNames);
+
+		BinaryResultWriter.writeVarint(out, classNames.size());
+		for (String className : classNames) {
+			BinaryResultWriter.writeString(out, className);
+			offsetsOfClass.get(className).writeTo(out);
+		}
+
+		out.writeLong(indexOffset);
+		out.writeInt(MAGIC);
+		out.close();
+	}
+
+	/* closes the store without writing its index and deletes it, ResultStore could not open it */
+	public synchronized void abort() {
+
+		try {
+			out.close();
+		} catch (IOException e) {
+			// le fichier est supprime de toute facon
+		}
+		file.delete();
+	}
+
+	/* the offset of the next byte, DataOutputStream.size() stops at 2 GB */
+	private static class Counter extends FilterOutputStream {
+
+		long position = 0;
+
+		Counter(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			position++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			position += len;
+		}
+	}
+
+	/* the offsets of the rows of a class or a kind, growing like an ArrayList */
+	static class OffsetList {
+
+		private long[] offsets = new long[8];
+		private int size = 0;
+
+		void add(long offset) {
+
+			if (size == offsets.length) {
+				offsets = Arrays.copyOf(offsets, size * 2);
+			}
+			offsets[size++] = offset;
+		}
+
+		void writeTo(DataOutputStream out) throws IOException {
+
+			BinaryResultWriter.writeVarint(out, size);
+
+			long previous = 0;
+			for (int i = 0; i < size; i++) {
+				writeVarlong(out, offsets[i] - previous);
+				previous = offsets[i];
+			}
+		}
+	}
+
+	static void writeVarlong(DataOutputStream out, long value) throws IOException {
+
+		while ((value & ~0x7fL) != 0) {
+			out.writeByte((int) (value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+}
@@ -0,0 +1,69 @@
+package Common;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * ShardPlanner splits a class list into shards of about the same total class
+ * file size, the size being a good enough estimate of the time soot and the
+ * detectors spend on a class. The biggest classes are placed first, each in
+ * the shard that has the smallest size so far. Inside a shard the classes keep
+ * the order of the class list.
+ */
+public class ShardPlanner {
+
+	public static List<List<String>> plan(List<String> classes, String binPath, int nbOfShards) {
+
+		final long[] classSize = new long[classes.size()];
+		List<Integer> biggestFirst = new ArrayList<Integer>(classes.size());
+
+		for (int i = 0; i < classes.size(); i++) {
+
+			File classFile = new File(binPath, classes.get(i).replace('.', File.separatorChar) + ".class");
+			// a class we can not find still costs something
+			classSize[i] = Math.max(classFile.length(), 1);
+			biggestFirst.add(i);
+		}
+
+		Collections.sort(biggestFirst, new Comparator<Integer>() {
+			public int compare(Integer i1, Integer i2) {
+				if (classSize[i1] != classSize[i2]) {
+					return classSize[i1] > classSize[i2] ? -1 : 1;
+				}
+				return i1.compareTo(i2);
+			}
+		});
+
+		long[] shardSize = new long[nbOfShards];
+		int[] shardOfClass = new int[classes.size()];
+
+		for (int i : biggestFirst) {
+
+			int smallestShard = 0;
+
+			for (int shard = 1; shard < nbOfShards; shard++) {
+				if (shardSize[shard] < shardSize[smallestShard]) {
+					smallestShard = shard;
+				}
+			}
+
+			shardOfClass[i] = smallestShard;
+			shardSize[smallestShard] += classSize[i];
+		}
+
+		List<List<String>> shards = new ArrayList<List<String>>(nbOfShards);
+
+		for (int shard = 0; shard < nbOfShards; shard++) {
+			shards.add(new ArrayList<String>());
+		}
+		for (int i = 0; i < classes.size(); i++) {
+			shards.get(shardOfClass[i]).add(classes.get(i));
+		}
+
+		return shards;
+	}
+
+}
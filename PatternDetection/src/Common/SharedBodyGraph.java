@@ -0,0 +1,246 @@
+package Common;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import soot.Body;
+import soot.BodyTransformer;
+import soot.toolkits.exceptions.PedanticThrowAnalysis;
+import soot.toolkits.graph.BriefUnitGraph;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+
+/*
+ * SharedBodyGraph lets several detectors registered as sub-phases of the same
+ * jtp pack share the ExceptionalUnitGraph of a body. Soot applies every
+ * transform of the pack to a body before moving to the next body on the same
+ * thread, so remembering the last graph built on each thread is enough: the
+ * first detector builds it, the following ones get it back for free.
+ *
+ * The graph is rebuilt if the body was changed in between (a unit, a trap or
+ * a local added or removed: the modification counts of its chains moved).
+ * The CompactUnitGraph the detectors walk is shared the same way, built from
+ * the graph on the first request, and so are its dominator trees, its
+ * UnitClassification and the BodyAnalysis results asked for the body
+ * (reaching definitions, NullTestedLocals...). Once every detector is done
+ * with a body, release(body) lets them go without waiting for the next body.
+ *
+ * Each detector declares in its CFG_PRECISION the cheapest graph that gives
+ * it the same results as the ExceptionalUnitGraph: BRIEF (no exceptional
+ * edge), EXCEPTIONAL_PEDANTIC (exceptional edges from every unit, without
+ * running the throw analysis) or EXCEPTIONAL. The driver sets the precision
+ * of the run to the highest one of its detectors (see setPrecision), and
+ * unitGraph and compactUnitGraph build the graphs at that precision. The
+ * graphs of a body at the other precisions (exceptionalUnitGraph) are kept
+ * next to it, asking for one does not evict the others.
+ */
+public class SharedBodyGraph {
+
+	public static final int BRIEF = 0;
+	public static final int EXCEPTIONAL_PEDANTIC = 1;
+	public static final int EXCEPTIONAL = 2;
+
+	private static final ThreadLocal<SharedBodyGraph> lastGraphOfThread = new ThreadLocal<SharedBodyGraph>();
+
+	private static volatile int precision = EXCEPTIONAL;
+
+	private final Body body;
+	private final long modificationCount;
+	// la precision du run quand l'entree a ete faite, celle du compactGraph et de ce qui en decoule
+	private final int runPrecision;
+	// les graphes du body, a l'index de leur precision
+	private final UnitGraph[] graphs = new UnitGraph[EXCEPTIONAL + 1];
+	private CompactUnitGraph compactGraph;
+	private DominatorTree dominatorTree;
+	private DominatorTree postDominatorTree;
+	private UnitClassification unitClassification;
+	// les resultats des BodyAnalysis, a l'index de chacune
+	private Object[] analyses = new Object[0];
+
+	private SharedBodyGraph(Body body, int runPrecision) {
+
+		this.body = body;
+		this.modificationCount = modificationCount(body);
+		this.runPrecision = runPrecision;
+	}
+
+	/* the graph of the body at graphPrecision, built on the first request */
+	private UnitGraph graph(int graphPrecision) {
+
+		if (graphs[graphPrecision] == null) {
+
+			switch (graphPrecision) {
+			case BRIEF:
+				graphs[graphPrecision] = new BriefUnitGraph(body);
+				break;
+			case EXCEPTIONAL_PEDANTIC:
+				graphs[graphPrecision] = new ExceptionalUnitGraph(body, PedanticThrowAnalysis.v());
+				break;
+			default:
+				graphs[graphPrecision] = new ExceptionalUnitGraph(body);
+			}
+		}
+
+		return graphs[graphPrecision];
+	}
+
+	/* grows with every unit, trap or local added to or removed from body */
+	private static long modificationCount(Body body) {
+
+		return body.getUnits().getModificationCount() + body.getTraps().getModificationCount() + body.getLocals().getModificationCount();
+	}
+
+	private boolean isStillValidFor(Body otherBody, int otherRunPrecision) {
+
+		return body == otherBody && runPrecision == otherRunPrecision && modificationCount == modificationCount(otherBody);
+	}
+
+	private static SharedBodyGraph of(Body body) {
+
+		SharedBodyGraph lastGraph = lastGraphOfThread.get();
+		int currentPrecision = precision;
+
+		if (lastGraph == null || !lastGraph.isStillValidFor(body, currentPrecision)) {
+
+			lastGraph = new SharedBodyGraph(body, currentPrecision);
+			lastGraphOfThread.set(lastGraph);
+		}
+
+		return lastGraph;
+	}
+
+	/*
+	 * the precision of the graphs of the next bodies, the highest CFG_PRECISION
+	 * of the detectors of the run; EXCEPTIONAL until a driver sets it
+	 */
+	public static void setPrecision(int graphPrecision) {
+
+		precision = graphPrecision;
+	}
+
+	public static int getPrecision() {
+
+		return precision;
+	}
+
+	/* the graph of body at the precision of the run */
+	public static UnitGraph unitGraph(Body body) {
+
+		SharedBodyGraph lastGraph = of(body);
+
+		return lastGraph.graph(lastGraph.runPrecision);
+	}
+
+	/* the graph of body with the throw analysis of the Scene, whatever the precision of the run */
+	public static ExceptionalUnitGraph exceptionalUnitGraph(Body body) {
+
+		return (ExceptionalUnitGraph) of(body).graph(EXCEPTIONAL);
+	}
+
+	/* the CompactUnitGraph of the graph of body at the precision of the run */
+	public static CompactUnitGraph compactUnitGraph(Body body) {
+
+		SharedBodyGraph lastGraph = of(body);
+
+		if (lastGraph.compactGraph == null) {
+			lastGraph.compactGraph = new CompactUnitGraph(lastGraph.graph(lastGraph.runPrecision));
+		}
+
+		return lastGraph.compactGraph;
+	}
+
+	/* the DominatorTree of the compactUnitGraph of body */
+	public static DominatorTree dominatorTree(Body body) {
+
+		SharedBodyGraph lastGraph = of(body);
+
+		if (lastGraph.dominatorTree == null) {
+			lastGraph.dominatorTree = DominatorTree.dominators(compactUnitGraph(body));
+		}
+
+		return lastGraph.dominatorTree;
+	}
+
+	/* the post-dominator tree of the compactUnitGraph of body */
+	public static DominatorTree postDominatorTree(Body body) {
+
+		SharedBodyGraph lastGraph = of(body);
+
+		if (lastGraph.postDominatorTree == null) {
+			lastGraph.postDominatorTree = DominatorTree.postDominators(compactUnitGraph(body));
+		}
+
+		return lastGraph.postDominatorTree;
+	}
+
+	/* the UnitClassification of the compactUnitGraph of body */
+	public static UnitClassification unitClassification(Body body) {
+
+		SharedBodyGraph lastGraph = of(body);
+
+		if (lastGraph.unitClassification == null) {
+			lastGraph.unitClassification = new UnitClassification(compactUnitGraph(body));
+		}
+
+		return lastGraph.unitClassification;
+	}
+
+	/*
+	 * the result of analysis for body, computed on the first request; an
+	 * analysis computed on the exceptional graph (NullTestedLocals) is shared
+	 * whatever the precision of the run, the exceptional graph being kept
+	 * next to the graph of the run
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T analysis(Body body, BodyAnalysis<T> analysis) {
+
+		SharedBodyGraph lastGraph = of(body);
+
+		if (analysis.index < lastGraph.analyses.length && lastGraph.analyses[analysis.index] != null) {
+			return (T) lastGraph.analyses[analysis.index];
+		}
+
+		T result = analysis.compute(body);
+
+		// compute a pu demander d'autres graphes ou analyses du body
+		lastGraph = of(body);
+		if (analysis.index >= lastGraph.analyses.length) {
+			lastGraph.analyses = Arrays.copyOf(lastGraph.analyses, analysis.index + 1);
+		}
+		lastGraph.analyses[analysis.index] = result;
+
+		return result;
+	}
+
+	/*
+	 * forgets the graph kept for the current thread, to be called once a run
+	 * is over so the last body of each thread can be garbage collected
+	 */
+	public static void release() {
+
+		lastGraphOfThread.remove();
+	}
+
+	/* forgets the graphs and analyses of body once every detector is done with it */
+	public static void release(Body body) {
+
+		SharedBodyGraph lastGraph = lastGraphOfThread.get();
+
+		if (lastGraph != null && lastGraph.body == body) {
+			lastGraphOfThread.remove();
+		}
+	}
+
+	/* a transformer to add to the pack after the detectors: it releases each body once they are done with it */
+	public static BodyTransformer releaser() {
+
+		return new BodyTransformer() {
+
+			protected void internalTransform(Body body, String phase, Map options) {
+
+				release(body);
+			}
+		};
+	}
+
+}
@@ -1,3 +1,4 @@
+package Common;
 /* Soot - a J*va Optimization Framework
  * Copyright (C) 1997-1999 Raja Vallee-Rai
  *
@@ -38,7 +39,7 @@ import java.util.*;
 
 import soot.toolkits.scalar.*;
 
-// FSet version
+// long[] version, see BitVectorFlowAnalysis
 
 
 
@@ -47,13 +48,26 @@ import soot.toolkits.scalar.*;
  */
 public class SimpleLocalDefsUsingParameter implements LocalDefs
 {
+    /* the analysis of a body on the graph of the run, shared by the detectors and UnitClassification (see BodyAnalysis) */
+    public static final BodyAnalysis<SimpleLocalDefsUsingParameter> OF_BODY = new BodyAnalysis<SimpleLocalDefsUsingParameter>() {
+
+        protected SimpleLocalDefsUsingParameter compute(Body body)
+        {
+            return new SimpleLocalDefsUsingParameter(SharedBodyGraph.unitGraph(body));
+        }
+    };
+
+    // les requetes deja faites : seules les paires demandees sont calculees
     Map<LocalUnitPair, List> localUnitPairToDefs;
+    LocalDefsFlowAnalysis analysis;
 
 
     /**
      *   Computes the analysis given a UnitGraph computed from a method body.
      *   It is recommended that a ExceptionalUnitGraph (or similar) be provided
      *   for correct results in the case of exceptional control flow.
+     *   The definitions of a local at a unit are only listed when they are
+     *   asked for (getDefsOfAt), from the solved flow sets.
      *   @param g a graph on which to compute the analysis.
      *   
      *   @see ExceptionalUnitGraph
@@ -67,49 +81,9 @@ public class SimpleLocalDefsUsingParameter implements LocalDefs
             G.v().out.println("[" + g.getBody().getMethod().getName() +
                                "]     Constructing SimpleLocalDefs...");
     
-        LocalDefsFlowAnalysis analysis = new LocalDefsFlowAnalysis(g);
-        
-        if(Options.v().time())
-            Timers.v().defsPostTimer.start();
-
-        // Build localUnitPairToDefs map
-        {
-            Iterator unitIt = g.iterator();
-
-            localUnitPairToDefs = new HashMap<LocalUnitPair, List>(g.size() * 2 + 1, 0.7f);
-
-            while(unitIt.hasNext())
-                {
-                    Unit s = (Unit) unitIt.next();
-
-                    Iterator boxIt = s.getUseBoxes().iterator();
-
-                    while(boxIt.hasNext())
-                        {
-                            ValueBox box = (ValueBox) boxIt.next();
-
-                            if(box.getValue() instanceof Local)
-                                {
-                                    Local l = (Local) box.getValue();
-                                    LocalUnitPair pair = new LocalUnitPair(l, s);
-
-                                    if(!localUnitPairToDefs.containsKey(pair))
-                                        {
-                                            IntPair intPair = analysis.localToIntPair.get(l);
-					    
-                                            ArrayPackedSet value = (ArrayPackedSet) analysis.getFlowBefore(s);
-
-                                            List unitLocalDefs = value.toList(intPair.op1, intPair.op2);
+        analysis = new LocalDefsFlowAnalysis(g);
 
-                                            localUnitPairToDefs.put(pair, Collections.unmodifiableList(unitLocalDefs));
-                                        }
-                                }
-                        }
-                }
-        }
-
-        if(Options.v().time())
-            Timers.v().defsPostTimer.end();
+        localUnitPairToDefs = new HashMap<LocalUnitPair, List>();
                 
         if(Options.v().time())
             Timers.v().defsTimer.end();
@@ -119,15 +93,39 @@ public class SimpleLocalDefsUsingParameter implements LocalDefs
                                "]     SimpleLocalDefs finished.");
     }
 
+    /* true when s is a unit of the graph using l */
+    private boolean isUsedAt(Local l, Unit s)
+    {
+        if(!analysis.hasUnit(s))
+            return false;
+
+        Iterator boxIt = s.getUseBoxes().iterator();
+
+        while(boxIt.hasNext())
+            if(((ValueBox) boxIt.next()).getValue() == l)
+                return true;
+
+        return false;
+    }
+
     public boolean hasDefsAt(Local l, Unit s)
     {
-        return localUnitPairToDefs.containsKey( new LocalUnitPair(l,s) );
+        return localUnitPairToDefs.containsKey( new LocalUnitPair(l,s) ) || isUsedAt(l, s);
     }
     public List<Unit> getDefsOfAt(Local l, Unit s)
     {
         LocalUnitPair pair = new LocalUnitPair(l, s);
 
         List<Unit> toReturn = localUnitPairToDefs.get(pair);
+
+        if(toReturn == null && isUsedAt(l, s))
+            {
+                IntPair intPair = analysis.localToIntPair.get(l);
+
+                toReturn = Collections.unmodifiableList(analysis.defsBefore(s, intPair));
+
+                localUnitPairToDefs.put(pair, toReturn);
+            }
         
         if(toReturn == null)
             throw new RuntimeException("Illegal LocalDefs query; local " + l + " has no definition at " + 
@@ -153,19 +151,16 @@ class IntPair
 
 }
 
-class LocalDefsFlowAnalysis extends ForwardFlowAnalysis
+class LocalDefsFlowAnalysis extends BitVectorFlowAnalysis
 {
-    FlowSet emptySet;
-    Map<Local, BoundedFlowSet> localToPreserveSet;
+    // les definitions des locals, groupees par local : le fait i est "defs[i] atteint l'unite"
+    Unit[] defs;
     Map<Local, IntPair> localToIntPair;
 	ArrayList<Local> methodParameterChain =  new ArrayList<Local>();
 
     public LocalDefsFlowAnalysis(UnitGraph g)
     {
-        super(g);
-
-        Object[] defs;
-        FlowUniverse defUniverse;
+        super(g, nbOfLocalDefinitions(g));
 
         if(Options.v().time())
             Timers.v().defsSetupTimer.start();
@@ -265,61 +260,35 @@ class LocalDefsFlowAnalysis extends ForwardFlowAnalysis
                         }
                 }
 
-                defs = defList.toArray();
-                defUniverse = new ArrayFlowUniverse(defs);
+                defs = (Unit[]) defList.toArray(new Unit[defList.size()]);
             }
         }
 
-        emptySet = new ArrayPackedSet(defUniverse);
-
-        // Create the preserve sets for each local.
+        // Create the kill and generate sets of each definition
         {
-            Map<Local, FlowSet> localToKillSet = new HashMap<Local, FlowSet>(g.getBody().getLocalCount() * 2 + 1, 0.7f);
-            localToPreserveSet = new HashMap<Local, BoundedFlowSet>(g.getBody().getLocalCount() * 2 + 1, 0.7f);
+            boolean traceGen = Trace.on(Trace.LOCAL_DEFS, Trace.DEBUG);
 
-            Chain locals = g.getBody().getLocals();
+            for (int i = 0; i < defs.length; i++) {
+                Unit unit = defs[i];
+                Local defLocal = (Local) ((ValueBox)unit.getDefBoxes().get(0)).getValue();
+                IntPair intPair = localToIntPair.get(defLocal);
 
-            // Initialize to empty set
-            {
-                Iterator localIt = locals.iterator();
+                // Perform kill on value : every definition of the local
+                kill(unit, intPair.op1, intPair.op2);
 
-                while(localIt.hasNext())
-                    {
-                        Local l = (Local) localIt.next();
+                // Perform generation  --> in performing generation we just consider unit that use one of the methode Parameter
+                List<ValueBox> vb = unit.getUseBoxes();
 
-                        localToKillSet.put(l, emptySet.clone());
-                    }
-            }
+                for (ValueBox valueBox : vb) {
 
-            for (Object element : defs) {
-			    Unit s = (Unit) element;
-			    
-			    List defBoxes = s.getDefBoxes();
-			    if(!(defBoxes.size() ==1)) 
-			        throw new RuntimeException("SimpleLocalDefs: invalid number of def boxes");
-			            
-			    if(((ValueBox)defBoxes.get(0)).getValue() instanceof Local) {
-			        Local defLocal = (Local) ((ValueBox)defBoxes.get(0)).getValue();
-			        BoundedFlowSet killSet = (BoundedFlowSet) localToKillSet.get(defLocal);
-			        killSet.add(s, killSet);
-			        
-			    }
-			}
-            
-            // Store complement
-            {
-                Iterator localIt = locals.iterator();
+                    if (methodParameterChain.contains(valueBox.getValue())) {
 
-                while(localIt.hasNext())
-                    {
-                        Local l = (Local) localIt.next();
-
-                        BoundedFlowSet killSet = (BoundedFlowSet) localToKillSet.get(l);
-
-                        killSet.complement(killSet);
+                        if (traceGen)
+                            Trace.println("*----l'unit --> "+ unit +" -----utilise un parametre----la Value------> "+valueBox.getValue()+ " --------qui existe dans les methodParameterChain  ");
 
-                        localToPreserveSet.put(l, killSet);
+                        gen(unit, i);
                     }
+                }
             }
         }
 
@@ -334,83 +303,32 @@ class LocalDefsFlowAnalysis extends ForwardFlowAnalysis
         if(Options.v().time())
             Timers.v().defsAnalysisTimer.end();
     }
-    
-    protected Object newInitialFlow()
-    {
-        return emptySet.clone();
-    }
-
-    protected Object entryInitialFlow()
-    {
-        return emptySet.clone();
-    }
 
-    protected void flowThrough(Object inValue, Object d, Object outValue)
+    /* the number of units defining a local, the size of the universe */
+    private static int nbOfLocalDefinitions(UnitGraph g)
     {
-    	
-    	System.out.println("--------------------flowThrough ---------------------of aymen");
-        FlowSet in = (FlowSet) inValue, out = (FlowSet) outValue;
-        Unit unit = (Unit) d;
-        
-        List defBoxes = unit.getDefBoxes();
-        if(!defBoxes.isEmpty()) {
-            if(!(defBoxes.size() ==1)) 
-                throw new RuntimeException("SimpleLocalDefs: invalid number of def boxes");
-                          
-            Value value = ((ValueBox)defBoxes.get(0)).getValue();
-            if(value  instanceof Local) {
-                Local defLocal = (Local) value;
-            
-                // Perform kill on value
-                in.intersection(localToPreserveSet.get(defLocal), out);
+        int nbOfDefs = 0;
+        Iterator it = g.iterator();
 
-                // Perform generation  --> in performing generation we just consider unit that use one of the methode Parameter
-		  		 
+        while(it.hasNext())
+            {
+                List defBoxes = ((Unit) it.next()).getDefBoxes();
 
-                List<ValueBox> vb = unit.getUseBoxes();
-            	  
-        		  for (ValueBox valueBox : vb) {
-            		        		  
-            		  	if (methodParameterChain.contains(valueBox.getValue())) {
-            		  		
-            		  		
-            		  		 System.out.println("*----l'unit --> "+ unit +" -----utilise un parametre----la Value------> "+valueBox.getValue()+ " --------qui existe dans les methodParameterChain  ");
-            		  		 
-            		  		out.add(unit, out);
-            		  	}
-            		        		  
-            	  }
-                
-                
-                
-            } else { 
-                in.copy(out);
-                return;
+                if(defBoxes.size() == 1 && ((ValueBox)defBoxes.get(0)).getValue() instanceof Local)
+                    nbOfDefs++;
             }
 
-
-        
-
-        }
-        else
-            in.copy(out);
+        return nbOfDefs;
     }
 
-    protected void copy(Object source, Object dest)
+    /* the definitions of the local (its facts intPair.op1..intPair.op2) that reach s */
+    List<Unit> defsBefore(Unit s, IntPair intPair)
     {
-        FlowSet sourceSet = (FlowSet) source,
-            destSet = (FlowSet) dest;
-        
-        sourceSet.copy(destSet);
-    }
+        List<Unit> unitLocalDefs = new ArrayList<Unit>();
 
-    protected void merge(Object in1, Object in2, Object out)
-    {
-        FlowSet inSet1 = (FlowSet) in1,
-            inSet2 = (FlowSet) in2;
-        
-        FlowSet outSet = (FlowSet) out;
-        
-        inSet1.union(inSet2, outSet);
+        for (int i = nextFactBefore(s, intPair.op1); i >= 0 && i <= intPair.op2; i = nextFactBefore(s, i + 1))
+            unitLocalDefs.add(defs[i]);
+
+        return unitLocalDefs;
     }
 }
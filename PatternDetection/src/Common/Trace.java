@@ -0,0 +1,268 @@
+package Common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Trace decides which trace lines the detectors write, and writes those that
+ * go to System.out. Each detector has its category (P1, P2, API...), each
+ * category its level: OFF, INFO for a line per method or per detected
+ * pattern, DEBUG for the lines written per unit, per use box or per
+ * definition. A detector asks on(category, level) before building a line,
+ * so a level that is not traced costs a test and nothing else.
+ *
+ * The levels are read from the system properties: -Dtrace=INFO for every
+ * category, -Dtrace.P2=OFF for one of them (DEBUG by default, every trace as
+ * before). The sharded and batch drivers pass them on to their workers with
+ * the other arguments of the JVM.
+ *
+ * The lines of println are gathered per thread in chunks of some KB, and the
+ * chunks put in a ring buffer (a bounded queue: a detector waits only when
+ * the writer is that far behind) written to System.out by a background
+ * thread, so the detectors neither wait on the console nor meet at each
+ * line. flush waits until every line traced before it is written: the
+ * drivers call it at the end of a run, before they print their results or
+ * give System.out back.
+ */
+public final class Trace {
+
+	public static final int OFF = 0;
+	public static final int INFO = 1;
+	public static final int DEBUG = 2;
+
+	public static final int P1 = 0;
+	public static final int P2 = 1;
+	public static final int API = 2;
+	public static final int NOTNULL = 3;
+	public static final int NOTNULL_PARAMETER = 4;
+	public static final int LOCAL_DEFS = 5;
+	public static final int NULL_TESTED_LOCALS = 6;
+
+	static final String[] LevelNames = { "OFF", "INFO", "DEBUG" };
+	static final String[] CategoryNames = { "P1", "P2", "API", "NOTNULL", "NOTNULLPARAM", "LOCALDEFS", "NULLTESTED" };
+
+	private static final int CHUNK_SIZE = 8192;
+	private static final int CAPACITY = 256;
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	// remplace en entier a chaque changement, les detecteurs lisent toujours un tableau complet
+	private static volatile int[] levels = configuredLevels();
+
+	// le morceau en cours de chaque thread qui trace, tous gardes pour que flush les vide
+	private static final List<Chunk> chunks = new ArrayList<Chunk>();
+	private static final ThreadLocal<Chunk> chunkOfThread = new ThreadLocal<Chunk>() {
+
+		protected Chunk initialValue() {
+
+			Chunk chunk = new Chunk();
+			synchronized (chunks) {
+				chunks.add(chunk);
+			}
+			return chunk;
+		}
+	};
+
+	private static final ArrayBlockingQueue<String> ringBuffer = new ArrayBlockingQueue<String>(CAPACITY);
+	private static final AtomicLong nbOfQueuedChunks = new AtomicLong();
+	private static final Object writtenLock = new Object();
+	private static long nbOfWrittenChunks = 0;
+	private static volatile Thread writer;
+
+	private static final class Chunk {
+
+		final StringBuilder text = new StringBuilder(CHUNK_SIZE + 256);
+		long nbOfLines = 0;
+	}
+
+	private Trace() {
+	}
+
+	private static int[] configuredLevels() {
+
+		int[] configured = new int[CategoryNames.length];
+		int level = parseLevel(System.getProperty("trace", LevelNames[DEBUG]));
+
+		for (int category = 0; category < configured.length; category++) {
+			String categoryLevel = System.getProperty("trace." + CategoryNames[category]);
+			configured[category] = categoryLevel == null ? level : parseLevel(categoryLevel);
+		}
+
+		return configured;
+	}
+
+	public static int parseLevel(String name) {
+
+		for (int level = 0; level < LevelNames.length; level++) {
+			if (LevelNames[level].equalsIgnoreCase(name)) {
+				return level;
+			}
+		}
+		throw new IllegalArgumentException("unknown trace level " + name + ", expected OFF, INFO or DEBUG");
+	}
+
+	/* the name of level, as parseLevel reads it */
+	public static String levelName(int level) {
+
+		return LevelNames[level];
+	}
+
+	/* whether the lines of level are traced for category */
+	public static boolean on(int category, int level) {
+
+		return levels[category] >= level;
+	}
+
+	/* the number of lines given to println since the start of the program */
+	public static long getNbOfTracedLines() {
+
+		long nbOfLines = 0;
+		synchronized (chunks) {
+			for (Chunk chunk : chunks) {
+				synchronized (chunk) {
+					nbOfLines += chunk.nbOfLines;
+				}
+			}
+		}
+		return nbOfLines;
+	}
+
+	public static int getLevel(int category) {
+
+		return levels[category];
+	}
+
+	public static synchronized void setLevel(int category, int level) {
+
+		int[] changed = levels.clone();
+		changed[category] = level;
+		levels = changed;
+	}
+
+	/* the same level for every category */
+	public static synchronized void setLevel(int level) {
+
+		int[] changed = new int[CategoryNames.length];
+		for (int category = 0; category < changed.length; category++) {
+			changed[category] = level;
+		}
+		levels = changed;
+	}
+
+	/* writes line to System.out from the background writer */
+	public static void println(String line) {
+
+		Chunk chunk = chunkOfThread.get();
+
+		synchronized (chunk) {
+			chunk.text.append(line).append(LINE_SEPARATOR);
+			chunk.nbOfLines++;
+			if (chunk.text.length() >= CHUNK_SIZE) {
+				queue(chunk);
+			}
+		}
+	}
+
+	/* waits until the lines traced before the call are written */
+	public static void flush() {
+
+		synchronized (chunks) {
+			for (Chunk chunk : chunks) {
+				synchronized (chunk) {
+					if (chunk.text.length() > 0) {
+						queue(chunk);
+					}
+				}
+			}
+		}
+
+		long nbOfChunks = nbOfQueuedChunks.get();
+
+		synchronized (writtenLock) {
+			boolean interrupted = false;
+			while (nbOfWrittenChunks < nbOfChunks) {
+				try {
+					writtenLock.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// appele avec le verrou de chunk
+	private static void queue(Chunk chunk) {
+
+		if (writer == null) {
+			startWriter();
+		}
+
+		String text = chunk.text.toString();
+		chunk.text.setLength(0);
+		nbOfQueuedChunks.incrementAndGet();
+
+		boolean interrupted = false;
+		while (true) {
+			try {
+				ringBuffer.put(text);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static synchronized void startWriter() {
+
+		if (writer != null) {
+			return;
+		}
+
+		writer = new Thread("trace writer") {
+
+			public void run() {
+
+				List<String> batch = new ArrayList<String>();
+
+				while (true) {
+					try {
+						batch.add(ringBuffer.take());
+					} catch (InterruptedException e) {
+						continue;
+					}
+					ringBuffer.drainTo(batch);
+
+					// le System.out du moment : un benchmark peut l'avoir remplace le temps d'une detection
+					for (String text : batch) {
+						System.out.print(text);
+					}
+					System.out.flush();
+
+					synchronized (writtenLock) {
+						nbOfWrittenChunks += batch.size();
+						writtenLock.notifyAll();
+					}
+					batch.clear();
+				}
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+
+		// les lignes encore dans le tampon quand le programme se termine
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+
+			public void run() {
+				flush();
+			}
+		});
+	}
+
+}
@@ -0,0 +1,171 @@
+package Common;
+
+import java.util.List;
+
+import soot.Local;
+import soot.Unit;
+import soot.Value;
+import soot.ValueBox;
+import soot.jimple.IfStmt;
+import soot.jimple.ThrowStmt;
+import soot.toolkits.scalar.LocalDefs;
+
+/*
+ * UnitClassification is what the detectors ask of every unit of a body,
+ * computed once in a single walk of its CompactUnitGraph and shared by the
+ * detectors of the pack (see SharedBodyGraph.unitClassification): whether
+ * the unit is an if stmt, whether its condition compares with null, whether
+ * it uses a parameter of the method, whether it is a throw stmt or an exit
+ * point (a tail of the graph). The kinds of a unit are bits of an int, so a
+ * UnitRule says with a mask which units it wants to see.
+ *
+ * The number of if and throw stmts of the body are counted on the way: a
+ * detector knows without another walk whether the body can hold its pattern.
+ * The condition of every if stmt is described on the way too, in a long (see
+ * IfStmtCondition).
+ */
+public class UnitClassification {
+
+	public static final int IF_STMT = 1;
+	public static final int NULL_COMPARISON = 2;
+	public static final int PARAMETER_REFERENCE = 4;
+	public static final int THROW_STMT = 8;
+	public static final int EXIT = 16;
+
+	private final CompactUnitGraph cfg;
+	private final int[] kinds;
+	// la description de la condition de chaque if stmt, 0 pour les autres unites
+	private final long[] conditions;
+
+	private int nbOfIfStmts = 0;
+	private int nbOfThrowStmts = 0;
+
+	public UnitClassification(CompactUnitGraph cfg) {
+
+		this.cfg = cfg;
+		this.kinds = new int[cfg.size()];
+		this.conditions = new long[cfg.size()];
+
+		List<Local> parameterList = cfg.getBody().getParameterLocals();
+		Local[] parameters = parameterList.toArray(new Local[parameterList.size()]);
+
+		for (int i = 0; i < cfg.size(); i++) {
+			Unit unit = cfg.getUnit(i);
+			int kind = 0;
+
+			if (unit instanceof IfStmt) {
+				kind |= IF_STMT;
+				nbOfIfStmts++;
+				conditions[i] = describe(i, (IfStmt) unit, parameters);
+				if (IfStmtCondition.isNullComparison(conditions[i])) {
+					kind |= NULL_COMPARISON;
+				}
+			} else if (unit instanceof ThrowStmt) {
+				kind |= THROW_STMT;
+				nbOfThrowStmts++;
+			}
+
+			if (cfg.isTail(i)) {
+				kind |= EXIT;
+			}
+
+			if ((kind & IF_STMT) != 0) {
+				if (IfStmtCondition.testsParameter(conditions[i])) {
+					kind |= PARAMETER_REFERENCE;
+				}
+			} else if (parameters.length > 0) {
+				List<ValueBox> useBoxes = unit.getUseBoxes();
+				for (int k = 0; k < useBoxes.size() && (kind & PARAMETER_REFERENCE) == 0; k++) {
+					Value value = useBoxes.get(k).getValue();
+					for (int p = 0; p < parameters.length; p++) {
+						if (parameters[p] == value) {
+							kind |= PARAMETER_REFERENCE;
+						}
+					}
+				}
+			}
+
+			kinds[i] = kind;
+		}
+	}
+
+	/* the target is found among the successors, the fall through is the next unit of the body */
+	private long describe(int index, IfStmt ifStmt, Local[] parameters) {
+
+		Unit target = ifStmt.getTarget();
+		int targetBranch = -1;
+		for (int k = 0; k < cfg.getNbOfSuccs(index) && targetBranch < 0; k++) {
+			if (cfg.getUnit(cfg.getSucc(index, k)) == target) {
+				targetBranch = cfg.getSucc(index, k);
+			}
+		}
+		int fallThroughBranch = index + 1 < cfg.size() ? index + 1 : -1;
+
+		return IfStmtCondition.describe(ifStmt, parameters, targetBranch, fallThroughBranch);
+	}
+
+	public CompactUnitGraph getCfg() {
+
+		return cfg;
+	}
+
+	public int size() {
+
+		return kinds.length;
+	}
+
+	/* the kinds of the unit index, bits of IF_STMT, NULL_COMPARISON... */
+	public int getKinds(int index) {
+
+		return kinds[index];
+	}
+
+	/* whether the unit index is of one of kinds */
+	public boolean is(int index, int kinds) {
+
+		return index >= 0 && (this.kinds[index] & kinds) != 0;
+	}
+
+	/* the description of the condition of the if stmt index (see IfStmtCondition), 0 for another unit */
+	public long getCondition(int index) {
+
+		return conditions[index];
+	}
+
+	/*
+	 * whether the tested operand of the if stmt index is a local with a
+	 * definition using a parameter that reaches the if stmt, from the
+	 * SimpleLocalDefsUsingParameter of the body shared by the detectors.
+	 * Asked once per if stmt, the answer is kept in its condition.
+	 */
+	public boolean isParameterDerived(int index) {
+
+		long condition = conditions[index];
+
+		if (!IfStmtCondition.is(condition, IfStmtCondition.PARAMETER_DERIVED_KNOWN)) {
+			condition |= IfStmtCondition.PARAMETER_DERIVED_KNOWN;
+			if (IfStmtCondition.isTestedOperandLocal(condition)) {
+				Unit ifStmt = cfg.getUnit(index);
+				Local operand = (Local) IfStmtCondition.getTestedOperand(condition, (IfStmt) ifStmt);
+				LocalDefs parameterDefs = SimpleLocalDefsUsingParameter.OF_BODY.of(cfg.getBody());
+				if (!parameterDefs.getDefsOfAt(operand, ifStmt).isEmpty()) {
+					condition |= IfStmtCondition.PARAMETER_DERIVED;
+				}
+			}
+			conditions[index] = condition;
+		}
+
+		return IfStmtCondition.is(condition, IfStmtCondition.PARAMETER_DERIVED);
+	}
+
+	public boolean hasIfStmt() {
+
+		return nbOfIfStmts > 0;
+	}
+
+	public boolean hasThrowStmt() {
+
+		return nbOfThrowStmts > 0;
+	}
+
+}
@@ -0,0 +1,36 @@
+package Common;
+
+/*
+ * A UnitRule is one step of the detection of a pattern that looks at the
+ * units of a body one at a time. The rules of a detector are registered in a
+ * UnitWalk, which walks the units once, in the order of the body, and calls
+ * each rule on the units of the kinds it asked for (a mask of the kinds of
+ * UnitClassification, EVERY_UNIT for all of them).
+ */
+public abstract class UnitRule {
+
+	public static final int EVERY_UNIT = 0;
+
+	private final int unitKinds;
+
+	protected int nbOfDetectedPattern = 0;
+
+	protected UnitRule(int unitKinds) {
+
+		this.unitKinds = unitKinds;
+	}
+
+	public int getUnitKinds() {
+
+		return unitKinds;
+	}
+
+	public int getNbOfDetectedPattern() {
+
+		return nbOfDetectedPattern;
+	}
+
+	/* called on each unit of one of the kinds of the rule, in the order of the body */
+	protected abstract void visit(int index, UnitClassification units);
+
+}
@@ -0,0 +1,184 @@
+package Common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import soot.Body;
+import soot.BodyTransformer;
+
+/*
+ * UnitWalk runs the UnitRules of a detector in a single ordered walk of the
+ * units of a body: at each unit, every rule that wants units of its kinds is
+ * called, in the order the rules were added. Adding a rule to a detector
+ * adds no walk of the body, and the classification of the units is the one
+ * shared by every detector (see UnitClassification).
+ *
+ * The detectors of the same pack share the walk too: when the driver fuses
+ * the walks (see setFused), walk(body, units, done) only registers the rules
+ * of the detector for body, and the walker() phase, added to the pack after
+ * the detectors, walks the units once for the rules of all of them, in the
+ * order the detectors ran, then gives each detector the number of pattern
+ * its own rules detected. Without it each detector walks on its own, as in
+ * the drivers of a single pattern.
+ */
+public class UnitWalk {
+
+	// les marches des detecteurs sont faites ensemble par walker(), quand le driver l'a mis dans le pack
+	private static volatile boolean fused = false;
+
+	// les marches remises a walker() pour le body en cours de chaque thread
+	private static final ThreadLocal<PendingWalk> pendingWalkOfThread = new ThreadLocal<PendingWalk>();
+
+	private UnitRule[] rules = new UnitRule[0];
+
+	/* what a detector does once the rules of its walk have seen every unit */
+	public interface Done {
+
+		void walked(int nbOfDetectedPattern);
+	}
+
+	/* the walks registered for one body, with what each detector does after its walk */
+	private static final class PendingWalk {
+
+		final Body body;
+		final UnitClassification units;
+		final List<UnitWalk> walks = new ArrayList<UnitWalk>();
+		final List<Done> dones = new ArrayList<Done>();
+
+		PendingWalk(Body body, UnitClassification units) {
+
+			this.body = body;
+			this.units = units;
+		}
+	}
+
+	public UnitWalk add(UnitRule rule) {
+
+		rules = Arrays.copyOf(rules, rules.length + 1);
+		rules[rules.length - 1] = rule;
+
+		return this;
+	}
+
+	/* walks the units once; returns the number of pattern detected by the rules */
+	public int walk(UnitClassification units) {
+
+		walk(units, rules);
+
+		return nbOfDetectedPattern();
+	}
+
+	/*
+	 * walks the units of body for the rules, then calls done with the number
+	 * of pattern they detected: right away, or from the single walk of the
+	 * body of walkPending when the walks are fused
+	 */
+	public void walk(Body body, UnitClassification units, Done done) {
+
+		if (!fused) {
+			done.walked(walk(units));
+			return;
+		}
+
+		PendingWalk pendingWalk = pendingWalkOfThread.get();
+
+		if (pendingWalk != null && pendingWalk.body != body) {
+			// le body precedent n'est pas passe par walker() : sa marche est faite avant d'oublier ses regles
+			walkPending(pendingWalk.body);
+			pendingWalk = null;
+		}
+		if (pendingWalk == null) {
+			pendingWalk = new PendingWalk(body, units);
+			pendingWalkOfThread.set(pendingWalk);
+		}
+
+		pendingWalk.walks.add(this);
+		pendingWalk.dones.add(done);
+	}
+
+	/*
+	 * makes the single walk of body for the rules every detector registered,
+	 * then calls what each detector does after its walk, in the order they
+	 * registered
+	 */
+	public static void walkPending(Body body) {
+
+		PendingWalk pendingWalk = pendingWalkOfThread.get();
+
+		if (pendingWalk == null || pendingWalk.body != body) {
+			return;
+		}
+		pendingWalkOfThread.remove();
+
+		int nbOfRules = 0;
+		for (UnitWalk walk : pendingWalk.walks) {
+			nbOfRules += walk.rules.length;
+		}
+
+		UnitRule[] allRules = new UnitRule[nbOfRules];
+		int r = 0;
+		for (UnitWalk walk : pendingWalk.walks) {
+			System.arraycopy(walk.rules, 0, allRules, r, walk.rules.length);
+			r += walk.rules.length;
+		}
+
+		walk(pendingWalk.units, allRules);
+
+		for (int i = 0; i < pendingWalk.walks.size(); i++) {
+			pendingWalk.dones.get(i).walked(pendingWalk.walks.get(i).nbOfDetectedPattern());
+		}
+	}
+
+	/*
+	 * whether the detectors leave their walk to walker(); set by the drivers
+	 * that add it to the pack, or call walkPending, after the detectors
+	 */
+	public static void setFused(boolean fusedWalks) {
+
+		fused = fusedWalks;
+	}
+
+	/* a transformer to add to the pack after the detectors: it makes the single walk of each body */
+	public static BodyTransformer walker() {
+
+		return new BodyTransformer() {
+
+			protected void internalTransform(Body body, String phase, Map options) {
+
+				walkPending(body);
+			}
+		};
+	}
+
+	private static void walk(UnitClassification units, UnitRule[] rules) {
+
+		if (rules.length == 0) {
+			return;
+		}
+
+		for (int index = 0; index < units.size(); index++) {
+
+			int kinds = units.getKinds(index);
+
+			for (int r = 0; r < rules.length; r++) {
+				int unitKinds = rules[r].getUnitKinds();
+				if (unitKinds == UnitRule.EVERY_UNIT || (kinds & unitKinds) != 0) {
+					rules[r].visit(index, units);
+				}
+			}
+		}
+	}
+
+	private int nbOfDetectedPattern() {
+
+		int nbOfDetectedPattern = 0;
+		for (UnitRule rule : rules) {
+			nbOfDetectedPattern += rule.getNbOfDetectedPattern();
+		}
+
+		return nbOfDetectedPattern;
+	}
+
+}
@@ -29,8 +29,19 @@ import soot.toolkits.graph.ExceptionalUnitGraph;
 import soot.toolkits.graph.UnitGraph;
 import soot.util.*;
 import soot.jimple.internal.JThrowStmt;
+import Common.ClassReport;
+import Common.CompactUnitGraph;
+import Common.DetectionResultCollector;
+import Common.IfStmtCondition;
+import Common.MethodReport;
+import Common.ResultRecord;
+import Common.SharedBodyGraph;
+import Common.Trace;
+import Common.UnitClassification;
+import Common.UnitRule;
+import Common.UnitWalk;
 
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.security.KeyStore.Entry;
 import java.util.*;
@@ -42,74 +53,78 @@ public class InvokeStaticInstrumenterP1 extends BodyTransformer{
   /* some internal fields */
   static SootClass counterClass;
   static SootMethod increaseCounter, reportCounter;
-  static PrintWriter out  ;
-  static PrintWriter patternDistributionOverMethod  ;
-  static PrintWriter detectedPattern  ;
-  static HashMap<String, Integer> patternDistributionOverClasses; 
   
+  // tout l'etat d'un body est local a internalTransform, les resultats passent par le collector
+  // pour que le pack jtp puisse traiter plusieurs body en parallele 
+  private final DetectionResultCollector results;
+  
+  // a changer a chaque modification de la detection, invalide les resultats gardes par IncrementalManifest
+  public static final String DETECTOR_VERSION = "P1-4";
+  
+  // le graphe le moins cher qui donne les memes resultats que l'ExceptionalUnitGraph (voir Common.SharedBodyGraph) :
+  // dans un try, un throw attrape n'est pas un tail et une unite a aussi l'arc vers le handler, le BriefUnitGraph
+  // changerait isTail et getNbOfSuccs
+  public static final int CFG_PRECISION = SharedBodyGraph.EXCEPTIONAL;
   
-  static {
-    //counterClass    = Scene.v().loadClassAndSupport("MyCounter");
-    //increaseCounter = counterClass.getMethod("void increase(int)");
-    //reportCounter   = counterClass.getMethod("void report()");
-	  patternDistributionOverClasses=new HashMap<String, Integer>(350);
-	  
-  }
 
  public InvokeStaticInstrumenterP1(PrintWriter pw1 ,PrintWriter pw2 ,PrintWriter pw3){
 	  
-	  out=pw1;
-	  patternDistributionOverMethod=pw2;
-	  detectedPattern=pw3;
-	  
-	  patternDistributionOverMethod.println("class name"+";;"+"Method name"+";;"+"number of detected pattern");
+	  results=new DetectionResultCollector(pw1, pw2, pw3);
 	  
-	  detectedPattern.println("class name"+";;"+"Method name"+";;"+";;"+"Method signature"+";;"+";;"+"type of exitStmt"+";;"+"exit stmt" +";;"+"Analysed unit");
+	  results.writeHeaders(ResultRecord.join("class name","Method name","number of detected pattern"),
+			  ResultRecord.join("class name","Method name","","Method signature","","type of exitStmt","exit stmt","Analysed unit"));
   }
 
   
   protected void internalTransform(Body body, String phase, Map options) {
     // body's method
-    SootMethod method = body.getMethod();
-    SootClass declaringClass =method.getDeclaringClass();
-    Integer nbOfDetectedpatternInCurrentMethod =0;
-    
+    final SootMethod method = body.getMethod();
+    final SootClass declaringClass =method.getDeclaringClass();
     
-    //initialisation du hashmap pour la distrubution des patron sur les classes 
-    if (patternDistributionOverClasses.containsKey(declaringClass.getName())) {
-    	
-		//ne rien faire 
-	} else {
-		
-		patternDistributionOverClasses.put(declaringClass.getName(),0);
-
-	}    
+    final MethodReport report = results.newReport(body);
+    final PrintWriter out = report.getOut();
+    final PrintWriter patternDistributionOverMethod = report.getPatternDistributionOverMethod();
+    final PrintWriter detectedPattern = report.getDetectedPattern();
+       
+    // les lignes de test1.txt : par methode au niveau INFO, par unite au niveau DEBUG (voir Common.Trace)
+    final boolean traceMethod = Trace.on(Trace.P1, Trace.INFO);
+    final boolean traceUnits = Trace.on(Trace.P1, Trace.DEBUG);
        
+    if (traceMethod) {
     out.println("$classe name ----> "+declaringClass.getName());
     
     out.println("@@@@@@@@@@@@@@@@@@@@@@ Debut instrumenting method @@@@@@@@@@@@@@@@@@@@@@@@@");
 
     out.println("instrumenting method : " + method.getSignature());
+    }
     
-    UnitGraph cfg = new ExceptionalUnitGraph(body);
+    // les unites numerotees, leurs successeurs et les exit points en tableaux (voir Common.CompactUnitGraph)
+    final CompactUnitGraph cfg = SharedBodyGraph.compactUnitGraph(body);
+    // la condition de chaque if stmt, decrite une fois par body (voir Common.IfStmtCondition)
+    UnitClassification units = SharedBodyGraph.unitClassification(body);
    
+    if (traceUnits) {
     out.println("1 ############### Debut unit of the method ###############");
     
-    for (Unit unitOfTheBodyMethod : cfg) {
+    for (int i = 0; i < cfg.size(); i++) {
     	
-    	out.println("-----unit of the method----> "+unitOfTheBodyMethod);
+    	out.println("-----unit of the method----> "+cfg.getUnit(i));
 		
 	}
      out.println("1 ############### Fin unit of the method ###############");
+    }
     
     ///////////A
     
     
-     out.println("2 ############### Debut traitement des variables et de paramtres ###############");
+     if (traceUnits) {
+     	out.println("2 ############### Debut traitement des variables et de paramtres ###############");
+     }
     
     
     Chain<Local> localsOfTheBody =body.getLocals();
    
+    if (traceUnits) {
      out.println("----------local of the body :------------>");
     
     for (Local local : localsOfTheBody) {
@@ -117,24 +132,35 @@ public class InvokeStaticInstrumenterP1 extends BodyTransformer{
     	 out.println("*-------->"+local.toString());
     	
 	}
+    }
     
-     out.println("----------Parameter of the method :------------>");
+     if (traceUnits) {
+     	out.println("----------Parameter of the method :------------>");
+     }
 
-     out.println("la methode a " + method.getParameterCount()+ " parametre ");
+     if (traceUnits) {
+     	out.println("la methode a " + method.getParameterCount()+ " parametre ");
+     }
     
    
     ArrayList<Local> methodParameterChain =  new ArrayList<Local>();
     
     for (int j = 0; j < method.getParameterCount(); j++) {
 		
-    	 out.println("**-------->"+body.getParameterLocal(j)) ;
+    	 if (traceUnits) {
+    	 	out.println("**-------->"+body.getParameterLocal(j)) ;
+    	 }
     	methodParameterChain.add(body.getParameterLocal(j));
     	    	  	
 	}
     
-     out.println("2 ############### Fin traitement des variables et de paramtres ###############");
+     if (traceUnits) {
+     	out.println("2 ############### Fin traitement des variables et de paramtres ###############");
+     }
     
-     out.println("@@@@@@@@@@@@@@@@@@@@@@ Fin instrumenting method @@@@@@@@@@@@@@@@@@@@@@@@@");
+     if (traceMethod) {
+     	out.println("@@@@@@@@@@@@@@@@@@@@@@ Fin instrumenting method @@@@@@@@@@@@@@@@@@@@@@@@@");
+     }
     ///////////A
     
     
@@ -143,279 +169,310 @@ public class InvokeStaticInstrumenterP1 extends BodyTransformer{
     
 
     ////////////////1.1
-     out.println("@@@@@@@@@@@@@@@@@@@@@@ start pattern detection @@@@@@@@@@@@@@@@@@@@@@@@@");
+     if (traceMethod) {
+     	out.println("@@@@@@@@@@@@@@@@@@@@@@ start pattern detection @@@@@@@@@@@@@@@@@@@@@@@@@");
+     }
 
-    List<Unit> exitpointlist=cfg.getTails();
-    
-    
-   
+    // la regle de P1, UnitWalk l'appelle sur chaque if stmt du body, avec les regles des autres detecteurs du pack
+    UnitWalk walk =new UnitWalk();
     
+    walk.add(new UnitRule(UnitClassification.IF_STMT) {
     
-    
-    for (Unit unit4 : cfg) {
+    protected void visit(int unitIndex, UnitClassification units) {
     	
-    	if (unit4 instanceof soot.jimple.IfStmt ){
-    		
-    		
-    		
-    		
-    		Boolean  conditionRefersTomethodParameter =false;
-    		Boolean conditionContainsNullVerification =false;
-    		
-    		Unit targeSucessorOfStmtIf = null;  		   		
-    		
-    		Unit theOtherSucessorOfStmtIf  = null;		
-    		
-    		Unit theConsideredSucessor = null;
-    		
-    		Boolean findExitStmtOrThroStmt=false;
-    		
-    		Boolean notEqualNullCondition =false;
-    		
-    		Boolean equalNullCondition =false;
-    		Boolean exitStmtDetectedForCurrentIfStmt=false;
-    		
-    		int PathLength=0;
-    		
-    		 
-    	//verifier que la condition porte sur un des paramtre de la methode
- 	
+    	Unit unit4 = cfg.getUnit(unitIndex);
+    	
+    	
+    	Boolean  conditionRefersTomethodParameter =false;
+    	Boolean conditionContainsNullVerification =false;
+    	
+    	Unit targeSucessorOfStmtIf = null;  		   		
+    	
+    	Unit theOtherSucessorOfStmtIf  = null;		
+    	
+    	Unit theConsideredSucessor = null;
+    	int theConsideredSucessorIndex = -1;
+    	
+    	Boolean findExitStmtOrThroStmt=false;
+    	
+    	Boolean notEqualNullCondition =false;
+    	
+    	Boolean equalNullCondition =false;
+    	Boolean exitStmtDetectedForCurrentIfStmt=false;
+    	
+    	int PathLength=0;
+    	
+    	 
+    //verifier que la condition porte sur un des paramtre de la methode
+ 
 
-  		  List<ValueBox> vb = unit4.getUseBoxes();
-      	  
-  		  for (ValueBox valueBox : vb) {
-      		        		  
-      		  	if (methodParameterChain.contains(valueBox.getValue())) {
-      		  		
-      		  		conditionRefersTomethodParameter=true;
-      		  		 out.println("5----------la Value------> "+valueBox.getValue()+ " existe dans les methodParameterChain  ");
-      		  	}
-      		        		  
-      	  }
-    		
-    		
-    		
-    		
+  	  long condition = units.getCondition(unitIndex);
+  	  ConditionExpr Condtionexpr =(ConditionExpr)((soot.jimple.IfStmt) unit4).getCondition();
+        
+  	  if (IfStmtCondition.is(condition, IfStmtCondition.OP1_PARAMETER)) {
+  		  
+  		  conditionRefersTomethodParameter=true;
+  		  if (traceUnits) {
+  		  	out.println("5----------la Value------> "+Condtionexpr.getOp1()+ " existe dans les methodParameterChain  ");
+  		  }
+  	  }
+  	  if (IfStmtCondition.is(condition, IfStmtCondition.OP2_PARAMETER)) {
+  		  
+  		  conditionRefersTomethodParameter=true;
+  		  if (traceUnits) {
+  		  	out.println("5----------la Value------> "+Condtionexpr.getOp2()+ " existe dans les methodParameterChain  ");
+  		  }
+  	  }
+    	
+    	 
+    	//verifier que la condition et du type null verification  
+    	
+    	
+    	if (IfStmtCondition.isNullComparison(condition)) {
     		
-    		ConditionExpr Condtionexpr =(ConditionExpr)((soot.jimple.IfStmt) unit4).getCondition();
+    		conditionContainsNullVerification=true;
+			
+		}
+    	
+    	//debut de la detection 
+    	
+    	
+    	
+    if (conditionRefersTomethodParameter) {
+			
+		    		
+    	if (conditionContainsNullVerification) {
+		    		 
+    	 if (IfStmtCondition.isEqualNull(condition)) {
     		 
-    		//verifier que la condition et du type null verification  
-    		
-    		
-    		if (Condtionexpr.getOp2().toString() == "null") {
-    			
-    			conditionContainsNullVerification=true;
-				
-			}
-    		
-    		//debut de la detection 
-    		
-    		
-    		
-    	if (conditionRefersTomethodParameter) {
-				
-			    		
-    		if (conditionContainsNullVerification) {
-			    		 
-    		 if (Condtionexpr.getOp2().toString() == "null" && Condtionexpr.getSymbol() == " == "  ) {
-    			 
-    			 equalNullCondition=true;
-   			
-   		} 
-       	  
+    		 equalNullCondition=true;
+   		
+   	} 
+         
 
-       	  if (Condtionexpr.getOp2().toString() == "null" && Condtionexpr.getSymbol() == " != "  ) {
-       		  
-       		  
-       		notEqualNullCondition=true;
-       		  
-   			
-   		} 
+         if (IfStmtCondition.isNotEqualNull(condition)) {
        	  
-       	  if (equalNullCondition && notEqualNullCondition) {
-       		  
-       		  try {
-				throw new Exception("contradiction equalNullCondition and  notEqualNullCondition are true ");
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-       		  
-			
-		}
        	  
+       	notEqualNullCondition=true;
+       	  
+   		
+   	} 
+         
+         if (equalNullCondition && notEqualNullCondition) {
        	  
+       	  try {
+			throw new Exception("contradiction equalNullCondition and  notEqualNullCondition are true ");
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
        	  
-       	targeSucessorOfStmtIf = ((soot.jimple.IfStmt) unit4).getTarget();
-		List<Unit> successorListOfUnit = cfg.getSuccsOf(unit4);
 		
+	}
+         
+         
+         
+       targeSucessorOfStmtIf = ((soot.jimple.IfStmt) unit4).getTarget();
+       int targeSucessorIndex = IfStmtCondition.getTargetBranch(condition);
+       int theOtherSucessorIndex = -1;
+	
 
-  	  	  for (Unit sucessorunit : successorListOfUnit) {
-  	  		  
-  	  		  if (!sucessorunit.equals(targeSucessorOfStmtIf)) {
-  	  			  
-  	  			theOtherSucessorOfStmtIf =sucessorunit;
-					
-				}
+    	  for (int k = 0; k < cfg.getNbOfSuccs(unitIndex); k++) {
+    		  
+    		  int sucessorIndex = cfg.getSucc(unitIndex, k);
+    		  
+    		  if (sucessorIndex != targeSucessorIndex) {
+    			  
+    			theOtherSucessorOfStmtIf =cfg.getUnit(sucessorIndex);
+    			theOtherSucessorIndex =sucessorIndex;
+				
+			}
+    	
+    		  
+    	  }
+    	  
+    	  
+    	  
+    	  if (equalNullCondition) {
+    		  
+    		theConsideredSucessor=targeSucessorOfStmtIf;
+    		theConsideredSucessorIndex=targeSucessorIndex;
+		
+	} else if (notEqualNullCondition) {
+		
+		
+		theConsideredSucessor=theOtherSucessorOfStmtIf;
+		theConsideredSucessorIndex=theOtherSucessorIndex;
+		
+	}  	  		  
     		
-  	  		  
-  	  	  }
-  	  	  
-  	  	  
-  	  	  
-  	  	  if (equalNullCondition) {
-  	  		  
-  	  		theConsideredSucessor=targeSucessorOfStmtIf;
-			
-		} else if (notEqualNullCondition) {
-			
-			
-			theConsideredSucessor=theOtherSucessorOfStmtIf;
-			
-		}  	  		  
-  	  		
-  	  	  
-  	  	  //verifier l'existanse de exit stmt apres le if 
-  	  	  
-  	  	  out.println("#######        recherech de exit stmt qui suit iftmt               ######");  	  
-  	  	  if (exitpointlist.contains(theConsideredSucessor)) {
-			
-  	  		  exitStmtDetectedForCurrentIfStmt=true;
-  	  		   out.println(">>>>>--------on a trouver le exitpoint stmt qui suit le if stmt donc detection du pattern------->>>>   "+theConsideredSucessor  +" suit " + unit4 );
-  	  		   nbOfDetectedpatternInCurrentMethod++;
-  	  		   
-  	  		  detectedPattern.println(declaringClass+";;"+method.getName()+";;"+";;"+method.getSignature()+";;"+";;"+"exitpoin"+";;"+theConsideredSucessor +";;"+unit4);
+    	  
+    	  //verifier l'existanse de exit stmt apres le if 
+    	  
+    	  if (traceUnits) {
+    	  	out.println("#######        recherech de exit stmt qui suit iftmt               ######");  	  
+    	  }
+    	  if (cfg.isTail(theConsideredSucessorIndex)) {
+		
+    		  exitStmtDetectedForCurrentIfStmt=true;
+    		   if (traceMethod) {
+    		   	out.println(">>>>>--------on a trouver le exitpoint stmt qui suit le if stmt donc detection du pattern------->>>>   "+theConsideredSucessor  +" suit " + unit4 );
+    		   }
+    		   nbOfDetectedPattern++;
+    		   
+    		  detectedPattern.println(ResultRecord.join(declaringClass,method.getName(),"",method.getSignature(),"","exitpoin",theConsideredSucessor,unit4));
 
-  	  		  
-  	  		  if (theConsideredSucessor instanceof ReturnStmt) {
+    		  
+    		  if (theConsideredSucessor instanceof ReturnStmt) {
+    	
+    			   if (traceUnits) {
+    			   	out.println("@-----------exitpouintunit instens Of ReturnStmt  ------------------->"+theConsideredSucessor);
+    			   }
+		
+    		  	} else if (theConsideredSucessor instanceof ReturnVoidStmt) {
+  			
+    		  		 if (traceUnits) {
+    		  		 	out.println("@-----------exitpouintunit instens Of ReturnVoidStmt------------------->"+theConsideredSucessor);
+    		  		 }
+
+  			
+    		  		} else {
+    				
+    		  			 if (traceUnits) {
+    		  			 	out.println("@-----------exitpouintunit non roconue ca peut etre un throw stmt si c'est le cas il serat detecter par la boucle while qui vient juste aprs ------------------->"+theConsideredSucessor);
+    		  			 }
+    				
+    		  		}
+    		  
+    		  
+    		  
+	}
+    	  
+    	  
+    	  
+    	  
+    	  
+    	  //verifier l'existance du throw apres le if 
+    	  
+    	  // on pet verifier l'existance de throw stmt mais on peut le cherche et si on le trouve pas au bout de 4 pas on abandonne    
     		
-  	  			   out.println("@-----------exitpouintunit instens Of ReturnStmt  ------------------->"+theConsideredSucessor);
+    	  if (traceUnits) {
+    	  	out.println("#######        recherech de throw qui suit iftmt               ######");
+    	  }
+    	  
+    	 	if (!exitStmtDetectedForCurrentIfStmt) {
+    	 		
+    	 		//si on a pa trouver exitStmt qui suit le if on passe  la detection du throw qui suit le if 
 			
-  	  		  	} else if (theConsideredSucessor instanceof ReturnVoidStmt) {
-  				
-  	  		  		 out.println("@-----------exitpouintunit instens Of ReturnVoidStmt------------------->"+theConsideredSucessor);
+    	 		Boolean mustExitWhileLoop =false;
+    	 		
+		
+    	while (PathLength < 4 && !findExitStmtOrThroStmt && !mustExitWhileLoop) {
+    		
+    		if (theConsideredSucessor instanceof ThrowStmt ) {
+    			
+    			findExitStmtOrThroStmt=true;
+    			 if (traceMethod) {
+    			 	out.println(">>>>>--------on a trouver le throw stmt qui suit le if stmt donc detection du pattern------->>>>   "+theConsideredSucessor  +" suit " + unit4 );
+    			 }
+    			 nbOfDetectedPattern++;
+				
+    			  detectedPattern.println(ResultRecord.join(declaringClass,method.getName(),"",method.getSignature(),"","ThrowStmt",theConsideredSucessor,unit4));
 
-  				
-  	  		  		} else {
-  	  				
-  	  		  			 out.println("@-----------exitpouintunit non roconue ca peut etre un throw stmt si c'est le cas il serat detecter par la boucle while qui vient juste aprs ------------------->"+theConsideredSucessor);
-  	  				
-  	  		  		}
-  	  		  
-  	  		  
-  	  		  
-		}
-  	  	  
-  	  	  
-  	  	  
-  	  	  
-  	  	  
-  	  	  //verifier l'existance du throw apres le if 
-  	  	  
-  	  	  // on pet verifier l'existance de throw stmt mais on peut le cherche et si on le trouve pas au bout de 4 pas on abandonne    
-  	  		
-  	  	  out.println("#######        recherech de throw qui suit iftmt               ######");
-  	  	  
-  	  	 	if (!exitStmtDetectedForCurrentIfStmt) {
-  	  	 		
-  	  	 		//si on a pa trouver exitStmt qui suit le if on passe  la detection du throw qui suit le if 
+    			 
+    			 
+			}else if (cfg.isTail(theConsideredSucessorIndex)) {
 				
-  	  	 		Boolean mustExitWhileLoop =false;
-  	  	 		
+				findExitStmtOrThroStmt=true;
+				 if (traceUnits) {
+				 	out.println(">>>>>--------+on a trouver exitpoint suit le if stmt mais  cet exit stmt n'est pas immediatemet  la suit du if  donc on ne dois pas le considrer------->>>>   "+theConsideredSucessor +" suit " + unit4);
+				 }
 			
-    		while (PathLength < 4 && !findExitStmtOrThroStmt && !mustExitWhileLoop) {
-    			
-    			if (theConsideredSucessor instanceof ThrowStmt ) {
-    				
-    				findExitStmtOrThroStmt=true;
-    				 out.println(">>>>>--------on a trouver le throw stmt qui suit le if stmt donc detection du pattern------->>>>   "+theConsideredSucessor  +" suit " + unit4 );
-    				 nbOfDetectedpatternInCurrentMethod++;
-					
-    				  detectedPattern.println(declaringClass+";;"+method.getName()+";;"+";;"+method.getSignature()+";;"+";;"+"ThrowStmt"+";;"+theConsideredSucessor +";;"+unit4);
-
-    				 
-    				 
-				}else if (exitpointlist.contains(theConsideredSucessor)) {
-					
-					findExitStmtOrThroStmt=true;
-					 out.println(">>>>>--------+on a trouver exitpoint suit le if stmt mais  cet exit stmt n'est pas immediatemet  la suit du if  donc on ne dois pas le considrer------->>>>   "+theConsideredSucessor +" suit " + unit4);
+			}else if (theConsideredSucessor instanceof soot.jimple.IfStmt) {
 				
-				}else if (theConsideredSucessor instanceof soot.jimple.IfStmt) {
-					
-					
-					//on dois sortire du while sans faire return pour paser  la prochaine ifstmt du cfg 
-					mustExitWhileLoop= true;
-					
-				}else{
-					
+				
+				//on dois sortire du while sans faire return pour paser  la prochaine ifstmt du cfg 
+				mustExitWhileLoop= true;
+				
+			}else{
+				
+				
+				int nbOfSuccesors =cfg.getNbOfSuccs(theConsideredSucessorIndex);
+				if (nbOfSuccesors== 0) {
+					 if (traceUnits) {
+					 	out.println(">>>>>--------pas de succesor  ------->>>>   "+ theConsideredSucessor);
+					 }
+					mustExitWhileLoop= true;//on dois sortire du while sans faire return pour paser  la prochaine ifstmt du cfg 
+				} else if (nbOfSuccesors== 1) {
 					
-					List<Unit> succesorlist =cfg.getSuccsOf(theConsideredSucessor);
-					if (succesorlist.size()== 0) {
-						 out.println(">>>>>--------pas de succesor  ------->>>>   "+ theConsideredSucessor);
-						mustExitWhileLoop= true;//on dois sortire du while sans faire return pour paser  la prochaine ifstmt du cfg 
-					} else if (succesorlist.size()== 1) {
-						
-						
-						theConsideredSucessor=succesorlist.get(0);
-						PathLength++;
-					}else if (succesorlist.size() > 1) {
-						
-						 out.println(">>>>>--------succesorlist.size() > 1  unhandled case  ------->>>>   "+ theConsideredSucessor);
-						mustExitWhileLoop= true;//on dois sortire du while sans faire return pour paser  la prochaine ifstmt du cfg
-					}
 					
+					theConsideredSucessorIndex=cfg.getSucc(theConsideredSucessorIndex, 0);
+					theConsideredSucessor=cfg.getUnit(theConsideredSucessorIndex);
+					PathLength++;
+				}else if (nbOfSuccesors > 1) {
 					
-				}     			
-    			
+					 if (traceUnits) {
+					 	out.println(">>>>>--------succesorlist.size() > 1  unhandled case  ------->>>>   "+ theConsideredSucessor);
+					 }
+					mustExitWhileLoop= true;//on dois sortire du while sans faire return pour paser  la prochaine ifstmt du cfg
+				}
 				
-			}
+				
+			}     			
     		
-    		}
+			
+		}
+    	
+    	}
+    	
+    	
+	} else {
+		
+		 if (traceUnits) {
+		 	out.println(">>>>>--------ce type de if stmt n'est pas considr  car il ne contient pas de null verification ------->>>>   "+ unit4);
+		 }
+
+	}
+    	 
+    	 
+    	 
+    	} else {
     		
     		
-		} else {
-			
-			 out.println(">>>>>--------ce type de if stmt n'est pas considr  car il ne contient pas de null verification ------->>>>   "+ unit4);
+    		 if (traceUnits) {
+    		 	out.println(">>>>>--------ce type de if stmt n'est pas considr  la condition ne porte pas sur  sur un des paramtre de la methode ------->>>>   "+ unit4);
+    		 }
 
 		}
-    		 
-    		 
-    		 
-    		} else {
-    			
-    			
-    			 out.println(">>>>>--------ce type de if stmt n'est pas considr  la condition ne porte pas sur  sur un des paramtre de la methode ------->>>>   "+ unit4);
 
-			}
-
-    		 
-    		
+    	 
+    	
+    
     	
-    		
-    	}
     	
     	
     }
+    });
+    
+    // le rapport est termine apres la passe, qui peut etre faite avec celles des autres detecteurs du pack
+    walk.walk(body, units, new UnitWalk.Done() {
     
-     out.println("@@@@@@@@@@@@@@@@@@@@@@ End pattern detection @@@@@@@@@@@@@@@@@@@@@@@@@");
+    public void walked(int nbOfDetectedpatternInCurrentMethod) {
+    
+     if (traceMethod) {
+     	out.println("@@@@@@@@@@@@@@@@@@@@@@ End pattern detection @@@@@@@@@@@@@@@@@@@@@@@@@");
+     }
      
      
      //mise  jour du nombre de patron detecter pour la classe 
      
      
-	  patternDistributionOverMethod.println(declaringClass+";;"+method.getSignature()+";;"+nbOfDetectedpatternInCurrentMethod);
+	  patternDistributionOverMethod.println(ResultRecord.join(declaringClass,method.getSignature(),nbOfDetectedpatternInCurrentMethod));
 
      
-     
-     if (nbOfDetectedpatternInCurrentMethod > 0) {
-    	 
-    
-    	 Integer nbOfDetectedpatternIndeclaringClass = patternDistributionOverClasses.get(declaringClass.getName());
-    	 
-    	 nbOfDetectedpatternIndeclaringClass += nbOfDetectedpatternInCurrentMethod;
-    	 
-    	 patternDistributionOverClasses.put(declaringClass.getName(), nbOfDetectedpatternIndeclaringClass);
-		
-	}    
+	  report.setNbOfDetectedPattern(nbOfDetectedpatternInCurrentMethod);
+	  results.commit(report);
+    }
+    });
     
     
     
@@ -426,33 +483,30 @@ public class InvokeStaticInstrumenterP1 extends BodyTransformer{
 
   }
   
-public void statistique() throws FileNotFoundException{
-	
-	PrintWriter patternDistributionOverClass= new PrintWriter(".\\statistique\\P1\\JHotDraw7.0.6\\patternDistributionOverClass.csv");  
+//ecrit les resultats de tout les body dans les fichiers, dans l'ordre des classes de la Scene
+public List<ClassReport> writeResults(){
 	
-	patternDistributionOverClass.println("class name"+";;"+"number of detected pattern");
-
-	int i =0;
-	int j=0; 
-	System.out.println("___________________Statistique________________");
-
-	
-Set<java.util.Map.Entry<String, Integer>> setEntry = patternDistributionOverClasses.entrySet();
+	return results.flush();
+}
 
-for (java.util.Map.Entry<String, Integer> entry : setEntry) {
+public DetectionResultCollector getResults(){
 	
+	return results;
+}
+  
+public void statistique() throws IOException{
 	
+	statistique(".\\statistique\\P1\\JHotDraw7.0.6\\patternDistributionOverClass.csv");
+}
+
+public void statistique(String patternDistributionOverClassFile) throws IOException{
 	
-	System.out.println(j+"la clase ---> "+entry.getKey()+" nbpatern ----> "+entry.getValue());
-	patternDistributionOverClass.println(entry.getKey()+";;"+entry.getValue());
+	System.out.println("___________________Statistique________________");
 
-	i+=entry.getValue();
-	j++;
-}
+	// les lignes des classes ont ete gardees au fil du run par le collector (voir Common.ResultSink)
+	int i = results.writePatternDistributionOverClass(patternDistributionOverClassFile, System.out);
 
 System.out.println(" ___________________Fin Statistique_______________avec nb totl de patron :_"+i);
-
-patternDistributionOverClass.close();
 } 
   
 }
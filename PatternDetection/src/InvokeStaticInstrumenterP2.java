@@ -29,8 +29,19 @@ import soot.toolkits.graph.ExceptionalUnitGraph;
 import soot.toolkits.graph.UnitGraph;
 import soot.util.*;
 import soot.jimple.internal.JThrowStmt;
-
-import java.io.FileNotFoundException;
+import Common.ClassReport;
+import Common.CompactUnitGraph;
+import Common.DetectionResultCollector;
+import Common.IfStmtCondition;
+import Common.MethodReport;
+import Common.ResultRecord;
+import Common.SharedBodyGraph;
+import Common.Trace;
+import Common.UnitClassification;
+import Common.UnitRule;
+import Common.UnitWalk;
+
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.*;
 
@@ -41,28 +52,31 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer{
 
   /* some internal fields */
   
-  static PrintWriter out;
-  static PrintWriter patternDistributionOverMethod  ;
-  static PrintWriter detectedPattern  ;
-  static HashMap<String, Integer> patternDistributionOverClasses; 
-  static SimpleLocalDefsUsingParameter  simpleLocalDefs ;  
-  static  ArrayList<Local> methodParameterChain;
-
-  static {
-	  patternDistributionOverClasses=new HashMap<String, Integer>(350);
-
-  }
+  // tout l'etat d'un body est local a internalTransform, les resultats passent par le collector
+  // pour que le pack jtp puisse traiter plusieurs body en parallele 
+  private final DetectionResultCollector results;
+  
+  // a changer a chaque modification de la detection, invalide les resultats gardes par IncrementalManifest
+  public static final String DETECTOR_VERSION = "P2-3";
+  
+  // le graphe le moins cher qui donne les memes resultats que l'ExceptionalUnitGraph (voir Common.SharedBodyGraph)
+  public static final int CFG_PRECISION = SharedBodyGraph.EXCEPTIONAL;
+  
+  // le throw stmt doit suivre le successeur de l'if stmt de moins de MAX_PATH_LENGTH pas
+  public static final int MAX_PATH_LENGTH = 4;
+  
+  // les etiquettes de distanceToThrow
+  static final int NO_THROW = Integer.MAX_VALUE;
+  private static final int UNKNOWN_DISTANCE = -1;
+  private static final int IN_CHAIN = -2;
 
   
   public InvokeStaticInstrumenterP2(PrintWriter pw1 ,PrintWriter pw2 ,PrintWriter pw3){
 	  
-	  out=pw1;
-	  patternDistributionOverMethod=pw2;
-	  detectedPattern=pw3;
+	  results=new DetectionResultCollector(pw1, pw2, pw3);
 	  
-	  patternDistributionOverMethod.println("class name"+";;"+"Method name"+";;"+"number of detected pattern");
-	  
-	  detectedPattern.println("class name"+";;"+"Method name"+";;"+";;"+"Method signature"+";;"+";;"+";;"+"exit stmt" +";;"+"Analysed unit");  }
+	  results.writeHeaders(ResultRecord.join("class name","Method name","number of detected pattern"),
+			  ResultRecord.join("class name","Method name","","Method signature","","","exit stmt","Analysed unit"));  }
   /* internalTransform goes through a method body and inserts 
    * counter instructions before an INVOKESTATIC instruction
    */
@@ -73,29 +87,22 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer{
 	  
 	  SootMethod method = body.getMethod();
 	  SootClass declaringClass =method.getDeclaringClass();
-     System.out.println("@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@");
+     if (Trace.on(Trace.P2, Trace.INFO)) {
+    	 Trace.println("@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@");
 
-     System.out.println("instrumenting method : " + method.getSignature());
+    	 Trace.println("instrumenting method : " + method.getSignature());
+     }
     
     
-     Integer nbOfDetectedpatternInCurrentMethod =0;
-     
+     final MethodReport report = results.newReport(body);
      
-     //initialisation du hashmap pour la distrubution des patron sur les classes 
-     if (patternDistributionOverClasses.containsKey(declaringClass.getName())) {
-     	
- 		//ne rien faire 
- 	} else {
- 		
- 		patternDistributionOverClasses.put(declaringClass.getName(),0);
-
- 	}
      
-     
-     UnitGraph cfg = new ExceptionalUnitGraph(body);
-     simpleLocalDefs = new SimpleLocalDefsUsingParameter(cfg);
+     // les parcours se font sur les unites numerotees (voir Common.CompactUnitGraph)
+     CompactUnitGraph graph = SharedBodyGraph.compactUnitGraph(body);
+     // ce qu'est chaque unite (if, throw...), partage par les detecteurs du pack
+     UnitClassification units = SharedBodyGraph.unitClassification(body);
     
-     methodParameterChain =  new ArrayList<Local>();
+     ArrayList<Local> methodParameterChain =  new ArrayList<Local>();
      
      for (int j = 0; j < method.getParameterCount(); j++) {
  		
@@ -105,91 +112,74 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer{
      
      
      
-    for (Unit unit : cfg) {
-		System.out.println("------unit-----> "+ unit);
-	}
-    
-    
-    Iterator<Unit> Units= cfg.iterator();
-    
-    Boolean throwStmtExistInBody =false;
-    Boolean ifStmtExistInBody =false;
-    
-    while (Units.hasNext()&& (!throwStmtExistInBody || !ifStmtExistInBody)) {
-		Unit unit = (Unit) Units.next();
-		
-		if (unit instanceof soot.jimple.IfStmt) {
-			
-			ifStmtExistInBody= true;	
-			
-		}
-		
-		if (unit instanceof ThrowStmt) {
-			
-			
-			throwStmtExistInBody= true;
-			
-		}
-		
-	}
+    // une seule passe sur les unites pour toutes les regles (voir Common.UnitWalk)
+    UnitWalk walk =new UnitWalk();
     
+    // la trace par unite n'est une regle de la passe que si elle est demandee (voir Common.Trace)
+    if (Trace.on(Trace.P2, Trace.DEBUG)) {
+    	walk.add(this.unitTrace());
+    }
     
-    if (throwStmtExistInBody && ifStmtExistInBody) {
+    if (units.hasThrowStmt() && units.hasIfStmt()) {
     	
-    	System.out.println("la methode iligible----> "+method.getSignature() );
+    	if (Trace.on(Trace.P2, Trace.INFO)) {
+    		Trace.println("la methode iligible----> "+method.getSignature() );
+    	}
     	   
-    	nbOfDetectedpatternInCurrentMethod=this.Pattern2Detecor(cfg);
+    	walk.add(this.Pattern2Detecor(graph, report, methodParameterChain));
     	
 		
 	}
     
-    
-
-    
-    if (nbOfDetectedpatternInCurrentMethod > 0) {
-   	 
-        
-   	 Integer nbOfDetectedpatternIndeclaringClass = patternDistributionOverClasses.get(declaringClass.getName());
-   	 
-   	 nbOfDetectedpatternIndeclaringClass += nbOfDetectedpatternInCurrentMethod;
-   	 
-   	 patternDistributionOverClasses.put(declaringClass.getName(), nbOfDetectedpatternIndeclaringClass);
-		
-	}    
+    // la passe peut etre faite avec celles des autres detecteurs du pack, le rapport est termine apres elle
+    walk.walk(body, units, new UnitWalk.Done() {
+    	
+    	public void walked(int nbOfDetectedpatternInCurrentMethod) {
+    		
+    		report.setNbOfDetectedPattern(nbOfDetectedpatternInCurrentMethod);
+    		results.commit(report);
+    	}
+    });
    
     
     
   }
   
   
-  protected  int Pattern2Detecor(UnitGraph cfg) {
-
-	  Boolean EligibleIfStmt ;
-	int nbOfDetectedpatternInMethod=0;
-	  for (Unit unit : cfg) {
+  // la regle de P2, UnitWalk l'appelle sur chaque if stmt du body
+  protected  UnitRule Pattern2Detecor(final CompactUnitGraph cfg, final MethodReport report, final ArrayList<Local> methodParameterChain) {
+
+	// les chemins vers un throw, etiquetes a la demande depuis les successeurs des if stmt
+	final int[] distanceToThrow =distancesToThrow(cfg);
+	
+	return new UnitRule(UnitClassification.IF_STMT) {
+	
+	  protected void visit(int unitIndex, UnitClassification units) {
 		  
-		
-		  EligibleIfStmt=false;
+		  Unit unit = cfg.getUnit(unitIndex);
+		  
+		  Boolean EligibleIfStmt ;
 		  
-		 if (unit instanceof soot.jimple.IfStmt) {
-			 
 			 Unit targeSucessorOfStmtIf = null;  		   		
 	    		
 			 Unit theOtherSucessorOfStmtIf  = null;		
 
-			 EligibleIfStmt= this.detcetEligibleIfStmt((soot.jimple.IfStmt)unit,true);
+			 EligibleIfStmt= detcetEligibleIfStmt(unitIndex, units,true);
 			 
 	       	  
 		     targeSucessorOfStmtIf = ((soot.jimple.IfStmt) unit).getTarget();
-		     
-		     List<Unit> successorListOfUnit = cfg.getSuccsOf(unit);
+		     int targeSucessorIndex = IfStmtCondition.getTargetBranch(units.getCondition(unitIndex));
+		     int theOtherSucessorIndex = -1;
 				
 
-		  	 for (Unit sucessorunit : successorListOfUnit) {
+		  	 for (int k = 0; k < cfg.getNbOfSuccs(unitIndex); k++) {
 		  		 
-		  		 if (!sucessorunit.equals(targeSucessorOfStmtIf)) {
+		  		 int sucessorIndex = cfg.getSucc(unitIndex, k);
+		  		 
+		  		 if (sucessorIndex != targeSucessorIndex) {
 		  			 
-		  			 theOtherSucessorOfStmtIf =sucessorunit;
+		  			 theOtherSucessorOfStmtIf =cfg.getUnit(sucessorIndex);
+		  			 theOtherSucessorIndex =sucessorIndex;
 		  			 
 		  		 }
 		  		 
@@ -198,47 +188,51 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer{
 			 
 			 if (EligibleIfStmt) {
 				 
-				 //int PathLength=0;
-				// nbOfDetectedpatternInCurrentMethod++;
-				 
-				 
 				 Boolean findTrowStmtaftertargeSucessor;
 				 Boolean findTrowStmtaftertheOtherSucessor; 
 				 
-				 findTrowStmtaftertargeSucessor	= findPathToWhileStmt( cfg,  targeSucessorOfStmtIf,  unit);
+				 findTrowStmtaftertargeSucessor	= findPathToWhileStmt( cfg,  distanceToThrow,  targeSucessorIndex,  unit, report);
 				 
-				findTrowStmtaftertheOtherSucessor = findPathToWhileStmt( cfg,  theOtherSucessorOfStmtIf,  unit);
+				findTrowStmtaftertheOtherSucessor = findPathToWhileStmt( cfg,  distanceToThrow,  theOtherSucessorIndex,  unit, report);
 				 
 				 //faire un autr teste sur les chemin 
 				
 				if (findTrowStmtaftertargeSucessor &&  !findTrowStmtaftertheOtherSucessor) {
 					
-					System.out.println("##############------------------>patron detecter a travers targeSucessor pour "+ unit);
-					nbOfDetectedpatternInMethod++;
+					if (Trace.on(Trace.P2, Trace.INFO)) {
+						Trace.println("##############------------------>patron detecter a travers targeSucessor pour "+ unit);
+					}
+					nbOfDetectedPattern++;
 				} else if(!findTrowStmtaftertargeSucessor &&  findTrowStmtaftertheOtherSucessor) {
 					
-					System.out.println("##############------------------>patron detecter a travers theOtherSucessor pour "+ unit);
-					nbOfDetectedpatternInMethod++;
+					if (Trace.on(Trace.P2, Trace.INFO)) {
+						Trace.println("##############------------------>patron detecter a travers theOtherSucessor pour "+ unit);
+					}
+					nbOfDetectedPattern++;
 
 				} 
 				
 				
 			}
-			 
-			
-		}
 		 
-		
-	}
-	  
-	  return nbOfDetectedpatternInMethod;
-	  
-	  
+	  }
+	};
 	  
+  }
+  
+  // la trace de chaque unite du body
+  protected UnitRule unitTrace() {
 	  
+	  return new UnitRule(UnitRule.EVERY_UNIT) {
+		  
+		  protected void visit(int unitIndex, UnitClassification units) {
+			  Trace.println("------unit-----> "+ units.getCfg().getUnit(unitIndex));
+		  }
+	  };
   }
 
-  protected Boolean detcetEligibleIfStmt(soot.jimple.IfStmt unitOfTheBodyMethod , boolean localfromparamconsidered){
+  // ifIndex : une if stmt de units, sa condition est decrite par units.getCondition (voir Common.IfStmtCondition)
+  protected Boolean detcetEligibleIfStmt(int ifIndex, UnitClassification units, boolean localfromparamconsidered){
 	  
 	  if (localfromparamconsidered) {
 			//on fait return true pour que tout les condition sur les variable soit considerer
@@ -246,189 +240,145 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer{
 		return true;
 	}else{
 	  
+		if (IfStmtCondition.testsParameter(units.getCondition(ifIndex))) {
+			
+			return true;
+		}
+		
+		//sinon seul les condition sur les variable initialise a partir de parametre soit considerer
+		//(les definitions ne sont calculees qu'a la premiere demande pour le body, voir Common.BodyAnalysis)
+		return units.isParameterDerived(ifIndex);
 	  
+	}
+	  
+  }
+  
+  
+  /*
+   * les etiquettes de distanceToThrow pour cfg, aucune n'est encore calculee
+   */
+  protected int[] distancesToThrow(CompactUnitGraph cfg){
+	  
+	  int[] distanceToThrow =new int[cfg.size()];
+	  Arrays.fill(distanceToThrow, UNKNOWN_DISTANCE);
+	  
+	  return distanceToThrow;
+  }
   
+  
+  /*
+   * le nombre de pas, en suivant l'unique successeur de chaque unite, de
+   * l'unite start jusqu'au throw stmt que findPathToWhileStmt trouverait en
+   * partant d'elle, NO_THROW si le chemin s'arrete avant : sur un exit point,
+   * un if stmt, une unite qui n'a pas un seul successeur, le debut d'un catch
+   * ou une boucle. Les unites de la chaine parcourue sont etiquetees au
+   * passage dans distanceToThrow, une chaine deja parcourue depuis un autre
+   * if stmt n'est pas reparcourue.
+   */
+  protected int distanceToThrow(CompactUnitGraph cfg, int[] distanceToThrow, int start){
+	  
+	  int chainLength=0;
+	  int unitIndex=start;
+	  int distance;
+	  
+	  while (true) {
 		  
-		  List<ValueBox> vb = unitOfTheBodyMethod.getUseBoxes();
-      	  
-  		  for (ValueBox valueBox : vb) {
-      		        		  
-      		  	if (methodParameterChain.contains(valueBox.getValue())) {
-      		  		
-      		  		return true;
-      		  	}
-      		        		  
-      	  }
-    		
+		  if (distanceToThrow[unitIndex] == IN_CHAIN) {
+			  // une boucle de successeurs uniques sans throw
+			  distance=NO_THROW;
+			  break;
+		  }
+		  if (distanceToThrow[unitIndex] != UNKNOWN_DISTANCE) {
+			  distance=distanceToThrow[unitIndex];
+			  break;
+		  }
 		  
+		  Unit unit =cfg.getUnit(unitIndex);
 		  
+		  if (unit instanceof ThrowStmt) {
+			  distanceToThrow[unitIndex]=0;
+			  distance=0;
+			  break;
+		  }
+		  if (cfg.isTail(unitIndex) || unit instanceof soot.jimple.IfStmt || cfg.getNbOfSuccs(unitIndex) != 1 || cfg.isTrapHandler(unitIndex)) {
+			  distanceToThrow[unitIndex]=NO_THROW;
+			  distance=NO_THROW;
+			  break;
+		  }
 		  
+		  distanceToThrow[unitIndex]=IN_CHAIN;
+		  chainLength++;
+		  unitIndex=cfg.getSucc(unitIndex, 0);
+	  }
+	  
+	  // les unites de la chaine, reparcourue depuis start, sont a un pas de plus que leur successeur
+	  unitIndex=start;
+	  for (int stepsToEnd = chainLength; stepsToEnd > 0; stepsToEnd--) {
+		  int nextIndex=cfg.getSucc(unitIndex, 0);
+		  distanceToThrow[unitIndex]= distance == NO_THROW ? NO_THROW : distance + stepsToEnd;
+		  unitIndex=nextIndex;
+	  }
+	  
+	  return distanceToThrow[start];
+  }
+  
+  
+  // theConsideredSucessorIndex : le numero de l'unite dans cfg, -1 si elle n'y est pas
+  // distanceToThrow : les etiquettes de distancesToThrow pour cfg
+  protected Boolean findPathToWhileStmt(CompactUnitGraph cfg, int[] distanceToThrow, int theConsideredSucessorIndex, Unit ifstmt, MethodReport report){
+	  
+	  if (theConsideredSucessorIndex < 0 || distanceToThrow(cfg, distanceToThrow, theConsideredSucessorIndex) >= MAX_PATH_LENGTH) {
 		  
+		  return false;
+	  }
 	  
-
-		
-		
-		ConditionExpr Condtionexpr =(ConditionExpr)((soot.jimple.IfStmt) unitOfTheBodyMethod).getCondition();
-		
-		if (Condtionexpr.getOp1() instanceof Local){
-			
-			
-		List<Unit>	dedofAt =simpleLocalDefs.getDefsOfAt((Local)Condtionexpr.getOp1(), unitOfTheBodyMethod);
-		
-			if (dedofAt.size()> 0) {
-				
-				return true;
-				
-			} 
-			
-			else {
-
-				return false;
-			}
+	  PrintWriter detectedPattern = report.getDetectedPattern();
 	  
+	  SootMethod method = cfg.getBody().getMethod();
+	  SootClass declaringClass =method.getDeclaringClass();
 	  
-		} else {
-			
-			//on fait return false pour que seul les condition sur les variable initialise  partr de parametre et sur les parametre  soit considerer 
-			return false;
-
-		}
+	  int PathLength=distanceToThrow[theConsideredSucessorIndex];
+	  int throwIndex=theConsideredSucessorIndex;
+	  for (int i = 0; i < PathLength; i++) {
+		  throwIndex=cfg.getSucc(throwIndex, 0);
+	  }
+	  Unit theThrowStmt =cfg.getUnit(throwIndex);
 	  
+	  if (Trace.on(Trace.P2, Trace.INFO)) {
+		  Trace.println(">>>>>--------on a trouver le throw stmt qui suit le if stmt donc detection du pattern----path: "+PathLength+"--->>>>   "+theThrowStmt  +" suit " + ifstmt  );
+	  }
 	  
-	}
+	  detectedPattern.println(ResultRecord.join(declaringClass,method.getName(),"",method.getSignature(),"","",theThrowStmt,ifstmt));
 	  
+	  return true;
   }
+
   
-  
-  protected Boolean findPathToWhileStmt(UnitGraph cfg, Unit theConsideredSucessor, Unit ifstmt){
+  //ecrit les resultats de tout les body dans les fichiers, dans l'ordre des classes de la Scene
+  public List<ClassReport> writeResults(){
 	  
-
-		 int PathLength=0;
-		 Boolean findThroStmt=false;
-		 Boolean mustExitWhileLoop =false;
-		 
-		 Body body = cfg.getBody();
-		 SootMethod method = body.getMethod();
-		 SootClass declaringClass =method.getDeclaringClass();
-		 List<Unit> exitpointlist=cfg.getTails();
-
-
-		 
-		 
-		 
-		 
-		 
-		 
-		 ArrayList<Unit> beginigUnitOfTrap =new ArrayList<Unit>();
-		 ArrayList<Unit> HandlerUnitOfTrap =new ArrayList<Unit>();
-		    Chain<Trap> trap =body.getTraps();
-			 for (Trap trap2 : trap) {
-				 beginigUnitOfTrap.add( trap2.getBeginUnit());
-				 System.out.println("______trap  ___"+trap2);
-				 HandlerUnitOfTrap.add(trap2.getHandlerUnit());
-			}
-		 
-		 
-	  while (PathLength < 4 && !findThroStmt && !mustExitWhileLoop) {
-			
-		  System.out.println(PathLength+"_____path ___"+theConsideredSucessor);
-			if (theConsideredSucessor instanceof ThrowStmt ) {
-				
-				findThroStmt=true;
-				 System.out.println(">>>>>--------on a trouver le throw stmt qui suit le if stmt donc detection du pattern----path: "+PathLength+"--->>>>   "+theConsideredSucessor  +" suit " + ifstmt  );
-				 
-				
-				  detectedPattern.println(declaringClass+";;"+method.getName()+";;"+";;"+method.getSignature()+";;"+";;"+";;"+theConsideredSucessor +";;"+ifstmt);
-
-				 
-				 
-			}else if (exitpointlist.contains(theConsideredSucessor)) {
-				
-				mustExitWhileLoop=true;
-				 System.out.println(">>>>>--------+on a trouver exitpoint suit le if stmt mais  cet exit stmt n'est pas immediatemet  la suit du if  donc on ne dois pas le considrer------->>>>   "+theConsideredSucessor +" suit " + ifstmt);
-				//Todo faire la separation entre deux cas celui ou la PathLength< 2 donc posibilit de patern detecter mais pas  100%
-			
-			}else if (theConsideredSucessor instanceof soot.jimple.IfStmt) {
-				
-				//todo prendre en consideration les condition composer qui engendre des if ibriquer 
-				 System.out.println(">>>>>----erreur----on ne prend pas en consideration les condition composer qui engendre des if ibriquer ------->>>>   " + theConsideredSucessor);
-				
-				//on dois sortire du while sans faire return pour paser  la prochaine ifstmt du cfg 
-				mustExitWhileLoop= true;
-				//toDo lorsque on traite les les condition composer on enleve mustExitWhileLoop et on la remplace par une detection de patorn 
-				
-			}else{
-				
-				
-				List<Unit> succesorlist =cfg.getSuccsOf(theConsideredSucessor);
-				if (succesorlist.size()== 0) {
-					 System.out.println(">>>>>--------pas de succesor  ------->>>>   "+ theConsideredSucessor);
-					mustExitWhileLoop= true;//on dois sortire du while sans faire return pour paser  la prochaine ifstmt du cfg 
-				} else if (succesorlist.size()== 1) {
-					
-					if(HandlerUnitOfTrap.contains(theConsideredSucessor)){
-						mustExitWhileLoop= true;
-						System.out.println(">>>>>--------beginig of try catch   ------->>>>   "+ theConsideredSucessor);
-						
-					}else{
-						
-						theConsideredSucessor=succesorlist.get(0);
-						PathLength++;	
-						
-					}
-					
-					
-					
-				}else if (succesorlist.size() > 1) {
-					
-					 System.out.println(">>>>>--------succesorlist.size() > 1  unhandled case  ------->>>>   "+ theConsideredSucessor);
-					mustExitWhileLoop= true;//on dois sortire du while sans faire return pour paser  la prochaine ifstmt du cfg
-					
-					
-					for (Unit unit : succesorlist) {
-						System.out.println(unit);
-					}
-					
-					
-				}
-				
-				
-			}     			
-			
-			
-		}
+	  return results.flush();
+  }
+  
+  public DetectionResultCollector getResults(){
 	  
-	  return findThroStmt;
+	  return results;
   }
 
   
-  public void statistique() throws FileNotFoundException{
-		
-		PrintWriter patternDistributionOverClass= new PrintWriter(".\\statistique\\P2\\JHotDraw7.0.6\\patternDistributionOverClass.csv");  
-		
-		patternDistributionOverClass.println("class name"+";;"+"number of detected pattern");
-
-		int i =0;
-		int j=0; 
-		System.out.println("___________________Statistique________________");
-
+  public void statistique() throws IOException{
 		
-	Set<java.util.Map.Entry<String, Integer>> setEntry = patternDistributionOverClasses.entrySet();
+		statistique(".\\statistique\\P2\\JHotDraw7.0.6\\patternDistributionOverClass.csv");
+	}
 
-	for (java.util.Map.Entry<String, Integer> entry : setEntry) {
-		
-		
+  public void statistique(String patternDistributionOverClassFile) throws IOException{
 		
-		System.out.println(j+"la clase ---> "+entry.getKey()+" nbpatern ----> "+entry.getValue());
-		patternDistributionOverClass.println(entry.getKey()+";;"+entry.getValue());
+		System.out.println("___________________Statistique________________");
 
-		i+=entry.getValue();
-		j++;
-	}
+		// les lignes des classes ont ete gardees au fil du run par le collector (voir Common.ResultSink)
+		int i = results.writePatternDistributionOverClass(patternDistributionOverClassFile, System.out);
 
 	System.out.println(" ___________________Fin Statistique_______________avec nb totl de patron :_"+i);
-
-	patternDistributionOverClass.close();
 	} 
 
   
@@ -436,6 +386,3 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer{
   
   
 }
-
-
-
@@ -0,0 +1,282 @@
+/* Usage: java MainDriverAllPatterns appClass
+ *
+ * Runs the P1 detector, the P2 detector, the API variant of P2 and the
+ * NotNull directive in a single Soot run. Each detector is registered as a
+ * sub-phase of jtp, so the Scene is loaded once, each body is built once and
+ * its graph is shared by all the detectors (see Common.SharedBodyGraph): the
+ * ExceptionalUnitGraph, or a cheaper one when every detector of the run
+ * declares it is enough. The units of a body are walked once for the rules of
+ * every detector, by the jtp.walk phase that follows them (see
+ * Common.UnitWalk). Every pattern writes the same files as its own
+ * MainDriver; with -binary-results it also writes results.bin, the same
+ * results in the format of Common.BinaryResultWriter, and with -result-store
+ * the rows of P1, P2 and API go to statistique/results.store, queried with
+ * Common.ResultStore (e.g. the P2 guards of a package).
+ */
+
+/* import necessary soot packages */
+
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import soot.*;
+
+import Common.AnalysisProfile;
+import Common.BinaryResultWriter;
+import Common.BytecodePrefilter;
+import Common.PostDominatorDetector;
+import Common.ResultStoreWriter;
+import Common.SharedBodyGraph;
+import Common.Trace;
+import Common.UnitWalk;
+
+public class MainDriverAllPatterns {
+
+	// le projet analyse, on peut le changer avec -DsourcePath=... -DbinPath=...
+	static final String SourcePath = System.getProperty("sourcePath", "C:\\Users\\medsd\\Desktop\\UdeM\\progetAnalyse\\workspace\\JHotDraw7.0.6\\src");
+	static final String BinPath = System.getProperty("binPath", "C:\\Users\\medsd\\Desktop\\UdeM\\progetAnalyse\\workspace\\JHotDraw7.0.6\\bin");
+
+	static final String[] PhaseNames = { "jtp.p1", "jtp.p2", "jtp.api", "jtp.notnull" };
+	static final String WalkPhaseName = "jtp.walk";
+	static final String ReleasePhaseName = "jtp.release";
+
+	public static void main(String[] args) throws IOException {
+
+		/* check the arguments */
+
+		if (args.length == 0) {
+			System.err.println("Usage: java MainDriverAllPatterns [-analysis-only] [-prefilter] [-binary-results] [-result-store] [options] classname");
+			System.exit(0);
+		}
+
+		long startTime = System.currentTimeMillis();
+
+		// -binary-results et -result-store : soot ne connait pas ces options
+		boolean binaryResults = BinaryResultWriter.isRequested(args);
+		args = BinaryResultWriter.remove(args);
+		boolean resultStore = ResultStoreWriter.isRequested(args);
+		args = ResultStoreWriter.remove(args);
+
+		PrintWriter p1Trace = new PrintWriter(new FileWriter(".\\Test\\P1\\test1.txt"));
+		PrintWriter p1PatternDistributionOverMethod = new PrintWriter(new FileWriter(".\\statistique\\P1\\JHotDraw7.0.6\\patternDistributionOverMethod.csv"));
+		PrintWriter p1DetectedPattern = new PrintWriter(new FileWriter(".\\statistique\\P1\\JHotDraw7.0.6\\detectedPattern.csv"));
+
+		PrintWriter p2Trace = new PrintWriter(new FileWriter(".\\Test\\P2\\test1.txt"));
+		PrintWriter p2PatternDistributionOverMethod = new PrintWriter(new FileWriter(".\\statistique\\P2\\JHotDraw7.0.6\\patternDistributionOverMethod.csv"));
+		PrintWriter p2DetectedPattern = new PrintWriter(new FileWriter(".\\statistique\\P2\\JHotDraw7.0.6\\detectedPattern.csv"));
+
+		PrintWriter apiTrace = new PrintWriter(new FileWriter(".\\Test\\API\\P\\test1.txt"));
+		PrintWriter apiPatternDistributionOverMethod = new PrintWriter(new FileWriter(".\\statistique\\API\\P\\JHotDraw7.0.6\\patternDistributionOverMethod.csv"));
+		PrintWriter apiDetectedPattern = new PrintWriter(new FileWriter(".\\statistique\\API\\P\\JHotDraw7.0.6\\detectedPattern.csv"));
+
+		InvokeStaticInstrumenterP1 p1Detector = new InvokeStaticInstrumenterP1(p1Trace, p1PatternDistributionOverMethod, p1DetectedPattern);
+		InvokeStaticInstrumenterP2 p2Detector = new InvokeStaticInstrumenterP2(p2Trace, p2PatternDistributionOverMethod, p2DetectedPattern);
+		InAPI.InvokeStaticInstrumenterP2 apiDetector = new InAPI.InvokeStaticInstrumenterP2(apiTrace, apiPatternDistributionOverMethod, apiDetectedPattern);
+		NotNullDirective.NotNullParameterStaticInstrumenter notNullDetector = new NotNullDirective.NotNullParameterStaticInstrumenter(null, null, null);
+
+		// les classes sont ecrites au fil du run et ne sont pas gardees (voir Common.ResultSink)
+		p1Detector.getResults().setKeepWrittenReports(false);
+		p2Detector.getResults().setKeepWrittenReports(false);
+		apiDetector.getResults().setKeepWrittenReports(false);
+
+		BinaryResultWriter[] binaryResultWriters = new BinaryResultWriter[0];
+
+		if (binaryResults) {
+			binaryResultWriters = new BinaryResultWriter[] {
+					new BinaryResultWriter(".\\statistique\\P1\\JHotDraw7.0.6\\results.bin"),
+					new BinaryResultWriter(".\\statistique\\P2\\JHotDraw7.0.6\\results.bin"),
+					new BinaryResultWriter(".\\statistique\\API\\P\\JHotDraw7.0.6\\results.bin") };
+			p1Detector.getResults().setBinaryResults(binaryResultWriters[0]);
+			p2Detector.getResults().setBinaryResults(binaryResultWriters[1]);
+			apiDetector.getResults().setBinaryResults(binaryResultWriters[2]);
+		}
+
+		ResultStoreWriter resultStoreWriter = null;
+
+		if (resultStore) {
+			resultStoreWriter = new ResultStoreWriter(".\\statistique\\results.store");
+			p1Detector.getResults().setResultStore(resultStoreWriter, "P1");
+			p2Detector.getResults().setResultStore(resultStoreWriter, "P2");
+			apiDetector.getResults().setResultStore(resultStoreWriter, "API");
+		}
+
+		runSoot(classArguments(args), PhaseNames, new BodyTransformer[] { p1Detector, p2Detector, apiDetector, notNullDetector });
+
+		// les body ont pu etre traites en parallele, on ecrit les resultats une fois le pack termine
+		p1Detector.writeResults();
+		p2Detector.writeResults();
+		apiDetector.writeResults();
+
+		p1Trace.close();
+		p1PatternDistributionOverMethod.close();
+		p1DetectedPattern.close();
+		p2Trace.close();
+		p2PatternDistributionOverMethod.close();
+		p2DetectedPattern.close();
+		apiTrace.close();
+		apiPatternDistributionOverMethod.close();
+		apiDetectedPattern.close();
+		for (BinaryResultWriter binaryResultWriter : binaryResultWriters) {
+			binaryResultWriter.close();
+		}
+		if (resultStoreWriter != null) {
+			resultStoreWriter.close();
+		}
+
+		p1Detector.statistique(".\\statistique\\P1\\JHotDraw7.0.6\\patternDistributionOverClass.csv");
+		p2Detector.statistique(".\\statistique\\P2\\JHotDraw7.0.6\\patternDistributionOverClass.csv");
+		apiDetector.statistique(".\\statistique\\API\\P\\JHotDraw7.0.6\\patternDistributionOverClass.csv");
+
+		System.out.println("all patterns detected in " + (System.currentTimeMillis() - startTime) + " ms");
+	}
+
+	/*
+	 * the classes of the analysed project replace the classname given on the
+	 * command line, like in the MainDriver of each pattern; the soot options
+	 * given before it are kept
+	 */
+	static String[] classArguments(String[] args) {
+
+		ArrayList<String> classes = projectClasses();
+		ArrayList<String> internalargs = new ArrayList<String>(classes.size() + args.length);
+
+		for (int i = 0; i < args.length - 1; i++) {
+			internalargs.add(args[i]);
+		}
+		internalargs.addAll(classes);
+
+		if (internalargs.size() > args.length - 1) {
+			return internalargs.toArray(new String[internalargs.size()]);
+		}
+
+		return args;
+	}
+
+	/* the classes of the analysed project, empty if SourcePath can not be listed */
+	static ArrayList<String> projectClasses() {
+
+		return projectClasses(SourcePath);
+	}
+
+	static ArrayList<String> projectClasses(String sourcePath) {
+
+		try {
+			return withoutDrivers(MainDriverP1.getClass(sourcePath));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		return new ArrayList<String>();
+	}
+
+	/* the classes of the listing, without the MainDriver and InvokeStaticInstrumenter of the project */
+	static ArrayList<String> withoutDrivers(List<String> classNames) {
+
+		ArrayList<String> classes = new ArrayList<String>();
+
+		for (String classename : classNames) {
+			if (!classename.equals("MainDriver") && !classename.equals("InvokeStaticInstrumenter")) {
+				classes.add(classename);
+			}
+		}
+
+		return classes;
+	}
+
+	/*
+	 * registers every detector as a sub-phase of jtp and gives control to
+	 * Soot, the internalTransform of each detector gets called on every body
+	 */
+	static void runSoot(String[] args, String[] phaseNames, BodyTransformer[] detectors) {
+
+		runSoot(args, phaseNames, detectors, BinPath);
+	}
+
+	static void runSoot(String[] args, String[] phaseNames, BodyTransformer[] detectors, String binPath) {
+
+		Pack jtp = PackManager.v().getPack("jtp");
+
+		for (int i = 0; i < detectors.length; i++) {
+			jtp.add(new Transform(phaseNames[i], detectors[i]));
+		}
+		// apres les detecteurs, une seule passe sur les unites pour les regles de tous
+		jtp.add(new Transform(WalkPhaseName, UnitWalk.walker()));
+		// apres les detecteurs, les graphes et analyses du body sont liberes
+		jtp.add(new Transform(ReleasePhaseName, SharedBodyGraph.releaser()));
+
+		StringBuilder resaltingClassPath = new StringBuilder();
+		resaltingClassPath.append(Scene.v().getSootClassPath());
+		resaltingClassPath.append(File.pathSeparator + binPath);
+		Scene.v().setSootClassPath(resaltingClassPath.toString());
+
+		String[] sootArgs = AnalysisProfile.apply(args, AnalysisProfile.isRequested(args));
+
+		SharedBodyGraph.setPrecision(cfgPrecision(detectors));
+		UnitWalk.setFused(true);
+
+		try {
+			if (BytecodePrefilter.isRequested(sootArgs)) {
+				int nbOfStubbedMethods = BytecodePrefilter.runSoot(sootArgs, binPath, prefilterRequirements(detectors));
+				System.out.println("prefilter ----> " + nbOfStubbedMethods + " methods not jimplified");
+			} else {
+				soot.Main.main(sootArgs);
+			}
+		} finally {
+			UnitWalk.setFused(false);
+		}
+
+		// les traces encore dans le tampon de Common.Trace passent avant les resultats
+		Trace.flush();
+		SharedBodyGraph.release();
+	}
+
+	/* the cheapest graph that gives every detector the results of the ExceptionalUnitGraph */
+	static int cfgPrecision(BodyTransformer[] detectors) {
+
+		int precision = SharedBodyGraph.BRIEF;
+
+		for (BodyTransformer detector : detectors) {
+			if (detector instanceof InvokeStaticInstrumenterP1) {
+				precision = Math.max(precision, InvokeStaticInstrumenterP1.CFG_PRECISION);
+			} else if (detector instanceof InvokeStaticInstrumenterP2) {
+				precision = Math.max(precision, InvokeStaticInstrumenterP2.CFG_PRECISION);
+			} else if (detector instanceof InAPI.InvokeStaticInstrumenterP2) {
+				precision = Math.max(precision, InAPI.InvokeStaticInstrumenterP2.CFG_PRECISION);
+			} else if (detector instanceof NotNullDirective.NotNullParameterStaticInstrumenter) {
+				precision = Math.max(precision, NotNullDirective.NotNullParameterStaticInstrumenter.CFG_PRECISION);
+			} else if (detector instanceof PostDominatorDetector) {
+				precision = Math.max(precision, PostDominatorDetector.CFG_PRECISION);
+			} else {
+				precision = SharedBodyGraph.EXCEPTIONAL;
+			}
+		}
+
+		return precision;
+	}
+
+	/* what each detector needs in the bytecode of a method to find something in it */
+	static int[] prefilterRequirements(BodyTransformer[] detectors) {
+
+		int[] requirements = new int[detectors.length];
+
+		for (int i = 0; i < detectors.length; i++) {
+			if (detectors[i] instanceof InvokeStaticInstrumenterP1) {
+				requirements[i] = BytecodePrefilter.P1;
+			} else if (detectors[i] instanceof InvokeStaticInstrumenterP2) {
+				requirements[i] = BytecodePrefilter.P2;
+			} else if (detectors[i] instanceof PostDominatorDetector) {
+				requirements[i] = ((PostDominatorDetector) detectors[i]).isP1() ? BytecodePrefilter.P1 : BytecodePrefilter.P2;
+			} else {
+				requirements[i] = BytecodePrefilter.EVERY_METHOD;
+			}
+		}
+
+		return requirements;
+	}
+
+}
@@ -0,0 +1,239 @@
+/* Usage: java MainDriverBatch [-one-jvm-per-project] manifest [options]
+ *
+ * Runs the P1, P2 and API detectors on every project of the manifest in the
+ * same JVM, Soot being reset between two projects, so that the JVM startup
+ * and the JIT warm up are paid once. Each line of the manifest gives a
+ * project as
+ *
+ *   sourceDir;binDir;outputDir
+ *
+ * (empty lines and lines starting with # are skipped). The files of each
+ * pattern are written in outputDir/<pattern>. With -one-jvm-per-project every
+ * project is analysed by a new JVM instead, which is what running a
+ * MainDriver per project costs; both modes print their throughput in
+ * projects per hour. With -binary-results among the options each pattern
+ * also writes results.bin (see Common.BinaryResultWriter); with
+ * -result-store the rows of the three patterns are added to
+ * outputDir/results.store, queried with Common.ResultStore.
+ */
+
+/* import necessary soot packages */
+
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import soot.*;
+
+import Common.BinaryResultWriter;
+import Common.ResultStoreWriter;
+
+public class MainDriverBatch {
+
+	static final String[] Patterns = { "P1", "P2", "API" };
+	static final String[] PhaseNames = { "jtp.p1", "jtp.p2", "jtp.api" };
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		/* check the arguments */
+
+		if (args.length == 0) {
+			System.err.println("Usage: java MainDriverBatch [-one-jvm-per-project] manifest [options]");
+			System.exit(0);
+		}
+
+		boolean oneJvmPerProject = args[0].equals("-one-jvm-per-project");
+		if (oneJvmPerProject) {
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+
+		List<String[]> projects = readManifest(new File(args[0]));
+		List<String> options = Arrays.asList(args).subList(1, args.length);
+
+		long startTime = System.currentTimeMillis();
+		int nbOfFailures = 0;
+
+		for (String[] project : projects) {
+
+			long projectStartTime = System.currentTimeMillis();
+			boolean analysed = oneJvmPerProject ? analyseInNewJvm(project, options) : analyse(project, options);
+
+			if (!analysed) {
+				nbOfFailures++;
+			}
+			System.out.println("batch ----> " + project[0] + (analysed ? " analysed in " : " FAILED after ")
+					+ (System.currentTimeMillis() - projectStartTime) + " ms");
+		}
+
+		long time = System.currentTimeMillis() - startTime;
+
+		System.out.println("batch ----> " + projects.size() + " projects (" + nbOfFailures + " failed) in " + time + " ms, "
+				+ (3600000L * projects.size() / Math.max(time, 1)) + " projects per hour"
+				+ (oneJvmPerProject ? " with one JVM per project" : " in one JVM"));
+
+		if (nbOfFailures != 0) {
+			System.exit(1);
+		}
+	}
+
+	static List<String[]> readManifest(File manifest) throws IOException {
+
+		List<String[]> projects = new ArrayList<String[]>();
+		BufferedReader in = new BufferedReader(new FileReader(manifest));
+
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+
+				String[] project = line.split(";");
+				if (project.length != 3) {
+					throw new IOException(manifest + ": expected sourceDir;binDir;outputDir, got " + line);
+				}
+				projects.add(project);
+			}
+		} finally {
+			in.close();
+		}
+
+		return projects;
+	}
+
+	/*
+	 * analyses one project in this JVM, Soot being reset first; when it fails
+	 * the files of the project are closed and its partial store deleted
+	 */
+	static boolean analyse(String[] project, List<String> options) {
+
+		MainDriverSharded.Detector[] detectors = new MainDriverSharded.Detector[Patterns.length];
+		ResultStoreWriter resultStore = null;
+
+		try {
+			G.reset();
+
+			List<String> classes = MainDriverAllPatterns.projectClasses(project[0]);
+			if (classes.isEmpty()) {
+				System.err.println("no class in " + project[0]);
+				return false;
+			}
+
+			BodyTransformer[] transformers = new BodyTransformer[Patterns.length];
+			boolean binaryResults = options.contains(BinaryResultWriter.BINARY_RESULTS);
+
+			if (options.contains(ResultStoreWriter.RESULT_STORE)) {
+				new File(project[2]).mkdirs();
+				resultStore = new ResultStoreWriter(new File(project[2], "results.store").getPath());
+			}
+
+			for (int i = 0; i < Patterns.length; i++) {
+				File patternDir = new File(project[2], Patterns[i]);
+				patternDir.mkdirs();
+				detectors[i] = new MainDriverSharded.Detector(Patterns[i], new String[] {
+						new File(patternDir, "test1.txt").getPath(),
+						new File(patternDir, "patternDistributionOverMethod.csv").getPath(),
+						new File(patternDir, "detectedPattern.csv").getPath() });
+				detectors[i].results.setClassOrder(classes);
+				detectors[i].results.setKeepWrittenReports(false);
+				if (binaryResults) {
+					detectors[i].writeBinaryResults(new File(patternDir, "results.bin").getPath());
+				}
+				if (resultStore != null) {
+					detectors[i].writeResultStore(resultStore);
+				}
+				transformers[i] = detectors[i].transformer;
+			}
+
+			List<String> sootArgs = new ArrayList<String>(options);
+			sootArgs.remove(BinaryResultWriter.BINARY_RESULTS);
+			sootArgs.remove(ResultStoreWriter.RESULT_STORE);
+			sootArgs.addAll(classes);
+
+			MainDriverAllPatterns.runSoot(sootArgs.toArray(new String[sootArgs.size()]), PhaseNames, transformers, project[1]);
+
+			for (int i = 0; i < Patterns.length; i++) {
+				detectors[i].writeResults();
+				MainDriverSharded.Detector detector = detectors[i];
+				// ferme, il n'est plus a fermer en cas d'echec
+				detectors[i] = null;
+				detector.close();
+				detector.statistique(new File(new File(project[2], Patterns[i]), "patternDistributionOverClass.csv").getPath());
+			}
+			if (resultStore != null) {
+				resultStore.close();
+				// l'index est ecrit, le store est complet
+				resultStore = null;
+			}
+
+			return true;
+
+		} catch (Exception e) {
+			// un projet qui echoue n'arrete pas le batch
+			e.printStackTrace();
+			return false;
+		} finally {
+			closeAfterFailure(detectors, resultStore);
+		}
+	}
+
+	/* closes what a failed project left open; a store without its index is deleted */
+	static void closeAfterFailure(MainDriverSharded.Detector[] detectors, ResultStoreWriter resultStore) {
+
+		for (MainDriverSharded.Detector detector : detectors) {
+			if (detector != null) {
+				try {
+					detector.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				detector.results.release();
+			}
+		}
+		if (resultStore != null) {
+			resultStore.abort();
+		}
+	}
+
+	/* analyses one project with a new JVM running this batch on a manifest of that project only */
+	static boolean analyseInNewJvm(String[] project, List<String> options) throws IOException, InterruptedException {
+
+		File manifest = File.createTempFile("project", ".txt");
+		PrintWriter out = new PrintWriter(new FileWriter(manifest));
+		out.println(project[0] + ";" + project[1] + ";" + project[2]);
+		out.close();
+
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(MainDriverBatch.class.getName());
+		command.add(manifest.getPath());
+		command.addAll(options);
+
+		new File(project[2]).mkdirs();
+
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.redirectErrorStream(true);
+		Process jvm = processBuilder.start();
+		MainDriverSharded.copyInBackground(jvm.getInputStream(), new FileOutputStream(new File(project[2], "batch.log")));
+
+		boolean analysed = jvm.waitFor() == 0;
+		manifest.delete();
+
+		return analysed;
+	}
+
+}
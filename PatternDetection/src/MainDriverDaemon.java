@@ -0,0 +1,248 @@
+/* Usage: java MainDriverDaemon [-port port] [options] appClass
+ *
+ * Keeps Soot loaded between analyses: the Scene of the project is built once,
+ * the jimple body of a method is built the first time a detector needs it and
+ * stays attached to its SootMethod, so the next requests only pay for the
+ * detection itself. The requests are read one per line on the standard input,
+ * or from the connections to 127.0.0.1:port when -port is given:
+ *
+ *   analyse P1,P2,API outputDir [class ...]   (no class : every class of the project)
+ *   reload                                    (the .class files changed, Soot is loaded again)
+ *   quit
+ *
+ * The patterns of analyse are those of MainDriverSharded, PD1 and PD2 included.
+ *
+ * Every request gets one line back, "ok ..." or "error ...". Each pattern
+ * writes its test1.txt, detectedPattern.csv, patternDistributionOverMethod.csv
+ * and patternDistributionOverClass.csv in outputDir/<pattern>. On the standard
+ * input the detectors' traces go to System.err so that System.out only carries
+ * the answers.
+ */
+
+/* import necessary soot packages */
+
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import soot.*;
+import soot.options.Options;
+
+import Common.AnalysisProfile;
+import Common.SharedBodyGraph;
+import Common.Trace;
+import Common.UnitWalk;
+
+public class MainDriverDaemon {
+
+	private final String[] sootArgs;
+	private List<String> projectClasses;
+
+	MainDriverDaemon(String[] sootArgs) {
+
+		this.sootArgs = sootArgs;
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		/* check the arguments */
+
+		if (args.length == 0) {
+			System.err.println("Usage: java MainDriverDaemon [-port port] [options] classname");
+			System.exit(0);
+		}
+
+		int port = -1;
+		if (args[0].equals("-port")) {
+			port = Integer.parseInt(args[1]);
+			args = Arrays.copyOfRange(args, 2, args.length);
+		}
+
+		MainDriverDaemon daemon = new MainDriverDaemon(MainDriverAllPatterns.classArguments(args));
+
+		long startTime = System.currentTimeMillis();
+		daemon.loadScene();
+		System.err.println("daemon ----> scene loaded in " + (System.currentTimeMillis() - startTime) + " ms");
+
+		if (port < 0) {
+			// les reponses sont sur System.out, les traces des detecteurs passent sur System.err
+			PrintWriter answers = new PrintWriter(new OutputStreamWriter(System.out), true);
+			System.setOut(new PrintStream(System.err, true));
+			daemon.serve(new BufferedReader(new InputStreamReader(System.in)), answers);
+			return;
+		}
+
+		ServerSocket server = new ServerSocket(port, 0, InetAddress.getByName("127.0.0.1"));
+		System.err.println("daemon ----> listening on 127.0.0.1:" + server.getLocalPort());
+
+		boolean running = true;
+		while (running) {
+			Socket connection = server.accept();
+			try {
+				running = daemon.serve(new BufferedReader(new InputStreamReader(connection.getInputStream())),
+						new PrintWriter(new OutputStreamWriter(connection.getOutputStream()), true));
+			} finally {
+				connection.close();
+			}
+		}
+		server.close();
+	}
+
+	void loadScene() {
+
+		projectClasses = loadScene(sootArgs);
+	}
+
+	/*
+	 * loads the classes given in sootArgs in a new Scene, like soot.Main does
+	 * before running the packs, and returns them
+	 */
+	static List<String> loadScene(String[] sootArgs) {
+
+		G.reset();
+
+		String[] args = AnalysisProfile.apply(sootArgs, true);
+		if (!Options.v().parse(args)) {
+			throw new IllegalArgumentException("invalid soot options " + Arrays.toString(args));
+		}
+
+		Scene.v().setSootClassPath(Scene.v().getSootClassPath() + File.pathSeparator + MainDriverAllPatterns.BinPath);
+		Scene.v().loadNecessaryClasses();
+
+		return new ArrayList<String>(Options.v().classes());
+	}
+
+	/*
+	 * answers the requests read from in until the end of the stream or quit;
+	 * returns false when the daemon has to stop
+	 */
+	boolean serve(BufferedReader in, PrintWriter answers) throws IOException {
+
+		String request;
+
+		while ((request = in.readLine()) != null) {
+
+			String[] words = request.trim().split("\\s+");
+
+			if (words[0].length() == 0) {
+				continue;
+			}
+
+			try {
+				if (words[0].equals("quit")) {
+					answers.println("ok bye");
+					return false;
+				} else if (words[0].equals("reload")) {
+					long startTime = System.currentTimeMillis();
+					loadScene();
+					answers.println("ok reloaded in " + (System.currentTimeMillis() - startTime) + " ms");
+				} else if (words[0].equals("analyse") && words.length >= 3) {
+					List<String> classes = words.length > 3 ? Arrays.asList(words).subList(3, words.length) : projectClasses;
+					answers.println("ok " + analyse(words[1].split(","), new File(words[2]), classes));
+				} else {
+					answers.println("error unknown request: " + request);
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+				answers.println("error " + e);
+			}
+		}
+
+		return true;
+	}
+
+	/* runs the detectors on the bodies of classes and writes their files in outputDir */
+	String analyse(String[] kinds, File outputDir, List<String> classes) throws IOException {
+
+		long startTime = System.currentTimeMillis();
+
+		MainDriverSharded.Detector[] detectors = new MainDriverSharded.Detector[kinds.length];
+
+		for (int i = 0; i < kinds.length; i++) {
+			File patternDir = new File(outputDir, kinds[i]);
+			patternDir.mkdirs();
+			detectors[i] = new MainDriverSharded.Detector(kinds[i], new String[] {
+					new File(patternDir, "test1.txt").getPath(),
+					new File(patternDir, "patternDistributionOverMethod.csv").getPath(),
+					new File(patternDir, "detectedPattern.csv").getPath() });
+			detectors[i].results.setClassOrder(classes);
+			// la reponse ne donne que le total, les classes ne sont pas gardees apres leur ecriture
+			detectors[i].results.setKeepWrittenReports(false);
+		}
+
+		BodyTransformer[] transformers = new BodyTransformer[detectors.length];
+		for (int i = 0; i < detectors.length; i++) {
+			transformers[i] = detectors[i].transformer;
+		}
+		SharedBodyGraph.setPrecision(MainDriverAllPatterns.cfgPrecision(transformers));
+
+		runDetectors(detectors, classes);
+
+		StringBuilder answer = new StringBuilder();
+
+		for (int i = 0; i < kinds.length; i++) {
+
+			detectors[i].writeResults();
+			detectors[i].close();
+			detectors[i].statistique(new File(new File(outputDir, kinds[i]), "patternDistributionOverClass.csv").getPath());
+
+			answer.append(kinds[i] + "=" + detectors[i].results.getNbOfDetectedPattern() + " ");
+		}
+
+		answer.append(classes.size() + " classes in " + (System.currentTimeMillis() - startTime) + " ms");
+
+		return answer.toString();
+	}
+
+	/* runs every detector on the bodies of the methods of classes */
+	static void runDetectors(MainDriverSharded.Detector[] detectors, List<String> classes) {
+
+		// les regles de tous les detecteurs sont passees sur les unites du body en une fois (voir Common.UnitWalk)
+		UnitWalk.setFused(true);
+
+		try {
+			for (String className : classes) {
+
+				SootClass sootClass = Scene.v().getSootClassUnsafe(className);
+
+				if (sootClass == null || sootClass.isPhantom() || !sootClass.isApplicationClass()) {
+					throw new IllegalArgumentException(className + " is not a class of the project, reload first if it is new");
+				}
+
+				for (SootMethod method : new ArrayList<SootMethod>(sootClass.getMethods())) {
+
+					if (!method.isConcrete()) {
+						continue;
+					}
+
+					// le body construit la premiere fois reste attache a la methode
+					Body body = method.retrieveActiveBody();
+
+					for (MainDriverSharded.Detector detector : detectors) {
+						detector.transformer.transform(body);
+					}
+
+					UnitWalk.walkPending(body);
+					SharedBodyGraph.release(body);
+				}
+			}
+		} finally {
+			UnitWalk.setFused(false);
+		}
+
+		Trace.flush();
+		SharedBodyGraph.release();
+	}
+
+}
@@ -1,166 +1,158 @@
-/* Usage: java MainDriver appClass
- */
-
-/* import necessary soot packages */
-
-
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.Iterator;
-
-import soot.*;
-
-public class MainDriverP2 {
-  public static void main(String[] args) throws IOException {
-
-    /* check the arguments */
-    
-	  if (args.length == 0) {
-      System.err.println("Usage: java MainDriver [options] classname");
-      System.exit(0);
-    }
-    
-	  String NomFichier1 = ".\\Test\\P2\\test1.txt";
-	  PrintWriter file1 = new PrintWriter(new FileWriter(NomFichier1));
-	  
-	  String NomFichier2 = ".\\statistique\\P2\\JHotDraw7.0.6\\patternDistributionOverMethod.csv";
-	  PrintWriter file2 = new PrintWriter(new FileWriter(NomFichier2));
-	 
-	  
-	  String NomFichier3 = ".\\statistique\\P2\\JHotDraw7.0.6\\detectedPattern.csv";
-	  PrintWriter file3 = new PrintWriter(new FileWriter(NomFichier3));
-	 
-	 InvokeStaticInstrumenterP2 staticInstrumenter =new InvokeStaticInstrumenterP2(file1,file2,file3);
-    /* add a phase to transformer pack by call Pack.add */
-    Pack jtp = PackManager.v().getPack("jtp");
-    jtp.add(new Transform("jtp.instrumenter", 
-    		staticInstrumenter));
-
-    /* Give control to Soot to process all options, 
-     * InvokeStaticInstrumenter.internalTransform will get called.
-     */
-   
-    
-    
-	 String SourcePath2 ="C:\\Users\\medsd\\Desktop\\UdeM\\progetAnalyse\\workspace\\JHotDraw7.0.6\\src";
-	 int j =0;
-	 try {
-		ArrayList<String> classes = getClass(SourcePath2);
-		System.out.println(">>>----les classe  sont---->> ");
-		
-		for (String classname : classes) {
-			
-			System.out.println("# "+j+" ----->>>>>>>"+classname);
-			j++;
-		}
-		
-		String[] internalargs = new String[classes.size()];
-		
-		int i=0;
-		for (String classename : classes) {
-			if(!classename.equals("MainDriver") && !classename.equals("InvokeStaticInstrumenter")){
-				System.out.println(i);
-				internalargs[i]=classename;
-				i++;
-				
-			}
-			
-		}
-
-	 if(internalargs.length!=0){
-		 
-		 args=internalargs;
-	 }
-	 
-	 } catch (Exception e) {
-		// TODO Auto-generated catch block
-		e.printStackTrace();
-	}
-	 
-	    String classPath =Scene.v().getSootClassPath();
-	    System.out.println("class path---------->"+Scene.v().getSootClassPath());
-	    StringBuilder resaltingClassPath = new StringBuilder();
-        resaltingClassPath.append(classPath);
-        
-        resaltingClassPath.append(";"+"C:\\Users\\medsd\\Desktop\\UdeM\\progetAnalyse\\workspace\\JHotDraw7.0.6\\bin");
-        System.out.println("resaltingClassPath---------->"+resaltingClassPath);
-        Scene.v().setSootClassPath(resaltingClassPath.toString());
-	    System.out.println("new class path---------->"+Scene.v().getSootClassPath());
-
-    
-    soot.Main.main(args);
-    
-    
-    file1.close();
-    file2.close();
-    file3.close();
-    staticInstrumenter.statistique();
-    
-  }
-
-	// a liste les classe java du repertoire source 
-	public static ArrayList<String> getClass(String repertoire) throws Exception{
-		ArrayList<String> list;
-		
-			File rep = new File(repertoire);
-			rep.getName();
-			String [] listefichiers;
-			list = new ArrayList<String>();
-			listefichiers=rep.list();
-			for(int i=0;i<listefichiers.length;i++){
-				if( listefichiers[i].endsWith(".java") ||listefichiers[i].endsWith(".class")){ //
-					int dot = listefichiers[i].lastIndexOf('.');
-						String filename = listefichiers[i].substring(0, dot);
-						//System.out.println(filename);
-						list.add(filename);
-				}
-			}
-			for (File r : rep.listFiles()) {
-				if(r.isDirectory())
-					list.addAll(getClass(r.getName(), r));
-			}
-		//System.out.println("chofniiiiiiiiiiiiiiiii");
-		return list;
-	}
-
-
-		
-	private static ArrayList<String> getClass(String repertoire,File rep){
-		
-		String [] listefichiers;
-		ArrayList<String> list = new ArrayList<String>();
-		
-		int i;
-		listefichiers=rep.list();
-		
-		for(i=0;i<listefichiers.length;i++){
-			if( listefichiers[i].endsWith(".java") ||listefichiers[i].endsWith(".class")){
-					int dot = listefichiers[i].lastIndexOf('.');
-					String filename = listefichiers[i].substring(0, dot);
-					list.add(repertoire+"."+filename);
-			}
-		}
-		for (File r : rep.listFiles()) {
-			if(r.isDirectory())
-				list.addAll(getClass(repertoire+"."+r.getName(), r));
-		}
-	//	System.out.println("22222222222222222chofniiiiiiiiiiiiiiiii");
-
-		return list;
-	}
-
-
-
-
-
-
-
-
-
-
-}
-
-
+/* Usage: java MainDriver appClass
+ */
+
+/* import necessary soot packages */
+
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import soot.*;
+
+import Common.AnalysisProfile;
+import Common.BytecodePrefilter;
+import Common.ClassDiscovery;
+import Common.IncrementalAnalysis;
+import Common.SharedBodyGraph;
+import Common.Trace;
+
+public class MainDriverP2 {
+  public static void main(String[] args) throws IOException {
+
+    /* check the arguments */
+    
+	  if (args.length == 0) {
+      System.err.println("Usage: java MainDriver [-analysis-only] [-prefilter] [options] classname");
+      System.exit(0);
+    }
+    
+	  // -analysis-only : soot ne reecrit pas les classes dans sootOutput (voir Common.AnalysisProfile)
+	  boolean analysisOnly = AnalysisProfile.isRequested(args);
+	  // -prefilter : les methodes ou le pattern ne peut pas etre ne sont pas jimplifiees, implique -analysis-only (voir Common.BytecodePrefilter)
+	  boolean prefilter = BytecodePrefilter.isRequested(args);
+	  
+	  String NomFichier1 = ".\\Test\\P2\\test1.txt";
+	  PrintWriter file1 = new PrintWriter(new FileWriter(NomFichier1));
+	  
+	  String NomFichier2 = ".\\statistique\\P2\\JHotDraw7.0.6\\patternDistributionOverMethod.csv";
+	  PrintWriter file2 = new PrintWriter(new FileWriter(NomFichier2));
+	 
+	  
+	  String NomFichier3 = ".\\statistique\\P2\\JHotDraw7.0.6\\detectedPattern.csv";
+	  PrintWriter file3 = new PrintWriter(new FileWriter(NomFichier3));
+	 
+	 InvokeStaticInstrumenterP2 staticInstrumenter =new InvokeStaticInstrumenterP2(file1,file2,file3);
+    /* add a phase to transformer pack by call Pack.add */
+    Pack jtp = PackManager.v().getPack("jtp");
+    jtp.add(new Transform("jtp.instrumenter", 
+    		staticInstrumenter));
+
+    /* Give control to Soot to process all options, 
+     * InvokeStaticInstrumenter.internalTransform will get called.
+     */
+   
+    
+    
+	 String SourcePath2 ="C:\\Users\\medsd\\Desktop\\UdeM\\progetAnalyse\\workspace\\JHotDraw7.0.6\\src";
+	 String BinPath2 ="C:\\Users\\medsd\\Desktop\\UdeM\\progetAnalyse\\workspace\\JHotDraw7.0.6\\bin";
+	 
+	 // les classes dont le .class n'a pas change depuis le dernier run ne sont pas reanalysees,
+	 // leurs lignes sont reprises du manifest (supprimer le manifest pour tout reanalyser)
+	 IncrementalAnalysis incrementalAnalysis = new IncrementalAnalysis(".\\statistique\\P2\\JHotDraw7.0.6\\analysisManifest.bin",
+			 InvokeStaticInstrumenterP2.DETECTOR_VERSION, BinPath2, staticInstrumenter.getResults());
+	 boolean sootMustRun =true;
+	 
+	 int j =0;
+	 try {
+		ArrayList<String> classes = getClass(SourcePath2);
+		System.out.println(">>>----les classe  sont---->> ");
+		
+		for (String classname : classes) {
+			
+			System.out.println("# "+j+" ----->>>>>>>"+classname);
+			j++;
+		}
+		
+		ArrayList<String> internalargs = new ArrayList<String>(classes.size());
+		
+		int i=0;
+		for (String classename : classes) {
+			if(!classename.equals("MainDriver") && !classename.equals("InvokeStaticInstrumenter")){
+				System.out.println(i);
+				internalargs.add(classename);
+				i++;
+				
+			}
+			
+		}
+
+	 if(internalargs.size()!=0){
+		 
+		 List<String> classesToAnalyse = incrementalAnalysis.selectClassesToAnalyse(internalargs);
+		 args=classesToAnalyse.toArray(new String[classesToAnalyse.size()]);
+		 sootMustRun = classesToAnalyse.size()!=0;
+	 }
+	 
+	 } catch (Exception e) {
+		// TODO Auto-generated catch block
+		e.printStackTrace();
+	}
+	 
+	    String classPath =Scene.v().getSootClassPath();
+	    System.out.println("class path---------->"+Scene.v().getSootClassPath());
+	    StringBuilder resaltingClassPath = new StringBuilder();
+        resaltingClassPath.append(classPath);
+        
+        resaltingClassPath.append(File.pathSeparator+BinPath2);
+        System.out.println("resaltingClassPath---------->"+resaltingClassPath);
+        Scene.v().setSootClassPath(resaltingClassPath.toString());
+	    System.out.println("new class path---------->"+Scene.v().getSootClassPath());
+
+    
+    // le graphe le moins cher qui suffit au detecteur (voir Common.SharedBodyGraph)
+    SharedBodyGraph.setPrecision(InvokeStaticInstrumenterP2.CFG_PRECISION);
+    
+    if (sootMustRun) {
+    	if (prefilter) {
+    		BytecodePrefilter.runSoot(AnalysisProfile.apply(args, analysisOnly), BinPath2, new int[] { BytecodePrefilter.P2 });
+    	} else {
+    		soot.Main.main(AnalysisProfile.apply(args, analysisOnly));
+    	}
+    }
+    
+    // les traces encore dans le tampon de Common.Trace passent avant la statistique
+    Trace.flush();
+    
+    // les body ont pu etre traites en parallele, on ecrit les resultats une fois le pack termine 
+    incrementalAnalysis.recordResults(staticInstrumenter.writeResults());
+    
+    file1.close();
+    file2.close();
+    file3.close();
+    staticInstrumenter.statistique();
+    
+  }
+
+	// a liste les classe java du repertoire source 
+	public static ArrayList<String> getClass(String repertoire) throws Exception{
+		// les repertoires sont listes en parallele et le resultat est cache (voir Common.ClassDiscovery)
+		return ClassDiscovery.getClass(repertoire);
+	}
+
+
+
+
+
+
+
+
+
+
+}
+
+
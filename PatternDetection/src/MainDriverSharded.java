@@ -0,0 +1,373 @@
+/* Usage: java MainDriverSharded P1|P2|API|PD1|PD2 nbOfShards [options] appClass
+ *
+ * Soot keeps its state in singletons (G.v(), Scene.v()), so one JVM analyses
+ * one project at a time. This driver splits the classes of the project into
+ * nbOfShards shards of about the same class file size (see
+ * Common.ShardPlanner) and analyses every shard in its own JVM. The results of
+ * the workers are then merged, in the order of the class list, into the same
+ * trace, detectedPattern.csv, patternDistributionOverMethod.csv and
+ * patternDistributionOverClass.csv files a single run of the pattern's
+ * MainDriver would write. PD1 and PD2 are the P1 and P2 patterns found with
+ * the post-dominator trees (see Common.PostDominatorDetector).
+ *
+ * Soot numbers the stack locals ($r7, $r12...) of a body differently
+ * depending on the other classes of the run; every run, workers and single
+ * runs alike, is given "-p jb.lns sort-locals:true" (see
+ * Common.AnalysisProfile), so the jimple in the csv files is the same
+ * whatever the number of shards. The directory of the shards is deleted
+ * once they are merged, or kept with the worker.log files when one fails.
+ *
+ * A worker is started with: -worker P1|P2|API|PD1|PD2 shardFile shardDir [options]
+ */
+
+/* import necessary soot packages */
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import soot.*;
+
+import Common.BinaryResultWriter;
+import Common.ClassReport;
+import Common.DetectionResultCollector;
+import Common.PostDominatorDetector;
+import Common.ResultStoreWriter;
+import Common.ShardPlanner;
+
+public class MainDriverSharded {
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		/* check the arguments */
+
+		if (args.length > 0 && args[0].equals("-worker")) {
+			worker(args);
+			return;
+		}
+
+		if (args.length < 3) {
+			System.err.println("Usage: java MainDriverSharded P1|P2|API|PD1|PD2 nbOfShards [options] classname");
+			System.exit(0);
+		}
+
+		long startTime = System.currentTimeMillis();
+
+		String kind = args[0];
+		int nbOfShards = Integer.parseInt(args[1]);
+		String[] sootArgs = Arrays.copyOfRange(args, 2, args.length);
+
+		// les options soot donnees avant le nom de classe sont passees aux workers
+		String[] classArgs = MainDriverAllPatterns.classArguments(sootArgs);
+		List<String> options = Arrays.asList(sootArgs).subList(0, sootArgs.length - 1);
+		List<String> classes = new ArrayList<String>(Arrays.asList(classArgs).subList(options.size(), classArgs.length));
+
+		nbOfShards = Math.max(1, Math.min(nbOfShards, classes.size()));
+		List<List<String>> shards = ShardPlanner.plan(classes, MainDriverAllPatterns.BinPath, nbOfShards);
+
+		File workDir = File.createTempFile("shards", "");
+		workDir.delete();
+		workDir.mkdirs();
+
+		List<Process> workers = new ArrayList<Process>(nbOfShards);
+		List<Thread> copiers = new ArrayList<Thread>(nbOfShards);
+		List<File> shardDirs = new ArrayList<File>(nbOfShards);
+
+		for (int shard = 0; shard < nbOfShards; shard++) {
+
+			File shardDir = new File(workDir, "shard" + shard);
+			shardDir.mkdirs();
+			shardDirs.add(shardDir);
+
+			File shardFile = new File(shardDir, "classes.txt");
+			PrintWriter shardList = new PrintWriter(new FileWriter(shardFile));
+			for (String classname : shards.get(shard)) {
+				shardList.println(classname);
+			}
+			shardList.close();
+
+			List<String> command = new ArrayList<String>();
+			command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+			command.add("-DsourcePath=" + MainDriverAllPatterns.SourcePath);
+			command.add("-DbinPath=" + MainDriverAllPatterns.BinPath);
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(MainDriverSharded.class.getName());
+			command.add("-worker");
+			command.add(kind);
+			command.add(shardFile.getPath());
+			command.add(shardDir.getPath());
+			command.addAll(options);
+
+			ProcessBuilder processBuilder = new ProcessBuilder(command);
+			processBuilder.redirectErrorStream(true);
+			Process worker = processBuilder.start();
+			copiers.add(copyInBackground(worker.getInputStream(), new FileOutputStream(new File(shardDir, "worker.log"))));
+			workers.add(worker);
+
+			System.out.println("shard " + shard + " ----> " + shards.get(shard).size() + " classes");
+		}
+
+		boolean failed = false;
+
+		for (int shard = 0; shard < nbOfShards; shard++) {
+			if (workers.get(shard).waitFor() != 0) {
+				System.err.println("shard " + shard + " failed, see " + new File(shardDirs.get(shard), "worker.log"));
+				failed = true;
+			}
+			// le worker.log est complet et ferme
+			copiers.get(shard).join();
+		}
+
+		if (failed) {
+			System.exit(1);
+		}
+
+		/* merge : les rapports de tous les shards sont rejoues dans l'ordre de la liste de classes */
+
+		Detector detector = new Detector(kind, outputFiles(kind));
+		detector.results.setClassOrder(classes);
+
+		for (File shardDir : shardDirs) {
+			for (ClassReport report : readReports(new File(shardDir, "reports.bin"))) {
+				detector.results.replay(report);
+			}
+		}
+
+		detector.writeResults();
+		detector.close();
+		detector.statistique(outputFiles(kind)[3]);
+
+		// les traces et rapports des shards ne servent plus
+		delete(workDir);
+
+		System.out.println(kind + " detected by " + nbOfShards + " shards in " + (System.currentTimeMillis() - startTime) + " ms");
+	}
+
+	/*
+	 * analyses the classes of one shard and saves their ClassReport, with the
+	 * trace, in shardDir/reports.bin
+	 */
+	static void worker(String[] args) throws IOException {
+
+		String kind = args[1];
+		File shardFile = new File(args[2]);
+		File shardDir = new File(args[3]);
+
+		List<String> classes = new ArrayList<String>();
+		BufferedReader shardList = new BufferedReader(new FileReader(shardFile));
+		String classname;
+		while ((classname = shardList.readLine()) != null) {
+			classes.add(classname);
+		}
+		shardList.close();
+
+		List<String> sootArgs = new ArrayList<String>(Arrays.asList(args).subList(4, args.length));
+		sootArgs.addAll(classes);
+
+		Detector detector = new Detector(kind, new String[] {
+				new File(shardDir, "test1.txt").getPath(),
+				new File(shardDir, "patternDistributionOverMethod.csv").getPath(),
+				new File(shardDir, "detectedPattern.csv").getPath() });
+		detector.results.setClassOrder(classes);
+
+		MainDriverAllPatterns.runSoot(sootArgs.toArray(new String[sootArgs.size()]),
+				new String[] { "jtp.instrumenter" }, new BodyTransformer[] { detector.transformer });
+
+		List<ClassReport> reports = detector.writeResults();
+		detector.close();
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(shardDir, "reports.bin"))));
+		try {
+			out.writeInt(reports.size());
+			for (ClassReport report : reports) {
+				out.writeUTF(report.getClassName());
+				report.writeTo(out, true);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	static List<ClassReport> readReports(File reportsFile) throws IOException {
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(reportsFile)));
+		try {
+			int nbOfReports = in.readInt();
+			List<ClassReport> reports = new ArrayList<ClassReport>(nbOfReports);
+			for (int i = 0; i < nbOfReports; i++) {
+				String className = in.readUTF();
+				reports.add(ClassReport.readFrom(in, className, true));
+			}
+			return reports;
+		} finally {
+			in.close();
+		}
+	}
+
+	/* trace, patternDistributionOverMethod, detectedPattern et patternDistributionOverClass du pattern */
+	static String[] outputFiles(String kind) {
+
+		if (kind.equals("P1")) {
+			return new String[] { ".\\Test\\P1\\test1.txt",
+					".\\statistique\\P1\\JHotDraw7.0.6\\patternDistributionOverMethod.csv",
+					".\\statistique\\P1\\JHotDraw7.0.6\\detectedPattern.csv",
+					".\\statistique\\P1\\JHotDraw7.0.6\\patternDistributionOverClass.csv" };
+		}
+		if (kind.equals("P2")) {
+			return new String[] { ".\\Test\\P2\\test1.txt",
+					".\\statistique\\P2\\JHotDraw7.0.6\\patternDistributionOverMethod.csv",
+					".\\statistique\\P2\\JHotDraw7.0.6\\detectedPattern.csv",
+					".\\statistique\\P2\\JHotDraw7.0.6\\patternDistributionOverClass.csv" };
+		}
+		if (kind.equals("API")) {
+			return new String[] { ".\\Test\\API\\P\\test1.txt",
+					".\\statistique\\API\\P\\JHotDraw7.0.6\\patternDistributionOverMethod.csv",
+					".\\statistique\\API\\P\\JHotDraw7.0.6\\detectedPattern.csv",
+					".\\statistique\\API\\P\\JHotDraw7.0.6\\patternDistributionOverClass.csv" };
+		}
+		if (kind.equals("PD1") || kind.equals("PD2")) {
+			return new String[] { ".\\Test\\" + kind + "\\test1.txt",
+					".\\statistique\\" + kind + "\\JHotDraw7.0.6\\patternDistributionOverMethod.csv",
+					".\\statistique\\" + kind + "\\JHotDraw7.0.6\\detectedPattern.csv",
+					".\\statistique\\" + kind + "\\JHotDraw7.0.6\\patternDistributionOverClass.csv" };
+		}
+		throw new IllegalArgumentException("unknown pattern " + kind + ", expected P1, P2, API, PD1 or PD2");
+	}
+
+	/* deletes file, and everything in it when it is a directory */
+	static void delete(File file) {
+
+		File[] children = file.listFiles();
+
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/* la sortie d'un worker est copiee dans son worker.log, par le thread rendu */
+	static Thread copyInBackground(final InputStream in, final OutputStream out) {
+
+		Thread copier = new Thread() {
+			public void run() {
+				byte[] buffer = new byte[8192];
+				try {
+					int n;
+					while ((n = in.read(buffer)) != -1) {
+						out.write(buffer, 0, n);
+					}
+					out.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		copier.setDaemon(true);
+		copier.start();
+
+		return copier;
+	}
+
+	/* the detector of one pattern with its output files */
+	static class Detector {
+
+		final BodyTransformer transformer;
+		final DetectionResultCollector results;
+		final PrintWriter trace;
+		final PrintWriter patternDistributionOverMethod;
+		final PrintWriter detectedPattern;
+		final String kind;
+		BinaryResultWriter binaryResults;
+
+		Detector(String kind, String[] files) throws IOException {
+
+			this.kind = kind;
+			trace = new PrintWriter(new FileWriter(files[0]));
+			patternDistributionOverMethod = new PrintWriter(new FileWriter(files[1]));
+			detectedPattern = new PrintWriter(new FileWriter(files[2]));
+
+			if (kind.equals("P1")) {
+				InvokeStaticInstrumenterP1 p1Detector = new InvokeStaticInstrumenterP1(trace, patternDistributionOverMethod, detectedPattern);
+				transformer = p1Detector;
+				results = p1Detector.getResults();
+			} else if (kind.equals("P2")) {
+				InvokeStaticInstrumenterP2 p2Detector = new InvokeStaticInstrumenterP2(trace, patternDistributionOverMethod, detectedPattern);
+				transformer = p2Detector;
+				results = p2Detector.getResults();
+			} else if (kind.equals("API")) {
+				InAPI.InvokeStaticInstrumenterP2 apiDetector = new InAPI.InvokeStaticInstrumenterP2(trace, patternDistributionOverMethod, detectedPattern);
+				transformer = apiDetector;
+				results = apiDetector.getResults();
+			} else if (kind.equals("PD1") || kind.equals("PD2")) {
+				PostDominatorDetector postDominatorDetector = new PostDominatorDetector(kind.equals("PD1") ? "P1" : "P2", trace, patternDistributionOverMethod, detectedPattern);
+				transformer = postDominatorDetector;
+				results = postDominatorDetector.getResults();
+			} else {
+				throw new IllegalArgumentException("unknown pattern " + kind + ", expected P1, P2, API, PD1 or PD2");
+			}
+		}
+
+		List<ClassReport> writeResults() {
+
+			return results.flush();
+		}
+
+		/* the results are also written in the binary format (see Common.BinaryResultWriter) */
+		void writeBinaryResults(String binaryResultsFile) throws IOException {
+
+			binaryResults = new BinaryResultWriter(binaryResultsFile);
+			results.setBinaryResults(binaryResults);
+		}
+
+		/* the rows are also added to resultStore, shared by the detectors and closed by the caller */
+		void writeResultStore(ResultStoreWriter resultStore) {
+
+			results.setResultStore(resultStore, kind);
+		}
+
+		void close() throws IOException {
+
+			trace.close();
+			patternDistributionOverMethod.close();
+			detectedPattern.close();
+
+			if (binaryResults != null) {
+				binaryResults.close();
+			}
+		}
+
+		void statistique(String patternDistributionOverClassFile) throws IOException {
+
+			if (transformer instanceof InvokeStaticInstrumenterP1) {
+				((InvokeStaticInstrumenterP1) transformer).statistique(patternDistributionOverClassFile);
+			} else if (transformer instanceof InvokeStaticInstrumenterP2) {
+				((InvokeStaticInstrumenterP2) transformer).statistique(patternDistributionOverClassFile);
+			} else if (transformer instanceof PostDominatorDetector) {
+				((PostDominatorDetector) transformer).statistique(patternDistributionOverClassFile);
+			} else {
+				((InAPI.InvokeStaticInstrumenterP2) transformer).statistique(patternDistributionOverClassFile);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,193 @@
+/* Usage: java MainDriverWatch P1,P2,API [options] appClass
+ *
+ * Analyses the project once, then watches the .class files of its bin
+ * directory. When some of them change, only those classes are loaded in a
+ * new Scene and analysed again; the rows of the other classes are kept from
+ * the previous analysis, and the trace, detectedPattern.csv,
+ * patternDistributionOverMethod.csv and patternDistributionOverClass.csv of
+ * every pattern are written again at their usual place (see
+ * MainDriverSharded.outputFiles). A class is analysed again once its .class
+ * file has stayed the same for one polling period, so that a compiler still
+ * writing it is not seen half way.
+ */
+
+/* import necessary soot packages */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import Common.ClassDiscovery;
+import Common.ClassReport;
+
+public class MainDriverWatch {
+
+	static final long PollingPeriod = Long.getLong("watch.period", 200);
+
+	private final String[] kinds;
+	private final List<String> options;
+
+	// une seule ClassDiscovery : son pool et ses listings servent a chaque periode
+	private final ClassDiscovery discovery = new ClassDiscovery(ClassDiscovery.cacheFile(MainDriverAllPatterns.SourcePath));
+	private List<String> projectClasses = new ArrayList<String>();
+	// la derniere version vue de chaque .class : lastModified et taille
+	private final Map<String, String> classFileVersions = new HashMap<String, String>();
+	// les rapports de la derniere analyse de chaque pattern, par classe
+	private final List<Map<String, ClassReport>> reportsOfPattern = new ArrayList<Map<String, ClassReport>>();
+
+	MainDriverWatch(String[] kinds, List<String> options) {
+
+		this.kinds = kinds;
+		this.options = options;
+
+		for (int i = 0; i < kinds.length; i++) {
+			reportsOfPattern.add(new HashMap<String, ClassReport>());
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		/* check the arguments */
+
+		if (args.length < 2) {
+			System.err.println("Usage: java MainDriverWatch P1,P2,API [options] classname");
+			System.exit(0);
+		}
+
+		MainDriverWatch watch = new MainDriverWatch(args[0].split(","), Arrays.asList(args).subList(1, args.length - 1));
+
+		long startTime = System.currentTimeMillis();
+		watch.analyse(watch.discoverChanges());
+		System.out.println("watch ----> first analysis in " + (System.currentTimeMillis() - startTime) + " ms, watching " + MainDriverAllPatterns.BinPath);
+
+		List<String> seenChanges = new ArrayList<String>();
+
+		while (true) {
+
+			Thread.sleep(PollingPeriod);
+
+			List<String> changes = watch.discoverChanges();
+
+			if (changes.isEmpty() && !seenChanges.isEmpty()) {
+				startTime = System.currentTimeMillis();
+				watch.analyse(seenChanges);
+				System.out.println("watch ----> " + seenChanges + " analysed again in " + (System.currentTimeMillis() - startTime) + " ms");
+			}
+
+			if (!changes.isEmpty()) {
+				// on attend que les .class ne changent plus pendant une periode
+				for (String className : changes) {
+					if (!seenChanges.contains(className)) {
+						seenChanges.add(className);
+					}
+				}
+			} else {
+				seenChanges.clear();
+			}
+		}
+	}
+
+	/* the classes of the project whose .class file was added, changed or removed since the last call */
+	List<String> discoverChanges() {
+
+		List<String> classes = new ArrayList<String>();
+
+		try {
+			classes = MainDriverAllPatterns.withoutDrivers(discovery.discover(MainDriverAllPatterns.SourcePath));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		if (!classes.equals(projectClasses)) {
+			projectClasses = classes;
+			// le cache n'est reecrit que quand la liste des classes a change
+			try {
+				discovery.save();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		List<String> changes = new ArrayList<String>();
+		Map<String, String> removedClasses = new HashMap<String, String>(classFileVersions);
+
+		for (String className : projectClasses) {
+
+			File classFile = new File(MainDriverAllPatterns.BinPath, className.replace('.', File.separatorChar) + ".class");
+			String version = classFile.lastModified() + ":" + classFile.length();
+
+			removedClasses.remove(className);
+			if (!version.equals(classFileVersions.put(className, version))) {
+				changes.add(className);
+			}
+		}
+
+		for (String className : removedClasses.keySet()) {
+			classFileVersions.remove(className);
+			changes.add(className);
+		}
+
+		return changes;
+	}
+
+	/*
+	 * analyses the changed classes that still exist in a new Scene and writes
+	 * the files of every pattern, the other classes being replayed
+	 */
+	void analyse(List<String> changedClasses) throws IOException {
+
+		HashSet<String> changed = new HashSet<String>(changedClasses);
+		List<String> classesToAnalyse = new ArrayList<String>();
+
+		for (String className : changedClasses) {
+			if (classFileVersions.containsKey(className)) {
+				classesToAnalyse.add(className);
+			}
+		}
+
+		MainDriverSharded.Detector[] detectors = new MainDriverSharded.Detector[kinds.length];
+
+		for (int i = 0; i < kinds.length; i++) {
+
+			detectors[i] = new MainDriverSharded.Detector(kinds[i], MainDriverSharded.outputFiles(kinds[i]));
+			detectors[i].results.setClassOrder(projectClasses);
+
+			for (ClassReport report : reportsOfPattern.get(i).values()) {
+				if (!changed.contains(report.getClassName())) {
+					detectors[i].results.replay(report);
+				}
+			}
+		}
+
+		if (!classesToAnalyse.isEmpty()) {
+
+			List<String> sootArgs = new ArrayList<String>(options);
+			sootArgs.addAll(classesToAnalyse);
+
+			MainDriverDaemon.loadScene(sootArgs.toArray(new String[sootArgs.size()]));
+			MainDriverDaemon.runDetectors(detectors, classesToAnalyse);
+		}
+
+		for (int i = 0; i < kinds.length; i++) {
+
+			Map<String, ClassReport> reports = new LinkedHashMap<String, ClassReport>();
+
+			for (ClassReport report : detectors[i].writeResults()) {
+				reports.put(report.getClassName(), report);
+			}
+
+			reportsOfPattern.set(i, reports);
+
+			detectors[i].close();
+			detectors[i].statistique(MainDriverSharded.outputFiles(kinds[i])[3]);
+		}
+	}
+
+}
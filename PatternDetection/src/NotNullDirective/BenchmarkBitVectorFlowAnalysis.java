@@ -0,0 +1,292 @@
+package NotNullDirective;
+/* Usage: java NotNullDirective.BenchmarkBitVectorFlowAnalysis [options] appClass
+ *
+ * Checks that NullTestedLocals and SimpleLocalDefsUsingParameter, solved by
+ * Common.BitVectorFlowAnalysis, give the same results as the soot
+ * ForwardFlowAnalysis versions they replace (kept below, traces included, as
+ * the reference): the tested locals before and after every unit, and the
+ * definitions of every local used by every unit, in the same order. Every concrete method
+ * of the project is compared (given like for MainDriverAllPatterns, with
+ * -DsourcePath=... -DbinPath=...), then the time both analyses take on the
+ * whole project, the fifth time, is printed; exits with 1 on the first
+ * difference. The traces of the analyses are written nowhere; those of the
+ * references go through Common.Trace too, at the levels of the run, so both
+ * sides pay the same for them.
+ */
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import soot.*;
+import soot.jimple.ConditionExpr;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+import soot.toolkits.scalar.ArrayFlowUniverse;
+import soot.toolkits.scalar.ArrayPackedSet;
+import soot.toolkits.scalar.BoundedFlowSet;
+import soot.toolkits.scalar.FlowSet;
+import soot.toolkits.scalar.ForwardFlowAnalysis;
+
+import Common.SimpleLocalDefsUsingParameter;
+import Common.Trace;
+
+public class BenchmarkBitVectorFlowAnalysis {
+
+	public static void main(String[] args) throws Exception {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java NotNullDirective.BenchmarkBitVectorFlowAnalysis [options] classname");
+			System.exit(0);
+		}
+
+		BenchmarkNullTestedLocals.loadProject(args);
+
+		List<UnitGraph> graphs = new ArrayList<UnitGraph>();
+		for (SootClass sootClass : new ArrayList<SootClass>(Scene.v().getApplicationClasses())) {
+			for (SootMethod method : new ArrayList<SootMethod>(sootClass.getMethods())) {
+				if (method.isConcrete()) {
+					graphs.add(new ExceptionalUnitGraph(method.retrieveActiveBody()));
+				}
+			}
+		}
+
+		PrintStream out = System.out;
+		System.setOut(BenchmarkNullTestedLocals.discardingStream());
+
+		int nbOfComparedUnits = 0;
+		long[] referenceTime = new long[2];
+		long[] bitVectorTime = new long[2];
+
+		try {
+			// on compare a la premiere passe, les suivantes chauffent la JVM, on mesure la derniere
+			for (int pass = 0; pass < 5; pass++) {
+
+				referenceTime[0] = referenceTime[1] = bitVectorTime[0] = bitVectorTime[1] = 0;
+
+				for (UnitGraph graph : graphs) {
+
+					long startTime = System.nanoTime();
+					NullTestedLocalsReference referenceTested = new NullTestedLocalsReference(graph);
+					referenceTime[0] += System.nanoTime() - startTime;
+
+					startTime = System.nanoTime();
+					new NullTestedLocalsFlowAnalysis(graph);
+					bitVectorTime[0] += System.nanoTime() - startTime;
+
+					startTime = System.nanoTime();
+					LocalDefsReference referenceDefs = new LocalDefsReference(graph);
+					referenceTime[1] += System.nanoTime() - startTime;
+
+					startTime = System.nanoTime();
+					new SimpleLocalDefsUsingParameter(graph);
+					bitVectorTime[1] += System.nanoTime() - startTime;
+
+					if (pass == 0) {
+						nbOfComparedUnits += compare(graph, referenceTested, new NullTestedLocals((ExceptionalUnitGraph) graph),
+								referenceDefs, new SimpleLocalDefsUsingParameter(graph), out);
+					}
+				}
+			}
+		} finally {
+			Trace.flush();
+			System.setOut(out);
+		}
+
+		System.out.println("benchmark  " + graphs.size() + " methods, " + nbOfComparedUnits + " units ----> same results");
+		System.out.println("benchmark  NullTestedLocals              ----> ForwardFlowAnalysis " + (referenceTime[0] / 1000000)
+				+ " ms, BitVectorFlowAnalysis " + (bitVectorTime[0] / 1000000) + " ms");
+		System.out.println("benchmark  SimpleLocalDefsUsingParameter ----> ForwardFlowAnalysis " + (referenceTime[1] / 1000000)
+				+ " ms, BitVectorFlowAnalysis " + (bitVectorTime[1] / 1000000) + " ms");
+	}
+
+	/* compares the results of both versions on every unit of graph, exits on the first difference */
+	private static int compare(UnitGraph graph, NullTestedLocalsReference referenceTested, NullTestedLocals tested,
+			LocalDefsReference referenceDefs, SimpleLocalDefsUsingParameter defs, PrintStream out) {
+
+		int nbOfUnits = 0;
+
+		for (Iterator<Unit> it = graph.iterator(); it.hasNext();) {
+
+			Unit unit = it.next();
+			nbOfUnits++;
+
+			check(referenceTested.getFlowBefore(unit).toList().equals(tested.getLiveLocalsBefore(unit)), "tested locals before", unit, graph, out);
+			check(referenceTested.getFlowAfter(unit).toList().equals(tested.getLiveLocalsAfter(unit)), "tested locals after", unit, graph, out);
+
+			for (ValueBox box : unit.getUseBoxes()) {
+				if (box.getValue() instanceof Local) {
+					Local local = (Local) box.getValue();
+					check(referenceDefs.defsOfAt(local, unit).equals(defs.getDefsOfAt(local, unit)), "definitions of " + local, unit, graph, out);
+				}
+			}
+		}
+
+		return nbOfUnits;
+	}
+
+	private static void check(boolean same, String what, Unit unit, UnitGraph graph, PrintStream out) {
+
+		if (!same) {
+			out.println("benchmark  DIFFERENCE " + what + " at " + unit + " in " + graph.getBody().getMethod().getSignature());
+			System.exit(1);
+		}
+	}
+
+	/* NullTestedLocalsFlowAnalysis on soot's ForwardFlowAnalysis, as it was */
+	static class NullTestedLocalsReference extends ForwardFlowAnalysis {
+
+		FlowSet emptySet;
+		Map<Unit, FlowSet> unitToGenerateSet = new HashMap<Unit, FlowSet>();
+
+		NullTestedLocalsReference(UnitGraph cfg) {
+			super(cfg);
+
+			emptySet = new ArrayPackedSet(new ArrayFlowUniverse(cfg.getBody().getLocals().toArray()));
+
+			for (Iterator<Unit> it = cfg.iterator(); it.hasNext();) {
+				Unit unit = it.next();
+				FlowSet genSet = (FlowSet) emptySet.clone();
+
+				if (unit instanceof soot.jimple.IfStmt) {
+					ConditionExpr condtionexpr = (ConditionExpr) ((soot.jimple.IfStmt) unit).getCondition();
+					if (condtionexpr.getOp2().toString() == "null" && condtionexpr.getOp1() instanceof Local
+							&& unit.getUseBoxes().contains(condtionexpr.getOp1Box())) {
+						genSet.add(condtionexpr.getOp1(), genSet);
+					}
+				}
+				unitToGenerateSet.put(unit, genSet);
+				if (Trace.on(Trace.NULL_TESTED_LOCALS, Trace.DEBUG)) {
+					Trace.println("*****************  condition ***************************");
+				}
+			}
+
+			doAnalysis();
+		}
+
+		protected Object newInitialFlow() {
+			return emptySet.clone();
+		}
+
+		protected Object entryInitialFlow() {
+			return emptySet.clone();
+		}
+
+		protected void flowThrough(Object inValue, Object d, Object outValue) {
+			((FlowSet) inValue).union(unitToGenerateSet.get(d), (FlowSet) outValue);
+		}
+
+		protected void merge(Object in1, Object in2, Object out) {
+			((FlowSet) in1).union((FlowSet) in2, (FlowSet) out);
+		}
+
+		protected void copy(Object source, Object dest) {
+			((FlowSet) source).copy((FlowSet) dest);
+		}
+
+		FlowSet getFlowBefore(Unit unit) {
+			return (FlowSet) super.getFlowBefore(unit);
+		}
+
+		FlowSet getFlowAfter(Unit unit) {
+			return (FlowSet) super.getFlowAfter(unit);
+		}
+	}
+
+	/* LocalDefsFlowAnalysis on soot's ForwardFlowAnalysis, as it was */
+	static class LocalDefsReference extends ForwardFlowAnalysis {
+
+		FlowSet emptySet;
+		Map<Local, BoundedFlowSet> localToPreserveSet = new HashMap<Local, BoundedFlowSet>();
+		Map<Local, int[]> localToIntPair = new HashMap<Local, int[]>();
+		List<Local> methodParameterChain;
+
+		LocalDefsReference(UnitGraph g) {
+			super(g);
+
+			methodParameterChain = g.getBody().getParameterLocals();
+
+			// les definitions groupees par local, dans l'ordre des locals puis des unites
+			Map<Local, List<Unit>> localToDefList = new HashMap<Local, List<Unit>>();
+			for (Local l : g.getBody().getLocals()) {
+				localToDefList.put(l, new ArrayList<Unit>());
+			}
+			for (Iterator<Unit> it = g.iterator(); it.hasNext();) {
+				Unit s = it.next();
+				List<ValueBox> defBoxes = s.getDefBoxes();
+				if (defBoxes.size() == 1 && defBoxes.get(0).getValue() instanceof Local) {
+					localToDefList.get(defBoxes.get(0).getValue()).add(s);
+				}
+			}
+
+			List<Unit> defList = new LinkedList<Unit>();
+			for (Local l : g.getBody().getLocals()) {
+				localToIntPair.put(l, new int[] { defList.size(), defList.size() + localToDefList.get(l).size() - 1 });
+				defList.addAll(localToDefList.get(l));
+			}
+
+			emptySet = new ArrayPackedSet(new ArrayFlowUniverse(defList.toArray()));
+
+			for (Local l : g.getBody().getLocals()) {
+				BoundedFlowSet killSet = (BoundedFlowSet) emptySet.clone();
+				for (Unit s : localToDefList.get(l)) {
+					killSet.add(s, killSet);
+				}
+				killSet.complement(killSet);
+				localToPreserveSet.put(l, killSet);
+			}
+
+			doAnalysis();
+		}
+
+		protected Object newInitialFlow() {
+			return emptySet.clone();
+		}
+
+		protected Object entryInitialFlow() {
+			return emptySet.clone();
+		}
+
+		protected void flowThrough(Object inValue, Object d, Object outValue) {
+
+			if (Trace.on(Trace.LOCAL_DEFS, Trace.DEBUG)) {
+				Trace.println("--------------------flowThrough ---------------------");
+			}
+			FlowSet in = (FlowSet) inValue, out = (FlowSet) outValue;
+			Unit unit = (Unit) d;
+			List<ValueBox> defBoxes = unit.getDefBoxes();
+
+			if (defBoxes.size() == 1 && defBoxes.get(0).getValue() instanceof Local) {
+				in.intersection(localToPreserveSet.get(defBoxes.get(0).getValue()), out);
+				for (ValueBox valueBox : unit.getUseBoxes()) {
+					if (methodParameterChain.contains(valueBox.getValue())) {
+						if (Trace.on(Trace.LOCAL_DEFS, Trace.DEBUG)) {
+							Trace.println("*----l'unite --> " + unit + " -----utilise un parametre----la Value------> " + valueBox.getValue());
+						}
+						out.add(unit, out);
+					}
+				}
+			} else {
+				in.copy(out);
+			}
+		}
+
+		protected void merge(Object in1, Object in2, Object out) {
+			((FlowSet) in1).union((FlowSet) in2, (FlowSet) out);
+		}
+
+		protected void copy(Object source, Object dest) {
+			((FlowSet) source).copy((FlowSet) dest);
+		}
+
+		List defsOfAt(Local l, Unit s) {
+			int[] intPair = localToIntPair.get(l);
+			return ((ArrayPackedSet) getFlowBefore(s)).toList(intPair[0], intPair[1]);
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+package NotNullDirective;
+/* Usage: java NotNullDirective.BenchmarkLocalDefsQueries [options] appClass
+ *
+ * Measures what answering getDefsOfAt on demand saves in
+ * SimpleLocalDefsUsingParameter: on the largest methods of the project
+ * (-Dmethods=10 by default), the definitions are asked for every local used
+ * by every unit, what the constructor listed before, then only for the
+ * locals tested by the if statements, what InvokeStaticInstrumenterP2 asks
+ * for. The time and the bytes allocated by the thread are printed for both,
+ * the fastest of ten runs.
+ * The project is given like for MainDriverAllPatterns, with
+ * -DsourcePath=... -DbinPath=...; the traces of the analysis are written
+ * nowhere.
+ */
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.List;
+
+import soot.*;
+import soot.jimple.IfStmt;
+import soot.jimple.ConditionExpr;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+
+import Common.SimpleLocalDefsUsingParameter;
+import Common.Trace;
+
+public class BenchmarkLocalDefsQueries {
+
+	public static void main(String[] args) throws Exception {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java NotNullDirective.BenchmarkLocalDefsQueries [options] classname");
+			System.exit(0);
+		}
+
+		BenchmarkNullTestedLocals.loadProject(args);
+
+		List<Body> bodies = BenchmarkNullTestedLocals.largestBodies(Integer.getInteger("methods", 10));
+
+		PrintStream out = System.out;
+		long[] everyUse = new long[2];
+		long[] testedOnly = new long[2];
+
+		for (Body body : bodies) {
+
+			ExceptionalUnitGraph cfg = new ExceptionalUnitGraph(body);
+
+			System.setOut(BenchmarkNullTestedLocals.discardingStream());
+			try {
+				int nbOfEveryUseQueries = queryEveryUse(cfg);
+				int nbOfTestedQueries = queryTestedLocals(cfg);
+
+				// les premiers passages chauffent la JVM, on garde le plus rapide
+				long[] everyUseOfBody = measure(cfg, true);
+				long[] testedOnlyOfBody = measure(cfg, false);
+				for (int pass = 0; pass < 10; pass++) {
+					everyUseOfBody = fastest(everyUseOfBody, measure(cfg, true));
+					testedOnlyOfBody = fastest(testedOnlyOfBody, measure(cfg, false));
+				}
+
+				for (int i = 0; i < 2; i++) {
+					everyUse[i] += everyUseOfBody[i];
+					testedOnly[i] += testedOnlyOfBody[i];
+				}
+
+				out.println("benchmark  " + body.getMethod().getSignature() + " ----> " + body.getUnits().size() + " units, "
+						+ nbOfEveryUseQueries + " queries " + (everyUseOfBody[0] / 1000) + " us " + (everyUseOfBody[1] / 1024) + " KB, "
+						+ nbOfTestedQueries + " queries " + (testedOnlyOfBody[0] / 1000) + " us " + (testedOnlyOfBody[1] / 1024) + " KB");
+			} finally {
+				Trace.flush();
+				System.setOut(out);
+			}
+		}
+
+		System.out.println("benchmark  " + bodies.size() + " methods ----> every use " + (everyUse[0] / 1000000) + " ms "
+				+ (everyUse[1] / 1024) + " KB, tested locals only " + (testedOnly[0] / 1000000) + " ms " + (testedOnly[1] / 1024) + " KB");
+	}
+
+	/* the time (ns) and the bytes allocated by this thread for one analysis of cfg and its queries */
+	private static long[] measure(ExceptionalUnitGraph cfg, boolean everyUse) {
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		long allocatedBytes = threads.getThreadAllocatedBytes(threadId);
+		long startTime = System.nanoTime();
+
+		if (everyUse) {
+			queryEveryUse(cfg);
+		} else {
+			queryTestedLocals(cfg);
+		}
+
+		return new long[] { System.nanoTime() - startTime, threads.getThreadAllocatedBytes(threadId) - allocatedBytes };
+	}
+
+	private static long[] fastest(long[] measure1, long[] measure2) {
+
+		return measure2[0] < measure1[0] ? measure2 : measure1;
+	}
+
+	/* the definitions of every local used by every unit, the map the constructor built before; returns the number of queries */
+	static int queryEveryUse(ExceptionalUnitGraph cfg) {
+
+		SimpleLocalDefsUsingParameter defs = new SimpleLocalDefsUsingParameter(cfg);
+		int nbOfQueries = 0;
+
+		for (Iterator<Unit> units = cfg.iterator(); units.hasNext();) {
+			Unit unit = units.next();
+			for (ValueBox valueBox : unit.getUseBoxes()) {
+				if (valueBox.getValue() instanceof Local) {
+					defs.getDefsOfAt((Local) valueBox.getValue(), unit);
+					nbOfQueries++;
+				}
+			}
+		}
+
+		return nbOfQueries;
+	}
+
+	/* the definitions of the locals tested by the if statements only; returns the number of queries */
+	static int queryTestedLocals(ExceptionalUnitGraph cfg) {
+
+		SimpleLocalDefsUsingParameter defs = new SimpleLocalDefsUsingParameter(cfg);
+		int nbOfQueries = 0;
+
+		for (Iterator<Unit> units = cfg.iterator(); units.hasNext();) {
+			Unit unit = units.next();
+			if (unit instanceof IfStmt) {
+				Value op1 = ((ConditionExpr) ((IfStmt) unit).getCondition()).getOp1();
+				if (op1 instanceof Local) {
+					defs.getDefsOfAt((Local) op1, unit);
+					nbOfQueries++;
+				}
+			}
+		}
+
+		return nbOfQueries;
+	}
+
+}
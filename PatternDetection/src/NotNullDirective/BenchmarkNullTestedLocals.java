@@ -0,0 +1,161 @@
+package NotNullDirective;
+/* Usage: java NotNullDirective.BenchmarkNullTestedLocals [options] appClass
+ *
+ * Measures what computing NullTestedLocals once per body saves in
+ * NotNullParameterStaticInstrumenter.detectUsedAndNotTestedMetodParameter:
+ * on the largest methods of the project (-Dmethods=10 by default), the
+ * detection is run with one analysis per use of a parameter, what it did
+ * before, then with the analysis shared by every use. The project is given
+ * like for MainDriverAllPatterns, with -DsourcePath=... -DbinPath=...; the
+ * traces of the detector are written nowhere.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import soot.*;
+import soot.options.Options;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+
+import Common.AnalysisProfile;
+import Common.ClassDiscovery;
+import Common.Trace;
+
+public class BenchmarkNullTestedLocals {
+
+	static final String SourcePath = System.getProperty("sourcePath", "C:\\Users\\medsd\\Desktop\\UdeM\\progetAnalyse\\workspace\\JHotDraw7.0.6\\src");
+	static final String BinPath = System.getProperty("binPath", "C:\\Users\\medsd\\Desktop\\UdeM\\progetAnalyse\\workspace\\JHotDraw7.0.6\\bin");
+
+	public static void main(String[] args) throws Exception {
+
+		if (args.length == 0) {
+			System.err.println("Usage: java NotNullDirective.BenchmarkNullTestedLocals [options] classname");
+			System.exit(0);
+		}
+
+		loadProject(args);
+
+		List<Body> bodies = largestBodies(Integer.getInteger("methods", 10));
+
+		NotNullParameterStaticInstrumenter detector = new NotNullParameterStaticInstrumenter(null, null, null);
+		PrintStream out = System.out;
+		long totalPerUseTime = 0;
+		long totalOnceTime = 0;
+
+		for (Body body : bodies) {
+
+			ExceptionalUnitGraph cfg = new ExceptionalUnitGraph(body);
+			ArrayList<Local> localsList = new ArrayList<Local>();
+
+			System.setOut(discardingStream());
+			try {
+				localsList.addAll(body.getParameterLocals());
+				localsList.addAll(detector.getLocalsDefinedUsingParameter(cfg, new ArrayList<Local>(body.getParameterLocals())));
+
+				// deux fois chacun, le premier passage chauffe la JVM
+				int nbOfAnalyses = detectWithOneAnalysisPerUse(cfg, localsList);
+				long startTime = System.nanoTime();
+				detectWithOneAnalysisPerUse(cfg, localsList);
+				long perUseTime = System.nanoTime() - startTime;
+
+				detector.detectUsedAndNotTestedMetodParameter(cfg, localsList);
+				startTime = System.nanoTime();
+				detector.detectUsedAndNotTestedMetodParameter(cfg, localsList);
+				long onceTime = System.nanoTime() - startTime;
+
+				totalPerUseTime += perUseTime;
+				totalOnceTime += onceTime;
+
+				out.println("benchmark  " + body.getMethod().getSignature() + " ----> " + body.getUnits().size() + " units, "
+						+ nbOfAnalyses + " analyses per use " + (perUseTime / 1000000) + " ms, one analysis " + (onceTime / 1000000) + " ms");
+			} finally {
+				Trace.flush();
+				System.setOut(out);
+			}
+		}
+
+		System.out.println("benchmark  " + bodies.size() + " methods ----> one analysis per use " + (totalPerUseTime / 1000000)
+				+ " ms, one analysis per body " + (totalOnceTime / 1000000) + " ms, x" + (totalPerUseTime / Math.max(totalOnceTime, 1)));
+	}
+
+	/* loads the classes of the project in a new Scene, with the soot options given before the classname */
+	static void loadProject(String[] args) throws IOException {
+
+		List<String> sootArgs = new ArrayList<String>(Arrays.asList(args).subList(0, args.length - 1));
+		sootArgs.addAll(ClassDiscovery.getClass(SourcePath));
+
+		G.reset();
+		if (!Options.v().parse(AnalysisProfile.apply(sootArgs.toArray(new String[sootArgs.size()]), true))) {
+			throw new IllegalArgumentException("invalid soot options " + sootArgs);
+		}
+		Scene.v().setSootClassPath(Scene.v().getSootClassPath() + File.pathSeparator + BinPath);
+		Scene.v().loadNecessaryClasses();
+	}
+
+	/* the bodies of the nbOfMethods concrete methods of the application classes that have the most units */
+	static List<Body> largestBodies(int nbOfMethods) {
+
+		List<Body> bodies = new ArrayList<Body>();
+
+		for (SootClass sootClass : new ArrayList<SootClass>(Scene.v().getApplicationClasses())) {
+			for (SootMethod method : new ArrayList<SootMethod>(sootClass.getMethods())) {
+				if (method.isConcrete()) {
+					bodies.add(method.retrieveActiveBody());
+				}
+			}
+		}
+
+		Collections.sort(bodies, new Comparator<Body>() {
+			public int compare(Body body1, Body body2) {
+				return body2.getUnits().size() - body1.getUnits().size();
+			}
+		});
+
+		return bodies.subList(0, Math.min(nbOfMethods, bodies.size()));
+	}
+
+	/*
+	 * detectUsedAndNotTestedMetodParameter as it was: a new NullTestedLocals
+	 * for each use of a local of localsList; returns the number of analyses
+	 */
+	static int detectWithOneAnalysisPerUse(ExceptionalUnitGraph cfg, List<Local> localsList) {
+
+		int nbOfAnalyses = 0;
+		Iterator<Unit> units = cfg.iterator();
+
+		while (units.hasNext()) {
+			Unit unit = units.next();
+
+			if (unit instanceof soot.jimple.IfStmt) {
+				continue;
+			}
+
+			for (ValueBox valueBox : unit.getUseBoxes()) {
+				if (valueBox.getValue() instanceof Local && localsList.contains(valueBox.getValue())) {
+					NullTestedLocals testedLocals = new NullTestedLocals(cfg);
+					testedLocals.getLiveLocalsBefore(unit).contains(valueBox.getValue());
+					nbOfAnalyses++;
+				}
+			}
+		}
+
+		return nbOfAnalyses;
+	}
+
+	static PrintStream discardingStream() {
+
+		return new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+		});
+	}
+
+}
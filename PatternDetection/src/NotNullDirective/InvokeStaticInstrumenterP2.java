@@ -31,8 +31,20 @@ import soot.toolkits.graph.ExceptionalUnitGraph;
 import soot.toolkits.graph.UnitGraph;
 import soot.util.*;
 import soot.jimple.internal.JThrowStmt;
-
-import java.io.FileNotFoundException;
+import Common.BodyAnalysis;
+import Common.ClassReport;
+import Common.CompactUnitGraph;
+import Common.DetectionResultCollector;
+import Common.IfStmtCondition;
+import Common.MethodReport;
+import Common.ResultRecord;
+import Common.SharedBodyGraph;
+import Common.Trace;
+import Common.UnitClassification;
+import Common.UnitRule;
+import Common.UnitWalk;
+
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.*;
 
@@ -42,31 +54,23 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer {
 
 	/* some internal fields */
 
-	static PrintWriter out;
-	static PrintWriter patternDistributionOverMethod;
-	static PrintWriter detectedPattern;
-	static HashMap<String, Integer> patternDistributionOverClasses;
-	static SimpleLocalDefsUsingParameter simpleLocalDefs;
-	static ArrayList<Local> methodParameterChain;
-
-	static {
-		patternDistributionOverClasses = new HashMap<String, Integer>(350);
+	// tout l'etat d'un body est local a internalTransform, les resultats
+	// passent par le collector pour que le pack jtp puisse traiter plusieurs
+	// body en parallele
+	private final DetectionResultCollector results;
 
-	}
+	// le graphe le moins cher qui donne les memes resultats que l'ExceptionalUnitGraph (voir Common.SharedBodyGraph)
+	public static final int CFG_PRECISION = SharedBodyGraph.EXCEPTIONAL;
 
 	public InvokeStaticInstrumenterP2(PrintWriter pw1, PrintWriter pw2,
 			PrintWriter pw3) {
 
-		out = pw1;
-		patternDistributionOverMethod = pw2;
-		detectedPattern = pw3;
-
-		patternDistributionOverMethod.println("class name" + ";;"
-				+ "Method name" + ";;" + "number of detected pattern");
+		results = new DetectionResultCollector(pw1, pw2, pw3);
 
-		detectedPattern.println("class name" + ";;" + "Method name" + ";;"
-				+ ";;" + "Method signature" + ";;" + ";;" + ";;" + "exit stmt"
-				+ ";;" + "Analysed unit");
+		results.writeHeaders(ResultRecord.join("class name", "Method name",
+				"number of detected pattern"),
+				ResultRecord.join("class name", "Method name", "",
+						"Method signature", "", "", "exit stmt", "Analysed unit"));
 	}
 
 	/*
@@ -78,28 +82,26 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer {
 
 		SootMethod method = body.getMethod();
 		SootClass declaringClass = method.getDeclaringClass();
-		out.println("@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@");
-
-		out.println("instrumenting method : " + method.getSignature());
-
-		Integer nbOfDetectedpatternInCurrentMethod = 0;
-
-		// initialisation du hashmap pour la distrubution des patron sur les
-		// classes
-		if (patternDistributionOverClasses
-				.containsKey(declaringClass.getName())) {
+		final MethodReport report = results.newReport(body);
+		PrintWriter out = report.getOut();
+		// par methode au niveau INFO, par unite au niveau DEBUG (voir Common.Trace)
+		boolean traceMethod = Trace.on(Trace.NOTNULL, Trace.INFO);
+		boolean traceUnits = Trace.on(Trace.NOTNULL, Trace.DEBUG);
 
-			// ne rien faire
-		} else {
-
-			patternDistributionOverClasses.put(declaringClass.getName(), 0);
+		if (traceMethod) {
+			out.println("@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@");
 
+			out.println("instrumenting method : " + method.getSignature());
 		}
 
-		UnitGraph cfg = new ExceptionalUnitGraph(body);
-		simpleLocalDefs = new SimpleLocalDefsUsingParameter(cfg);
+		UnitGraph cfg = SharedBodyGraph.unitGraph(body);
+
+		// les parcours se font sur les unites numerotees (voir Common.CompactUnitGraph)
+		CompactUnitGraph graph = SharedBodyGraph.compactUnitGraph(body);
+		// ce qu'est chaque unite (if, throw...), partage par les detecteurs du pack
+		UnitClassification units = SharedBodyGraph.unitClassification(body);
 
-		methodParameterChain = new ArrayList<Local>();
+		ArrayList<Local> methodParameterChain = new ArrayList<Local>();
 
 		for (int j = 0; j < method.getParameterCount(); j++) {
 
@@ -107,109 +109,92 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer {
 
 		}
 
-		for (Unit unit : cfg) {
-			out.println("------unit-----> " + unit);
-		}
-
-		Iterator<Unit> Units = cfg.iterator();
-
-		Boolean throwStmtExistInBody = false;
-		Boolean ifStmtExistInBody = false;
-
-		while (Units.hasNext() && (!throwStmtExistInBody || !ifStmtExistInBody)) {
-			Unit unit = (Unit) Units.next();
+		// une seule passe sur les unites pour toutes les regles (voir Common.UnitWalk)
+		UnitWalk walk = new UnitWalk();
 
-			if (unit instanceof soot.jimple.IfStmt) {
-
-				ifStmtExistInBody = true;
-
-			}
-
-			if (unit instanceof ThrowStmt) {
-
-				throwStmtExistInBody = true;
-
-			}
+		// ces deux regles ne font que tracer : elles ne sont dans la passe que si la trace par unite est demandee
+		if (traceUnits) {
+			walk.add(this.unitTrace(out));
 
+			walk.add(this.PatternDetecornotNotInitializedNotTestedUse(cfg, methodParameterChain));
 		}
 
-		nbOfDetectedpatternInCurrentMethod =  this.PatternDetecornotNotInitializedNotTestedUse(cfg);
-
-		
-		if (throwStmtExistInBody && ifStmtExistInBody) {
+		if (units.hasThrowStmt() && units.hasIfStmt()) {
 
-			out.println("la methode iligible----> " + method.getSignature());
+			if (traceMethod) {
+				out.println("la methode iligible----> " + method.getSignature());
+			}
 
-			nbOfDetectedpatternInCurrentMethod = nbOfDetectedpatternInCurrentMethod +this.Pattern2Detecor(cfg);
-					
+			walk.add(this.Pattern2Detecor(graph, report, methodParameterChain));
 
 		}
 
-		if (nbOfDetectedpatternInCurrentMethod > 0) {
-
-			Integer nbOfDetectedpatternIndeclaringClass = patternDistributionOverClasses
-					.get(declaringClass.getName());
+		// la passe peut etre faite avec celles des autres detecteurs du pack, le rapport est termine apres elle
+		walk.walk(body, units, new UnitWalk.Done() {
 
-			nbOfDetectedpatternIndeclaringClass += nbOfDetectedpatternInCurrentMethod;
+			public void walked(int nbOfDetectedpatternInCurrentMethod) {
 
-			patternDistributionOverClasses.put(declaringClass.getName(),
-					nbOfDetectedpatternIndeclaringClass);
-
-		}
+				report.setNbOfDetectedPattern(nbOfDetectedpatternInCurrentMethod);
+				results.commit(report);
+			}
+		});
 
 	}
 
-	protected int PatternDetecornotNotInitializedNotTestedUse(UnitGraph cfg) {
+	// la regle appelee par UnitWalk sur chaque unite du body
+	protected UnitRule PatternDetecornotNotInitializedNotTestedUse(UnitGraph cfg, final ArrayList<Local> methodParameterChain) {
 
 		// cette methode est pour la detection des parametre qui ne doivebt pas
 		// etre nulle dans le sence que oncherche des parametre qui son utiliser
 		// sans une definition ou initialisation qui prcede ou un condition qui
 		// verifie q'il ne sont pas null
 
-		int nbOfDetectedpatternInMethod = 0;
-		
-		soot.toolkits.scalar.SimpleLocalDefs simpleLocalDefsForNotInitializedLocal =new SimpleLocalDefs(cfg);
+		// les definitions du body, partagees par les detecteurs (voir Common.BodyAnalysis)
+		final soot.toolkits.scalar.SimpleLocalDefs simpleLocalDefsForNotInitializedLocal =BodyAnalysis.REACHING_DEFS.of(cfg.getBody());
 		
 		for (Local local0 : methodParameterChain) {
 			
-			System.out.println("local in param chane "+ local0);
+			Trace.println("local in param chane "+ local0);
 			
 		}
 		
-		for (Unit unit : cfg) {
-			System.out.println("+----unit----> "+ unit);
+		UnitRule notInitializedNotTestedUse = new UnitRule(UnitRule.EVERY_UNIT) {
+
+		  protected void visit(int unitIndex, UnitClassification units) {
+			Unit unit = units.getCfg().getUnit(unitIndex);
+			Trace.println("+----unit----> "+ unit);
 		
 			List<ValueBox> vb = unit.getUseBoxes();
 		
 			
 			for (ValueBox valueBox : vb) {
 				
-				System.out.println("++----valueBox----> "+ valueBox.getValue());
+				Trace.println("++----valueBox----> "+ valueBox.getValue());
 
 				if (methodParameterChain.contains(valueBox.getValue())) {
-					System.out.println("in methodParameterChain ");
+					Trace.println("in methodParameterChain ");
 					List<Unit> defofAt = simpleLocalDefsForNotInitializedLocal.getDefsOfAt((Local) valueBox.getValue(), unit);
 					
 					if (defofAt.size() > 0) {
 						
-						System.out.println("--- utilisation avec initialisation  -----> ");
+						Trace.println("--- utilisation avec initialisation  -----> ");
 						
 					}else {
 						
-						System.out.println("--- utilisation sans initialisation  -----> ");
+						Trace.println("--- utilisation sans initialisation  -----> ");
 					}
 					
 					
 					for (Unit unit2 : defofAt) {
 						
-						System.out.println("+++----defofAt----> "+ unit2);
+						Trace.println("+++----defofAt----> "+ unit2);
 					}
 			
 					
 					
 				}else{
 					
-					System.out.println("not in methodParameterChain ");
+					Trace.println("not in methodParameterChain ");
 
 				}
 					
@@ -217,7 +202,8 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer {
 			}	
 			
 			
-		}
+		  }
+		};
 		
 		
 		
@@ -297,36 +283,42 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer {
 //
 //		}
 
-		return nbOfDetectedpatternInMethod;
+		return notInitializedNotTestedUse;
 
 	}
 
-	protected int Pattern2Detecor(UnitGraph cfg) {
+	// la regle de P2, UnitWalk l'appelle sur chaque if stmt du body
+	protected UnitRule Pattern2Detecor(final CompactUnitGraph cfg, final MethodReport report,
+			final ArrayList<Local> methodParameterChain) {
 
-		Boolean EligibleIfStmt;
-		int nbOfDetectedpatternInMethod = 0;
-		for (Unit unit : cfg) {
+		final PrintWriter out = report.getOut();
 
-			EligibleIfStmt = false;
+		return new UnitRule(UnitClassification.IF_STMT) {
 
-			if (unit instanceof soot.jimple.IfStmt) {
+			protected void visit(int unitIndex, UnitClassification units) {
+
+				Unit unit = cfg.getUnit(unitIndex);
+
+				Boolean EligibleIfStmt;
 
 				Unit targeSucessorOfStmtIf = null;
 
 				Unit theOtherSucessorOfStmtIf = null;
 
-				EligibleIfStmt = this.detcetEligibleIfStmt(
-						(soot.jimple.IfStmt) unit);
+				EligibleIfStmt = detcetEligibleIfStmt(unitIndex, units, report);
 
 				targeSucessorOfStmtIf = ((soot.jimple.IfStmt) unit).getTarget();
+				int targeSucessorIndex = IfStmtCondition.getTargetBranch(units.getCondition(unitIndex));
+				int theOtherSucessorIndex = -1;
 
-				List<Unit> successorListOfUnit = cfg.getSuccsOf(unit);
+				for (int k = 0; k < cfg.getNbOfSuccs(unitIndex); k++) {
 
-				for (Unit sucessorunit : successorListOfUnit) {
+					int sucessorIndex = cfg.getSucc(unitIndex, k);
 
-					if (!sucessorunit.equals(targeSucessorOfStmtIf)) {
+					if (sucessorIndex != targeSucessorIndex) {
 
-						theOtherSucessorOfStmtIf = sucessorunit;
+						theOtherSucessorOfStmtIf = cfg.getUnit(sucessorIndex);
+						theOtherSucessorIndex = sucessorIndex;
 
 					}
 
@@ -341,134 +333,91 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer {
 					Boolean findTrowStmtaftertheOtherSucessor;
 
 					findTrowStmtaftertargeSucessor = findPathToWhileStmt(cfg,
-							targeSucessorOfStmtIf, unit);
+							targeSucessorIndex, unit, report);
 
 					findTrowStmtaftertheOtherSucessor = findPathToWhileStmt(
-							cfg, theOtherSucessorOfStmtIf, unit);
+							cfg, theOtherSucessorIndex, unit, report);
 
 					// faire un autr teste sur les chemin
 
 					if (findTrowStmtaftertargeSucessor
 							&& !findTrowStmtaftertheOtherSucessor) {
 
-						out.println("##############------------------>patron detecter a travers targeSucessor pour "
-								+ unit);
-						nbOfDetectedpatternInMethod++;
+						if (Trace.on(Trace.NOTNULL, Trace.INFO)) {
+							out.println("##############------------------>patron detecter a travers targeSucessor pour "
+									+ unit);
+						}
+						nbOfDetectedPattern++;
 					} else if (!findTrowStmtaftertargeSucessor
 							&& findTrowStmtaftertheOtherSucessor) {
 
-						out.println("##############------------------>patron detecter a travers theOtherSucessor pour "
-								+ unit);
-						nbOfDetectedpatternInMethod++;
+						if (Trace.on(Trace.NOTNULL, Trace.INFO)) {
+							out.println("##############------------------>patron detecter a travers theOtherSucessor pour "
+									+ unit);
+						}
+						nbOfDetectedPattern++;
 
 					}
 
 				}
 
 			}
-
-		}
-
-		return nbOfDetectedpatternInMethod;
+		};
 
 	}
 
-	
-	protected Boolean detcetEligibleIfStmt(soot.jimple.IfStmt unitOfTheBodyMethod) {
-
-		
-		Boolean  conditionRefersTomethodParameter =false;
-		Boolean conditionRefersToLocalInitializedFromMethodParameter =false;
-		Boolean conditionContainsNullVerification =false;
-
-		
-		//verifier que la condition porte sur un des paramtre de la methode
-	 	
-
-		  List<ValueBox> vb = unitOfTheBodyMethod.getUseBoxes();
-    	  
-		  for (ValueBox valueBox : vb) {
-    		        		  
-    		  	if (methodParameterChain.contains(valueBox.getValue())) {
-    		  		
-    		  		conditionRefersTomethodParameter=true;
-    		  		 out.println("5----------la Value------> "+valueBox.getValue()+ " existe dans les methodParameterChain  ");
-    		  	}
-    		        		  
-    	  }
-		
-		
-		  
-		  
-		
-		if (!conditionRefersTomethodParameter) {
-
-			// si la condition ne porte pas sur un parametre on verifie si elle
-			// porte sur un Local initaialiser apartir d'un parametre
-
-			ConditionExpr Condtionexpr = (ConditionExpr) ((soot.jimple.IfStmt) unitOfTheBodyMethod)
-					.getCondition();
-
-			if (Condtionexpr.getOp1() instanceof Local) {
-
-				List<Unit> dedofAt = simpleLocalDefs.getDefsOfAt(
-						(Local) Condtionexpr.getOp1(), unitOfTheBodyMethod);
-
-				if (dedofAt.size() > 0) {
+	// la trace de chaque unite du body
+	protected UnitRule unitTrace(final PrintWriter out) {
 
-					conditionRefersToLocalInitializedFromMethodParameter = true;
+		return new UnitRule(UnitRule.EVERY_UNIT) {
 
-				}
+			protected void visit(int unitIndex, UnitClassification units) {
+				out.println("------unit-----> " + units.getCfg().getUnit(unitIndex));
+			}
+		};
+	}
 
-				else {
+	
+	// ifIndex : une if stmt de units, sa condition est decrite par units.getCondition (voir Common.IfStmtCondition)
+	protected Boolean detcetEligibleIfStmt(int ifIndex, UnitClassification units,
+			MethodReport report) {
 
-					conditionRefersToLocalInitializedFromMethodParameter = false;
-				}
+		PrintWriter out = report.getOut();
 
-			} else {
+		long condition = units.getCondition(ifIndex);
+		ConditionExpr Condtionexpr = (ConditionExpr) ((soot.jimple.IfStmt) units.getCfg().getUnit(ifIndex)).getCondition();
 
-				// on fait return false pour que seul les condition sur les
-				// variable initialise  partr de parametre et sur les parametre
-				// soit considerer
-				conditionRefersToLocalInitializedFromMethodParameter = false;
+		//verifier que la condition porte sur un des parametre de la methode
 
+		if (Trace.on(Trace.NOTNULL, Trace.DEBUG)) {
+			if (IfStmtCondition.is(condition, IfStmtCondition.OP1_PARAMETER)) {
+				out.println("5----------la Value------> "+Condtionexpr.getOp1()+ " existe dans les methodParameterChain  ");
+			}
+			if (IfStmtCondition.is(condition, IfStmtCondition.OP2_PARAMETER)) {
+				out.println("5----------la Value------> "+Condtionexpr.getOp2()+ " existe dans les methodParameterChain  ");
 			}
-
 		}
 
-		
-		if (conditionRefersTomethodParameter || conditionRefersToLocalInitializedFromMethodParameter) {
-			
-    		//verifier que la condition et du type null verification  
-
-			ConditionExpr Condtionexpr =(ConditionExpr)((soot.jimple.IfStmt) unitOfTheBodyMethod).getCondition();
-   		 
-    		
-    		
-    		if (Condtionexpr.getOp2().toString() == "null") {
-    			
-    			conditionContainsNullVerification=true;
-    			return true;
-				
-			}else{
-				
-				return false;
-				
-			}			
-			
-		}else {
-			
+		//verifier que la condition et du type null verification
+
+		if (!IfStmtCondition.isNullComparison(condition)) {
+
 			return false;
-			
 		}
-		
-		
-		
-		
-		
+
+		// si la condition ne porte pas sur un parametre on verifie si elle
+		// porte sur un Local initaialiser apartir d'un parametre (les definitions
+		// ne sont calculees qu'a la premiere demande pour le body, voir Common.BodyAnalysis)
+		return IfStmtCondition.testsParameter(condition)
+				|| units.isParameterDerived(ifIndex);
+
 	}
 
-	protected Boolean findPathToWhileStmt(UnitGraph cfg, Unit theConsideredSucessor, Unit ifstmt) {
+	// theConsideredSucessorIndex : le numero de l'unite dans cfg, -1 si elle n'y est pas
+	protected Boolean findPathToWhileStmt(CompactUnitGraph cfg, int theConsideredSucessorIndex, Unit ifstmt, MethodReport report) {
+
+		PrintWriter out = report.getOut();
+		PrintWriter detectedPattern = report.getDetectedPattern();
 
 		int PathLength = 0;
 		Boolean findThroStmt = false;
@@ -477,39 +426,44 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer {
 		Body body = cfg.getBody();
 		SootMethod method = body.getMethod();
 		SootClass declaringClass = method.getDeclaringClass();
-		List<Unit> exitpointlist = cfg.getTails();
-
-		ArrayList<Unit> beginigUnitOfTrap = new ArrayList<Unit>();
-		ArrayList<Unit> HandlerUnitOfTrap = new ArrayList<Unit>();
-		Chain<Trap> trap = body.getTraps();
-		for (Trap trap2 : trap) {
-			beginigUnitOfTrap.add(trap2.getBeginUnit());
-			out.println("______trap  ___" + trap2);
-			HandlerUnitOfTrap.add(trap2.getHandlerUnit());
+		Unit theConsideredSucessor = theConsideredSucessorIndex < 0 ? null : cfg.getUnit(theConsideredSucessorIndex);
+
+		boolean traceUnits = Trace.on(Trace.NOTNULL, Trace.DEBUG);
+
+		if (traceUnits) {
+			Chain<Trap> trap = body.getTraps();
+			for (Trap trap2 : trap) {
+				out.println("______trap  ___" + trap2);
+			}
 		}
 
 		while (PathLength < 4 && !findThroStmt && !mustExitWhileLoop) {
 
-			out.println(PathLength + "_____path ___" + theConsideredSucessor);
+			if (traceUnits) {
+				out.println(PathLength + "_____path ___" + theConsideredSucessor);
+			}
 			if (theConsideredSucessor instanceof ThrowStmt) {
 
 				findThroStmt = true;
-				out.println(">>>>>--------on a trouver le throw stmt qui suit le if stmt donc detection du pattern----path: "
-						+ PathLength
-						+ "--->>>>   "
-						+ theConsideredSucessor
-						+ " suit " + ifstmt);
+				if (Trace.on(Trace.NOTNULL, Trace.INFO)) {
+					out.println(">>>>>--------on a trouver le throw stmt qui suit le if stmt donc detection du pattern----path: "
+							+ PathLength
+							+ "--->>>>   "
+							+ theConsideredSucessor
+							+ " suit " + ifstmt);
+				}
 
-				detectedPattern.println(declaringClass + ";;"
-						+ method.getName() + ";;" + ";;"
-						+ method.getSignature() + ";;" + ";;" + ";;"
-						+ theConsideredSucessor + ";;" + ifstmt);
+				detectedPattern.println(ResultRecord.join(declaringClass,
+						method.getName(), "", method.getSignature(), "", "",
+						theConsideredSucessor, ifstmt));
 
-			} else if (exitpointlist.contains(theConsideredSucessor)) {
+			} else if (cfg.isTail(theConsideredSucessorIndex)) {
 
 				mustExitWhileLoop = true;
-				out.println(">>>>>--------+on a trouver exitpoint suit le if stmt mais  cet exit stmt n'est pas immediatemet  la suit du if  donc on ne dois pas le considrer------->>>>   "
-						+ theConsideredSucessor + " suit " + ifstmt);
+				if (traceUnits) {
+					out.println(">>>>>--------+on a trouver exitpoint suit le if stmt mais  cet exit stmt n'est pas immediatemet  la suit du if  donc on ne dois pas le considrer------->>>>   "
+							+ theConsideredSucessor + " suit " + ifstmt);
+				}
 				// Todo faire la separation entre deux cas celui ou la
 				// PathLength< 2 donc posibilit de patern detecter mais pas 
 				// 100%
@@ -518,8 +472,10 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer {
 
 				// todo prendre en consideration les condition composer qui
 				// engendre des if ibriquer
-				out.println(">>>>>----erreur----on ne prend pas en consideration les condition composer qui engendre des if ibriquer ------->>>>   "
-						+ theConsideredSucessor);
+				if (traceUnits) {
+					out.println(">>>>>----erreur----on ne prend pas en consideration les condition composer qui engendre des if ibriquer ------->>>>   "
+							+ theConsideredSucessor);
+				}
 
 				// on dois sortire du while sans faire return pour paser  la
 				// prochaine ifstmt du cfg
@@ -530,37 +486,46 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer {
 
 			} else {
 
-				List<Unit> succesorlist = cfg.getSuccsOf(theConsideredSucessor);
-				if (succesorlist.size() == 0) {
-					out.println(">>>>>--------pas de succesor  ------->>>>   "
-							+ theConsideredSucessor);
+				int nbOfSuccesors = cfg.getNbOfSuccs(theConsideredSucessorIndex);
+				if (nbOfSuccesors == 0) {
+					if (traceUnits) {
+						out.println(">>>>>--------pas de succesor  ------->>>>   "
+								+ theConsideredSucessor);
+					}
 					mustExitWhileLoop = true;// on dois sortire du while sans
 												// faire return pour paser  la
 												// prochaine ifstmt du cfg
-				} else if (succesorlist.size() == 1) {
+				} else if (nbOfSuccesors == 1) {
 
-					if (HandlerUnitOfTrap.contains(theConsideredSucessor)) {
+					if (cfg.isTrapHandler(theConsideredSucessorIndex)) {
 						mustExitWhileLoop = true;
-						out.println(">>>>>--------beginig of try catch   ------->>>>   "
-								+ theConsideredSucessor);
+						if (traceUnits) {
+							out.println(">>>>>--------beginig of try catch   ------->>>>   "
+									+ theConsideredSucessor);
+						}
 
 					} else {
 
-						theConsideredSucessor = succesorlist.get(0);
+						theConsideredSucessorIndex = cfg.getSucc(theConsideredSucessorIndex, 0);
+						theConsideredSucessor = cfg.getUnit(theConsideredSucessorIndex);
 						PathLength++;
 
 					}
 
-				} else if (succesorlist.size() > 1) {
+				} else if (nbOfSuccesors > 1) {
 
-					out.println(">>>>>--------succesorlist.size() > 1  unhandled case  ------->>>>   "
-							+ theConsideredSucessor);
+					if (traceUnits) {
+						out.println(">>>>>--------succesorlist.size() > 1  unhandled case  ------->>>>   "
+								+ theConsideredSucessor);
+					}
 					mustExitWhileLoop = true;// on dois sortire du while sans
 												// faire return pour paser  la
 												// prochaine ifstmt du cfg
 
-					for (Unit unit : succesorlist) {
-						out.println(unit);
+					if (traceUnits) {
+						for (int k = 0; k < nbOfSuccesors; k++) {
+							out.println(cfg.getUnit(cfg.getSucc(theConsideredSucessorIndex, k)));
+						}
 					}
 
 				}
@@ -572,37 +537,36 @@ public class InvokeStaticInstrumenterP2 extends BodyTransformer {
 		return findThroStmt;
 	}
 
-	public void statistique() throws FileNotFoundException {
+	// ecrit les resultats de tout les body dans les fichiers, dans l'ordre
+	// des classes de la Scene
+	public List<ClassReport> writeResults() {
 
-		PrintWriter patternDistributionOverClass = new PrintWriter(
-				".\\statistique\\P2\\JHotDraw7.0.6\\patternDistributionOverClass.csv");
+		return results.flush();
+	}
 
-		patternDistributionOverClass.println("class name" + ";;"
-				+ "number of detected pattern");
+	public DetectionResultCollector getResults() {
 
-		int i = 0;
-		int j = 0;
-		System.out.println("___________________Statistique________________");
+		return results;
+	}
 
-		Set<java.util.Map.Entry<String, Integer>> setEntry = patternDistributionOverClasses
-				.entrySet();
+	public void statistique() throws IOException {
 
-		for (java.util.Map.Entry<String, Integer> entry : setEntry) {
+		statistique(".\\statistique\\P2\\JHotDraw7.0.6\\patternDistributionOverClass.csv");
+	}
 
-			System.out.println(j + "la clase ---> " + entry.getKey()
-					+ " nbpatern ----> " + entry.getValue());
-			patternDistributionOverClass.println(entry.getKey() + ";;"
-					+ entry.getValue());
+	public void statistique(String patternDistributionOverClassFile)
+			throws IOException {
 
-			i += entry.getValue();
-			j++;
-		}
+		System.out.println("___________________Statistique________________");
+
+		// les lignes des classes ont ete gardees au fil du run par le
+		// collector (voir Common.ResultSink)
+		int i = results.writePatternDistributionOverClass(
+				patternDistributionOverClassFile, System.out);
 
 		System.out
 				.println(" ___________________Fin Statistique_______________avec nb totl de patron :_"
 						+ i);
-
-		patternDistributionOverClass.close();
 	}
 
 }
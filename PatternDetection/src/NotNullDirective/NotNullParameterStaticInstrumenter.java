@@ -26,7 +26,6 @@ package NotNullDirective;
  */
 import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -39,25 +38,21 @@ import soot.SootMethod;
 import soot.Unit;
 import soot.Value;
 import soot.ValueBox;
-import soot.toolkits.graph.ExceptionalUnitGraph;
 import soot.toolkits.graph.UnitGraph;
 import soot.toolkits.scalar.SimpleLocalDefs;
+import Common.BodyAnalysis;
+import Common.SharedBodyGraph;
+import Common.Trace;
 
 public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 
-	/* some internal fields */
-
-	static PrintWriter out;
-	static PrintWriter patternDistributionOverMethod;
-	static PrintWriter detectedPattern;
-	static HashMap<String, Integer> patternDistributionOverClasses;
-	static SimpleLocalDefsUsingParameter simpleLocalDefs;
-	static ArrayList<Local> methodParameterChain;
+	/*
+	 * no internal fields: everything computed for a body stays local to
+	 * internalTransform so the jtp pack can run bodies in parallel
+	 */
 
-	static {
-		patternDistributionOverClasses = new HashMap<String, Integer>(350);
-
-	}
+	// NullTestedLocals a besoin de l'ExceptionalUnitGraph (voir Common.SharedBodyGraph)
+	public static final int CFG_PRECISION = SharedBodyGraph.EXCEPTIONAL;
 
 	public NotNullParameterStaticInstrumenter(PrintWriter pw1, PrintWriter pw2,
 			PrintWriter pw3) {
@@ -73,17 +68,23 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 
 		SootMethod method = body.getMethod();
 		SootClass declaringClass = method.getDeclaringClass();
-		System.out.println("@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@");
 
-		System.out.println("instrumenting method : " + method.getSignature()
+		// ce detecteur ne produit que des traces (voir Common.Trace) : sans elles il n'a rien a faire
+		if (!Trace.on(Trace.NOTNULL_PARAMETER, Trace.INFO)) {
+			return;
+		}
+		boolean traceUnits = Trace.on(Trace.NOTNULL_PARAMETER, Trace.DEBUG);
+
+		Trace.println("@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@");
+
+		Trace.println("instrumenting method : " + method.getSignature()
 				+ "    in class  " + declaringClass.getName());
 
 		Integer nbOfDetectedpatternInCurrentMethod = 0;
 
-		UnitGraph cfg = new ExceptionalUnitGraph(body);
-		simpleLocalDefs = new SimpleLocalDefsUsingParameter(cfg);
+		UnitGraph cfg = SharedBodyGraph.exceptionalUnitGraph(body);
 
-		methodParameterChain = new ArrayList<Local>();
+		ArrayList<Local> methodParameterChain = new ArrayList<Local>();
 
 		for (int j = 0; j < method.getParameterCount(); j++) {
 
@@ -93,10 +94,13 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 
 		ArrayList<Local> LocalsDefinedUsingParameterList =new ArrayList<Local>();
 		
-		LocalsDefinedUsingParameterList=getLocalsDefinedUsingParameter(cfg);
+		LocalsDefinedUsingParameterList=getLocalsDefinedUsingParameter(cfg, methodParameterChain);
+		
 		
+		if (traceUnits) {
 		
-		SimpleLocalDefs simpleLocalDefs = new SimpleLocalDefs(cfg); 
+		// les definitions du body, partagees par les detecteurs (voir Common.BodyAnalysis)
+		SimpleLocalDefs simpleLocalDefs = BodyAnalysis.REACHING_DEFS.of(body);
 		
 		Iterator<Unit> units =cfg.iterator();
 		
@@ -107,12 +111,12 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 			
 			List<ValueBox> useBoxes = unit.getUseBoxes();
 			List<ValueBox> defBoxes = unit.getDefBoxes();
-			System.out.println("1-------->unit:    "+unit);
+			Trace.println("1-------->unit:    "+unit);
 			
 			
 			for (ValueBox valueBox : useBoxes) {
 				
-				System.out.println("2-------->useBoxes:    "+valueBox.getValue());
+				Trace.println("2-------->useBoxes:    "+valueBox.getValue());
 				
 				if (valueBox.getValue() instanceof Local) {
 					
@@ -120,7 +124,7 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 					
 					for (Unit unit2 : listOfDefiningUnit) {
 						
-						System.out.println("-------->DefiningUnit:    "+unit2);
+						Trace.println("-------->DefiningUnit:    "+unit2);
 
 					}
 					
@@ -131,7 +135,7 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 			
 			for (ValueBox valueBox : defBoxes) {
 			
-				System.out.println("3-------->defBoxes:    "+valueBox.getValue());
+				Trace.println("3-------->defBoxes:    "+valueBox.getValue());
 				
 				
 				
@@ -141,6 +145,8 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 			
 			
 			
+		}
+		
 		}
 
 		//ListingTestedLocalsBeforAndAfterUnit(cfg);
@@ -150,13 +156,13 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 		
 		methodParameterAndLocalsDefinedUsingParameterList=methodParameterChain;
 		
-		if (LocalsDefinedUsingParameterList.size()>0) {
+		if (traceUnits && LocalsDefinedUsingParameterList.size()>0) {
 			
-			System.out.println("il y a des locals DefinedUsingParameter  ");
+			Trace.println("il y a des locals DefinedUsingParameter  ");
 
 			for (Local local : LocalsDefinedUsingParameterList) {
 				
-				System.out.println("local:  "+local);
+				Trace.println("local:  "+local);
 
 				
 			}
@@ -180,7 +186,7 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 		detectUsedAndNotTestedMetodParameter( cfg, methodParameterAndLocalsDefinedUsingParameterList);
 	}
 
-	private  ArrayList<Local> getLocalsDefinedUsingParameter(UnitGraph cfg) {
+	protected ArrayList<Local> getLocalsDefinedUsingParameter(UnitGraph cfg, ArrayList<Local> methodParameterChain) {
 		
 		 ArrayList<Local> LocalsDefinedUsingParameterList =new ArrayList<Local>();
 		 
@@ -206,7 +212,9 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 		            		  	if (methodParameterChain.contains(valueBox.getValue())) {
 		            		  		
 		            		  		
-		            		  		 System.out.println("*----l'unit --> "+ unit +" -----utilise un parametre----la Value------> "+valueBox.getValue()+ " --------qui existe dans les methodParameterChain  ");
+		            		  		 if (Trace.on(Trace.NOTNULL_PARAMETER, Trace.DEBUG)) {
+		            		  			 Trace.println("*----l'unit --> "+ unit +" -----utilise un parametre----la Value------> "+valueBox.getValue()+ " --------qui existe dans les methodParameterChain  ");
+		            		  		 }
 		            		  		 
 		            		  		LocalsDefinedUsingParameterList.add(defLocal);
 		            		  		
@@ -237,7 +245,11 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 
 		ArrayList<Local> methodParameterAndLocalsDefinedUsingParameterList =localsList;
 
+		// l'analyse ne depend que du body : calculee une fois, a la premiere utilisation d'un parametre,
+		// et partagee par les detecteurs (voir Common.BodyAnalysis)
+		NullTestedLocals testedLocals = null;
 		
+		boolean traceUnits = Trace.on(Trace.NOTNULL_PARAMETER, Trace.DEBUG);
 		
 		while (units.hasNext()) {
 			Unit unit = (Unit) units.next();
@@ -254,28 +266,34 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 						
 						if (methodParameterAndLocalsDefinedUsingParameterList.contains(valueBox.getValue())) {
 							
-							NullTestedLocals testedLocals = new NullTestedLocals((ExceptionalUnitGraph) cfg);
+							if (testedLocals == null) {
+								testedLocals = NullTestedLocals.OF_BODY.of(cfg.getBody());
+							}
 							
 							List<Local> testedlocalsBeforUnit = testedLocals.getLiveLocalsBefore(unit);
 							
 							
 							if (testedlocalsBeforUnit.contains(valueBox.getValue())) {
 								
-								System.out.println(" parametre convenablement utiliser   " + valueBox.getValue()+"  dans  " +unit);
+								if (traceUnits) {
+									Trace.println(" parametre convenablement utiliser   " + valueBox.getValue()+"  dans  " +unit);
+								}
 							}else {
 								
-								System.out.println("# pattern detected parametre  utiliser sans etre tester par raport null  " + valueBox.getValue()+"  dans  " +unit);
+								Trace.println("# pattern detected parametre  utiliser sans etre tester par raport null  " + valueBox.getValue()+"  dans  " +unit);
 
 								
 							}
 							
 							
-							System.out.println("   variable dans methodParameterChain " + valueBox.getValue());
+							if (traceUnits) {
+								Trace.println("   variable dans methodParameterChain " + valueBox.getValue());
+							}
 							
-						}else {
+						}else if (traceUnits) {
 							
 							
-							System.out.println("   variable pas dans methodParameterChain " + valueBox.getValue());
+							Trace.println("   variable pas dans methodParameterChain " + valueBox.getValue());
 
 							
 							
@@ -296,20 +314,19 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 	
 	protected void ListingTestedLocalsBeforAndAfterUnit(UnitGraph cfg){
 		
-		NullTestedLocals testedLocals = new NullTestedLocals(
-				(ExceptionalUnitGraph) cfg);
+		NullTestedLocals testedLocals = NullTestedLocals.OF_BODY.of(cfg.getBody());
 
 		Iterator<Unit> Units = cfg.iterator();
 		
 		while (Units.hasNext()) {
 			Unit unit = (Unit) Units.next();
 
-			System.out.println("a-----> unit:  " + unit);
+			Trace.println("a-----> unit:  " + unit);
 			List<ValueBox> useBoxs = unit.getUseBoxes();
 
 			for (ValueBox valueBox : useBoxs) {
 
-				System.out.println("b-----> useBoxvalue:  "
+				Trace.println("b-----> useBoxvalue:  "
 						+ valueBox.getValue());
 
 				List<Local> testedlocalsBeforUnit = testedLocals
@@ -318,9 +335,9 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 				List<Local> testedlocalsAfter = testedLocals
 						.getLiveLocalsAfter(unit);
 
-				System.out.println("%---size--> testedlocalsBeforUnit :  "
+				Trace.println("%---size--> testedlocalsBeforUnit :  "
 						+ testedlocalsBeforUnit.size());
-				System.out.println("%---size--> testedlocalsAfter     :  "
+				Trace.println("%---size--> testedlocalsAfter     :  "
 						+ testedlocalsAfter.size());
 
 				// for (Object object : testedlocalsBeforUnit) {
@@ -337,14 +354,14 @@ public class NotNullParameterStaticInstrumenter extends BodyTransformer {
 
 				for (Local local : testedlocalsBeforUnit) {
 
-					System.out.println("%-----> testedlocalsBeforUnit:  "
+					Trace.println("%-----> testedlocalsBeforUnit:  "
 							+ local);
 
 				}
 
 				for (Local local : testedlocalsAfter) {
 
-					System.out.println("%-----> testedlocalsAfter:       "
+					Trace.println("%-----> testedlocalsAfter:       "
 							+ local);
 
 				}
@@ -0,0 +1,120 @@
+package NotNullDirective;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import soot.Local;
+import soot.Unit;
+import soot.jimple.IfStmt;
+import soot.toolkits.graph.UnitGraph;
+import Common.BitVectorFlowAnalysis;
+import Common.IfStmtCondition;
+import Common.Trace;
+
+class NullTestedLocalsFlowAnalysis extends BitVectorFlowAnalysis {
+
+	private static final Local[] NO_PARAMETER = new Local[0];
+
+	// les locals dans l'ordre du body : le fait i est "locals[i] a ete compare a null"
+	final Local[] locals;
+	final Map<Local, Integer> indexOfLocal;
+
+	public NullTestedLocalsFlowAnalysis(UnitGraph cfg) {
+		super(cfg, cfg.getBody().getLocalCount());
+
+		// Generate list of locals
+
+		{
+			locals = cfg.getBody().getLocals().toArray(new Local[cfg.getBody().getLocalCount()]);
+			indexOfLocal = new HashMap<Local, Integer>(locals.length * 2 + 1, 0.7f);
+
+			for (int i = 0; i < locals.length; i++) {
+				indexOfLocal.put(locals[i], i);
+			}
+		}
+
+		// all the tested locals are preserved : nothing is killed
+
+		// Create generate sets
+		{
+
+			boolean traceUnits = Trace.on(Trace.NULL_TESTED_LOCALS, Trace.DEBUG);
+
+			Iterator<Unit> unitIt = cfg.iterator();
+
+			while (unitIt.hasNext()) {
+				Unit unit = (Unit) unitIt.next();
+
+				// the goal is to build a set of all locals which was compared
+				// with null
+
+				if (unit instanceof soot.jimple.IfStmt) {
+
+					long condition = IfStmtCondition.describe((IfStmt) unit, NO_PARAMETER);
+
+					// check that the condition is a null verification
+
+					if (IfStmtCondition.isNullComparison(condition)) {
+
+						if (IfStmtCondition.isTestedOperandLocal(condition)) {
+
+							gen(unit, indexOfLocal.get(IfStmtCondition.getTestedOperand(condition, (IfStmt) unit)));
+
+							if (traceUnits) {
+								Trace.println("*****************1  condition valide ***************************");
+							}
+							
+						} else {
+							// the genset in this case is empty
+							if (traceUnits) {
+								Trace.println("*****************2  condition non valide op1 not instence of local or usebox dasent contain op1 ***************************");
+							}
+
+						}
+
+					} else {
+
+						// the genset in this case is empty
+
+						if (traceUnits) {
+							Trace.println("*****************3  condition non valide verification mais pas pour null ***************************");
+						}
+
+						
+					}
+
+				} else {
+
+					// the genset in this case is empty
+					if (traceUnits) {
+						Trace.println("*****************4  condition non valide unit is not an if instraction  ***************************");
+					}
+
+				}
+
+			}
+
+		}
+		
+		doAnalysis();
+
+	}
+
+	/* the tested locals before (or after) unit, in the order of the body */
+	List<Local> testedLocals(Unit unit, boolean beforeUnit) {
+
+		List<Local> testedLocals = new ArrayList<Local>();
+
+		int fact = beforeUnit ? nextFactBefore(unit, 0) : nextFactAfter(unit, 0);
+		while (fact >= 0) {
+			testedLocals.add(locals[fact]);
+			fact = beforeUnit ? nextFactBefore(unit, fact + 1) : nextFactAfter(unit, fact + 1);
+		}
+
+		return testedLocals;
+	}
+
+}